@@ -0,0 +1,112 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.dissect;
+
+import org.elasticsearch.dissect.DissectParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dissecting access log lines, comparing building a {@link java.util.Map}
+ * of the results with passing them straight to a consumer like the dissect
+ * processor does.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DissectBenchmark {
+    private static final String[] METHODS = { "GET", "POST", "PUT", "DELETE" };
+    private static final String[] PATHS = { "/", "/index.html", "/api/search", "/static/app.js", "/login" };
+
+    /**
+     * {@code simple} only uses plain keys. {@code modifiers} also appends
+     * the date and time together and names a field after the method.
+     */
+    @Param({ "simple", "modifiers" })
+    public String pattern;
+
+    /**
+     * The number of log lines dissected by each invocation.
+     */
+    @Param({ "1000" })
+    public int lines;
+
+    private DissectParser parser;
+    private String[] corpus;
+
+    @Setup
+    public void setup() {
+        switch (pattern) {
+            case "simple":
+                parser = new DissectParser(
+                    "%{clientip} %{ident} %{auth} [%{timestamp}] \"%{verb} %{request} HTTP/%{httpversion}\" %{status} %{size}",
+                    null
+                );
+                break;
+            case "modifiers":
+                parser = new DissectParser(
+                    "%{clientip} %{?ident} %{?auth} [%{date}:%{+date}] \"%{*verb} %{&verb} HTTP/%{httpversion}\" %{status->} %{size}",
+                    " "
+                );
+                break;
+            default:
+                throw new IllegalArgumentException("unknown pattern [" + pattern + "]");
+        }
+        Random random = new Random(42);
+        corpus = new String[lines];
+        for (int l = 0; l < lines; l++) {
+            corpus[l] = String.format(
+                Locale.ROOT,
+                "10.%d.%d.%d - - [%02d/Jun/2021:%02d:%02d:%02d +0000] \"%s %s HTTP/1.1\" %d %d",
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(256),
+                1 + random.nextInt(28),
+                random.nextInt(24),
+                random.nextInt(60),
+                random.nextInt(60),
+                METHODS[random.nextInt(METHODS.length)],
+                PATHS[random.nextInt(PATHS.length)],
+                random.nextBoolean() ? 200 : 404,
+                random.nextInt(100_000)
+            );
+        }
+    }
+
+    @Benchmark
+    public void map(Blackhole bh) {
+        for (String line : corpus) {
+            bh.consume(parser.parse(line));
+        }
+    }
+
+    @Benchmark
+    public void consumer(Blackhole bh) {
+        for (String line : corpus) {
+            parser.parse(line, (key, value) -> bh.consume(value));
+        }
+    }
+}
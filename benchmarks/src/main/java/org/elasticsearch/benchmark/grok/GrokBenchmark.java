@@ -0,0 +1,119 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.grok;
+
+import org.elasticsearch.grok.Grok;
+import org.elasticsearch.grok.GrokPrefilter;
+import org.elasticsearch.grok.MatcherWatchdog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Matching log lines against a list of alternative grok patterns like the
+ * grok processor does, comparing trying all the patterns with the regex
+ * engine with picking the candidates with {@link GrokPrefilter} first.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class GrokBenchmark {
+    private static final String[] LEVELS = { "INFO", "WARN", "ERROR", "DEBUG" };
+    private static final String[] COMPONENTS = { "auth", "billing", "search", "storage", "scheduler" };
+
+    /**
+     * The number of alternative patterns. Each one matches lines logged by a
+     * different component.
+     */
+    @Param({ "2", "20" })
+    public int patterns;
+
+    /**
+     * The number of log lines matched by each invocation.
+     */
+    @Param({ "1000" })
+    public int lines;
+
+    private Grok combined;
+    private GrokPrefilter prefilter;
+    private String[] corpus;
+
+    @Setup
+    public void setup() {
+        Map<String, String> bank = Grok.getBuiltinPatterns(false);
+        List<String> matchPatterns = new ArrayList<>(patterns);
+        for (int p = 0; p < patterns; p++) {
+            matchPatterns.add(
+                "%{TIMESTAMP_ISO8601:timestamp} \\[%{LOGLEVEL:level}\\] service" + p
+                    + ": %{IP:client} took \\[%{NUMBER:took:int}ms\\] %{GREEDYDATA:message}"
+            );
+        }
+        String expression = matchPatterns.stream().map(p -> "(?:" + p + ")").collect(Collectors.joining("|"));
+        combined = new Grok(bank, expression, MatcherWatchdog.noop(), s -> {});
+        prefilter = GrokPrefilter.build(bank, matchPatterns, MatcherWatchdog.noop(), s -> {});
+        if (prefilter == null) {
+            throw new IllegalStateException("expected the patterns to be prefiltered");
+        }
+
+        Random random = new Random(42);
+        corpus = new String[lines];
+        for (int l = 0; l < lines; l++) {
+            // Most lines match one of the patterns, some don't match any
+            String service = random.nextInt(10) == 0 ? "unknown" : "service" + random.nextInt(patterns);
+            corpus[l] = String.format(
+                Locale.ROOT,
+                "2021-06-%02dT12:%02d:%02d.000Z [%s] %s: 10.%d.%d.%d took [%dms] %s request finished",
+                1 + random.nextInt(28),
+                random.nextInt(60),
+                random.nextInt(60),
+                LEVELS[random.nextInt(LEVELS.length)],
+                service,
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(5000),
+                COMPONENTS[random.nextInt(COMPONENTS.length)]
+            );
+        }
+    }
+
+    @Benchmark
+    public void combined(Blackhole bh) {
+        for (String line : corpus) {
+            bh.consume(combined.captures(line));
+        }
+    }
+
+    @Benchmark
+    public void prefiltered(Blackhole bh) {
+        for (String line : corpus) {
+            bh.consume(prefilter.captures(line, combined));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.script;
+
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugins.PluginsService;
+import org.elasticsearch.plugins.ScriptPlugin;
+import org.elasticsearch.script.IngestScript;
+import org.elasticsearch.script.LongFieldScript;
+import org.elasticsearch.script.ScriptContext;
+import org.elasticsearch.script.ScriptEngine;
+import org.elasticsearch.script.ScriptModule;
+import org.elasticsearch.script.UpdateScript;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compiles and runs Painless scripts shaped like the ones our users write in
+ * a few different {@link ScriptContext}s. {@link #compile} measures how long
+ * it takes to compile the script and {@link #execute} measures running it
+ * against a single document. Add {@code -prof gc} to the options to measure
+ * how much each of them allocates.
+ */
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PainlessBenchmark {
+    private static final int DOCS = 1000;
+
+    private final PluginsService pluginsService = new PluginsService(
+        Settings.EMPTY,
+        null,
+        null,
+        Path.of(System.getProperty("plugins.dir")),
+        List.of()
+    );
+    private final ScriptModule scriptModule = new ScriptModule(Settings.EMPTY, pluginsService.filterPlugins(ScriptPlugin.class));
+    private final ScriptEngine painless = scriptModule.engines.get("painless");
+
+    @Param(
+        {
+            "ingest_def_math",
+            "ingest_map_access",
+            "ingest_string_building",
+            "ingest_lambda_stream",
+            "update_source",
+            "runtime_field_emit" }
+    )
+    private String script;
+
+    private ScriptContext<?> context;
+    private String source;
+    private Supplier<Object> run;
+
+    private Directory directory;
+    private DirectoryReader reader;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (script) {
+            case "ingest_def_math":
+                ingest("def total = 0; def max = 0; for (def v : ctx.values) { total += v; max = Math.max(max, v) } "
+                    + "ctx.total = total; ctx.max = max");
+                break;
+            case "ingest_map_access":
+                ingest("def response = ctx.http.response; ctx.status_class = response.status_code / 100; "
+                    + "ctx.slow = response.took > params.threshold; ctx.remove('tmp')");
+                break;
+            case "ingest_string_building":
+                ingest("StringBuilder b = new StringBuilder(); for (String tag : ctx.tags) { "
+                    + "if (b.length() > 0) { b.append(',') } b.append(tag) } "
+                    + "ctx.tags_joined = b.toString(); ctx.address = ctx.host + ':' + ctx.port");
+                break;
+            case "ingest_lambda_stream":
+                ingest("ctx.big = ctx.values.stream().filter(v -> v > 50).mapToLong(v -> v).sum(); "
+                    + "ctx.upper = ctx.tags.stream().map(t -> t.toUpperCase()).collect(Collectors.toList())");
+                break;
+            case "update_source":
+                update("ctx._source.counter += params.count; "
+                    + "if (ctx._source.tags.contains(params.tag) == false) { ctx._source.tags.add(params.tag) }");
+                break;
+            case "runtime_field_emit":
+                runtimeField("for (def v : params._source.values) { if (v > 50) { emit(v) } }");
+                break;
+            default:
+                throw new IllegalArgumentException("Don't know how to implement script [" + script + "]");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        IOUtils.close(reader, directory);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object compile() {
+        return painless.compile("benchmark", source, context, Map.of());
+    }
+
+    @Benchmark
+    public Object execute() {
+        return run.get();
+    }
+
+    private void ingest(String source) {
+        IngestScript.Factory factory = compile(IngestScript.CONTEXT, source);
+        Map<String, Object> params = Map.of("threshold", 100);
+        Map<String, Object> ctx = document();
+        run = () -> {
+            factory.newInstance(params).execute(ctx);
+            return ctx;
+        };
+    }
+
+    private void update(String source) {
+        UpdateScript.Factory factory = compile(UpdateScript.CONTEXT, source);
+        Map<String, Object> params = Map.of("count", 1, "tag", "tag1");
+        Map<String, Object> ctx = new HashMap<>();
+        ctx.put("_source", document());
+        run = () -> {
+            factory.newInstance(params, ctx).execute();
+            return ctx;
+        };
+    }
+
+    private void runtimeField(String source) throws IOException {
+        LongFieldScript.Factory factory = compile(LongFieldScript.CONTEXT, source);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter w = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int d = 0; d < DOCS; d++) {
+                StringBuilder json = new StringBuilder("{\"values\": [");
+                for (int v = 0; v < 10; v++) {
+                    json.append(v == 0 ? "" : ", ").append((d + v) % 100);
+                }
+                json.append("]}");
+                w.addDocument(List.of(new StoredField("_source", new BytesRef(json.toString()))));
+            }
+            w.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        SearchLookup lookup = new SearchLookup(name -> null, (mft, l) -> {
+            throw new UnsupportedOperationException();
+        });
+        LongFieldScript leaf = factory.newFactory("field", Map.of(), lookup).newInstance(reader.leaves().get(0));
+        int[] doc = new int[1];
+        run = () -> {
+            doc[0] = (doc[0] + 1) % DOCS;
+            leaf.runForDoc(doc[0]);
+            return leaf.count();
+        };
+    }
+
+    private <T> T compile(ScriptContext<T> context, String source) {
+        this.context = context;
+        this.source = source;
+        return painless.compile("benchmark", source, context, Map.of());
+    }
+
+    /**
+     * A document shaped like a small log line.
+     */
+    private static Map<String, Object> document() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status_code", 404);
+        response.put("took", 150);
+        Map<String, Object> http = new HashMap<>();
+        http.put("response", response);
+        List<Object> values = new ArrayList<>();
+        for (int v = 0; v < 100; v++) {
+            values.add(v);
+        }
+        List<Object> tags = new ArrayList<>(List.of("tag1", "tag2", "tag3", "tag4"));
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("http", http);
+        doc.put("values", values);
+        doc.put("tags", tags);
+        doc.put("host", "example.com");
+        doc.put("port", 9200);
+        doc.put("counter", 0);
+        return doc;
+    }
+}
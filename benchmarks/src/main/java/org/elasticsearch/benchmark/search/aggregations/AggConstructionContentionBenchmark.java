@@ -69,8 +69,10 @@ import org.openjdk.jmh.annotations.Warmup;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -354,6 +356,31 @@ public class AggConstructionContentionBenchmark {
             return true;
         }
 
+        @Override
+        public boolean collectsAllMatchingDocs() {
+            return true;
+        }
+
+        @Override
+        public boolean searchStoppedEarly() {
+            return false;
+        }
+
+        @Override
+        public Map<String, Object> readerState() {
+            return null;
+        }
+
+        @Override
+        public CircuitBreaker readerStateBreaker() {
+            return breaker;
+        }
+
+        @Override
+        public Executor siblingCollectionExecutor() {
+            return null;
+        }
+
         @Override
         public void close() {
             List<Releasable> releaseMe = new ArrayList<>(this.releaseMe);
@@ -0,0 +1,186 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.HdrHistogram.DoubleHistogram;
+import org.elasticsearch.index.fielddata.HistogramValue;
+import org.elasticsearch.search.aggregations.metrics.HistogramMerger;
+import org.elasticsearch.search.aggregations.metrics.TDigestState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Percentiles over pre-aggregated {@code histogram} fields, comparing adding
+ * each document's values to the sketch one at a time with merging them in
+ * bulk with {@link HistogramMerger}.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class HistogramPercentilesBenchmark {
+    /**
+     * The number of documents, each with one histogram.
+     */
+    @Param({ "1000000" })
+    public int histograms;
+
+    /**
+     * The number of values in each histogram.
+     */
+    @Param({ "20" })
+    public int valuesPerHistogram;
+
+    /**
+     * {@code shared} histograms all use the same bucket boundaries, like
+     * latency histograms from a metrics pipeline. {@code random} histograms
+     * all have different values.
+     */
+    @Param({ "shared", "random" })
+    public String boundaries;
+
+    private double[] values;
+    private int[] counts;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        double[] shared = new double[valuesPerHistogram];
+        for (int i = 0; i < valuesPerHistogram; i++) {
+            shared[i] = Math.pow(2, i) / 1000;
+        }
+        values = new double[histograms * valuesPerHistogram];
+        counts = new int[values.length];
+        for (int h = 0; h < histograms; h++) {
+            double previous = 0;
+            for (int i = 0; i < valuesPerHistogram; i++) {
+                int index = h * valuesPerHistogram + i;
+                switch (boundaries) {
+                    case "shared":
+                        values[index] = shared[i];
+                        break;
+                    case "random":
+                        previous += random.nextDouble() * 100;
+                        values[index] = previous;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown boundaries [" + boundaries + "]");
+                }
+                counts[index] = random.nextInt(1000);
+            }
+        }
+    }
+
+    @Benchmark
+    public TDigestState tdigestOneAtATime() throws IOException {
+        TDigestState state = new TDigestState(100);
+        ArrayHistogramValue histogram = new ArrayHistogramValue();
+        for (int h = 0; h < histograms; h++) {
+            histogram.reset(h);
+            while (histogram.next()) {
+                state.add(histogram.value(), histogram.count());
+            }
+        }
+        state.compress();
+        return state;
+    }
+
+    @Benchmark
+    public TDigestState tdigestMerged() throws IOException {
+        TDigestState state = new TDigestState(100);
+        merge((value, count) -> state.add(value, (int) count));
+        state.compress();
+        return state;
+    }
+
+    @Benchmark
+    public DoubleHistogram hdrOneAtATime() throws IOException {
+        DoubleHistogram state = newHdr();
+        ArrayHistogramValue histogram = new ArrayHistogramValue();
+        for (int h = 0; h < histograms; h++) {
+            histogram.reset(h);
+            while (histogram.next()) {
+                state.recordValueWithCount(histogram.value(), histogram.count());
+            }
+        }
+        return state;
+    }
+
+    @Benchmark
+    public DoubleHistogram hdrMerged() throws IOException {
+        DoubleHistogram state = newHdr();
+        merge(state::recordValueWithCount);
+        return state;
+    }
+
+    private static DoubleHistogram newHdr() {
+        DoubleHistogram state = new DoubleHistogram(3);
+        state.setAutoResize(true);
+        return state;
+    }
+
+    /**
+     * Merge every histogram the way the aggregators do.
+     */
+    private void merge(HistogramMerger.ValueConsumer consumer) throws IOException {
+        HistogramMerger merger = new HistogramMerger();
+        ArrayHistogramValue histogram = new ArrayHistogramValue();
+        for (int h = 0; h < histograms; h++) {
+            histogram.reset(h);
+            merger.add(histogram);
+            if (merger.size() >= HistogramMerger.BUFFER_SIZE) {
+                merger.merge(consumer);
+            }
+        }
+        merger.merge(consumer);
+    }
+
+    /**
+     * Reads one of the generated histograms like doc values would.
+     */
+    private class ArrayHistogramValue extends HistogramValue {
+        private int i;
+        private int end;
+
+        void reset(int histogram) {
+            i = histogram * valuesPerHistogram - 1;
+            end = i + valuesPerHistogram + 1;
+        }
+
+        @Override
+        public boolean next() {
+            return ++i < end;
+        }
+
+        @Override
+        public double value() {
+            return values[i];
+        }
+
+        @Override
+        public int count() {
+            return counts[i];
+        }
+    }
+}
@@ -8,15 +8,16 @@
 
 package org.elasticsearch.dissect;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -92,7 +93,25 @@ public final class DissectParser {
         DissectKey.Modifier.APPEND,
         DissectKey.Modifier.APPEND_WITH_ORDER);
     private static final Function<DissectPair, String> KEY_NAME = val -> val.getKey().getName();
-    private final List<DissectPair> matchPairs;
+    private final DissectKey[] keys;
+    private final String[] delimiters;
+    /**
+     * The index of the last key of each name without modifiers.
+     */
+    private final int[] simpleKeys;
+    /**
+     * The indices of the keys appended to each name in the order that they are appended.
+     */
+    private final int[][] appendKeys;
+    /**
+     * The index of the {@code *} key and the {@code &} key for each name that is a reference or {@code -1} if it is missing.
+     */
+    private final int[] referenceNameKeys;
+    private final int[] referenceValueKeys;
+    /**
+     * The names of the results that don't depend on the input string.
+     */
+    private final Set<String> staticResultNames;
     private final String pattern;
     private String leadingDelimiter = "";
     private final int maxMatches;
@@ -152,7 +171,47 @@ public final class DissectParser {
         }
 
         referenceCount = referenceGroupings.size() * 2;
-        this.matchPairs = Collections.unmodifiableList(dissectPairs);
+
+        //plan how to build the results from the matched keys
+        keys = new DissectKey[dissectPairs.size()];
+        delimiters = new String[dissectPairs.size()];
+        Map<String, Integer> simple = new LinkedHashMap<>();
+        Map<String, List<Integer>> appends = new LinkedHashMap<>();
+        Map<String, int[]> references = new LinkedHashMap<>();
+        int[] appendOrders = new int[keys.length];
+        int implicitAppendOrder = -1000;
+        for (int k = 0; k < keys.length; k++) {
+            DissectKey key = dissectPairs.get(k).getKey();
+            keys[k] = key;
+            delimiters[k] = dissectPairs.get(k).getDelimiter();
+            if (key.skip()) {
+                continue;
+            }
+            switch (key.getModifier()) {
+                case NONE:
+                    simple.put(key.getName(), k);
+                    break;
+                case APPEND:
+                case APPEND_WITH_ORDER:
+                    appendOrders[k] = key.getModifier() == DissectKey.Modifier.APPEND ? implicitAppendOrder++ : key.getAppendPosition();
+                    appends.computeIfAbsent(key.getName(), n -> new ArrayList<>()).add(k);
+                    break;
+                case FIELD_NAME:
+                    references.computeIfAbsent(key.getName(), n -> new int[] { -1, -1 })[0] = k;
+                    break;
+                case FIELD_VALUE:
+                    references.computeIfAbsent(key.getName(), n -> new int[] { -1, -1 })[1] = k;
+                    break;
+            }
+        }
+        simpleKeys = simple.values().stream().mapToInt(Integer::intValue).toArray();
+        appendKeys = appends.values().stream()
+            .map(append -> append.stream().sorted(Comparator.comparingInt(k -> appendOrders[k])).mapToInt(Integer::intValue).toArray())
+            .toArray(int[][]::new);
+        referenceNameKeys = references.values().stream().mapToInt(reference -> reference[0]).toArray();
+        referenceValueKeys = references.values().stream().mapToInt(reference -> reference[1]).toArray();
+        staticResultNames = new HashSet<>(simple.keySet());
+        staticResultNames.addAll(appends.keySet());
     }
 
 
@@ -164,12 +223,129 @@ public final class DissectParser {
      * @throws DissectException if unable to dissect a pair into it's parts.
      */
     public Map<String, String> parse(String inputString) {
+        int[] offsets = new int[keys.length * 2];
+        int matches = match(inputString, offsets);
+        DissectMatch dissectMatch = new DissectMatch(appendSeparator, maxMatches, maxResults, appendCount, referenceCount);
+        for (int k = 0; k < matches; k++) {
+            dissectMatch.add(keys[k], inputString.substring(offsets[k * 2], offsets[k * 2 + 1]));
+        }
+        Map<String, String> results = dissectMatch.getResults();
+
+        return dissectMatch.isValid(results) ? results : null;
+    }
+
+    /**
+     * <p>Entry point to dissect a string into it's parts.</p>
+     *
+     * @param inputString The string to dissect
+     * @return the key/value Map of the results
+     * @throws DissectException if unable to dissect a pair into it's parts.
+     */
+    public Map<String, String> forceParse(String inputString) {
+        Map<String, String> results = parse(inputString);
+        if (results == null) {
+            throw new DissectException.FindMatch(pattern, inputString);
+        }
+        return results;
+    }
+
+    /**
+     * <p>Dissect a string into it's parts without building a {@link Map} of the results.</p>
+     * <p>The values are only cut out of the string once the whole pattern has matched and they are passed to the
+     * {@code consumer} as they are cut out. Appended values are joined directly from the string.</p>
+     *
+     * @param inputString The string to dissect
+     * @param consumer receives each key and its value if the string matches
+     * @return true if the string matches, in which case the {@code consumer} received every key
+     */
+    public boolean parse(String inputString, BiConsumer<String, String> consumer) {
+        int[] offsets = new int[keys.length * 2];
+        if (match(inputString, offsets) != maxMatches) {
+            return false;
+        }
+        String[] referenceNames = null;
+        if (referenceNameKeys.length > 0) {
+            // The names of references come from the input so they might collide with other keys
+            referenceNames = new String[referenceNameKeys.length];
+            int results = staticResultNames.size();
+            for (int r = 0; r < referenceNameKeys.length; r++) {
+                referenceNames[r] = value(inputString, offsets, referenceNameKeys[r]);
+                if (isNewReferenceName(referenceNames, r)) {
+                    results++;
+                }
+            }
+            if (results != maxResults) {
+                return false;
+            }
+        }
+        for (int k : simpleKeys) {
+            consumer.accept(keys[k].getName(), value(inputString, offsets, k));
+        }
+        for (int r = 0; r < referenceValueKeys.length; r++) {
+            consumer.accept(referenceNames[r], value(inputString, offsets, referenceValueKeys[r]));
+        }
+        for (int[] append : appendKeys) {
+            consumer.accept(keys[append[0]].getName(), appendValue(inputString, offsets, append));
+        }
+        return true;
+    }
+
+    /**
+     * <p>Dissect a string into it's parts without building a {@link Map} of the results.</p>
+     *
+     * @param inputString The string to dissect
+     * @param consumer receives each key and its value
+     * @throws DissectException if unable to dissect a pair into it's parts.
+     * @see #parse(String, BiConsumer)
+     */
+    public void forceParse(String inputString, BiConsumer<String, String> consumer) {
+        if (parse(inputString, consumer) == false) {
+            throw new DissectException.FindMatch(pattern, inputString);
+        }
+    }
+
+    private boolean isNewReferenceName(String[] referenceNames, int r) {
+        if (staticResultNames.contains(referenceNames[r])) {
+            return false;
+        }
+        for (int other = 0; other < r; other++) {
+            if (Objects.equals(referenceNames[other], referenceNames[r])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String value(String inputString, int[] offsets, int key) {
+        return key < 0 ? null : inputString.substring(offsets[key * 2], offsets[key * 2 + 1]);
+    }
+
+    private String appendValue(String inputString, int[] offsets, int[] append) {
+        if (append.length == 1) {
+            return value(inputString, offsets, append[0]);
+        }
+        StringBuilder value = new StringBuilder();
+        for (int a = 0; a < append.length; a++) {
+            if (a > 0) {
+                value.append(appendSeparator);
+            }
+            value.append(inputString, offsets[append[a] * 2], offsets[append[a] * 2 + 1]);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Match the input string, recording where the value of each key starts and ends in {@code offsets}.
+     *
+     * @return the number of keys that matched, each of them in order from the first key
+     */
+    private int match(String inputString, int[] offsets) {
         /**
          *
-         * This implements a naive string matching algorithm. The string is walked left to right, comparing each byte against
-         * another string's bytes looking for matches. If the bytes match, then a second cursor looks ahead to see if all the bytes
+         * This implements a naive string matching algorithm. The string is walked left to right, comparing each char against
+         * another string's chars looking for matches. If the chars match, then a second cursor looks ahead to see if all the chars
          * of the other string matches. If they all match, record it and advances the primary cursor to the match point. If it can not match
-         * all of the bytes then progress the main cursor. Repeat till the end of the input string. Since the string being searching for
+         * all of the chars then progress the main cursor. Repeat till the end of the input string. Since the string being searching for
          * (the delimiter) is generally small and rare the naive approach is efficient.
          *
          * In this case the string that is walked is the input string, and the string being searched for is the current delimiter.
@@ -184,108 +360,68 @@ public final class DissectParser {
          * without assigning any values. For example {@code %{a->},{%b}} will match the input string of {@code foo,,,,,,bar} with a=foo and
          * b=bar.
          *
+         * Rather than cutting the values out of the input string as we go we only record where they start and end. Keys match in
+         * order so the value of the k-th key is always at offsets[2 * k] and offsets[2 * k + 1].
+         *
          */
-        DissectMatch dissectMatch = new DissectMatch(appendSeparator, maxMatches, maxResults, appendCount, referenceCount);
-        Iterator<DissectPair> it = matchPairs.iterator();
+        int matches = 0;
         //ensure leading delimiter matches
-        if (inputString != null && inputString.length() > leadingDelimiter.length()
-            && leadingDelimiter.equals(inputString.substring(0, leadingDelimiter.length()))) {
-            byte[] input = inputString.getBytes(StandardCharsets.UTF_8);
+        if (inputString != null && inputString.length() > leadingDelimiter.length() && inputString.startsWith(leadingDelimiter)) {
             //grab the first key/delimiter pair
-            DissectPair dissectPair = it.next();
-            DissectKey key = dissectPair.getKey();
-            byte[] delimiter = dissectPair.getDelimiter().getBytes(StandardCharsets.UTF_8);
+            int k = 0;
+            DissectKey key = keys[k];
+            String delimiter = delimiters[k];
             //start dissection after the first delimiter
             int i = leadingDelimiter.length();
             int valueStart = i;
-            int lookAheadMatches;
-            //start walking the input string byte by byte, look ahead for matches where needed
+            //start walking the input string char by char, look ahead for matches where needed
             //if a match is found jump forward to the end of the match
-            while (i < input.length) {
-                lookAheadMatches = 0;
-                //potential match between delimiter and input string
-                if (delimiter.length > 0 && input[i] == delimiter[0]) {
-                    //look ahead to see if the entire delimiter matches the input string
-                    for (int j = 0; j < delimiter.length; j++) {
-                        if (i + j < input.length && input[i + j] == delimiter[j]) {
-                            lookAheadMatches++;
-                        }
-                    }
-                    //found a full delimiter match
-                    if (lookAheadMatches == delimiter.length) {
-                        //record the key/value tuple
-                        byte[] value = Arrays.copyOfRange(input, valueStart, i);
-                        dissectMatch.add(key, new String(value, StandardCharsets.UTF_8));
+            while (i < inputString.length()) {
+                //potential match between delimiter and input string, look ahead to see if the entire delimiter matches
+                if (delimiter.length() > 0 && inputString.charAt(i) == delimiter.charAt(0) && inputString.startsWith(delimiter, i)) {
+                    //record the key/value tuple
+                    offsets[matches * 2] = valueStart;
+                    offsets[matches * 2 + 1] = i;
+                    matches++;
+                    //jump to the end of the match
+                    i += delimiter.length();
+                    //look for consecutive delimiters (e.g. a,,,,d,e)
+                    while (i < inputString.length() && inputString.startsWith(delimiter, i)) {
                         //jump to the end of the match
-                        i += lookAheadMatches;
-                        //look for consecutive delimiters (e.g. a,,,,d,e)
-                        while (i < input.length) {
-                            lookAheadMatches = 0;
-                            for (int j = 0; j < delimiter.length; j++) {
-                                if (i + j < input.length && input[i + j] == delimiter[j]) {
-                                    lookAheadMatches++;
-                                }
-                            }
-                            //found consecutive delimiters
-                            if (lookAheadMatches == delimiter.length) {
-                                //jump to the end of the match
-                                i += lookAheadMatches;
-                                if (key.skipRightPadding() == false) {
-                                    //progress the keys/delimiter if possible
-                                    if (it.hasNext() == false) {
-                                        break; //the while loop
-                                    }
-                                    dissectPair = it.next();
-                                    key = dissectPair.getKey();
-                                    //add the key with an empty value for the empty delimiter
-                                    dissectMatch.add(key, "");
-                                }
-                            } else {
+                        i += delimiter.length();
+                        if (key.skipRightPadding() == false) {
+                            //progress the keys/delimiter if possible
+                            if (k + 1 == keys.length) {
                                 break; //the while loop
                             }
+                            key = keys[++k];
+                            //add the key with an empty value for the empty delimiter
+                            offsets[matches * 2] = i;
+                            offsets[matches * 2 + 1] = i;
+                            matches++;
                         }
-                        //progress the keys/delimiter if possible
-                        if (it.hasNext() == false) {
-                            break; //the for loop
-                        }
-                        dissectPair = it.next();
-                        key = dissectPair.getKey();
-                        delimiter = dissectPair.getDelimiter().getBytes(StandardCharsets.UTF_8);
-                        //i is always one byte after the last found delimiter, aka the start of the next value
-                        valueStart = i;
-                    } else {
-                        i++;
                     }
+                    //progress the keys/delimiter if possible
+                    if (k + 1 == keys.length) {
+                        break; //the for loop
+                    }
+                    key = keys[++k];
+                    delimiter = delimiters[k];
+                    //i is always one char after the last found delimiter, aka the start of the next value
+                    valueStart = i;
                 } else {
                     i++;
                 }
             }
             //the last key, grab the rest of the input (unless consecutive delimiters already grabbed the last key)
             //and there is no trailing delimiter
-            if (dissectMatch.fullyMatched() == false && delimiter.length == 0 ) {
-                byte[] value = Arrays.copyOfRange(input, valueStart, input.length);
-                String valueString = new String(value, StandardCharsets.UTF_8);
-                dissectMatch.add(key, valueString);
+            if (matches < maxMatches && delimiter.isEmpty()) {
+                offsets[matches * 2] = valueStart;
+                offsets[matches * 2 + 1] = inputString.length();
+                matches++;
             }
         }
-        Map<String, String> results = dissectMatch.getResults();
-
-        return dissectMatch.isValid(results) ? results : null;
-    }
-
-    /**
-     * <p>Entry point to dissect a string into it's parts.</p>
-     *
-     * @param inputString The string to dissect
-     * @return the key/value Map of the results
-     * @throws DissectException if unable to dissect a pair into it's parts.
-     */
-    public Map<String, String> forceParse(String inputString) {
-        Map<String, String> results = parse(inputString);
-        if (results == null) {
-            throw new DissectException.FindMatch(pattern, inputString);
-        }
-        return results;
+        return matches;
     }
 
     /**
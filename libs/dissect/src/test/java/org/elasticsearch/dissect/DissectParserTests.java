@@ -17,6 +17,7 @@ import org.mockito.internal.util.collections.Sets;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -351,6 +352,7 @@ public class DissectParserTests extends ESTestCase {
 
     private void assertMiss(String pattern, String input) {
         assertNull(new DissectParser(pattern, null).parse(input));
+        assertFalse(new DissectParser(pattern, null).parse(input, (k, v) -> fail("unexpected result [" + k + "=" + v + "]")));
         DissectException e = assertFail(pattern, input);
         assertThat(e.getMessage(), CoreMatchers.containsString("Unable to find match for dissect pattern"));
         assertThat(e.getMessage(), CoreMatchers.containsString(pattern));
@@ -385,5 +387,8 @@ public class DissectParserTests extends ESTestCase {
             final String key = expectedKeys.get(i);
             assertThat(results.get(key), Matchers.equalTo(expectedValues.get(i)));
         }
+        Map<String, String> consumed = new HashMap<>();
+        assertTrue(new DissectParser(pattern, appendSeperator).parse(input, (k, v) -> assertNull(consumed.put(k, v))));
+        assertThat(consumed, Matchers.equalTo(results));
     }
 }
@@ -62,6 +62,7 @@ public final class Grok {
 
     private final Map<String, String> patternBank;
     private final boolean namedCaptures;
+    private final String expression;
     private final Regex compiledExpression;
     private final MatcherWatchdog matcherWatchdog;
     private final List<GrokCaptureConfig> captureConfig;
@@ -86,7 +87,7 @@ public final class Grok {
 
         forbidCircularReferences();
 
-        String expression = toRegex(grokPattern);
+        this.expression = toRegex(grokPattern);
         byte[] expressionBytes = expression.getBytes(StandardCharsets.UTF_8);
         this.compiledExpression = new Regex(expressionBytes, 0, expressionBytes.length, Option.DEFAULT, UTF8Encoding.INSTANCE,
             message -> logCallBack.accept(message));
@@ -291,6 +292,13 @@ public final class Grok {
         return true;
     }
 
+    /**
+     * The regular expression that the grok pattern expands to.
+     */
+    String expression() {
+        return expression;
+    }
+
     /**
      * The list of values that this {@linkplain Grok} can capture.
      */
@@ -0,0 +1,420 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.grok;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Picks which of several alternative grok patterns could match a text so we
+ * don't have to try all of them with the regex engine. Each pattern is
+ * expanded to its regular expression and we collect the literal strings that
+ * any match of that expression must contain. A pattern can only match texts
+ * that contain all of its literals, which are cheap to look for. When that
+ * leaves a single candidate we match with the candidate alone, when it leaves
+ * none we know nothing matches without running the regex engine at all and
+ * when it leaves more than one we fall back to matching all the patterns.
+ * <p>
+ * The literals are collected conservatively: anything inside an alternation,
+ * an optional group, a lookaround or under different matching options is
+ * ignored. Patterns that use back references or other constructs that would
+ * behave differently once the pattern is compiled on its own disable the
+ * prefilter entirely.
+ */
+public final class GrokPrefilter {
+    private final Grok[] patterns;
+    private final String[][] requiredLiterals;
+
+    private GrokPrefilter(Grok[] patterns, String[][] requiredLiterals) {
+        this.patterns = patterns;
+        this.requiredLiterals = requiredLiterals;
+    }
+
+    /**
+     * Build a prefilter for a list of patterns that are combined into a
+     * single grok expression by trying them in order.
+     *
+     * @return the prefilter or {@code null} if the patterns can't be prefiltered
+     */
+    public static GrokPrefilter build(Map<String, String> patternBank, List<String> patterns, MatcherWatchdog matcherWatchdog,
+                                      Consumer<String> logCallBack) {
+        if (patterns.size() < 2) {
+            return null;
+        }
+        Grok[] groks = new Grok[patterns.size()];
+        String[][] literals = new String[patterns.size()][];
+        boolean anyLiterals = false;
+        for (int p = 0; p < groks.length; p++) {
+            groks[p] = new Grok(patternBank, patterns.get(p), matcherWatchdog, logCallBack);
+            List<String> required = requiredLiterals(groks[p].expression());
+            if (required == null) {
+                return null;
+            }
+            // Check the longest literals first, they are the least likely to be present
+            required.sort(Comparator.comparingInt(String::length).reversed());
+            literals[p] = required.toArray(new String[0]);
+            anyLiterals |= literals[p].length > 0;
+        }
+        return anyLiterals ? new GrokPrefilter(groks, literals) : null;
+    }
+
+    /**
+     * Matches and returns any named captures, exactly like {@link Grok#captures}
+     * on {@code combined}, the grok expression that tries all the patterns.
+     *
+     * @return a map containing field names and their respective coerced values that matched or null if the pattern didn't match
+     */
+    public Map<String, Object> captures(String text, Grok combined) {
+        int candidate = -1;
+        for (int p = 0; p < patterns.length; p++) {
+            if (containsAll(text, requiredLiterals[p])) {
+                if (candidate >= 0) {
+                    return combined.captures(text);
+                }
+                candidate = p;
+            }
+        }
+        return candidate < 0 ? null : patterns[candidate].captures(text);
+    }
+
+    private static boolean containsAll(String text, String[] literals) {
+        for (String literal : literals) {
+            if (text.contains(literal) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The literal strings that every match of {@code regex} contains or
+     * {@code null} if the regex uses something we can't analyze.
+     */
+    static List<String> requiredLiterals(String regex) {
+        LiteralParser parser = new LiteralParser(regex);
+        try {
+            List<String> literals = parser.sequence();
+            if (parser.i != regex.length()) {
+                // Unbalanced parentheses
+                return null;
+            }
+            return parser.optionsChanged ? new ArrayList<>() : literals;
+        } catch (UnsupportedRegexException e) {
+            return null;
+        }
+    }
+
+    private static class UnsupportedRegexException extends Exception {
+        UnsupportedRegexException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A small recursive descent parser over the regular expression syntax
+     * that joni accepts.
+     */
+    private static class LiteralParser {
+        /**
+         * Returned by {@link #quantifier} when there isn't one.
+         */
+        private static final int NO_QUANTIFIER = -1;
+
+        private final String regex;
+        private int i;
+        /**
+         * Does the regex change the matching options, say to ignore case?
+         */
+        private boolean optionsChanged;
+
+        LiteralParser(String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * Parse a sequence up to the closing parenthesis of the current group
+         * or the end of the regex.
+         */
+        List<String> sequence() throws UnsupportedRegexException {
+            List<String> required = new ArrayList<>();
+            StringBuilder run = new StringBuilder();
+            boolean alternation = false;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == ')') {
+                    break;
+                }
+                if (c == '|') {
+                    alternation = true;
+                    i++;
+                    continue;
+                }
+                List<String> atomLiterals = List.of();
+                int literal = -1;
+                switch (c) {
+                    case '(':
+                        i++;
+                        atomLiterals = group();
+                        break;
+                    case '[':
+                        skipCharacterClass();
+                        break;
+                    case '\\':
+                        literal = escape();
+                        break;
+                    case '.':
+                    case '^':
+                    case '$':
+                    case '*':
+                    case '+':
+                    case '?':
+                    case '{':
+                        i++;
+                        break;
+                    default:
+                        literal = regex.codePointAt(i);
+                        i += Character.charCount(literal);
+                }
+                int min = quantifier();
+                if (literal >= 0 && min != 0) {
+                    run.appendCodePoint(literal);
+                    if (min != NO_QUANTIFIER) {
+                        // The literal repeats so the run ends with it
+                        flush(run, required);
+                    }
+                } else {
+                    flush(run, required);
+                    if (min != 0) {
+                        required.addAll(atomLiterals);
+                    }
+                }
+            }
+            flush(run, required);
+            return alternation ? new ArrayList<>() : required;
+        }
+
+        private static void flush(StringBuilder run, List<String> required) {
+            if (run.length() > 0) {
+                required.add(run.toString());
+                run.setLength(0);
+            }
+        }
+
+        /**
+         * Parse a group, starting just after its opening parenthesis.
+         */
+        private List<String> group() throws UnsupportedRegexException {
+            boolean keep = true;
+            if (regex.startsWith("?", i)) {
+                if (regex.startsWith("?#", i)) {
+                    int end = regex.indexOf(')', i);
+                    if (end < 0) {
+                        throw new UnsupportedRegexException();
+                    }
+                    i = end + 1;
+                    return List.of();
+                } else if (regex.startsWith("?:", i) || regex.startsWith("?>", i)) {
+                    i += 2;
+                } else if (regex.startsWith("?=", i) || regex.startsWith("?!", i)) {
+                    i += 2;
+                    keep = false;
+                } else if (regex.startsWith("?<=", i) || regex.startsWith("?<!", i)) {
+                    i += 3;
+                    keep = false;
+                } else if (regex.startsWith("?<", i) || regex.startsWith("?'", i)) {
+                    int end = regex.indexOf(regex.charAt(i + 1) == '<' ? '>' : '\'', i + 2);
+                    if (end < 0) {
+                        throw new UnsupportedRegexException();
+                    }
+                    i = end + 1;
+                } else {
+                    // Options like (?i) or (?i:...)
+                    int j = i + 1;
+                    while (j < regex.length() && "imx-".indexOf(regex.charAt(j)) >= 0) {
+                        j++;
+                    }
+                    if (j == i + 1 || j == regex.length() || (regex.charAt(j) != ':' && regex.charAt(j) != ')')) {
+                        throw new UnsupportedRegexException();
+                    }
+                    optionsChanged = true;
+                    i = regex.charAt(j) == ':' ? j + 1 : j;
+                }
+            }
+            List<String> literals = sequence();
+            if (i >= regex.length()) {
+                throw new UnsupportedRegexException();
+            }
+            i++; // the closing parenthesis
+            return keep ? literals : List.of();
+        }
+
+        /**
+         * Parse an escape sequence.
+         *
+         * @return the literal character or {@code -1} if it isn't one
+         */
+        private int escape() throws UnsupportedRegexException {
+            i++;
+            if (i >= regex.length()) {
+                throw new UnsupportedRegexException();
+            }
+            int c = regex.codePointAt(i);
+            i += Character.charCount(c);
+            if (c >= '1' && c <= '9' || c == 'k' || c == 'g') {
+                // Back references and subexpression calls depend on the rest of the expression
+                throw new UnsupportedRegexException();
+            }
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '0') {
+                switch (c) {
+                    case 'p':
+                    case 'P':
+                    case 'x':
+                        if (regex.startsWith("{", i)) {
+                            skipPast('}');
+                        } else if (c == 'x') {
+                            skipHexDigits(2);
+                        }
+                        break;
+                    case 'u':
+                        skipHexDigits(4);
+                        break;
+                    case '0':
+                        skipOctalDigits(2);
+                        break;
+                    case 'c':
+                        i++;
+                        break;
+                    case 'C':
+                    case 'M':
+                        if (regex.startsWith("-", i)) {
+                            i += 2;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                return -1;
+            }
+            return c;
+        }
+
+        private void skipOctalDigits(int max) {
+            for (int n = 0; n < max && i < regex.length() && regex.charAt(i) >= '0' && regex.charAt(i) <= '7'; n++) {
+                i++;
+            }
+        }
+
+        private void skipHexDigits(int max) {
+            for (int n = 0; n < max && i < regex.length() && Character.digit(regex.charAt(i), 16) >= 0; n++) {
+                i++;
+            }
+        }
+
+        private void skipPast(char end) throws UnsupportedRegexException {
+            int index = regex.indexOf(end, i);
+            if (index < 0) {
+                throw new UnsupportedRegexException();
+            }
+            i = index + 1;
+        }
+
+        private void skipCharacterClass() throws UnsupportedRegexException {
+            i++;
+            if (regex.startsWith("^", i)) {
+                i++;
+            }
+            if (regex.startsWith("]", i)) {
+                // A leading ] is a literal
+                i++;
+            }
+            int depth = 1;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                }
+                i++;
+                if (c == '[') {
+                    depth++;
+                } else if (c == ']' && --depth == 0) {
+                    return;
+                }
+            }
+            throw new UnsupportedRegexException();
+        }
+
+        /**
+         * Parse the quantifier after an atom, if there is one.
+         *
+         * @return the minimum number of repetitions or {@link #NO_QUANTIFIER}
+         */
+        private int quantifier() {
+            if (i >= regex.length()) {
+                return NO_QUANTIFIER;
+            }
+            int min;
+            switch (regex.charAt(i)) {
+                case '*':
+                case '?':
+                    min = 0;
+                    i++;
+                    break;
+                case '+':
+                    min = 1;
+                    i++;
+                    break;
+                case '{':
+                    min = interval();
+                    if (min == NO_QUANTIFIER) {
+                        return NO_QUANTIFIER;
+                    }
+                    break;
+                default:
+                    return NO_QUANTIFIER;
+            }
+            // Lazy and possessive quantifiers repeat the same number of times
+            if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                i++;
+            }
+            return min;
+        }
+
+        /**
+         * Parse an interval like {@code {2,5}}.
+         *
+         * @return its minimum or {@link #NO_QUANTIFIER} if the brace doesn't start an interval
+         */
+        private int interval() {
+            int j = i + 1;
+            int min = 0;
+            boolean digits = false;
+            while (j < regex.length() && Character.isDigit(regex.charAt(j))) {
+                min = Math.min(min * 10 + (regex.charAt(j) - '0'), 100_000);
+                digits = true;
+                j++;
+            }
+            if (j < regex.length() && regex.charAt(j) == ',') {
+                j++;
+                while (j < regex.length() && Character.isDigit(regex.charAt(j))) {
+                    digits = true;
+                    j++;
+                }
+            }
+            if (digits == false || j >= regex.length() || regex.charAt(j) != '}') {
+                return NO_QUANTIFIER;
+            }
+            i = j + 1;
+            return min;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.grok;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class GrokPrefilterTests extends ESTestCase {
+
+    public void testRequiredLiterals() {
+        assertThat(GrokPrefilter.requiredLiterals("abc"), equalTo(List.of("abc")));
+        assertThat(GrokPrefilter.requiredLiterals("a\\d+b"), equalTo(List.of("a", "b")));
+        assertThat(GrokPrefilter.requiredLiterals("ab?c"), equalTo(List.of("a", "c")));
+        assertThat(GrokPrefilter.requiredLiterals("ab+c"), equalTo(List.of("ab", "c")));
+        assertThat(GrokPrefilter.requiredLiterals("ab{2,3}c"), equalTo(List.of("ab", "c")));
+        assertThat(GrokPrefilter.requiredLiterals("ab{0,3}c"), equalTo(List.of("a", "c")));
+        assertThat(GrokPrefilter.requiredLiterals("a(?<x>\\d+) \\[foo\\] bar"), equalTo(List.of("a", " [foo] bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?:foo)?bar"), equalTo(List.of("bar")));
+        assertThat(GrokPrefilter.requiredLiterals("(?:foo|baz)bar"), equalTo(List.of("bar")));
+        assertThat(GrokPrefilter.requiredLiterals("foo|bar"), equalTo(List.of()));
+        assertThat(GrokPrefilter.requiredLiterals("[abc]def[^g]"), equalTo(List.of("def")));
+        assertThat(GrokPrefilter.requiredLiterals("(?=foo)bar(?<!baz)"), equalTo(List.of("bar")));
+        assertThat(GrokPrefilter.requiredLiterals("a\\x41\\u0042\\0c"), equalTo(List.of("a", "c")));
+        assertThat(GrokPrefilter.requiredLiterals("(?i)abc"), equalTo(List.of()));
+        assertThat(GrokPrefilter.requiredLiterals("(?i:abc)def"), equalTo(List.of()));
+    }
+
+    public void testUnsupported() {
+        assertThat(GrokPrefilter.requiredLiterals("(a)\\1"), nullValue());
+        assertThat(GrokPrefilter.requiredLiterals("(?<a>b)\\k<a>"), nullValue());
+        assertThat(GrokPrefilter.requiredLiterals("(abc"), nullValue());
+        assertThat(GrokPrefilter.requiredLiterals("abc)"), nullValue());
+        assertThat(GrokPrefilter.requiredLiterals("[abc"), nullValue());
+    }
+
+    public void testBuild() {
+        Map<String, String> bank = Grok.getBuiltinPatterns(false);
+        assertThat(GrokPrefilter.build(bank, List.of("%{IP:ip} GET"), MatcherWatchdog.noop(), logger::warn), nullValue());
+        assertThat(GrokPrefilter.build(bank, List.of("%{IP:ip}", "%{WORD:word}"), MatcherWatchdog.noop(), logger::warn), nullValue());
+        assertThat(GrokPrefilter.build(bank, List.of("%{IP:ip} GET", "%{WORD:word}"), MatcherWatchdog.noop(), logger::warn),
+            notNullValue());
+    }
+
+    public void testSameCapturesAsCombined() {
+        Map<String, String> bank = Grok.getBuiltinPatterns(false);
+        List<String> patterns = List.of(
+            "%{IP:client} GET %{URIPATH:path} %{NUMBER:bytes:int}",
+            "%{IP:client} POST %{URIPATH:path} %{NUMBER:bytes:int}",
+            "\\[%{LOGLEVEL:level}\\] %{GREEDYDATA:message}",
+            "%{WORD:word} %{NUMBER:bytes:int}"
+        );
+        GrokPrefilter prefilter = GrokPrefilter.build(bank, patterns, MatcherWatchdog.noop(), logger::warn);
+        assertThat(prefilter, notNullValue());
+        Grok combined = new Grok(bank, combine(patterns), MatcherWatchdog.noop(), logger::warn);
+        List<String> texts = List.of(
+            "10.0.0.1 GET /index.html 1024",
+            "10.0.0.1 POST /search 17",
+            "[WARN] disk almost full",
+            "[WARN] GET POST",
+            "10.0.0.1 GET POST /both 1",
+            "hello 42",
+            "no match at all",
+            "10.0.0.1 PUT /index.html 1024",
+            ""
+        );
+        for (String text : texts) {
+            assertThat(text, prefilter.captures(text, combined), equalTo(combined.captures(text)));
+        }
+    }
+
+    /**
+     * Combine patterns the way the grok processor does when it isn't tracing.
+     */
+    private static String combine(List<String> patterns) {
+        return patterns.stream().map(p -> "(?:" + p + ")").collect(Collectors.joining("|"));
+    }
+}
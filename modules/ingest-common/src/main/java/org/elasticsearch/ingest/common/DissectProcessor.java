@@ -43,7 +43,7 @@ public final class DissectProcessor extends AbstractProcessor {
         } else if (input == null) {
             throw new IllegalArgumentException("field [" + field + "] is null, cannot process it.");
         }
-        dissectParser.forceParse(input).forEach(ingestDocument::setFieldValue);
+        dissectParser.forceParse(input, ingestDocument::setFieldValue);
         return ingestDocument;
     }
 
@@ -141,6 +141,11 @@ public final class ForEachProcessor extends AbstractProcessor implements Wrappin
         throw new UnsupportedOperationException("this method should not get executed");
     }
 
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return TYPE;
@@ -10,7 +10,9 @@ package org.elasticsearch.ingest.common;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.grok.Grok;
+import org.elasticsearch.grok.GrokPrefilter;
 import org.elasticsearch.grok.MatcherWatchdog;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
@@ -34,6 +36,12 @@ public final class GrokProcessor extends AbstractProcessor {
     private final String matchField;
     private final List<String> matchPatterns;
     private final Grok grok;
+    /**
+     * Picks the pattern to match with when there are several of them. We need
+     * to match with all of them to find out which one matched when tracing.
+     */
+    @Nullable
+    private final GrokPrefilter prefilter;
     private final boolean traceMatch;
     private final boolean ignoreMissing;
 
@@ -43,6 +51,7 @@ public final class GrokProcessor extends AbstractProcessor {
         this.matchField = matchField;
         this.matchPatterns = matchPatterns;
         this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch), matcherWatchdog, logger::debug);
+        this.prefilter = traceMatch ? null : GrokPrefilter.build(patternBank, matchPatterns, matcherWatchdog, logger::debug);
         this.traceMatch = traceMatch;
         this.ignoreMissing = ignoreMissing;
         // Joni warnings are only emitted on an attempt to match, and the warning emitted for every call to match which is too verbose
@@ -60,7 +69,7 @@ public final class GrokProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + matchField + "] is null, cannot process it.");
         }
 
-        Map<String, Object> matches = grok.captures(fieldValue);
+        Map<String, Object> matches = prefilter == null ? grok.captures(fieldValue) : prefilter.captures(fieldValue, grok);
         if (matches == null) {
             throw new IllegalArgumentException("Provided Grok expressions do not match field value: [" + fieldValue + "]");
         }
@@ -460,6 +460,11 @@ public class ForEachProcessorTests extends ESTestCase {
             this.field = field;
         }
 
+        @Override
+        public boolean isAsync() {
+            return true;
+        }
+
         @Override
         public void execute(IngestDocument document, BiConsumer<IngestDocument, Exception> handler) {
             new Thread(() -> {
@@ -506,6 +511,11 @@ public class ForEachProcessorTests extends ESTestCase {
             };
         }
 
+        @Override
+        public boolean isAsync() {
+            return true;
+        }
+
         @Override
         public void execute(IngestDocument document, BiConsumer<IngestDocument, Exception> handler) {
             new Thread(() -> {
@@ -9,12 +9,11 @@ package org.elasticsearch.ingest.geoip;
 
 import com.maxmind.db.NodeCache;
 import com.maxmind.geoip2.model.AbstractResponse;
-import org.elasticsearch.common.cache.Cache;
-import org.elasticsearch.common.cache.CacheBuilder;
 
 import java.net.InetAddress;
 import java.nio.file.Path;
-import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 
 /**
@@ -22,16 +21,35 @@ import java.util.function.Function;
  * This cache differs from the maxmind's {@link NodeCache} such that this cache stores the deserialized Json objects to avoid the
  * cost of deserialization for each lookup (cached or not). This comes at slight expense of higher memory usage, but significant
  * reduction of CPU usage.
+ * <p>
+ * Every geoip processor on the node looks up addresses in this cache so it is built to be read concurrently without any locks. It is
+ * a set associative cache: each address and database can only be cached in one of {@link #WAYS} slots and when all of them are taken
+ * we replace a random one. That approximates a least recently used cache without having to track the order in which entries are used,
+ * which needs a lock or a write to shared memory on every hit.
  */
 final class GeoIpCache {
-    private final Cache<CacheKey, AbstractResponse> cache;
+    /**
+     * The number of slots that an address can be cached in.
+     */
+    static final int WAYS = 4;
+    /**
+     * Slots are allocated in pages of this size when they are first used so a large cache doesn't take up memory until it's needed.
+     */
+    private static final int PAGE_SIZE = 4096;
+    private static final int MAX_SLOTS = 1 << 30;
+
+    private final int ways;
+    private final int sets;
+    private final AtomicReferenceArray<AtomicReferenceArray<Entry>> pages;
 
     //package private for testing
     GeoIpCache(long maxSize) {
         if (maxSize < 0) {
             throw new IllegalArgumentException("geoip max cache size must be 0 or greater");
         }
-        this.cache = CacheBuilder.<CacheKey, AbstractResponse>builder().setMaximumWeight(maxSize).build();
+        this.ways = (int) Math.min(WAYS, maxSize);
+        this.sets = ways == 0 ? 0 : (int) (Math.min(maxSize, MAX_SLOTS) / ways);
+        this.pages = new AtomicReferenceArray<>((sets * ways + PAGE_SIZE - 1) / PAGE_SIZE);
     }
 
     @SuppressWarnings("unchecked")
@@ -39,68 +57,123 @@ final class GeoIpCache {
                                                String databasePath,
                                                Function<InetAddress, AbstractResponse> retrieveFunction) {
 
-        //can't use cache.computeIfAbsent due to the elevated permissions for the jackson (run via the cache loader)
-        CacheKey cacheKey = new CacheKey(ip, databasePath);
-        //intentionally non-locking for simplicity...it's OK if we re-put the same key/value in the cache during a race condition.
-        AbstractResponse response = cache.get(cacheKey);
+        //can't use a cache loader due to the elevated permissions for the jackson (run via the cache loader)
+        AbstractResponse response = get(ip, databasePath);
         if (response == null) {
+            //intentionally non-locking for simplicity...it's OK if we re-put the same key/value in the cache during a race condition.
             response = retrieveFunction.apply(ip);
-            cache.put(cacheKey, response);
+            if (response != null && sets > 0) {
+                put(new Entry(ip, databasePath, response));
+            }
         }
         return (T) response;
     }
 
-    //only useful for testing
     AbstractResponse get(InetAddress ip, String databasePath) {
-        CacheKey cacheKey = new CacheKey(ip, databasePath);
-        return cache.get(cacheKey);
+        if (sets == 0) {
+            return null;
+        }
+        int first = firstSlot(ip, databasePath);
+        for (int way = 0; way < ways; way++) {
+            Entry entry = slot(first + way);
+            if (entry != null && entry.matches(ip, databasePath)) {
+                return entry.response;
+            }
+        }
+        return null;
+    }
+
+    private void put(Entry entry) {
+        int first = firstSlot(entry.ip, entry.databasePath);
+        for (int way = 0; way < ways; way++) {
+            if (page(first + way).compareAndSet((first + way) % PAGE_SIZE, null, entry)) {
+                return;
+            }
+        }
+        int victim = first + ThreadLocalRandom.current().nextInt(ways);
+        page(victim).set(victim % PAGE_SIZE, entry);
     }
 
     public int purgeCacheEntriesForDatabase(Path databaseFile) {
         String databasePath = databaseFile.toString();
         int counter = 0;
-        for (CacheKey key : cache.keys()) {
-            if (key.databasePath.equals(databasePath)) {
-                cache.invalidate(key);
-                counter++;
+        for (int p = 0; p < pages.length(); p++) {
+            AtomicReferenceArray<Entry> page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int s = 0; s < page.length(); s++) {
+                Entry entry = page.get(s);
+                if (entry != null && entry.databasePath.equals(databasePath) && page.compareAndSet(s, entry, null)) {
+                    counter++;
+                }
             }
         }
         return counter;
     }
 
     public int count() {
-        return cache.count();
+        int count = 0;
+        for (int p = 0; p < pages.length(); p++) {
+            AtomicReferenceArray<Entry> page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int s = 0; s < page.length(); s++) {
+                if (page.get(s) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
     }
 
     /**
-     * The key to use for the cache. Since this cache can span multiple geoip processors that all use different databases, the database
-     * path is needed to be included in the cache key. For example, if we only used the IP address as the key the City and ASN the same
-     * IP may be in both with different values and we need to cache both.
+     * The first of the slots that the address can be cached in for the database. Since this cache can span multiple geoip processors
+     * that all use different databases, the database path is needed to be included in the key. For example, if we only used the IP
+     * address as the key the City and ASN the same IP may be in both with different values and we need to cache both.
      */
-    private static class CacheKey {
+    private int firstSlot(InetAddress ip, String databasePath) {
+        int hash = 31 * ip.hashCode() + databasePath.hashCode();
+        // Spread the bits because consecutive addresses only differ in their low bits
+        hash *= 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, sets) * ways;
+    }
 
+    private Entry slot(int slot) {
+        AtomicReferenceArray<Entry> page = pages.get(slot / PAGE_SIZE);
+        return page == null ? null : page.get(slot % PAGE_SIZE);
+    }
+
+    private AtomicReferenceArray<Entry> page(int slot) {
+        int p = slot / PAGE_SIZE;
+        AtomicReferenceArray<Entry> page = pages.get(p);
+        if (page == null) {
+            int size = Math.min(PAGE_SIZE, sets * ways - p * PAGE_SIZE);
+            pages.compareAndSet(p, null, new AtomicReferenceArray<>(size));
+            page = pages.get(p);
+        }
+        return page;
+    }
+
+    /**
+     * A cached response. Entries are never modified so a thread that reads one from a slot sees all of it.
+     */
+    private static class Entry {
         private final InetAddress ip;
         private final String databasePath;
+        private final AbstractResponse response;
 
-        private CacheKey(InetAddress ip, String databasePath) {
+        private Entry(InetAddress ip, String databasePath, AbstractResponse response) {
             this.ip = ip;
             this.databasePath = databasePath;
+            this.response = response;
         }
 
-        //generated
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            CacheKey cacheKey = (CacheKey) o;
-            return Objects.equals(ip, cacheKey.ip) &&
-                Objects.equals(databasePath, cacheKey.databasePath);
-        }
-
-        //generated
-        @Override
-        public int hashCode() {
-            return Objects.hash(ip, databasePath);
+        private boolean matches(InetAddress ip, String databasePath) {
+            // InetAddress#equals compares the address without allocating, which Inet4Address keeps in an int
+            return this.ip.equals(ip) && this.databasePath.equals(databasePath);
         }
     }
 }
@@ -10,8 +10,16 @@ package org.elasticsearch.ingest.geoip;
 
 import com.maxmind.geoip2.model.AbstractResponse;
 import org.elasticsearch.common.network.InetAddresses;
+import org.elasticsearch.core.PathUtils;
 import org.elasticsearch.test.ESTestCase;
 
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Mockito.mock;
 
 public class GeoIpCacheTests extends ESTestCase {
@@ -47,6 +55,80 @@ public class GeoIpCacheTests extends ESTestCase {
         assertSame(response2, cache.get(InetAddresses.forString("127.0.0.1"), "path/to/db2"));
     }
 
+    public void testPurgeCacheEntriesForDatabase() {
+        GeoIpCache cache = new GeoIpCache(100);
+        AbstractResponse response = mock(AbstractResponse.class);
+        for (int i = 0; i < 10; i++) {
+            cache.putIfAbsent(InetAddresses.forString("10.0.0." + i), "path/to/db1", ip -> response);
+            cache.putIfAbsent(InetAddresses.forString("10.0.0." + i), "path/to/db2", ip -> response);
+        }
+        int count = cache.count();
+        assertThat(count, lessThanOrEqualTo(20));
+        assertThat(count, greaterThan(0));
+
+        int purged = cache.purgeCacheEntriesForDatabase(PathUtils.get("path/to/db1"));
+        assertThat(cache.count(), equalTo(count - purged));
+        for (int i = 0; i < 10; i++) {
+            assertNull(cache.get(InetAddresses.forString("10.0.0." + i), "path/to/db1"));
+        }
+        assertThat(cache.purgeCacheEntriesForDatabase(PathUtils.get("path/to/db2")), equalTo(count - purged));
+        assertThat(cache.count(), equalTo(0));
+    }
+
+    public void testEvictsWithinSize() {
+        int maxSize = between(1, 100);
+        GeoIpCache cache = new GeoIpCache(maxSize);
+        for (int i = 0; i < 1000; i++) {
+            AbstractResponse response = mock(AbstractResponse.class);
+            InetAddress address = randomBoolean()
+                ? InetAddresses.forString("10.0." + (i / 256) + "." + (i % 256))
+                : InetAddresses.forString("2001:db8::" + Integer.toHexString(i));
+            assertSame(response, cache.putIfAbsent(address, "path/to/db", ip -> response));
+            assertThat(cache.count(), lessThanOrEqualTo(maxSize));
+        }
+    }
+
+    public void testConcurrentLookups() throws Exception {
+        GeoIpCache cache = new GeoIpCache(between(1, 50));
+        Thread[] threads = new Thread[between(2, 8)];
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<AssertionError> failure = new AtomicReference<>();
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 10000; i++) {
+                        InetAddress address = InetAddresses.forString("10.0.0." + (i % 100));
+                        String databasePath = "path/to/db" + (i % 3);
+                        AbstractResponse response = cache.putIfAbsent(address, databasePath, ip -> new TestResponse(ip, databasePath));
+                        assertThat(((TestResponse) response).ip, equalTo(address));
+                        assertThat(((TestResponse) response).databasePath, equalTo(databasePath));
+                    }
+                } catch (AssertionError e) {
+                    failure.set(e);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    public void testDisabled() {
+        GeoIpCache cache = new GeoIpCache(0);
+        AbstractResponse response = mock(AbstractResponse.class);
+        assertSame(response, cache.putIfAbsent(InetAddresses.forString("127.0.0.1"), "path/to/db", ip -> response));
+        assertNull(cache.get(InetAddresses.forString("127.0.0.1"), "path/to/db"));
+        assertThat(cache.count(), equalTo(0));
+    }
+
     public void testThrowsFunctionsException() {
         GeoIpCache cache = new GeoIpCache(1);
         IllegalArgumentException ex = expectThrows(IllegalArgumentException.class,
@@ -59,4 +141,14 @@ public class GeoIpCacheTests extends ESTestCase {
         IllegalArgumentException ex = expectThrows(IllegalArgumentException.class, () ->  new GeoIpCache(-1));
         assertEquals("geoip max cache size must be 0 or greater", ex.getMessage());
     }
+
+    private static class TestResponse extends AbstractResponse {
+        private final InetAddress ip;
+        private final String databasePath;
+
+        private TestResponse(InetAddress ip, String databasePath) {
+            this.ip = ip;
+            this.databasePath = databasePath;
+        }
+    }
 }
@@ -18,6 +18,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.MutableCallSite;
 import java.lang.invoke.WrongMethodTypeException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,7 +30,9 @@ import java.util.Map;
  * shift operator, and dynamic array index normalize.
  * <p>
  * When a new type is encountered at the call site, we lookup from the appropriate
- * whitelist, and cache with a guard. If we encounter too many types, we stop caching.
+ * whitelist, and cache with a guard. Map and List shortcuts (e.g. {@code params._source.foo}
+ * or {@code list[0]}) are cached with a guard on the interface so all implementations
+ * share a single entry. If we encounter too many types, we stop caching.
  * <p>
  * Based on the cascaded inlining cache from the JSR 292 cookbook
  * (https://code.google.com/archive/p/jsr292-cookbook/, BSD license)
@@ -102,6 +105,8 @@ public final class DefBootstrap {
         private final String name;
         private final int flavor;
         private final Object[] args;
+        /** the collection interface whose shortcut each receiver class resolves to at this call site, only for loads and stores */
+        private final ClassValue<Class<?>> shortcuts;
         int depth; // pkg-protected for testing
 
         PIC(PainlessLookup painlessLookup, FunctionTable functions, Map<String, Object> constants,
@@ -118,6 +123,12 @@ public final class DefBootstrap {
             this.flavor = flavor;
             this.args = args;
             this.depth = initialDepth;
+            this.shortcuts = flavor == LOAD || flavor == STORE ? new ClassValue<Class<?>>() {
+                @Override
+                protected Class<?> computeValue(Class<?> receiverType) {
+                    return shortcutType(receiverType);
+                }
+            } : null;
 
             MethodHandle fallback = FALLBACK.bindTo(this)
               .asCollector(Object[].class, type.parameterCount())
@@ -145,6 +156,58 @@ public final class DefBootstrap {
             return receiver != null && receiver.getClass() == clazz;
         }
 
+        /**
+         * guard method for shortcuts that don't depend on the receiver's class: checks the receiver is a Map
+         */
+        static boolean checkMap(Object receiver) {
+            return receiver instanceof Map;
+        }
+
+        /**
+         * guard method for shortcuts that don't depend on the receiver's class: checks the receiver is a List,
+         * but not a Map because maps take precedence
+         */
+        static boolean checkList(Object receiver) {
+            return receiver instanceof List && receiver instanceof Map == false;
+        }
+
+        /**
+         * guard method for shortcuts that the whitelist could shadow: checks the receiver's class resolves
+         * to the same shortcut as the cached one
+         */
+        static boolean checkShortcut(ClassValue<Class<?>> shortcuts, Class<?> shortcut, Object receiver) {
+            return receiver != null && shortcuts.get(receiver.getClass()) == shortcut;
+        }
+
+        /**
+         * Returns {@code Map.class} or {@code List.class} if {@link #lookup} resolves to the same Map or List
+         * shortcut for every receiver implementing that interface, or {@code null} if the handle depends on
+         * the receiver's class.
+         */
+        private Class<?> shortcutType(Class<?> receiver) {
+            final Class<?> collection;
+            if (Map.class.isAssignableFrom(receiver)) {
+                collection = Map.class;
+            } else if (List.class.isAssignableFrom(receiver)) {
+                collection = List.class;
+            } else {
+                return null;
+            }
+            switch (flavor) {
+                case LOAD:
+                    // whitelisted getters win over the shortcut
+                    return painlessLookup.lookupRuntimeGetterMethodHandle(receiver, name) == null ? collection : null;
+                case STORE:
+                    return painlessLookup.lookupRuntimeSetterMethodHandle(receiver, name) == null ? collection : null;
+                case ARRAY_LOAD:
+                case ARRAY_STORE:
+                case INDEX_NORMALIZE:
+                    return collection;
+                default:
+                    return null;
+            }
+        }
+
         /**
          * Does a slow lookup against the whitelist.
          */
@@ -212,7 +275,15 @@ public final class DefBootstrap {
                 final Class<?> receiver = checkNull(callArgs[0], name);
                 final MethodHandle target = lookup(flavor, name, receiver).asType(type());
 
-                MethodHandle test = CHECK_CLASS.bindTo(receiver);
+                final Class<?> shortcut = shortcutType(receiver);
+                final MethodHandle test;
+                if (shortcut == null) {
+                    test = CHECK_CLASS.bindTo(receiver);
+                } else if (shortcuts != null) {
+                    test = MethodHandles.insertArguments(CHECK_SHORTCUT, 0, shortcuts, shortcut);
+                } else {
+                    test = shortcut == Map.class ? CHECK_MAP : CHECK_LIST;
+                }
                 MethodHandle guard = MethodHandles.guardWithTest(test, target, getTarget());
 
                 depth++;
@@ -224,6 +295,9 @@ public final class DefBootstrap {
 
         private static final MethodHandle CHECK_NULL;
         private static final MethodHandle CHECK_CLASS;
+        private static final MethodHandle CHECK_MAP;
+        private static final MethodHandle CHECK_LIST;
+        private static final MethodHandle CHECK_SHORTCUT;
         private static final MethodHandle FALLBACK;
         private static final MethodHandle CLASSVALUE_GET;
         static {
@@ -234,6 +308,12 @@ public final class DefBootstrap {
                         MethodType.methodType(Class.class, Object.class, String.class));
                 CHECK_CLASS = methodHandlesLookup.findStatic(methodHandlesLookup.lookupClass(), "checkClass",
                         MethodType.methodType(boolean.class, Class.class, Object.class));
+                CHECK_MAP = methodHandlesLookup.findStatic(methodHandlesLookup.lookupClass(), "checkMap",
+                        MethodType.methodType(boolean.class, Object.class));
+                CHECK_LIST = methodHandlesLookup.findStatic(methodHandlesLookup.lookupClass(), "checkList",
+                        MethodType.methodType(boolean.class, Object.class));
+                CHECK_SHORTCUT = methodHandlesLookup.findStatic(methodHandlesLookup.lookupClass(), "checkShortcut",
+                        MethodType.methodType(boolean.class, ClassValue.class, Class.class, Object.class));
                 FALLBACK = methodHandlesLookup.findVirtual(methodHandlesLookup.lookupClass(), "fallback",
                         MethodType.methodType(Object.class, Object[].class));
                 CLASSVALUE_GET = publicMethodHandlesLookup.findVirtual(ClassValue.class, "get",
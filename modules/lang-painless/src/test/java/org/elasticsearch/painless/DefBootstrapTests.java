@@ -17,9 +17,15 @@ import java.lang.invoke.CallSite;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class DefBootstrapTests extends ESTestCase {
     private final PainlessLookup painlessLookup = PainlessLookupBuilder.buildFromWhitelists(PainlessPlugin.BASE_WHITELISTS);
@@ -134,6 +140,73 @@ public class DefBootstrapTests extends ESTestCase {
         }));
     }
 
+    /** map shortcuts are cached once for all maps, so many map implementations don't make the call site megamorphic */
+    public void testMapShortcutSharedByMaps() throws Throwable {
+        DefBootstrap.PIC site = (DefBootstrap.PIC) DefBootstrap.bootstrap(painlessLookup,
+                                                                          new FunctionTable(),
+                                                                          Collections.emptyMap(),
+                                                                          MethodHandles.publicLookup(),
+                                                                          "foo",
+                                                                          MethodType.methodType(Object.class, Object.class),
+                                                                          0,
+                                                                          DefBootstrap.LOAD);
+        MethodHandle handle = site.dynamicInvoker();
+        List<Map<String, Object>> maps = Arrays.asList(new HashMap<>(), new TreeMap<>(), new LinkedHashMap<>(),
+            Collections.singletonMap("foo", "bar"), Map.of("foo", "bar"), Collections.unmodifiableMap(new HashMap<>()));
+        for (Map<String, Object> map : maps) {
+            assertEquals(map.get("foo"), handle.invokeExact((Object) map));
+            assertDepthEquals(site, 1);
+        }
+        Map<String, Object> map = new TreeMap<>();
+        map.put("foo", 5);
+        assertEquals(5, handle.invokeExact((Object) map));
+
+        // other types still get a guard of their own
+        IllegalArgumentException iae = expectThrows(IllegalArgumentException.class, () -> {
+            Object ignored = handle.invokeExact((Object) "foo");
+        });
+        assertEquals("dynamic getter [java.lang.String, foo] not found", iae.getMessage());
+    }
+
+    /** whitelisted getters on maps take precedence over the shortcut */
+    public void testMapGetterNotShortcut() throws Throwable {
+        DefBootstrap.PIC site = (DefBootstrap.PIC) DefBootstrap.bootstrap(painlessLookup,
+                                                                          new FunctionTable(),
+                                                                          Collections.emptyMap(),
+                                                                          MethodHandles.publicLookup(),
+                                                                          "empty",
+                                                                          MethodType.methodType(Object.class, Object.class),
+                                                                          0,
+                                                                          DefBootstrap.LOAD);
+        MethodHandle handle = site.dynamicInvoker();
+        assertEquals(true, handle.invokeExact((Object) new HashMap<>()));
+        assertDepthEquals(site, 1);
+        assertEquals(false, handle.invokeExact((Object) Map.of("empty", "no")));
+        assertDepthEquals(site, 2);
+    }
+
+    public void testListShortcutSharedByLists() throws Throwable {
+        DefBootstrap.PIC site = (DefBootstrap.PIC) DefBootstrap.bootstrap(painlessLookup,
+                                                                          new FunctionTable(),
+                                                                          Collections.emptyMap(),
+                                                                          MethodHandles.publicLookup(),
+                                                                          "arrayLoad",
+                                                                          MethodType.methodType(Object.class, Object.class, int.class),
+                                                                          0,
+                                                                          DefBootstrap.ARRAY_LOAD);
+        MethodHandle handle = site.dynamicInvoker();
+        List<List<Object>> lists = Arrays.asList(new ArrayList<>(List.of("a", "b")), new LinkedList<>(List.of("a", "b")),
+            Arrays.asList("a", "b"), List.of("a", "b"), Collections.unmodifiableList(List.of("a", "b")), Collections.nCopies(2, "b"));
+        for (List<Object> list : lists) {
+            assertEquals("b", handle.invokeExact((Object) list, 1));
+            assertDepthEquals(site, 1);
+        }
+        assertEquals("c", handle.invokeExact((Object) new Object[] {"a", "c"}, 1));
+        assertDepthEquals(site, 2);
+        assertEquals("b", handle.invokeExact((Object) Map.of(1, "b"), 1));
+        assertDepthEquals(site, 3);
+    }
+
     // test operators with null guards
 
     public void testNullGuardAdd() throws Throwable {
@@ -0,0 +1,46 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import org.elasticsearch.http.HttpResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * A response that is sent using chunked transfer encoding. Only the head of the response is written by this message, the body is
+ * encoded and written chunk by chunk by the {@link Netty4HttpPipeliningHandler} as the channel becomes writable.
+ */
+public class Netty4ChunkedHttpResponse extends DefaultHttpResponse implements HttpResponse {
+
+    private final ChunkedRestResponseBody body;
+
+    Netty4ChunkedHttpResponse(HttpVersion version, RestStatus status, ChunkedRestResponseBody body) {
+        super(version, HttpResponseStatus.valueOf(status.getStatus()));
+        this.body = body;
+        HttpUtil.setTransferEncodingChunked(this, true);
+    }
+
+    public ChunkedRestResponseBody body() {
+        return body;
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        headers().add(name, value);
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers().contains(name);
+    }
+}
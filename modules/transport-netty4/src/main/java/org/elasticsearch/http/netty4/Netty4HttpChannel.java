@@ -11,6 +11,7 @@ package org.elasticsearch.http.netty4;
 import io.netty.channel.Channel;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.core.CompletableContext;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.http.HttpChannel;
 import org.elasticsearch.http.HttpResponse;
 import org.elasticsearch.transport.netty4.Netty4TcpChannel;
@@ -21,10 +22,19 @@ import java.net.SocketAddress;
 public class Netty4HttpChannel implements HttpChannel {
 
     private final Channel channel;
+    private final Netty4HttpChannel connectionChannel;
     private final CompletableContext<Void> closeContext = new CompletableContext<>();
 
     Netty4HttpChannel(Channel channel) {
+        this(channel, null);
+    }
+
+    /**
+     * Creates a channel for a single stream of a multiplexed (HTTP/2) connection, which is represented by {@code connectionChannel}.
+     */
+    Netty4HttpChannel(Channel channel, @Nullable Netty4HttpChannel connectionChannel) {
         this.channel = channel;
+        this.connectionChannel = connectionChannel;
         Netty4TcpChannel.addListener(this.channel.closeFuture(), closeContext);
     }
 
@@ -70,6 +80,11 @@ public class Netty4HttpChannel implements HttpChannel {
         return channel;
     }
 
+    @Override
+    public Netty4HttpChannel getConnectionChannel() {
+        return connectionChannel == null ? this : connectionChannel;
+    }
+
     @Override
     public String toString() {
         return "Netty4HttpChannel{" +
@@ -8,25 +8,56 @@
 
 package org.elasticsearch.http.netty4;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.http.HttpPipelinedRequest;
 import org.elasticsearch.http.HttpPipelinedResponse;
 import org.elasticsearch.http.HttpPipeliningAggregator;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
+import org.elasticsearch.transport.netty4.Netty4Utils;
 
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Queue;
 
 /**
  * Implements HTTP pipelining ordering, ensuring that responses are completely served in the same order as their corresponding requests.
+ * <p>
+ * The body of a {@link Netty4ChunkedHttpResponse} is encoded one chunk at a time, and only while the channel is writable. Once the
+ * outbound buffer of the channel exceeds its high water mark, encoding pauses until the channel becomes writable again, so that only a
+ * bounded number of pages of each response is held in memory. Responses that become ready while a chunked response is being written are
+ * queued behind it.
  */
 public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
 
+    /**
+     * The size of the chunks that the body of a chunked response is encoded into.
+     */
+    static final int CHUNK_SIZE_HINT = PageCacheRecycler.PAGE_SIZE_IN_BYTES;
+
     private final Logger logger;
     private final HttpPipeliningAggregator<ChannelPromise> aggregator;
+    private final BigArrays bigArrays;
+
+    /**
+     * Responses that are ready to be written, in order.
+     */
+    private final Queue<Tuple<HttpPipelinedResponse, ChannelPromise>> queuedWrites = new ArrayDeque<>();
+
+    /**
+     * The chunked response whose body is currently being written, if any.
+     */
+    private ChunkedWrite currentChunkedWrite;
 
     /**
      * Construct a new pipelining handler; this handler should be used downstream of HTTP decoding/aggregation.
@@ -34,10 +65,12 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
      * @param logger        for logging unexpected errors
      * @param maxEventsHeld the maximum number of channel events that will be retained prior to aborting the channel connection; this is
      *                      required as events cannot queue up indefinitely
+     * @param bigArrays     to obtain the pages that the chunks of chunked responses are encoded into
      */
-    public Netty4HttpPipeliningHandler(Logger logger, final int maxEventsHeld) {
+    public Netty4HttpPipeliningHandler(Logger logger, final int maxEventsHeld, final BigArrays bigArrays) {
         this.logger = logger;
         this.aggregator = new HttpPipeliningAggregator<>(maxEventsHeld);
+        this.bigArrays = bigArrays;
     }
 
     @Override
@@ -51,12 +84,15 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
     public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
         assert msg instanceof HttpPipelinedResponse : "Invalid message type: " + msg.getClass();
         HttpPipelinedResponse response = (HttpPipelinedResponse) msg;
+        if (ctx.channel().isActive() == false) {
+            // the connection is gone, so this response would never be written and nothing would complete its promise
+            failPromise(promise, new ClosedChannelException());
+            return;
+        }
         boolean success = false;
         try {
             List<Tuple<HttpPipelinedResponse, ChannelPromise>> readyResponses = aggregator.write(response, promise);
-            for (Tuple<HttpPipelinedResponse, ChannelPromise> readyResponse : readyResponses) {
-                ctx.write(readyResponse.v1().getDelegateRequest(), readyResponse.v2());
-            }
+            queuedWrites.addAll(readyResponses);
             success = true;
         } catch (IllegalStateException e) {
             ctx.channel().close();
@@ -65,22 +101,117 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
                 promise.setFailure(new ClosedChannelException());
             }
         }
+        if (success) {
+            doWrite(ctx);
+        }
     }
 
     @Override
-    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
-        List<Tuple<HttpPipelinedResponse, ChannelPromise>> inflightResponses = aggregator.removeAllInflightResponses();
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (ctx.channel().isWritable() && currentChunkedWrite != null) {
+            doWrite(ctx);
+            ctx.flush();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
 
-        if (inflightResponses.isEmpty() == false) {
-            ClosedChannelException closedChannelException = new ClosedChannelException();
-            for (Tuple<HttpPipelinedResponse, ChannelPromise> inflightResponse : inflightResponses) {
-                try {
-                    inflightResponse.v2().setFailure(closedChannelException);
-                } catch (RuntimeException e) {
-                    logger.error("unexpected error while releasing pipelined http responses", e);
+    private void doWrite(ChannelHandlerContext ctx) {
+        while (true) {
+            if (currentChunkedWrite != null) {
+                if (ctx.channel().isWritable() == false) {
+                    // resumed by channelWritabilityChanged once the channel has drained
+                    return;
+                }
+                writeChunk(ctx, currentChunkedWrite);
+            } else {
+                final Tuple<HttpPipelinedResponse, ChannelPromise> readyResponse = queuedWrites.poll();
+                if (readyResponse == null) {
+                    return;
+                }
+                final Object httpResponse = readyResponse.v1().getDelegateRequest();
+                if (httpResponse instanceof Netty4ChunkedHttpResponse) {
+                    final Netty4ChunkedHttpResponse chunkedResponse = (Netty4ChunkedHttpResponse) httpResponse;
+                    currentChunkedWrite = new ChunkedWrite(chunkedResponse.body(), readyResponse.v2());
+                    ctx.write(chunkedResponse);
+                } else {
+                    ctx.write(httpResponse, readyResponse.v2());
                 }
             }
         }
+    }
+
+    private void writeChunk(ChannelHandlerContext ctx, ChunkedWrite chunkedWrite) {
+        final ReleasableBytesReference bytes;
+        try {
+            bytes = chunkedWrite.body.encodeChunk(CHUNK_SIZE_HINT, bigArrays);
+        } catch (Exception e) {
+            logger.warn("failed to encode chunk of http response", e);
+            currentChunkedWrite = null;
+            chunkedWrite.promise.tryFailure(e);
+            // the head of the response has already been sent, so closing the connection is the only way to signal the failure
+            ctx.channel().close();
+            return;
+        }
+        final ByteBuf content = Netty4Utils.toByteBuf(bytes);
+        final boolean done = chunkedWrite.body.isDone();
+        final ChannelPromise promise = done ? chunkedWrite.promise : ctx.newPromise();
+        promise.addListener(f -> bytes.close());
+        if (done) {
+            currentChunkedWrite = null;
+            ctx.write(new DefaultLastHttpContent(content), promise);
+        } else {
+            ctx.write(new DefaultHttpContent(content), promise);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // the peer closed the connection, so paused and queued writes will never complete on their own
+        failPendingWrites();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        failPendingWrites();
         ctx.close(promise);
     }
+
+    /**
+     * Fails the promises of all responses that haven't been completely written so that whoever sent them releases their resources.
+     */
+    private void failPendingWrites() {
+        List<Tuple<HttpPipelinedResponse, ChannelPromise>> inflightResponses = aggregator.removeAllInflightResponses();
+        ClosedChannelException closedChannelException = new ClosedChannelException();
+        if (currentChunkedWrite != null) {
+            failPromise(currentChunkedWrite.promise, closedChannelException);
+            currentChunkedWrite = null;
+        }
+        Tuple<HttpPipelinedResponse, ChannelPromise> queuedWrite;
+        while ((queuedWrite = queuedWrites.poll()) != null) {
+            failPromise(queuedWrite.v2(), closedChannelException);
+        }
+        for (Tuple<HttpPipelinedResponse, ChannelPromise> inflightResponse : inflightResponses) {
+            failPromise(inflightResponse.v2(), closedChannelException);
+        }
+    }
+
+    private void failPromise(ChannelPromise promise, ClosedChannelException closedChannelException) {
+        try {
+            // tryFailure because the channel may have failed the promise already, and we may get here from both close and channelInactive
+            promise.tryFailure(closedChannelException);
+        } catch (RuntimeException e) {
+            logger.error("unexpected error while releasing pipelined http responses", e);
+        }
+    }
+
+    private static final class ChunkedWrite {
+        private final ChunkedRestResponseBody body;
+        private final ChannelPromise promise;
+
+        ChunkedWrite(ChunkedRestResponseBody body, ChannelPromise promise) {
+            this.body = body;
+            this.promise = promise;
+        }
+    }
 }
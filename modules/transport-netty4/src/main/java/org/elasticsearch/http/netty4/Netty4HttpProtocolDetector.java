@@ -0,0 +1,53 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Detects whether a client speaks HTTP/1.x or HTTP/2 from the first bytes it sends, and configures the rest of the pipeline
+ * accordingly. HTTP/2 clients start with the connection preface, either because they have prior knowledge that the server supports
+ * HTTP/2 on a plain connection (h2c) or because HTTP/2 was negotiated using ALPN during the TLS handshake. The handler removes itself
+ * once the protocol is known, passing on the bytes it has read so far.
+ */
+class Netty4HttpProtocolDetector extends ByteToMessageDecoder {
+
+    private static final ByteBuf CONNECTION_PREFACE = Http2CodecUtil.connectionPrefaceBuf();
+
+    private final Consumer<ChannelPipeline> http1Configurer;
+    private final Consumer<ChannelPipeline> http2Configurer;
+
+    Netty4HttpProtocolDetector(Consumer<ChannelPipeline> http1Configurer, Consumer<ChannelPipeline> http2Configurer) {
+        this.http1Configurer = http1Configurer;
+        this.http2Configurer = http2Configurer;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        final int prefaceLength = CONNECTION_PREFACE.readableBytes();
+        final int bytesToCompare = Math.min(in.readableBytes(), prefaceLength);
+        if (ByteBufUtil.equals(CONNECTION_PREFACE, CONNECTION_PREFACE.readerIndex(), in, in.readerIndex(), bytesToCompare) == false) {
+            http1Configurer.accept(ctx.pipeline());
+        } else if (bytesToCompare == prefaceLength) {
+            http2Configurer.accept(ctx.pipeline());
+        } else {
+            // wait for the rest of the preface
+            return;
+        }
+        ctx.pipeline().remove(this);
+    }
+}
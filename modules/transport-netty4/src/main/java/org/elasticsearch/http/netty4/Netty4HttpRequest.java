@@ -21,6 +21,8 @@ import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.http.HttpRequest;
+import org.elasticsearch.http.HttpResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.transport.netty4.Netty4Utils;
@@ -188,6 +190,15 @@ public class Netty4HttpRequest implements HttpRequest {
         return new Netty4HttpResponse(request.headers(), request.protocolVersion(), status, content);
     }
 
+    @Override
+    public HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content) {
+        if (protocolVersion() == HttpRequest.HttpVersion.HTTP_1_0) {
+            // chunked transfer encoding was only introduced in HTTP/1.1
+            return HttpRequest.super.createResponse(status, content);
+        }
+        return new Netty4ChunkedHttpResponse(request.protocolVersion(), status, content);
+    }
+
     @Override
     public Exception getInboundException() {
         return inboundException;
@@ -16,15 +16,20 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.socket.nio.NioChannelOption;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.http.HttpContentCompressor;
-import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.util.AttributeKey;
@@ -119,6 +124,20 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
     public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE =
         Setting.byteSizeSetting("http.netty.receive_predictor_size", new ByteSizeValue(64, ByteSizeUnit.KB), Property.NodeScope);
 
+    /**
+     * Whether clients may use HTTP/2, either over TLS after negotiating it using ALPN or over a plain connection by sending the HTTP/2
+     * connection preface straight away. HTTP/1.1 clients are served as before on the same port.
+     */
+    public static final Setting<Boolean> SETTING_HTTP_NETTY_HTTP2_ENABLED =
+        Setting.boolSetting("http.netty.http2.enabled", false, Property.NodeScope);
+
+    public static final Setting<Integer> SETTING_HTTP_NETTY_HTTP2_MAX_CONCURRENT_STREAMS =
+        Setting.intSetting("http.netty.http2.max_concurrent_streams", 128, 1, Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_HTTP2_INITIAL_WINDOW_SIZE =
+        Setting.byteSizeSetting("http.netty.http2.initial_window_size", new ByteSizeValue(64, ByteSizeUnit.KB),
+            new ByteSizeValue(1, ByteSizeUnit.BYTES), new ByteSizeValue(Integer.MAX_VALUE, ByteSizeUnit.BYTES), Property.NodeScope);
+
     private final ByteSizeValue maxInitialLineLength;
     private final ByteSizeValue maxHeaderSize;
     private final ByteSizeValue maxChunkSize;
@@ -131,6 +150,10 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
     private final int maxCompositeBufferComponents;
 
+    private final boolean http2Enabled;
+    private final int http2MaxConcurrentStreams;
+    private final int http2InitialWindowSize;
+
     private volatile ServerBootstrap serverBootstrap;
     private volatile SharedGroupFactory.SharedGroup sharedGroup;
 
@@ -151,19 +174,30 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
         this.readTimeoutMillis = Math.toIntExact(SETTING_HTTP_READ_TIMEOUT.get(settings).getMillis());
 
+        this.http2Enabled = SETTING_HTTP_NETTY_HTTP2_ENABLED.get(settings);
+        this.http2MaxConcurrentStreams = SETTING_HTTP_NETTY_HTTP2_MAX_CONCURRENT_STREAMS.get(settings);
+        this.http2InitialWindowSize = SETTING_HTTP_NETTY_HTTP2_INITIAL_WINDOW_SIZE.get(settings).bytesAsInt();
+
         ByteSizeValue receivePredictor = SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE.get(settings);
         recvByteBufAllocator = new FixedRecvByteBufAllocator(receivePredictor.bytesAsInt());
 
         logger.debug("using max_chunk_size[{}], max_header_size[{}], max_initial_line_length[{}], max_content_length[{}], " +
-                "receive_predictor[{}], max_composite_buffer_components[{}], pipelining_max_events[{}]",
+                "receive_predictor[{}], max_composite_buffer_components[{}], pipelining_max_events[{}], http2_enabled[{}]",
             maxChunkSize, maxHeaderSize, maxInitialLineLength, maxContentLength, receivePredictor, maxCompositeBufferComponents,
-            pipeliningMaxEvents);
+            pipeliningMaxEvents, http2Enabled);
     }
 
     public Settings settings() {
         return this.settings;
     }
 
+    /**
+     * @return whether clients may use HTTP/2 on this transport
+     */
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
     @Override
     protected void doStart() {
         boolean success = false;
@@ -292,25 +326,59 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
             ch.attr(HTTP_CHANNEL_KEY).set(nettyHttpChannel);
             ch.pipeline().addLast("byte_buf_sizer", NettyByteBufSizer.INSTANCE);
             ch.pipeline().addLast("read_timeout", new ReadTimeoutHandler(transport.readTimeoutMillis, TimeUnit.MILLISECONDS));
+            if (transport.http2Enabled) {
+                ch.pipeline().addLast("protocol_detector", new Netty4HttpProtocolDetector(this::configureHttp1, this::configureHttp2));
+            } else {
+                configureHttp1(ch.pipeline());
+            }
+            transport.serverAcceptedChannel(nettyHttpChannel);
+        }
+
+        private void configureHttp1(ChannelPipeline pipeline) {
             final HttpRequestDecoder decoder = new HttpRequestDecoder(
                 handlingSettings.getMaxInitialLineLength(),
                 handlingSettings.getMaxHeaderSize(),
                 handlingSettings.getMaxChunkSize());
             decoder.setCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
-            ch.pipeline().addLast("decoder", decoder);
-            ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
-            ch.pipeline().addLast("encoder", new HttpResponseEncoder());
+            pipeline.addLast("decoder", decoder);
+            pipeline.addLast("encoder", new HttpResponseEncoder());
+            addHttpObjectHandlers(pipeline);
+        }
+
+        private void configureHttp2(ChannelPipeline pipeline) {
+            final Netty4HttpChannel connectionChannel = pipeline.channel().attr(HTTP_CHANNEL_KEY).get();
+            final Http2Settings http2Settings = Http2Settings.defaultSettings()
+                .maxConcurrentStreams(transport.http2MaxConcurrentStreams)
+                .initialWindowSize(transport.http2InitialWindowSize)
+                .maxHeaderListSize(handlingSettings.getMaxHeaderSize());
+            pipeline.addLast("http2_codec", Http2FrameCodecBuilder.forServer().initialSettings(http2Settings).build());
+            // every stream gets its own child channel, whose writability follows the flow control window of the stream
+            pipeline.addLast("http2_multiplexer", new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+                @Override
+                protected void initChannel(Http2StreamChannel stream) {
+                    stream.attr(HTTP_CHANNEL_KEY).set(new Netty4HttpChannel(stream, connectionChannel));
+                    stream.pipeline().addLast("http2_to_http", new Http2StreamFrameToHttpObjectCodec(true));
+                    addHttpObjectHandlers(stream.pipeline());
+                }
+            }));
+        }
+
+        /**
+         * Adds the handlers that work on decoded {@link io.netty.handler.codec.http.HttpObject}s and are therefore shared by the HTTP/1
+         * pipeline of a connection and the pipelines of the streams of an HTTP/2 connection.
+         */
+        private void addHttpObjectHandlers(ChannelPipeline pipeline) {
+            // compressed request bodies are inflated by the RestController, off the network thread for large bodies
             final HttpObjectAggregator aggregator = new HttpObjectAggregator(handlingSettings.getMaxContentLength());
             aggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
-            ch.pipeline().addLast("aggregator", aggregator);
+            pipeline.addLast("aggregator", aggregator);
             if (handlingSettings.isCompression()) {
-                ch.pipeline().addLast("encoder_compress", new HttpContentCompressor(handlingSettings.getCompressionLevel()));
+                pipeline.addLast("encoder_compress", new HttpContentCompressor(handlingSettings.getCompressionLevel()));
             }
-            ch.pipeline().addLast("request_creator", requestCreator);
-            ch.pipeline().addLast("response_creator", responseCreator);
-            ch.pipeline().addLast("pipelining", new Netty4HttpPipeliningHandler(logger, transport.pipeliningMaxEvents));
-            ch.pipeline().addLast("handler", requestHandler);
-            transport.serverAcceptedChannel(nettyHttpChannel);
+            pipeline.addLast("request_creator", requestCreator);
+            pipeline.addLast("response_creator", responseCreator);
+            pipeline.addLast("pipelining", new Netty4HttpPipeliningHandler(logger, transport.pipeliningMaxEvents, transport.bigArrays));
+            pipeline.addLast("handler", requestHandler);
         }
 
         @Override
@@ -46,6 +46,9 @@ public class Netty4Plugin extends Plugin implements NetworkPlugin {
             Netty4HttpServerTransport.SETTING_HTTP_NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS,
             Netty4HttpServerTransport.SETTING_HTTP_WORKER_COUNT,
             Netty4HttpServerTransport.SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE,
+            Netty4HttpServerTransport.SETTING_HTTP_NETTY_HTTP2_ENABLED,
+            Netty4HttpServerTransport.SETTING_HTTP_NETTY_HTTP2_MAX_CONCURRENT_STREAMS,
+            Netty4HttpServerTransport.SETTING_HTTP_NETTY_HTTP2_INITIAL_WINDOW_SIZE,
             Netty4Transport.WORKER_COUNT,
             Netty4Transport.NETTY_RECEIVE_PREDICTOR_SIZE,
             Netty4Transport.NETTY_RECEIVE_PREDICTOR_MIN,
@@ -15,14 +15,20 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.http.HttpPipelinedRequest;
 import org.elasticsearch.http.HttpPipelinedResponse;
 import org.elasticsearch.http.HttpResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.After;
@@ -42,6 +48,8 @@ import java.util.stream.IntStream;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.core.Is.is;
 
 public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
@@ -76,8 +84,8 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
 
     public void testThatPipeliningWorksWithFastSerializedRequests() throws InterruptedException {
         final int numberOfRequests = randomIntBetween(2, 128);
-        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests),
-            new WorkEmulatorHandler());
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(
+            new Netty4HttpPipeliningHandler(logger, numberOfRequests, BigArrays.NON_RECYCLING_INSTANCE), new WorkEmulatorHandler());
 
         for (int i = 0; i < numberOfRequests; i++) {
             embeddedChannel.writeInbound(createHttpRequest("/" + String.valueOf(i)));
@@ -103,8 +111,8 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
 
     public void testThatPipeliningWorksWhenSlowRequestsInDifferentOrder() throws InterruptedException {
         final int numberOfRequests = randomIntBetween(2, 128);
-        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests),
-            new WorkEmulatorHandler());
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(
+            new Netty4HttpPipeliningHandler(logger, numberOfRequests, BigArrays.NON_RECYCLING_INSTANCE), new WorkEmulatorHandler());
 
         for (int i = 0; i < numberOfRequests; i++) {
             embeddedChannel.writeInbound(createHttpRequest("/" + String.valueOf(i)));
@@ -133,8 +141,8 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
 
     public void testThatPipeliningClosesConnectionWithTooManyEvents() throws InterruptedException {
         final int numberOfRequests = randomIntBetween(2, 128);
-        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests),
-            new WorkEmulatorHandler());
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(
+            new Netty4HttpPipeliningHandler(logger, numberOfRequests, BigArrays.NON_RECYCLING_INSTANCE), new WorkEmulatorHandler());
 
         for (int i = 0; i < 1 + numberOfRequests + 1; i++) {
             embeddedChannel.writeInbound(createHttpRequest("/" + Integer.toString(i)));
@@ -162,7 +170,7 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
     public void testPipeliningRequestsAreReleased() throws InterruptedException {
         final int numberOfRequests = 10;
         final EmbeddedChannel embeddedChannel =
-            new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests + 1));
+            new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests + 1, BigArrays.NON_RECYCLING_INSTANCE));
 
         for (int i = 0; i < numberOfRequests; i++) {
             embeddedChannel.writeInbound(createHttpRequest("/" + i));
@@ -194,6 +202,131 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
     }
 
 
+    public void testChunkedResponseIsWrittenWhileChannelIsWritable() {
+        final EmbeddedChannel embeddedChannel =
+            new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, 2, BigArrays.NON_RECYCLING_INSTANCE));
+        embeddedChannel.writeInbound(createHttpRequest("/chunked"));
+        embeddedChannel.writeInbound(createHttpRequest("/full"));
+        final HttpPipelinedRequest chunkedRequest = embeddedChannel.readInbound();
+        final HttpPipelinedRequest fullRequest = embeddedChannel.readInbound();
+
+        // larger than the high water mark of the channel, so that writing has to pause at least once
+        final int numberOfChunks = randomIntBetween(8, 16);
+        final int chunkSize = Netty4HttpPipeliningHandler.CHUNK_SIZE_HINT;
+        final TestChunkedBody body = new TestChunkedBody(numberOfChunks, chunkSize);
+        final ChannelPromise chunkedPromise = embeddedChannel.newPromise();
+        final ChannelPromise fullPromise = embeddedChannel.newPromise();
+        // the second response is ready first but must wait for the chunked response
+        embeddedChannel.write(fullRequest.createResponse(RestStatus.OK, new BytesArray("full")), fullPromise);
+        embeddedChannel.write(chunkedRequest.createResponse(RestStatus.OK, body), chunkedPromise);
+        // nothing has been flushed yet, so encoding stops once the channel is no longer writable
+        assertFalse(embeddedChannel.isWritable());
+        assertThat(body.encodedChunks, lessThan(numberOfChunks));
+        assertFalse(chunkedPromise.isDone());
+        assertFalse(fullPromise.isDone());
+
+        embeddedChannel.flush();
+        for (int i = 0; i < numberOfChunks && chunkedPromise.isDone() == false; i++) {
+            embeddedChannel.runPendingTasks();
+        }
+        assertTrue(chunkedPromise.isSuccess());
+        assertTrue(fullPromise.isSuccess());
+        assertThat(body.encodedChunks, is(numberOfChunks));
+
+        final Object head = embeddedChannel.outboundMessages().poll();
+        assertThat(head, instanceOf(Netty4ChunkedHttpResponse.class));
+        assertTrue(HttpUtil.isTransferEncodingChunked((Netty4ChunkedHttpResponse) head));
+        int contentLength = 0;
+        Object message;
+        while ((message = embeddedChannel.outboundMessages().poll()) instanceof HttpContent) {
+            final HttpContent content = (HttpContent) message;
+            contentLength += content.content().readableBytes();
+            content.release();
+            if (content instanceof LastHttpContent) {
+                message = embeddedChannel.outboundMessages().poll();
+                break;
+            }
+        }
+        assertThat(contentLength, is(numberOfChunks * chunkSize));
+        assertThat(message, instanceOf(FullHttpResponse.class));
+        assertThat(new String(ByteBufUtil.getBytes(((FullHttpResponse) message).content()), StandardCharsets.UTF_8), is("full"));
+        assertTrue(embeddedChannel.isOpen());
+    }
+
+    public void testChunkedResponseIsFailedOnClose() {
+        final EmbeddedChannel embeddedChannel =
+            new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, 1, BigArrays.NON_RECYCLING_INSTANCE));
+        embeddedChannel.writeInbound(createHttpRequest("/chunked"));
+        final HttpPipelinedRequest chunkedRequest = embeddedChannel.readInbound();
+        final TestChunkedBody body = new TestChunkedBody(64, Netty4HttpPipeliningHandler.CHUNK_SIZE_HINT);
+        final ChannelPromise promise = embeddedChannel.newPromise();
+        embeddedChannel.write(chunkedRequest.createResponse(RestStatus.OK, body), promise);
+        assertFalse(promise.isDone());
+        embeddedChannel.close().syncUninterruptibly();
+        assertTrue(promise.isDone());
+        assertThat(promise.cause(), instanceOf(ClosedChannelException.class));
+        assertThat(body.encodedChunks, lessThan(64));
+    }
+
+    public void testPendingWritesAreFailedWhenPeerClosesDuringBackpressuredChunkedWrite() {
+        final EmbeddedChannel embeddedChannel =
+            new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, 2, BigArrays.NON_RECYCLING_INSTANCE));
+        embeddedChannel.writeInbound(createHttpRequest("/chunked"));
+        embeddedChannel.writeInbound(createHttpRequest("/full"));
+        final HttpPipelinedRequest chunkedRequest = embeddedChannel.readInbound();
+        final HttpPipelinedRequest fullRequest = embeddedChannel.readInbound();
+
+        final TestChunkedBody body = new TestChunkedBody(64, Netty4HttpPipeliningHandler.CHUNK_SIZE_HINT);
+        final ChannelPromise chunkedPromise = embeddedChannel.newPromise();
+        final ChannelPromise fullPromise = embeddedChannel.newPromise();
+        embeddedChannel.write(chunkedRequest.createResponse(RestStatus.OK, body), chunkedPromise);
+        embeddedChannel.write(fullRequest.createResponse(RestStatus.OK, new BytesArray("full")), fullPromise);
+        // the chunked write is paused because nothing has been flushed and the full response is queued behind it
+        assertFalse(embeddedChannel.isWritable());
+        assertThat(body.encodedChunks, lessThan(64));
+        assertFalse(chunkedPromise.isDone());
+        assertFalse(fullPromise.isDone());
+
+        // the peer goes away without the channel being closed through the pipeline
+        embeddedChannel.pipeline().fireChannelInactive();
+        assertThat(chunkedPromise.cause(), instanceOf(ClosedChannelException.class));
+        assertThat(fullPromise.cause(), instanceOf(ClosedChannelException.class));
+        final int encodedChunks = body.encodedChunks;
+
+        // the channel draining doesn't resume the failed chunked write
+        embeddedChannel.flush();
+        embeddedChannel.runPendingTasks();
+        assertThat(body.encodedChunks, is(encodedChunks));
+        embeddedChannel.close().syncUninterruptibly();
+    }
+
+    private static class TestChunkedBody implements ChunkedRestResponseBody {
+        private final int numberOfChunks;
+        private final int chunkSize;
+        private int encodedChunks;
+
+        TestChunkedBody(int numberOfChunks, int chunkSize) {
+            this.numberOfChunks = numberOfChunks;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public boolean isDone() {
+            return encodedChunks == numberOfChunks;
+        }
+
+        @Override
+        public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) {
+            encodedChunks++;
+            return ReleasableBytesReference.wrap(new BytesArray(randomByteArrayOfLength(chunkSize)));
+        }
+
+        @Override
+        public String getResponseContentTypeString() {
+            return "application/octet-stream";
+        }
+    }
+
     private void assertReadHttpMessageHasContent(EmbeddedChannel embeddedChannel, String expectedContent) {
         FullHttpResponse response = (FullHttpResponse) embeddedChannel.outboundMessages().poll();
         assertNotNull("Expected response to exist, maybe you did not wait long enough?", response);
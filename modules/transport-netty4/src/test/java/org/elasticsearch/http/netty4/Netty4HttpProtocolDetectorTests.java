@@ -0,0 +1,81 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class Netty4HttpProtocolDetectorTests extends ESTestCase {
+
+    public void testDetectsHttp1() {
+        final AtomicReference<String> protocol = new AtomicReference<>();
+        final EmbeddedChannel channel = newChannel(protocol);
+        final byte[] request = "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        channel.writeInbound(Unpooled.wrappedBuffer(request));
+        assertThat(protocol.get(), equalTo("http/1.1"));
+        assertThat(channel.pipeline().get(Netty4HttpProtocolDetector.class), nullValue());
+        assertForwarded(channel, request);
+    }
+
+    public void testDetectsHttp2() {
+        final AtomicReference<String> protocol = new AtomicReference<>();
+        final EmbeddedChannel channel = newChannel(protocol);
+        final ByteBuf preface = Http2CodecUtil.connectionPrefaceBuf();
+        final byte[] bytes = new byte[preface.readableBytes() + 1];
+        preface.readBytes(bytes, 0, preface.readableBytes());
+        preface.release();
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes));
+        assertThat(protocol.get(), equalTo("h2"));
+        assertThat(channel.pipeline().get(Netty4HttpProtocolDetector.class), nullValue());
+        assertForwarded(channel, bytes);
+    }
+
+    public void testWaitsForCompletePreface() {
+        final AtomicReference<String> protocol = new AtomicReference<>();
+        final EmbeddedChannel channel = newChannel(protocol);
+        final ByteBuf preface = Http2CodecUtil.connectionPrefaceBuf();
+        final byte[] bytes = new byte[preface.readableBytes()];
+        preface.readBytes(bytes);
+        preface.release();
+        final int split = randomIntBetween(1, bytes.length - 1);
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes, 0, split));
+        assertThat(protocol.get(), nullValue());
+        assertThat(channel.inboundMessages().isEmpty(), equalTo(true));
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes, split, bytes.length - split));
+        assertThat(protocol.get(), equalTo("h2"));
+        assertForwarded(channel, bytes);
+    }
+
+    private static EmbeddedChannel newChannel(AtomicReference<String> protocol) {
+        return new EmbeddedChannel(new Netty4HttpProtocolDetector(
+            pipeline -> assertTrue(protocol.compareAndSet(null, "http/1.1")),
+            pipeline -> assertTrue(protocol.compareAndSet(null, "h2"))));
+    }
+
+    private static void assertForwarded(EmbeddedChannel channel, byte[] expected) {
+        final ByteBuf forwarded = Unpooled.buffer();
+        ByteBuf buf;
+        while ((buf = channel.readInbound()) != null) {
+            forwarded.writeBytes(buf);
+            buf.release();
+        }
+        final byte[] actual = new byte[forwarded.readableBytes()];
+        forwarded.readBytes(actual);
+        assertArrayEquals(expected, actual);
+    }
+}
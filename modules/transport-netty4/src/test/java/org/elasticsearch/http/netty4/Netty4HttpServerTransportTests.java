@@ -16,12 +16,16 @@ import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocatorMetric;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -29,11 +33,19 @@ import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.common.network.NetworkService;
@@ -53,23 +65,29 @@ import org.elasticsearch.http.HttpServerTransport;
 import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.http.NullDispatcher;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestHandler;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.test.rest.FakeRestRequest;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.netty4.SharedGroupFactory;
 import org.elasticsearch.transport.netty4.NettyAllocator;
+import org.elasticsearch.usage.UsageService;
 import org.junit.After;
 import org.junit.Before;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_ORIGIN;
@@ -78,6 +96,7 @@ import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
 import static org.elasticsearch.rest.RestStatus.OK;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 
@@ -323,6 +342,89 @@ public class Netty4HttpServerTransportTests extends AbstractHttpServerTransportT
         }
     }
 
+    public void testHttp2PriorKnowledgeRequestThroughRestController() throws Exception {
+        final HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)
+        );
+        final CircuitBreaker inFlightRequestsBreaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        final RestController restController = new RestController(Collections.emptySet(), null, null, breakerService, new UsageService());
+        final AtomicLong inFlightWhileHandling = new AtomicLong(-1);
+        restController.registerHandler(new RestHandler.Route(RestRequest.Method.POST, "/echo"), (request, channel, client) -> {
+            inFlightWhileHandling.set(inFlightRequestsBreaker.getUsed());
+            channel.sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, request.content().utf8ToString()));
+        });
+
+        final Settings settings = createBuilderWithPort().put(Netty4HttpServerTransport.SETTING_HTTP_NETTY_HTTP2_ENABLED.getKey(), true)
+            .build();
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool,
+                xContentRegistry(), restController, clusterSettings, new SharedGroupFactory(settings))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+
+            final String body = "{\"hello\":\"world\"}";
+            final FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/echo",
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, request.content().readableBytes());
+            final FullHttpResponse response = sendHttp2PriorKnowledge(remoteAddress.address(), request);
+            try {
+                assertThat(response.status(), equalTo(HttpResponseStatus.OK));
+                assertThat(response.content().toString(StandardCharsets.UTF_8), equalTo(body));
+            } finally {
+                response.release();
+            }
+            assertThat(inFlightWhileHandling.get(), greaterThanOrEqualTo((long) body.length()));
+            assertBusy(() -> assertThat(inFlightRequestsBreaker.getUsed(), equalTo(0L)));
+        }
+    }
+
+    /**
+     * Sends a request over a plain text HTTP/2 connection without an upgrade, as clients that know the server speaks HTTP/2 do.
+     */
+    private static FullHttpResponse sendHttp2PriorKnowledge(InetSocketAddress address, FullHttpRequest request) throws Exception {
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            final Bootstrap bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forClient().build());
+                        ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+                    }
+                });
+            final Channel connection = bootstrap.connect(address).syncUninterruptibly().channel();
+            final PlainActionFuture<FullHttpResponse> future = PlainActionFuture.newFuture();
+            final Http2StreamChannel stream = new Http2StreamChannelBootstrap(connection).handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(false));
+                    ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+                    ch.pipeline().addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                        @Override
+                        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+                            future.onResponse(msg.retain());
+                        }
+
+                        @Override
+                        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                            future.onFailure(new ElasticsearchException(cause));
+                        }
+                    });
+                }
+            }).open().syncUninterruptibly().getNow();
+            stream.writeAndFlush(request).syncUninterruptibly();
+            try {
+                return future.get(30, TimeUnit.SECONDS);
+            } finally {
+                connection.close().syncUninterruptibly();
+            }
+        } finally {
+            group.shutdownGracefully(0, 5, TimeUnit.SECONDS).awaitUninterruptibly();
+        }
+    }
+
     private long getHugeAllocationCount() {
         long numOfHugAllocations = 0;
         ByteBufAllocator allocator = NettyAllocator.getAllocator();
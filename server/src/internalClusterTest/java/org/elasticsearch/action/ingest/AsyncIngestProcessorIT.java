@@ -104,6 +104,11 @@ public class AsyncIngestProcessorIT extends ESSingleNodeTestCase {
                 "test-async", (factories, tag, description, config) -> {
                     return new AbstractProcessor(tag, description) {
 
+                        @Override
+                        public boolean isAsync() {
+                            return true;
+                        }
+
                         @Override
                         public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
                             threadPool.generic().execute(() -> {
@@ -359,6 +359,11 @@ public class FinalPipelineIT extends ESIntegTestCase {
                     (factories, tag, description, config) ->
                     new AbstractProcessor(tag, description) {
 
+                        @Override
+                        public boolean isAsync() {
+                            return true;
+                        }
+
                         @Override
                         public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
                             // randomize over sync and async execution
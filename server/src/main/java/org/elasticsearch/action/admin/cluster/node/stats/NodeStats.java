@@ -8,6 +8,8 @@
 
 package org.elasticsearch.action.admin.cluster.node.stats;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.action.search.SearchAdmissionControlStats;
 import org.elasticsearch.action.support.nodes.BaseNodeResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodeRole;
@@ -87,6 +89,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
     @Nullable
     private IndexingPressureStats indexingPressureStats;
 
+    @Nullable
+    private SearchAdmissionControlStats searchAdmissionControlStats;
+
     public NodeStats(StreamInput in) throws IOException {
         super(in);
         timestamp = in.readVLong();
@@ -107,6 +112,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         ingestStats = in.readOptionalWriteable(IngestStats::new);
         adaptiveSelectionStats = in.readOptionalWriteable(AdaptiveSelectionStats::new);
         indexingPressureStats = in.readOptionalWriteable(IndexingPressureStats::new);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            searchAdmissionControlStats = in.readOptionalWriteable(SearchAdmissionControlStats::new);
+        }
     }
 
     public NodeStats(DiscoveryNode node, long timestamp, @Nullable NodeIndicesStats indices,
@@ -118,7 +126,8 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
                      @Nullable IngestStats ingestStats,
                      @Nullable AdaptiveSelectionStats adaptiveSelectionStats,
                      @Nullable ScriptCacheStats scriptCacheStats,
-                     @Nullable IndexingPressureStats indexingPressureStats) {
+                     @Nullable IndexingPressureStats indexingPressureStats,
+                     @Nullable SearchAdmissionControlStats searchAdmissionControlStats) {
         super(node);
         this.timestamp = timestamp;
         this.indices = indices;
@@ -136,6 +145,7 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         this.adaptiveSelectionStats = adaptiveSelectionStats;
         this.scriptCacheStats = scriptCacheStats;
         this.indexingPressureStats = indexingPressureStats;
+        this.searchAdmissionControlStats = searchAdmissionControlStats;
     }
 
     public long getTimestamp() {
@@ -240,6 +250,11 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         return indexingPressureStats;
     }
 
+    @Nullable
+    public SearchAdmissionControlStats getSearchAdmissionControlStats() {
+        return searchAdmissionControlStats;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
@@ -263,6 +278,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         out.writeOptionalWriteable(ingestStats);
         out.writeOptionalWriteable(adaptiveSelectionStats);
         out.writeOptionalWriteable(indexingPressureStats);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeOptionalWriteable(searchAdmissionControlStats);
+        }
     }
 
     @Override
@@ -332,6 +350,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContentFragment {
         if (getIndexingPressureStats() != null) {
             getIndexingPressureStats().toXContent(builder, params);
         }
+        if (getSearchAdmissionControlStats() != null) {
+            getSearchAdmissionControlStats().toXContent(builder, params);
+        }
         return builder;
     }
 }
@@ -151,6 +151,14 @@ public class NodesStatsRequestBuilder
         return this;
     }
 
+    /**
+     * Should search admission control statistics be returned
+     */
+    public NodesStatsRequestBuilder setSearchAdmissionControl(boolean searchAdmissionControl) {
+        addOrRemoveMetric(searchAdmissionControl, NodesStatsRequest.Metric.SEARCH_ADMISSION_CONTROL);
+        return this;
+    }
+
     /**
      * Helper method for adding metrics to a request
      */
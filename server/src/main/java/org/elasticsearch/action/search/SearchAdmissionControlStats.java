@@ -0,0 +1,169 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Node level statistics of the {@link SearchAdmissionController}.
+ */
+public class SearchAdmissionControlStats implements Writeable, ToXContentFragment {
+
+    private final boolean enabled;
+    private final PriorityStats interactive;
+    private final PriorityStats heavy;
+
+    public SearchAdmissionControlStats(boolean enabled, PriorityStats interactive, PriorityStats heavy) {
+        this.enabled = enabled;
+        this.interactive = interactive;
+        this.heavy = heavy;
+    }
+
+    public SearchAdmissionControlStats(StreamInput in) throws IOException {
+        enabled = in.readBoolean();
+        interactive = new PriorityStats(in);
+        heavy = new PriorityStats(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeBoolean(enabled);
+        interactive.writeTo(out);
+        heavy.writeTo(out);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PriorityStats getInteractive() {
+        return interactive;
+    }
+
+    public PriorityStats getHeavy() {
+        return heavy;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("search_admission_control");
+        builder.field("enabled", enabled);
+        builder.startObject("interactive");
+        interactive.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject("heavy");
+        heavy.toXContent(builder, params);
+        builder.endObject();
+        return builder.endObject();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SearchAdmissionControlStats that = (SearchAdmissionControlStats) o;
+        return enabled == that.enabled && interactive.equals(that.interactive) && heavy.equals(that.heavy);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(enabled, interactive, heavy);
+    }
+
+    /**
+     * Statistics of a single {@link SearchAdmissionController.Priority}.
+     */
+    public static class PriorityStats implements Writeable, ToXContentFragment {
+
+        private final long currentRequests;
+        private final long currentCost;
+        private final long totalAdmitted;
+        private final long totalRejected;
+        private final long maxInFlightCost;
+
+        public PriorityStats(long currentRequests, long currentCost, long totalAdmitted, long totalRejected, long maxInFlightCost) {
+            this.currentRequests = currentRequests;
+            this.currentCost = currentCost;
+            this.totalAdmitted = totalAdmitted;
+            this.totalRejected = totalRejected;
+            this.maxInFlightCost = maxInFlightCost;
+        }
+
+        public PriorityStats(StreamInput in) throws IOException {
+            currentRequests = in.readVLong();
+            currentCost = in.readVLong();
+            totalAdmitted = in.readVLong();
+            totalRejected = in.readVLong();
+            maxInFlightCost = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(currentRequests);
+            out.writeVLong(currentCost);
+            out.writeVLong(totalAdmitted);
+            out.writeVLong(totalRejected);
+            out.writeVLong(maxInFlightCost);
+        }
+
+        public long getCurrentRequests() {
+            return currentRequests;
+        }
+
+        public long getCurrentCost() {
+            return currentCost;
+        }
+
+        public long getTotalAdmitted() {
+            return totalAdmitted;
+        }
+
+        public long getTotalRejected() {
+            return totalRejected;
+        }
+
+        public long getMaxInFlightCost() {
+            return maxInFlightCost;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field("current_requests", currentRequests);
+            builder.field("current_cost", currentCost);
+            builder.field("total_admitted", totalAdmitted);
+            builder.field("total_rejected", totalRejected);
+            builder.field("max_in_flight_cost", maxInFlightCost);
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PriorityStats that = (PriorityStats) o;
+            return currentRequests == that.currentRequests
+                && currentCost == that.currentCost
+                && totalAdmitted == that.totalAdmitted
+                && totalRejected == that.totalRejected
+                && maxInFlightCost == that.maxInFlightCost;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(currentRequests, currentCost, totalAdmitted, totalRejected, maxInFlightCost);
+        }
+    }
+}
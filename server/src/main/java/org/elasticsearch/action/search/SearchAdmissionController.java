@@ -0,0 +1,208 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.TimeValue;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admits or sheds search requests on the coordinating node based on their estimated cost, before any shard-level work is started.
+ * <p>
+ * Each request is costed by {@link SearchCostEstimator} from the shape of its query and aggregations and the number of targeted
+ * shards, scaled by the recent latency of searches over the same index expression. Requests whose cost reaches
+ * {@link #HEAVY_REQUEST_THRESHOLD} are {@link Priority#HEAVY heavy}, all others are {@link Priority#INTERACTIVE interactive}. Each
+ * priority has a budget of in-flight cost; a request that would exceed the budget of its priority is rejected with an
+ * {@link EsRejectedExecutionException}, unless no other request of that priority is in flight. Giving heavy requests a smaller
+ * budget sheds them first, so cheap interactive requests keep their latency when the node is overloaded.
+ */
+public class SearchAdmissionController {
+
+    public static final Setting<Boolean> ADMISSION_CONTROL_ENABLED = Setting.boolSetting(
+        "search.admission_control.enabled", false, Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    public static final Setting<Long> HEAVY_REQUEST_THRESHOLD = Setting.longSetting(
+        "search.admission_control.heavy_request_threshold", 10_000L, 1L, Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    public static final Setting<Long> INTERACTIVE_MAX_IN_FLIGHT_COST = Setting.longSetting(
+        "search.admission_control.interactive.max_in_flight_cost", Long.MAX_VALUE, 1L,
+        Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    public static final Setting<Long> HEAVY_MAX_IN_FLIGHT_COST = Setting.longSetting(
+        "search.admission_control.heavy.max_in_flight_cost", 100_000L, 1L, Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * Each second of recent average latency of an index expression adds the structural cost of the request once more.
+     */
+    static final long LATENCY_UNIT_MILLIS = 1000;
+
+    /**
+     * Upper bound of the latency based multiplier, so that a single slow search does not make all further requests heavy.
+     */
+    static final long MAX_LATENCY_FACTOR = 100;
+
+    /**
+     * Upper bound of the number of index expressions whose latency is tracked. The least recently used expression is forgotten
+     * to make room for a new one.
+     */
+    static final int MAX_TRACKED_EXPRESSIONS = 1024;
+
+    /**
+     * Forget the latency of index expressions that haven't been searched for this long, like yesterday's date math indices.
+     */
+    static final TimeValue EXPRESSION_EXPIRE_AFTER_ACCESS = TimeValue.timeValueHours(1);
+
+    private static final double LATENCY_EWMA_ALPHA = 0.3;
+
+    public enum Priority {
+        INTERACTIVE,
+        HEAVY
+    }
+
+    private final LongSupplier relativeNanoTime;
+    private final PriorityBudget interactive = new PriorityBudget(Priority.INTERACTIVE);
+    private final PriorityBudget heavy = new PriorityBudget(Priority.HEAVY);
+    private final Cache<String, ExponentiallyWeightedMovingAverage> latencyByExpression =
+        CacheBuilder.<String, ExponentiallyWeightedMovingAverage>builder()
+            .setMaximumWeight(MAX_TRACKED_EXPRESSIONS)
+            .setExpireAfterAccess(EXPRESSION_EXPIRE_AFTER_ACCESS)
+            .build();
+
+    private volatile boolean enabled;
+    private volatile long heavyRequestThreshold;
+
+    public SearchAdmissionController(Settings settings, ClusterSettings clusterSettings) {
+        this(settings, clusterSettings, System::nanoTime);
+    }
+
+    SearchAdmissionController(Settings settings, ClusterSettings clusterSettings, LongSupplier relativeNanoTime) {
+        this.relativeNanoTime = relativeNanoTime;
+        this.enabled = ADMISSION_CONTROL_ENABLED.get(settings);
+        this.heavyRequestThreshold = HEAVY_REQUEST_THRESHOLD.get(settings);
+        this.interactive.maxInFlightCost = INTERACTIVE_MAX_IN_FLIGHT_COST.get(settings);
+        this.heavy.maxInFlightCost = HEAVY_MAX_IN_FLIGHT_COST.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(ADMISSION_CONTROL_ENABLED, value -> this.enabled = value);
+        clusterSettings.addSettingsUpdateConsumer(HEAVY_REQUEST_THRESHOLD, value -> this.heavyRequestThreshold = value);
+        clusterSettings.addSettingsUpdateConsumer(INTERACTIVE_MAX_IN_FLIGHT_COST, value -> this.interactive.maxInFlightCost = value);
+        clusterSettings.addSettingsUpdateConsumer(HEAVY_MAX_IN_FLIGHT_COST, value -> this.heavy.maxInFlightCost = value);
+    }
+
+    /**
+     * Admits the given search request, or throws an {@link EsRejectedExecutionException} if the budget of its priority is exhausted.
+     * The returned {@link Releasable} must be closed once the request completes, it records the latency of the request and returns
+     * its cost to the budget.
+     */
+    public Releasable admit(SearchRequest searchRequest, int numShards) {
+        if (enabled == false) {
+            return () -> {};
+        }
+        final String expression = expressionKey(searchRequest.indices());
+        final long cost = estimateCost(searchRequest, numShards, expression);
+        final PriorityBudget budget = cost >= heavyRequestThreshold ? heavy : interactive;
+        budget.acquire(cost);
+        final long startNanos = relativeNanoTime.getAsLong();
+        return Releasables.releaseOnce(() -> {
+            budget.release(cost);
+            recordLatency(expression, relativeNanoTime.getAsLong() - startNanos);
+        });
+    }
+
+    long estimateCost(SearchRequest searchRequest, int numShards, String expression) {
+        final long structuralCost = SearchCostEstimator.estimate(searchRequest, numShards);
+        final ExponentiallyWeightedMovingAverage latency = latencyByExpression.get(expression);
+        if (latency == null) {
+            return structuralCost;
+        }
+        final long factor = Math.min(MAX_LATENCY_FACTOR, 1 + (long) (latency.getAverage() / LATENCY_UNIT_MILLIS));
+        return structuralCost > Long.MAX_VALUE / factor ? Long.MAX_VALUE : structuralCost * factor;
+    }
+
+    private void recordLatency(String expression, long tookNanos) {
+        final double tookMillis = TimeUnit.NANOSECONDS.toMillis(tookNanos);
+        final ExponentiallyWeightedMovingAverage latency;
+        try {
+            latency = latencyByExpression.computeIfAbsent(expression,
+                k -> new ExponentiallyWeightedMovingAverage(LATENCY_EWMA_ALPHA, tookMillis));
+        } catch (ExecutionException e) {
+            throw new AssertionError("creating a moving average can't fail", e);
+        }
+        latency.addValue(tookMillis);
+    }
+
+    private static String expressionKey(String[] indices) {
+        return indices == null || indices.length == 0 ? "_all" : Strings.arrayToCommaDelimitedString(indices);
+    }
+
+    public SearchAdmissionControlStats stats() {
+        return new SearchAdmissionControlStats(enabled, interactive.stats(), heavy.stats());
+    }
+
+    /**
+     * The number of index expressions whose latency is tracked.
+     */
+    int trackedExpressions() {
+        return latencyByExpression.count();
+    }
+
+    private static final class PriorityBudget {
+        private final Priority priority;
+        private final AtomicLong currentCost = new AtomicLong();
+        private final AtomicLong currentRequests = new AtomicLong();
+        private final AtomicLong totalAdmitted = new AtomicLong();
+        private final AtomicLong totalRejected = new AtomicLong();
+        private volatile long maxInFlightCost;
+
+        PriorityBudget(Priority priority) {
+            this.priority = priority;
+        }
+
+        void acquire(long cost) {
+            final long limit = maxInFlightCost;
+            long current;
+            do {
+                current = currentCost.get();
+                // always admit a request if nothing else is in flight, otherwise it could never run
+                if (current > 0 && cost > limit - current) {
+                    totalRejected.incrementAndGet();
+                    throw new EsRejectedExecutionException("rejected execution of " + priority.name().toLowerCase(Locale.ROOT) +
+                        " search request [" +
+                        "estimated_cost=" + cost + ", " +
+                        "in_flight_cost=" + current + ", " +
+                        "max_in_flight_cost=" + limit + "]", false);
+                }
+            } while (currentCost.compareAndSet(current, current + cost) == false);
+            currentRequests.incrementAndGet();
+            totalAdmitted.incrementAndGet();
+        }
+
+        void release(long cost) {
+            currentCost.addAndGet(-cost);
+            currentRequests.decrementAndGet();
+        }
+
+        SearchAdmissionControlStats.PriorityStats stats() {
+            return new SearchAdmissionControlStats.PriorityStats(currentRequests.get(), currentCost.get(), totalAdmitted.get(),
+                totalRejected.get(), maxInFlightCost);
+        }
+    }
+}
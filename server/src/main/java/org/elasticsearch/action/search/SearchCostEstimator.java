@@ -0,0 +1,140 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.BoostingQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.DisMaxQueryBuilder;
+import org.elasticsearch.index.query.FuzzyQueryBuilder;
+import org.elasticsearch.index.query.NestedQueryBuilder;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.index.query.RegexpQueryBuilder;
+import org.elasticsearch.index.query.ScriptQueryBuilder;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Estimates the relative cost of a search request from its shape, before it is executed. The estimate is unit-less: it is only
+ * meant to be compared against other estimates and against the budgets of {@link SearchAdmissionController}.
+ * <p>
+ * The estimate is the per-shard cost of the query, the aggregations and the hits to fetch, multiplied by the number of shards
+ * the request targets. Queries cost one unit per leaf clause, except for multi-term and scripted queries that usually visit many
+ * terms or documents. Aggregations cost one unit each, and every aggregation below one that creates
+ * {@link AggregationBuilder.BucketCardinality#MANY many} buckets is multiplied by {@link #MULTI_BUCKET_FAN_OUT}.
+ */
+final class SearchCostEstimator {
+
+    /**
+     * The cost of leaf queries that expand to many terms or run a script per document.
+     */
+    static final long EXPENSIVE_QUERY_COST = 10;
+
+    /**
+     * The assumed number of buckets per parent bucket created by multi-bucket aggregations.
+     */
+    static final long MULTI_BUCKET_FAN_OUT = 10;
+
+    /**
+     * The number of hits to collect and fetch that cost as much as a single query clause.
+     */
+    static final long HITS_PER_UNIT = 100;
+
+    private SearchCostEstimator() {}
+
+    static long estimate(SearchRequest searchRequest, int numShards) {
+        final SearchSourceBuilder source = searchRequest.source();
+        long perShardCost = 1;
+        if (source != null) {
+            if (source.query() != null) {
+                perShardCost += queryCost(source.query());
+            }
+            if (source.aggregations() != null) {
+                perShardCost = saturatedAdd(perShardCost, aggregationsCost(source.aggregations().getAggregatorFactories(), 1));
+            }
+            final int from = Math.max(0, source.from());
+            final int size = source.size() < 0 ? SearchService.DEFAULT_SIZE : source.size();
+            perShardCost += (from + (long) size) / HITS_PER_UNIT;
+        }
+        return saturatedMultiply(perShardCost, Math.max(1, numShards));
+    }
+
+    static long queryCost(QueryBuilder query) {
+        if (query == null) {
+            return 0;
+        }
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            return queryCost(bool.must()) + queryCost(bool.filter()) + queryCost(bool.should()) + queryCost(bool.mustNot());
+        } else if (query instanceof DisMaxQueryBuilder) {
+            return queryCost(((DisMaxQueryBuilder) query).innerQueries());
+        } else if (query instanceof ConstantScoreQueryBuilder) {
+            return queryCost(((ConstantScoreQueryBuilder) query).innerQuery());
+        } else if (query instanceof BoostingQueryBuilder) {
+            BoostingQueryBuilder boosting = (BoostingQueryBuilder) query;
+            return queryCost(boosting.positiveQuery()) + queryCost(boosting.negativeQuery());
+        } else if (query instanceof NestedQueryBuilder) {
+            return 1 + queryCost(((NestedQueryBuilder) query).query());
+        } else if (query instanceof FunctionScoreQueryBuilder) {
+            FunctionScoreQueryBuilder functionScore = (FunctionScoreQueryBuilder) query;
+            long cost = 1 + queryCost(functionScore.query());
+            for (FunctionScoreQueryBuilder.FilterFunctionBuilder function : functionScore.filterFunctionBuilders()) {
+                cost += 1 + queryCost(function.getFilter());
+            }
+            return cost;
+        } else if (query instanceof ScriptQueryBuilder
+            || query instanceof WildcardQueryBuilder
+            || query instanceof RegexpQueryBuilder
+            || query instanceof FuzzyQueryBuilder
+            || query instanceof PrefixQueryBuilder
+            || query instanceof QueryStringQueryBuilder) {
+            return EXPENSIVE_QUERY_COST;
+        }
+        return 1;
+    }
+
+    private static long queryCost(List<QueryBuilder> queries) {
+        long cost = 0;
+        for (QueryBuilder query : queries) {
+            cost += queryCost(query);
+        }
+        return cost;
+    }
+
+    static long aggregationsCost(Collection<AggregationBuilder> aggregations, long parentBuckets) {
+        long cost = 0;
+        for (AggregationBuilder aggregation : aggregations) {
+            cost = saturatedAdd(cost, parentBuckets);
+            final long buckets = aggregation.bucketCardinality() == AggregationBuilder.BucketCardinality.MANY
+                ? saturatedMultiply(parentBuckets, MULTI_BUCKET_FAN_OUT)
+                : parentBuckets;
+            cost = saturatedAdd(cost, aggregationsCost(aggregation.getSubAggregations(), buckets));
+        }
+        return cost;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        final long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        final long high = Math.multiplyHigh(a, b);
+        final long low = a * b;
+        return high != 0 || low < 0 ? Long.MAX_VALUE : low;
+    }
+}
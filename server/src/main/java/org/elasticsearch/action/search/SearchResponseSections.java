@@ -8,7 +8,9 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.common.collect.Iterators;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.ToXContentFragment;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.search.SearchHits;
@@ -19,6 +21,7 @@ import org.elasticsearch.search.suggest.Suggest;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -100,6 +103,17 @@ public class SearchResponseSections implements ToXContentFragment {
     @Override
     public final XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         hits.toXContent(builder, params);
+        return sectionsAfterHitsToXContent(builder, params);
+    }
+
+    /**
+     * Returns the same xcontent as {@link #toXContent} in chunks, one for each hit and one for all other sections.
+     */
+    public final Iterator<ToXContent> toXContentChunked(ToXContent.Params params) {
+        return Iterators.concat(hits.toXContentChunked(params), Iterators.<ToXContent>single(this::sectionsAfterHitsToXContent));
+    }
+
+    private XContentBuilder sectionsAfterHitsToXContent(XContentBuilder builder, Params params) throws IOException {
         if (aggregations != null) {
             aggregations.toXContent(builder, params);
         }
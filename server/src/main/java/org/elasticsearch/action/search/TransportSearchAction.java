@@ -43,6 +43,7 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.query.Rewriteable;
@@ -120,6 +121,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     private final CircuitBreaker circuitBreaker;
     private final ExecutorSelector executorSelector;
     private final int defaultPreFilterShardSize;
+    private final SearchAdmissionController searchAdmissionController;
 
     @Inject
     public TransportSearchAction(ThreadPool threadPool,
@@ -132,7 +134,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                                  ActionFilters actionFilters,
                                  IndexNameExpressionResolver indexNameExpressionResolver,
                                  NamedWriteableRegistry namedWriteableRegistry,
-                                 ExecutorSelector executorSelector) {
+                                 ExecutorSelector executorSelector,
+                                 SearchAdmissionController searchAdmissionController) {
         super(SearchAction.NAME, transportService, actionFilters, (Writeable.Reader<SearchRequest>) SearchRequest::new);
         this.threadPool = threadPool;
         this.circuitBreaker = circuitBreakerService.getBreaker(CircuitBreaker.REQUEST);
@@ -146,6 +149,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.executorSelector = executorSelector;
         this.defaultPreFilterShardSize = DEFAULT_PRE_FILTER_SHARD_SIZE.get(clusterService.getSettings());
+        this.searchAdmissionController = searchAdmissionController;
     }
 
     private Map<String, OriginalIndices> buildPerIndexOriginalIndices(ClusterState clusterState,
@@ -748,12 +752,26 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         final Executor asyncSearchExecutor = asyncSearchExecutor(concreteLocalIndices);
         final boolean preFilterSearchShards = shouldPreFilterSearchShards(clusterState, searchRequest, concreteLocalIndices,
             localShardIterators.size() + remoteShardIterators.size(), defaultPreFilterShardSize);
+        final ActionListener<SearchResponse> admittedListener;
+        if (isSystemSearch(concreteLocalIndices)) {
+            // searches of system indices have their own thread pools and are never shed
+            admittedListener = listener;
+        } else {
+            final Releasable admission = searchAdmissionController.admit(searchRequest, shardIterators.size());
+            admittedListener = ActionListener.runBefore(listener, admission::close);
+        }
         searchAsyncActionProvider.asyncSearchAction(
             task, searchRequest, asyncSearchExecutor, shardIterators, timeProvider, connectionLookup, clusterState,
-            Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, listener,
+            Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, admittedListener,
             preFilterSearchShards, threadPool, clusters).start();
     }
 
+    private boolean isSystemSearch(final String[] indices) {
+        return Arrays.stream(indices)
+            .map(executorSelector::executorForSearch)
+            .anyMatch(executor -> SYSTEM_READ.equals(executor) || SYSTEM_CRITICAL_READ.equals(executor));
+    }
+
     Executor asyncSearchExecutor(final String[] indices) {
         final List<String> executorsForIndices = Arrays.stream(indices)
             .map(executorSelector::executorForSearch)
@@ -28,6 +28,22 @@ public class PreallocatedCircuitBreakerService extends CircuitBreakerService imp
         String breakerToPreallocate,
         long bytesToPreallocate,
         String label
+    ) {
+        this(next, breakerToPreallocate, bytesToPreallocate, label, false);
+    }
+
+    /**
+     * Build the service.
+     * @param concurrent can the preallocated breaker be used from more than
+     *                   one thread at a time? If so allocating takes a lock.
+     *                   Otherwise it is entirely unsynchronized.
+     */
+    public PreallocatedCircuitBreakerService(
+        CircuitBreakerService next,
+        String breakerToPreallocate,
+        long bytesToPreallocate,
+        String label,
+        boolean concurrent
     ) {
         if (bytesToPreallocate <= 0) {
             throw new IllegalArgumentException("can't preallocate negative or zero bytes but got [" + bytesToPreallocate + "]");
@@ -35,7 +51,9 @@ public class PreallocatedCircuitBreakerService extends CircuitBreakerService imp
         CircuitBreaker nextBreaker = next.getBreaker(breakerToPreallocate);
         nextBreaker.addEstimateBytesAndMaybeBreak(bytesToPreallocate, "preallocate[" + label + "]");
         this.next = next;
-        this.preallocated = new PreallocatedCircuitBreaker(nextBreaker, bytesToPreallocate);
+        this.preallocated = concurrent
+            ? new SynchronizedPreallocatedCircuitBreaker(nextBreaker, bytesToPreallocate)
+            : new PreallocatedCircuitBreaker(nextBreaker, bytesToPreallocate);
     }
 
     @Override
@@ -201,4 +219,30 @@ public class PreallocatedCircuitBreakerService extends CircuitBreakerService imp
             throw new UnsupportedOperationException();
         }
     }
+
+    /**
+     * A {@link PreallocatedCircuitBreaker} that can be shared by threads
+     * collecting independent top level aggregations at the same time. That
+     * lock is almost never contended.
+     */
+    private static class SynchronizedPreallocatedCircuitBreaker extends PreallocatedCircuitBreaker {
+        SynchronizedPreallocatedCircuitBreaker(CircuitBreaker next, long preallocated) {
+            super(next, preallocated);
+        }
+
+        @Override
+        public synchronized void addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+            super.addEstimateBytesAndMaybeBreak(bytes, label);
+        }
+
+        @Override
+        public synchronized void addWithoutBreaking(long bytes) {
+            super.addWithoutBreaking(bytes);
+        }
+
+        @Override
+        public synchronized void close() {
+            super.close();
+        }
+    }
 }
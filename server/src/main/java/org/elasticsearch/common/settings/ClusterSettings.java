@@ -10,6 +10,7 @@ package org.elasticsearch.common.settings;
 import org.apache.logging.log4j.LogManager;
 import org.elasticsearch.action.admin.cluster.configuration.TransportAddVotingConfigExclusionsAction;
 import org.elasticsearch.action.admin.indices.close.TransportCloseIndexAction;
+import org.elasticsearch.action.search.SearchAdmissionController;
 import org.elasticsearch.action.search.TransportSearchAction;
 import org.elasticsearch.action.support.AutoCreateIndex;
 import org.elasticsearch.action.support.DestructiveOperations;
@@ -100,6 +101,7 @@ import org.elasticsearch.search.fetch.subphase.highlight.FastVectorHighlighter;
 import org.elasticsearch.snapshots.InternalSnapshotsInfoService;
 import org.elasticsearch.snapshots.RestoreService;
 import org.elasticsearch.snapshots.SnapshotsService;
+import org.elasticsearch.tasks.TaskResourceTracker;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.ProxyConnectionStrategy;
 import org.elasticsearch.transport.RemoteClusterService;
@@ -409,6 +411,7 @@ public final class ClusterSettings extends AbstractScopedSettings {
             SearchService.LOW_LEVEL_CANCELLATION_SETTING,
             SearchService.MAX_OPEN_SCROLL_CONTEXT,
             SearchService.ENABLE_REWRITE_AGGS_TO_FILTER_BY_FILTER,
+            SearchService.CONCURRENT_SIBLING_AGGS_COLLECTION,
             SearchService.MAX_ASYNC_SEARCH_RESPONSE_SIZE_SETTING,
             Node.WRITE_PORTS_FILE_SETTING,
             Node.NODE_NAME_SETTING,
@@ -492,7 +495,12 @@ public final class ClusterSettings extends AbstractScopedSettings {
             FsHealthService.SLOW_PATH_LOGGING_THRESHOLD_SETTING,
             IndexingPressure.MAX_INDEXING_BYTES,
             ShardLimitValidator.SETTING_CLUSTER_MAX_SHARDS_PER_NODE_FROZEN,
-            DataTier.ENFORCE_DEFAULT_TIER_PREFERENCE_SETTING
+            DataTier.ENFORCE_DEFAULT_TIER_PREFERENCE_SETTING,
+            TaskResourceTracker.TASK_RESOURCE_TRACKING_ENABLED,
+            SearchAdmissionController.ADMISSION_CONTROL_ENABLED,
+            SearchAdmissionController.HEAVY_REQUEST_THRESHOLD,
+            SearchAdmissionController.INTERACTIVE_MAX_IN_FLIGHT_COST,
+            SearchAdmissionController.HEAVY_MAX_IN_FLIGHT_COST
         );
 
     static List<SettingUpgrader<?>> BUILT_IN_SETTING_UPGRADERS = Collections.emptyList();
@@ -124,6 +124,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSettings.INDEX_SOFT_DELETES_SETTING,
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING,
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING,
+            IndexSettings.INDEX_DICTIONARY_FINGERPRINT_SETTING,
             IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING,
             UnassignedInfo.INDEX_DELAYED_NODE_LEFT_TIMEOUT_SETTING,
             EnableAllocationDecider.INDEX_ROUTING_REBALANCE_ENABLE_SETTING,
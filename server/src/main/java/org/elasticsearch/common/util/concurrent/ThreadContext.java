@@ -11,6 +11,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.support.ContextPreservingActionListener;
 import org.elasticsearch.client.OriginSettingClient;
+import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -20,6 +21,7 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskResourceTracker;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -675,7 +677,9 @@ public final class ThreadContext implements Writeable {
         public void run() {
             try (ThreadContext.StoredContext ignore = stashContext()){
                 ctx.restore();
-                in.run();
+                try (Releasable ignored = TaskResourceTracker.track(getTransient(TaskResourceTracker.TASK_TRANSIENT_NAME))) {
+                    in.run();
+                }
             }
         }
 
@@ -734,7 +738,9 @@ public final class ThreadContext implements Writeable {
         protected void doRun() throws Exception {
             threadsOriginalContext = stashContext();
             creatorsContext.restore();
-            in.doRun();
+            try (Releasable ignored = TaskResourceTracker.track(getTransient(TaskResourceTracker.TASK_TRANSIENT_NAME))) {
+                in.doRun();
+            }
         }
 
         @Override
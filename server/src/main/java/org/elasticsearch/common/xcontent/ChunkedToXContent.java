@@ -0,0 +1,27 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.common.xcontent;
+
+import org.elasticsearch.xcontent.ToXContent;
+
+import java.util.Iterator;
+
+/**
+ * An alternative to {@link ToXContent} for objects that are too large to be rendered in one go. The object is rendered as a sequence
+ * of chunks that are serialized one after the other to the same builder, so that a response can be sent to the client while it is
+ * still being serialized.
+ */
+public interface ChunkedToXContent {
+
+    /**
+     * Returns the chunks of this object. The chunks must be serialized in order to a single builder, and their concatenation must be a
+     * complete xcontent object.
+     */
+    Iterator<? extends ToXContent> toXContentChunked(ToXContent.Params params);
+}
@@ -20,6 +20,7 @@ import org.elasticsearch.common.network.CloseableChannel;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -86,23 +87,32 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
         String opaque = null;
         String contentLength = null;
         try {
-            final BytesReference content = restResponse.content();
-            if (content instanceof Releasable) {
+            final ChunkedRestResponseBody chunkedContent = restResponse.chunkedContent();
+            final BytesReference content = chunkedContent == null ? restResponse.content() : null;
+            if (chunkedContent != null) {
+                toClose.add(chunkedContent);
+            } else if (content instanceof Releasable) {
                 toClose.add((Releasable) content);
             }
             toClose.add(this::releaseOutputBuffer);
 
-            BytesReference finalContent = content;
+            boolean isHeadRequest = false;
             try {
-                if (request.method() == RestRequest.Method.HEAD) {
-                    finalContent = BytesArray.EMPTY;
-                }
+                isHeadRequest = request.method() == RestRequest.Method.HEAD;
             } catch (IllegalArgumentException ignored) {
                 assert restResponse.status() == RestStatus.METHOD_NOT_ALLOWED :
                     "request HTTP method is unsupported but HTTP status is not METHOD_NOT_ALLOWED(405)";
             }
 
-            final HttpResponse httpResponse = httpRequest.createResponse(restResponse.status(), finalContent);
+            final HttpResponse httpResponse;
+            if (isHeadRequest) {
+                httpResponse = httpRequest.createResponse(restResponse.status(), BytesArray.EMPTY);
+            } else if (chunkedContent != null) {
+                // the length of a chunked response is only known once it has been sent
+                httpResponse = httpRequest.createResponse(restResponse.status(), chunkedContent);
+            } else {
+                httpResponse = httpRequest.createResponse(restResponse.status(), content);
+            }
 
             corsHandler.setCorsResponseHeaders(httpRequest, httpResponse);
 
@@ -117,9 +127,11 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
 
             // If our response doesn't specify a content-type header, set one
             setHeaderField(httpResponse, CONTENT_TYPE, restResponse.contentType(), false);
-            // If our response has no content-length, calculate and set one
-            contentLength = String.valueOf(restResponse.content().length());
-            setHeaderField(httpResponse, CONTENT_LENGTH, contentLength, false);
+            if (chunkedContent == null) {
+                // If our response has no content-length, calculate and set one
+                contentLength = String.valueOf(content.length());
+                setHeaderField(httpResponse, CONTENT_LENGTH, contentLength, false);
+            }
 
             addCookies(httpResponse);
 
@@ -38,4 +38,13 @@ public interface HttpChannel extends CloseableChannel {
      */
     InetSocketAddress getRemoteAddress();
 
+    /**
+     * Returns the channel of the underlying network connection. This is the channel itself unless it represents a single stream of a
+     * connection that multiplexes several requests at once, such as an HTTP/2 connection.
+     *
+     * @return the channel of the network connection this channel belongs to.
+     */
+    default HttpChannel getConnectionChannel() {
+        return this;
+    }
 }
@@ -126,7 +126,7 @@ public class HttpClientStatsTracker {
      */
     void updateClientStats(final HttpRequest httpRequest, final HttpChannel httpChannel) {
         if (clientStatsEnabled && httpChannel != null) {
-            final ClientStatsBuilder clientStats = httpChannelStats.get(httpChannel);
+            final ClientStatsBuilder clientStats = httpChannelStats.get(httpChannel.getConnectionChannel());
             if (clientStats != null) {
                 clientStats.update(httpRequest, httpChannel, threadPool.absoluteTimeInMillis());
             }
@@ -10,9 +10,12 @@ package org.elasticsearch.http;
 
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -75,6 +78,21 @@ public interface HttpRequest {
      */
     HttpResponse createResponse(RestStatus status, BytesReference content);
 
+    /**
+     * Create an http response from this request and the supplied status and chunked content. The content is sent incrementally by
+     * implementations that support chunked responses, the default implementation serializes the whole content up front.
+     */
+    default HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content) {
+        try {
+            final BytesReference bytes = ChunkedRestResponseBody.toBytesReference(content);
+            final HttpResponse response = createResponse(status, bytes);
+            response.addHeader("content-length", String.valueOf(bytes.length()));
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Nullable
     Exception getInboundException();
 
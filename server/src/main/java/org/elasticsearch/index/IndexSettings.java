@@ -231,6 +231,16 @@ public final class IndexSettings {
     public static final Setting<Boolean> INDEX_SOFT_DELETES_SETTING =
         Setting.boolSetting("index.soft_deletes.enabled", true, Property.IndexScope, Property.Final);
 
+    /**
+     * Should doc values record a fingerprint of the terms dictionary of each
+     * {@code keyword} field so building global ordinals can share repeated
+     * dictionaries? The data on disk is the same but segments name the
+     * {@link org.elasticsearch.index.codec.DictionaryFingerprintDocValuesFormat}
+     * so only versions that know that format can read them.
+     */
+    public static final Setting<Boolean> INDEX_DICTIONARY_FINGERPRINT_SETTING =
+        Setting.boolSetting("index.codec.dictionary_fingerprint", false, Property.IndexScope, Property.Final);
+
     /**
      * Controls how many soft-deleted documents will be kept around before being merged away. Keeping more deleted
      * documents increases the chance of operation-based recoveries and allows querying a longer history of documents.
@@ -394,6 +404,7 @@ public final class IndexSettings {
     private final IndexScopedSettings scopedSettings;
     private long gcDeletesInMillis = DEFAULT_GC_DELETES.millis();
     private final boolean softDeleteEnabled;
+    private final boolean dictionaryFingerprintEnabled;
     private volatile long softDeleteRetentionOperations;
 
     private volatile long retentionLeaseMillis;
@@ -533,6 +544,7 @@ public final class IndexSettings {
         softDeleteEnabled = scopedSettings.get(INDEX_SOFT_DELETES_SETTING);
         assert softDeleteEnabled || version.before(Version.V_8_0_0) : "soft deletes must be enabled in version " + version;
         softDeleteRetentionOperations = scopedSettings.get(INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING);
+        dictionaryFingerprintEnabled = scopedSettings.get(INDEX_DICTIONARY_FINGERPRINT_SETTING);
         retentionLeaseMillis = scopedSettings.get(INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING).millis();
         warmerEnabled = scopedSettings.get(INDEX_WARMER_ENABLED_SETTING);
         maxResultWindow = scopedSettings.get(MAX_RESULT_WINDOW_SETTING);
@@ -1024,6 +1036,13 @@ public final class IndexSettings {
         return softDeleteEnabled;
     }
 
+    /**
+     * Returns <code>true</code> if doc values fingerprint the dictionaries of {@code keyword} fields.
+     */
+    public boolean isDictionaryFingerprintEnabled() {
+        return dictionaryFingerprintEnabled;
+    }
+
     private void setSoftDeleteRetentionOperations(long ops) {
         this.softDeleteRetentionOperations = ops;
     }
@@ -21,6 +21,8 @@ import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskResourceTracker;
+import org.elasticsearch.tasks.TaskResourceUsage;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
@@ -162,6 +164,12 @@ public final class SearchSlowLog implements SearchOperationListener {
             }
 
             messageFields.put("elasticsearch.slowlog.id", context.getTask().getHeader(Task.X_OPAQUE_ID));
+
+            // account for the work done by the current thread so far, it is only charged to the task once the runnable completes
+            TaskResourceTracker.chargeCurrentThread();
+            TaskResourceUsage resourceUsage = context.getTask().getResourceUsage();
+            messageFields.put("elasticsearch.slowlog.cpu_time_nanos", resourceUsage.getCpuTimeNanos());
+            messageFields.put("elasticsearch.slowlog.allocated_bytes", resourceUsage.getAllocatedBytes());
             return messageFields;
         }
 
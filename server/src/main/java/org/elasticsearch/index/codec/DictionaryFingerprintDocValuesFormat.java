@@ -0,0 +1,161 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.codecs.lucene90.Lucene90DocValuesFormat;
+import org.apache.lucene.codecs.perfield.PerFieldDocValuesFormat;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.function.Predicate;
+
+/**
+ * Writes doc values exactly like {@link Lucene90DocValuesFormat} and records
+ * a fingerprint of the terms dictionary of small sorted set fields in the
+ * segment's field infos. Segments with the same fingerprint for a field have
+ * the same dictionary so their ordinals are interchangeable. Global ordinals
+ * use this to merge each distinct dictionary once rather than once per
+ * segment, which is most of the work for low cardinality fields like host
+ * names that are spread over many small segments.
+ */
+public final class DictionaryFingerprintDocValuesFormat extends DocValuesFormat {
+    public static final String NAME = "ES90DictionaryFingerprint";
+    /**
+     * The field attribute that holds the fingerprint.
+     */
+    public static final String FINGERPRINT_KEY = DictionaryFingerprintDocValuesFormat.class.getSimpleName() + ".fingerprint";
+    /**
+     * Dictionaries with more terms than this don't get a fingerprint. They
+     * are unlikely to repeat from segment to segment and hashing them would
+     * slow down flushes and merges.
+     */
+    static final int MAX_TERMS = 4096;
+    /**
+     * The fingerprint of fields that have too many terms. We always write
+     * the attribute because merges copy the attributes of the segments
+     * they merge.
+     */
+    static final String NO_FINGERPRINT = "";
+
+    private final DocValuesFormat delegate = new Lucene90DocValuesFormat();
+    private final Predicate<String> fingerprintField;
+
+    /**
+     * Used by SPI to read segments. Readers don't need to know which fields
+     * to fingerprint.
+     */
+    public DictionaryFingerprintDocValuesFormat() {
+        this(field -> false);
+    }
+
+    public DictionaryFingerprintDocValuesFormat(Predicate<String> fingerprintField) {
+        super(NAME);
+        this.fingerprintField = fingerprintField;
+    }
+
+    @Override
+    public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new FingerprintingConsumer(delegate.fieldsConsumer(state));
+    }
+
+    @Override
+    public DocValuesProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return delegate.fieldsProducer(state);
+    }
+
+    /**
+     * The fingerprint of the dictionary of {@code field} in a segment or
+     * {@code null} if it doesn't have one.
+     */
+    @Nullable
+    public static String fingerprint(@Nullable FieldInfo field) {
+        if (field == null || NAME.equals(field.getAttribute(PerFieldDocValuesFormat.PER_FIELD_FORMAT_KEY)) == false) {
+            // Merges copy attributes so we only trust them if we wrote the field's doc values
+            return null;
+        }
+        String fingerprint = field.getAttribute(FINGERPRINT_KEY);
+        return fingerprint == null || fingerprint.equals(NO_FINGERPRINT) ? null : fingerprint;
+    }
+
+    /**
+     * Hash the value count and every term, prefixed by its length so
+     * different splits of the same bytes hash differently.
+     */
+    static String fingerprint(SortedSetDocValues values) throws IOException {
+        MessageDigest digest = MessageDigests.sha256();
+        digest.update(intBytes((int) values.getValueCount()));
+        TermsEnum terms = values.termsEnum();
+        for (BytesRef term = terms.next(); term != null; term = terms.next()) {
+            digest.update(intBytes(term.length));
+            digest.update(term.bytes, term.offset, term.length);
+        }
+        return MessageDigests.toHexString(digest.digest());
+    }
+
+    private static byte[] intBytes(int i) {
+        return new byte[] { (byte) (i >>> 24), (byte) (i >>> 16), (byte) (i >>> 8), (byte) i };
+    }
+
+    private class FingerprintingConsumer extends DocValuesConsumer {
+        private final DocValuesConsumer in;
+
+        FingerprintingConsumer(DocValuesConsumer in) {
+            this.in = in;
+        }
+
+        @Override
+        public void addNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addNumericField(field, valuesProducer);
+        }
+
+        @Override
+        public void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addBinaryField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addSortedField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addSortedNumericField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedSetField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addSortedSetField(field, valuesProducer);
+            String fingerprint = NO_FINGERPRINT;
+            if (fingerprintField.test(field.name)) {
+                SortedSetDocValues values = valuesProducer.getSortedSet(field);
+                if (values.getValueCount() <= MAX_TERMS) {
+                    fingerprint = fingerprint(values);
+                }
+            }
+            field.putAttribute(FINGERPRINT_KEY, fingerprint);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
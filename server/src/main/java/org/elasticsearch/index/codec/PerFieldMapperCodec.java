@@ -13,8 +13,9 @@ import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.KnnVectorsFormat;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.lucene90.Lucene90Codec;
-import org.apache.lucene.codecs.lucene90.Lucene90DocValuesFormat;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
 
 /**
@@ -24,11 +25,13 @@ import org.elasticsearch.index.mapper.MapperService;
  * allows users to change the low level postings format and vectors format for individual fields
  * per index in real time via the mapping API. If no specific postings format or vector format is
  * configured for a specific field the default postings or vector format is used.
+ * If {@link IndexSettings#INDEX_DICTIONARY_FINGERPRINT_SETTING} is enabled doc values use the
+ * {@link DictionaryFingerprintDocValuesFormat} which fingerprints the dictionaries of {@code keyword} fields.
  */
 public class PerFieldMapperCodec extends Lucene90Codec {
     private final MapperService mapperService;
 
-    private final DocValuesFormat docValuesFormat = new Lucene90DocValuesFormat();
+    private final DocValuesFormat docValuesFormat;
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMapperCodec.class) :
@@ -38,6 +41,11 @@ public class PerFieldMapperCodec extends Lucene90Codec {
     public PerFieldMapperCodec(Mode compressionMode, MapperService mapperService) {
         super(compressionMode);
         this.mapperService = mapperService;
+        this.docValuesFormat = mapperService.getIndexSettings().isDictionaryFingerprintEnabled()
+            ? new DictionaryFingerprintDocValuesFormat(
+                field -> mapperService.mappingLookup().getFieldType(field) instanceof KeywordFieldMapper.KeywordFieldType
+            )
+            : null;
     }
 
     @Override
@@ -60,6 +68,9 @@ public class PerFieldMapperCodec extends Lucene90Codec {
 
     @Override
     public DocValuesFormat getDocValuesFormatForField(String field) {
+        if (docValuesFormat == null) {
+            return super.getDocValuesFormatForField(field);
+        }
         return docValuesFormat;
     }
 }
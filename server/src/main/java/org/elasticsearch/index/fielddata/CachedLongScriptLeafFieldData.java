@@ -0,0 +1,154 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.fielddata;
+
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
+import org.elasticsearch.index.fielddata.plain.LeafLongFieldData;
+import org.elasticsearch.script.AbstractLongFieldScript;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The values of a {@code long} or {@code date} runtime field for every
+ * document in a segment. We run the script once for each document and keep
+ * the sorted values in packed arrays, like doc values, so they can be cached
+ * in the {@link IndexFieldDataCache} just like the field data of indexed
+ * fields. The cache is keyed on the segment's core reader which is shared by
+ * readers that see different deleted documents, so we compute values for
+ * deleted documents too. Segments never change so the values stay valid for
+ * as long as the core reader is open. But only if the script reads nothing
+ * but {@code _source} and indexed fields: the scripts of other runtime fields
+ * can change without changing our cache key.
+ */
+final class CachedLongScriptLeafFieldData extends LeafLongFieldData {
+    /**
+     * Identifies the values the script computes, see {@link #isFor}. {@code null}
+     * if the script read another runtime field so we have no values to share.
+     */
+    private final Object cacheKey;
+    private final NumericType numericType;
+    /**
+     * The index in {@link #values} of the first value of each document,
+     * followed by the total number of values.
+     */
+    private final PackedLongValues starts;
+    private final PackedLongValues values;
+
+    private CachedLongScriptLeafFieldData(
+        Object cacheKey,
+        NumericType numericType,
+        PackedLongValues starts,
+        PackedLongValues values,
+        long ramBytesUsed
+    ) {
+        super(ramBytesUsed, numericType);
+        this.cacheKey = cacheKey;
+        this.numericType = numericType;
+        this.starts = starts;
+        this.values = values;
+    }
+
+    /**
+     * Can we cache the values computed from {@code reader}? Document and field
+     * level security wrap the segment's reader to hide documents and parts of
+     * {@code _source} from the script but share its cache key. So we only
+     * cache the values of readers that see the whole segment.
+     */
+    static boolean canCache(LeafReader reader) {
+        while (reader instanceof FilterLeafReader) {
+            if (reader instanceof ElasticsearchLeafReader == false && ContextIndexSearcher.isExitable(reader) == false) {
+                return false;
+            }
+            reader = ((FilterLeafReader) reader).getDelegate();
+        }
+        return true;
+    }
+
+    /**
+     * Run the script on every document in the segment, including deleted
+     * ones, and account for the values in the field data circuit breaker.
+     * Stops as soon as {@code readsScriptFields} says the script read the
+     * values of another runtime field and returns values nobody uses so we
+     * don't try to build them again for this segment.
+     */
+    static CachedLongScriptLeafFieldData build(
+        Object cacheKey,
+        NumericType numericType,
+        AbstractLongFieldScript fieldScript,
+        BooleanSupplier readsScriptFields,
+        LeafReader reader,
+        CircuitBreaker breaker,
+        String fieldName
+    ) {
+        PackedLongValues.Builder starts = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        PackedLongValues.Builder values = PackedLongValues.deltaPackedBuilder(PackedInts.COMPACT);
+        for (int doc = 0; doc < reader.maxDoc(); doc++) {
+            starts.add(values.size());
+            fieldScript.runForDoc(doc);
+            if (readsScriptFields.getAsBoolean()) {
+                return new CachedLongScriptLeafFieldData(null, numericType, starts.build(), values.build(), 0);
+            }
+            long[] docValues = fieldScript.values();
+            int count = fieldScript.count();
+            Arrays.sort(docValues, 0, count);
+            for (int i = 0; i < count; i++) {
+                values.add(docValues[i]);
+            }
+        }
+        starts.add(values.size());
+        PackedLongValues builtStarts = starts.build();
+        PackedLongValues builtValues = values.build();
+        long ramBytesUsed = builtStarts.ramBytesUsed() + builtValues.ramBytesUsed();
+        breaker.addEstimateBytesAndMaybeBreak(ramBytesUsed, fieldName);
+        return new CachedLongScriptLeafFieldData(cacheKey, numericType, builtStarts, builtValues, ramBytesUsed);
+    }
+
+    /**
+     * Were these values computed by the field identified by {@code cacheKey}?
+     * The cache is keyed on the field name so a field that has been updated or
+     * redefined in a search request can find values computed by another script.
+     */
+    boolean isFor(Object cacheKey, NumericType numericType) {
+        return this.numericType == numericType && this.cacheKey != null && this.cacheKey.equals(cacheKey);
+    }
+
+    @Override
+    public SortedNumericDocValues getLongValues() {
+        return new AbstractSortedNumericDocValues() {
+            private long next;
+            private int count;
+
+            @Override
+            public boolean advanceExact(int doc) {
+                next = starts.get(doc);
+                count = (int) (starts.get(doc + 1) - next);
+                return count > 0;
+            }
+
+            @Override
+            public long nextValue() {
+                return values.get(next++);
+            }
+
+            @Override
+            public int docValueCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -11,35 +11,76 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.fielddata.plain.LeafLongFieldData;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.script.DateFieldScript;
 import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
 import org.elasticsearch.search.aggregations.support.ValuesSourceType;
 
+import java.util.function.BooleanSupplier;
+
 public final class DateScriptFieldData extends IndexNumericFieldData {
 
     public static class Builder implements IndexFieldData.Builder {
         private final String name;
         private final DateFieldScript.LeafFactory leafFactory;
+        private final Object cacheKey;
+        private final BooleanSupplier readsScriptFields;
 
         public Builder(String name, DateFieldScript.LeafFactory leafFactory) {
+            this(name, leafFactory, null, () -> true);
+        }
+
+        /**
+         * @param cacheKey identifies the values of the script if we should cache them for each segment or {@code null} to run it every time
+         * @param readsScriptFields has the script read a field computed by another script? We don't cache values computed from those
+         *                          because the other script can change without changing {@code cacheKey}.
+         */
+        public Builder(
+            String name,
+            DateFieldScript.LeafFactory leafFactory,
+            @Nullable Object cacheKey,
+            BooleanSupplier readsScriptFields
+        ) {
             this.name = name;
             this.leafFactory = leafFactory;
+            this.cacheKey = cacheKey;
+            this.readsScriptFields = readsScriptFields;
         }
 
         @Override
         public DateScriptFieldData build(IndexFieldDataCache cache, CircuitBreakerService breakerService) {
-            return new DateScriptFieldData(name, leafFactory);
+            if (cacheKey == null || cache == null || cache instanceof IndexFieldDataCache.None) {
+                return new DateScriptFieldData(name, leafFactory, null, null, null, null);
+            }
+            return new DateScriptFieldData(name, leafFactory, cacheKey, readsScriptFields, cache, breakerService);
         }
     }
 
     private final String fieldName;
     private final DateFieldScript.LeafFactory leafFactory;
-
-    private DateScriptFieldData(String fieldName, DateFieldScript.LeafFactory leafFactory) {
+    @Nullable
+    private final Object cacheKey;
+    private final BooleanSupplier readsScriptFields;
+    private final IndexFieldDataCache cache;
+    private final CircuitBreakerService breakerService;
+
+    private DateScriptFieldData(
+        String fieldName,
+        DateFieldScript.LeafFactory leafFactory,
+        @Nullable Object cacheKey,
+        BooleanSupplier readsScriptFields,
+        IndexFieldDataCache cache,
+        CircuitBreakerService breakerService
+    ) {
         this.fieldName = fieldName;
         this.leafFactory = leafFactory;
+        this.cacheKey = cacheKey;
+        this.readsScriptFields = readsScriptFields;
+        this.cache = cache;
+        this.breakerService = breakerService;
     }
 
     @Override
@@ -53,17 +94,36 @@ public final class DateScriptFieldData extends IndexNumericFieldData {
     }
 
     @Override
-    public DateScriptLeafFieldData load(LeafReaderContext context) {
+    public LeafLongFieldData load(LeafReaderContext context) {
         try {
-            return loadDirect(context);
+            if (cacheKey != null && CachedLongScriptLeafFieldData.canCache(context.reader())) {
+                LeafNumericFieldData cached = cache.load(context, this);
+                if (cached instanceof CachedLongScriptLeafFieldData
+                    && ((CachedLongScriptLeafFieldData) cached).isFor(cacheKey, NumericType.DATE)) {
+                    return (CachedLongScriptLeafFieldData) cached;
+                }
+                // The cache holds values for another version of the field or values we can't share, fall back to running the script
+            }
+            return new DateScriptLeafFieldData(new LongScriptDocValues(leafFactory.newInstance(context)));
         } catch (Exception e) {
             throw ExceptionsHelper.convertToElastic(e);
         }
     }
 
     @Override
-    public DateScriptLeafFieldData loadDirect(LeafReaderContext context) {
-        return new DateScriptLeafFieldData(new LongScriptDocValues(leafFactory.newInstance(context)));
+    public LeafLongFieldData loadDirect(LeafReaderContext context) {
+        if (cacheKey == null) {
+            return new DateScriptLeafFieldData(new LongScriptDocValues(leafFactory.newInstance(context)));
+        }
+        return CachedLongScriptLeafFieldData.build(
+            cacheKey,
+            NumericType.DATE,
+            leafFactory.newInstance(context),
+            readsScriptFields,
+            context.reader(),
+            breakerService.getBreaker(CircuitBreaker.FIELDDATA),
+            fieldName
+        );
     }
 
     @Override
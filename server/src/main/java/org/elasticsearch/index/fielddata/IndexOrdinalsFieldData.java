@@ -37,6 +37,15 @@ public interface IndexOrdinalsFieldData extends IndexFieldData.Global<LeafOrdina
      */
     OrdinalMap getOrdinalMap();
 
+    /**
+     * The segment of {@link #getOrdinalMap()} that maps the ordinals of the
+     * leaf with {@code leafOrd} to global ordinals. This is usually the leaf
+     * itself but leaves with identical dictionaries can share a segment.
+     */
+    default int ordinalMapSegment(int leafOrd) {
+        return leafOrd;
+    }
+
     /**
      * Whether this field data is able to provide a mapping between global and segment ordinals,
      * by returning the underlying {@link OrdinalMap}. If this method returns false, then calling
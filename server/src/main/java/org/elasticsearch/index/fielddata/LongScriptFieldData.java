@@ -11,6 +11,8 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.fielddata.plain.LeafLongFieldData;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.script.LongFieldScript;
@@ -18,30 +20,68 @@ import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
 import org.elasticsearch.search.aggregations.support.ValuesSourceType;
 
 import java.io.IOException;
+import java.util.function.BooleanSupplier;
 
 public final class LongScriptFieldData extends IndexNumericFieldData {
 
     public static class Builder implements IndexFieldData.Builder {
         private final String name;
         private final LongFieldScript.LeafFactory leafFactory;
+        private final Object cacheKey;
+        private final BooleanSupplier readsScriptFields;
 
         public Builder(String name, LongFieldScript.LeafFactory leafFactory) {
+            this(name, leafFactory, null, () -> true);
+        }
+
+        /**
+         * @param cacheKey identifies the values of the script if we should cache them for each segment or {@code null} to run it every time
+         * @param readsScriptFields has the script read a field computed by another script? We don't cache values computed from those
+         *                          because the other script can change without changing {@code cacheKey}.
+         */
+        public Builder(
+            String name,
+            LongFieldScript.LeafFactory leafFactory,
+            @Nullable Object cacheKey,
+            BooleanSupplier readsScriptFields
+        ) {
             this.name = name;
             this.leafFactory = leafFactory;
+            this.cacheKey = cacheKey;
+            this.readsScriptFields = readsScriptFields;
         }
 
         @Override
         public LongScriptFieldData build(IndexFieldDataCache cache, CircuitBreakerService breakerService) {
-            return new LongScriptFieldData(name, leafFactory);
+            if (cacheKey == null || cache == null || cache instanceof IndexFieldDataCache.None) {
+                return new LongScriptFieldData(name, leafFactory, null, null, null, null);
+            }
+            return new LongScriptFieldData(name, leafFactory, cacheKey, readsScriptFields, cache, breakerService);
         }
     }
 
     private final String fieldName;
     private final LongFieldScript.LeafFactory leafFactory;
-
-    private LongScriptFieldData(String fieldName, LongFieldScript.LeafFactory leafFactory) {
+    @Nullable
+    private final Object cacheKey;
+    private final BooleanSupplier readsScriptFields;
+    private final IndexFieldDataCache cache;
+    private final CircuitBreakerService breakerService;
+
+    private LongScriptFieldData(
+        String fieldName,
+        LongFieldScript.LeafFactory leafFactory,
+        @Nullable Object cacheKey,
+        BooleanSupplier readsScriptFields,
+        IndexFieldDataCache cache,
+        CircuitBreakerService breakerService
+    ) {
         this.fieldName = fieldName;
         this.leafFactory = leafFactory;
+        this.cacheKey = cacheKey;
+        this.readsScriptFields = readsScriptFields;
+        this.cache = cache;
+        this.breakerService = breakerService;
     }
 
     @Override
@@ -55,17 +95,36 @@ public final class LongScriptFieldData extends IndexNumericFieldData {
     }
 
     @Override
-    public LongScriptLeafFieldData load(LeafReaderContext context) {
+    public LeafLongFieldData load(LeafReaderContext context) {
         try {
-            return loadDirect(context);
+            if (cacheKey != null && CachedLongScriptLeafFieldData.canCache(context.reader())) {
+                LeafNumericFieldData cached = cache.load(context, this);
+                if (cached instanceof CachedLongScriptLeafFieldData
+                    && ((CachedLongScriptLeafFieldData) cached).isFor(cacheKey, NumericType.LONG)) {
+                    return (CachedLongScriptLeafFieldData) cached;
+                }
+                // The cache holds values for another version of the field or values we can't share, fall back to running the script
+            }
+            return new LongScriptLeafFieldData(new LongScriptDocValues(leafFactory.newInstance(context)));
         } catch (Exception e) {
             throw ExceptionsHelper.convertToElastic(e);
         }
     }
 
     @Override
-    public LongScriptLeafFieldData loadDirect(LeafReaderContext context) throws IOException {
-        return new LongScriptLeafFieldData(new LongScriptDocValues(leafFactory.newInstance(context)));
+    public LeafLongFieldData loadDirect(LeafReaderContext context) {
+        if (cacheKey == null) {
+            return new LongScriptLeafFieldData(new LongScriptDocValues(leafFactory.newInstance(context)));
+        }
+        return CachedLongScriptLeafFieldData.build(
+            cacheKey,
+            NumericType.LONG,
+            leafFactory.newInstance(context),
+            readsScriptFields,
+            context.reader(),
+            breakerService.getBreaker(CircuitBreaker.FIELDDATA),
+            fieldName
+        );
     }
 
     @Override
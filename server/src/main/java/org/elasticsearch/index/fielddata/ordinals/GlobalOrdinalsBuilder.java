@@ -17,6 +17,7 @@ import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.codec.DictionaryFingerprintDocValuesFormat;
 import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.LeafOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
@@ -24,8 +25,12 @@ import org.elasticsearch.index.fielddata.plain.AbstractLeafOrdinalsFieldData;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -50,20 +55,44 @@ public enum GlobalOrdinalsBuilder {
             atomicFD[i] = indexFieldData.load(indexReader.leaves().get(i));
             subs[i] = atomicFD[i].getOrdinalsValues();
         }
-        final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        /*
+         * Segments whose dictionaries have the same fingerprint have the same
+         * terms so we only merge the first of them and map the rest to it.
+         */
+        final int[] ordinalMapSegments = new int[subs.length];
+        final List<SortedSetDocValues> distinct = new ArrayList<>();
+        final Map<String, Integer> fingerprints = new HashMap<>();
+        for (int i = 0; i < subs.length; ++i) {
+            String fingerprint = DictionaryFingerprintDocValuesFormat.fingerprint(
+                indexReader.leaves().get(i).reader().getFieldInfos().fieldInfo(indexFieldData.getFieldName())
+            );
+            Integer same = fingerprint == null ? null : fingerprints.get(fingerprint);
+            if (same != null && distinct.get(same).getValueCount() == subs[i].getValueCount()) {
+                ordinalMapSegments[i] = same;
+                continue;
+            }
+            ordinalMapSegments[i] = distinct.size();
+            if (fingerprint != null) {
+                fingerprints.put(fingerprint, distinct.size());
+            }
+            distinct.add(subs[i]);
+        }
+        final OrdinalMap ordinalMap = OrdinalMap.build(null, distinct.toArray(new SortedSetDocValues[0]), PackedInts.DEFAULT);
         final long memorySizeInBytes = ordinalMap.ramBytesUsed();
         breakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(memorySizeInBytes);
 
         if (logger.isDebugEnabled()) {
             logger.debug(
-                    "global-ordinals [{}][{}] took [{}]",
+                    "global-ordinals [{}][{}] from [{}/{}] distinct dictionaries took [{}]",
                     indexFieldData.getFieldName(),
                     ordinalMap.getValueCount(),
+                    distinct.size(),
+                    subs.length,
                     new TimeValue(System.nanoTime() - startTimeNS, TimeUnit.NANOSECONDS)
             );
         }
         return new GlobalOrdinalsIndexFieldData(indexFieldData.getFieldName(), indexFieldData.getValuesSourceType(),
-                atomicFD, ordinalMap, memorySizeInBytes, scriptFunction
+                atomicFD, distinct.size() == subs.length ? null : ordinalMapSegments, ordinalMap, memorySizeInBytes, scriptFunction
         );
     }
 
@@ -97,7 +126,7 @@ public enum GlobalOrdinalsBuilder {
         }
         final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
         return new GlobalOrdinalsIndexFieldData(indexFieldData.getFieldName(), indexFieldData.getValuesSourceType(),
-                atomicFD, ordinalMap, 0, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
+                atomicFD, null, ordinalMap, 0, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
         );
     }
 
@@ -29,6 +29,7 @@ import org.elasticsearch.search.sort.SortOrder;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.function.Function;
@@ -50,11 +51,22 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
 
     private final OrdinalMap ordinalMap;
     private final LeafOrdinalsFieldData[] segmentAfd;
+    /**
+     * The segment of {@link #ordinalMap} that each leaf maps its ordinals
+     * through or {@code null} if that is the leaf's own segment.
+     */
+    @Nullable
+    private final int[] ordinalMapSegments;
+    /**
+     * The field data of the leaf behind each segment of {@link #ordinalMap}.
+     */
+    private final LeafOrdinalsFieldData[] ordinalMapSegmentAfd;
     private final Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction;
 
     protected GlobalOrdinalsIndexFieldData(String fieldName,
                                            ValuesSourceType valuesSourceType,
                                            LeafOrdinalsFieldData[] segmentAfd,
+                                           @Nullable int[] ordinalMapSegments,
                                            OrdinalMap ordinalMap,
                                            long memorySizeInBytes,
                                            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) {
@@ -63,6 +75,16 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
         this.memorySizeInBytes = memorySizeInBytes;
         this.ordinalMap = ordinalMap;
         this.segmentAfd = segmentAfd;
+        this.ordinalMapSegments = ordinalMapSegments;
+        if (ordinalMapSegments == null) {
+            this.ordinalMapSegmentAfd = segmentAfd;
+        } else {
+            // Leaves that share a segment have the same terms so any of them can look up the terms
+            this.ordinalMapSegmentAfd = new LeafOrdinalsFieldData[Arrays.stream(ordinalMapSegments).max().getAsInt() + 1];
+            for (int i = 0; i < segmentAfd.length; i++) {
+                ordinalMapSegmentAfd[ordinalMapSegments[i]] = segmentAfd[i];
+            }
+        }
         this.scriptFunction = scriptFunction;
     }
 
@@ -127,6 +149,11 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
         return ordinalMap;
     }
 
+    @Override
+    public int ordinalMapSegment(int leafOrd) {
+        return ordinalMapSegments == null ? leafOrd : ordinalMapSegments[leafOrd];
+    }
+
     @Override
     public boolean supportsGlobalOrdinalsMapping() {
         return true;
@@ -149,10 +176,10 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
          */
         private TermsEnum[] getOrLoadTermsEnums() {
             if (lookups == null) {
-                lookups = new TermsEnum[segmentAfd.length];
+                lookups = new TermsEnum[ordinalMapSegmentAfd.length];
                 for (int i = 0; i < lookups.length; i++) {
                     try {
-                        lookups[i] = segmentAfd[i].getOrdinalsValues().termsEnum();
+                        lookups[i] = ordinalMapSegmentAfd[i].getOrdinalsValues().termsEnum();
                     } catch (IOException e) {
                         throw new UncheckedIOException("Failed to load terms enum", e);
                     }
@@ -219,13 +246,14 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
                         return values;
                     }
                     TermsEnum[] atomicLookups = getOrLoadTermsEnums();
+                    int segment = ordinalMapSegment(context.ord);
                     SortedSetDocValues singleton = SingletonGlobalOrdinalMapping.singletonIfPossible(
                         ordinalMap,
                         values,
                         atomicLookups,
-                        context.ord
+                        segment
                     );
-                    return singleton == null ? new GlobalOrdinalMapping(ordinalMap, values, atomicLookups, context.ord) : singleton;
+                    return singleton == null ? new GlobalOrdinalMapping(ordinalMap, values, atomicLookups, segment) : singleton;
                 }
 
                 @Override
@@ -254,5 +282,10 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
             return ordinalMap;
         }
 
+        @Override
+        public int ordinalMapSegment(int leafOrd) {
+            return GlobalOrdinalsIndexFieldData.this.ordinalMapSegment(leafOrd);
+        }
+
     }
 }
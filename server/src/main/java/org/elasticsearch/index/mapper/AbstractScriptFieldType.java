@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import static org.elasticsearch.search.SearchService.ALLOW_EXPENSIVE_QUERIES;
@@ -194,6 +195,18 @@ abstract class AbstractScriptFieldType<LeafFactory> extends MappedFieldType {
         return leafFactory(context.lookup().forkAndTrackFieldReferences(name()));
     }
 
+    /**
+     * Copy {@code searchLookup} so it sets {@code readsScriptFields} when it resolves
+     * a field whose values come from a script.
+     */
+    protected static SearchLookup trackScriptFields(SearchLookup searchLookup, AtomicBoolean readsScriptFields) {
+        return searchLookup.listenToFieldTypes(fieldType -> {
+            if (fieldType instanceof AbstractScriptFieldType) {
+                readsScriptFields.set(true);
+            }
+        });
+    }
+
     // Placeholder Script for source-only fields
     // TODO rework things so that we don't need this
     protected static final Script DEFAULT_SCRIPT = new Script("");
@@ -231,9 +244,11 @@ abstract class AbstractScriptFieldType<LeafFactory> extends MappedFieldType {
         protected final RuntimeField createChildRuntimeField(MappingParserContext parserContext,
                                                         String parent,
                                                         Function<SearchLookup, CompositeFieldScript.LeafFactory> parentScriptFactory) {
-            if (script.isConfigured()) {
-                throw new IllegalArgumentException("Cannot use [script] parameter on sub-field [" + name +
-                    "] of composite field [" + parent + "]");
+            for (FieldMapper.Parameter<?> parameter : getParametersNotSupportedOnSubFields()) {
+                if (parameter.isConfigured()) {
+                    throw new IllegalArgumentException("Cannot use [" + parameter.name + "] parameter on sub-field [" + name +
+                        "] of composite field [" + parent + "]");
+                }
             }
             String fullName = parent + "." + name;
             return new LeafRuntimeField(
@@ -257,6 +272,14 @@ abstract class AbstractScriptFieldType<LeafFactory> extends MappedFieldType {
             return Collections.unmodifiableList(parameters);
         }
 
+        /**
+         * Parameters that sub-fields of a composite runtime field can't use
+         * because the composite field's script produces their values.
+         */
+        protected List<FieldMapper.Parameter<?>> getParametersNotSupportedOnSubFields() {
+            return List.of(script);
+        }
+
         protected final Script getScript() {
             if (script.get() == null) {
                 return DEFAULT_SCRIPT;
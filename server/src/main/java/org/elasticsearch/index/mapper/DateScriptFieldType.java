@@ -41,6 +41,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -72,6 +73,13 @@ public class DateScriptFieldType extends AbstractScriptFieldType<DateFieldScript
             }
         }, Object::toString).acceptsNull();
 
+        private final FieldMapper.Parameter<Boolean> cache = FieldMapper.Parameter.boolParam(
+            "cache",
+            true,
+            RuntimeField.initializerNotSupported(),
+            false
+        );
+
         Builder(String name) {
             super(name, DateFieldScript.CONTEXT);
         }
@@ -81,15 +89,21 @@ public class DateScriptFieldType extends AbstractScriptFieldType<DateFieldScript
             List<FieldMapper.Parameter<?>> parameters = new ArrayList<>(super.getParameters());
             parameters.add(format);
             parameters.add(locale);
+            parameters.add(cache);
             return Collections.unmodifiableList(parameters);
         }
 
+        @Override
+        protected List<FieldMapper.Parameter<?>> getParametersNotSupportedOnSubFields() {
+            return List.of(script, cache);
+        }
+
         @Override
         AbstractScriptFieldType<?> createFieldType(String name, DateFieldScript.Factory factory, Script script, Map<String, String> meta) {
             String pattern = format.getValue() == null ? DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.pattern() : format.getValue();
             Locale locale = this.locale.getValue() == null ? Locale.ROOT : this.locale.getValue();
             DateFormatter dateTimeFormatter = DateFormatter.forPattern(pattern).withLocale(locale);
-            return new DateScriptFieldType(name, factory, dateTimeFormatter, script, meta);
+            return new DateScriptFieldType(name, factory, dateTimeFormatter, script, cache.getValue(), meta);
         }
 
         @Override
@@ -111,18 +125,43 @@ public class DateScriptFieldType extends AbstractScriptFieldType<DateFieldScript
 
     private final DateFormatter dateTimeFormatter;
     private final DateMathParser dateMathParser;
+    /**
+     * Identifies the values of the script if we cache them for each segment,
+     * {@code null} if we don't. The format parses the dates the script emits
+     * as strings so it is part of the key.
+     */
+    @Nullable
+    private final Object cacheKey;
+
+    DateScriptFieldType(
+        String name,
+        DateFieldScript.Factory scriptFactory,
+        DateFormatter dateTimeFormatter,
+        Script script,
+        Map<String, String> meta
+    ) {
+        this(name, scriptFactory, dateTimeFormatter, script, false, meta);
+    }
 
+    /**
+     * @param cache should we cache the values of the script for each segment?
+     *              Only scripts that always return the same values are cached.
+     */
     DateScriptFieldType(
         String name,
         DateFieldScript.Factory scriptFactory,
         DateFormatter dateTimeFormatter,
         Script script,
+        boolean cache,
         Map<String, String> meta
     ) {
         super(name, searchLookup -> scriptFactory.newFactory(name, script.getParams(), searchLookup, dateTimeFormatter),
             script, scriptFactory.isResultDeterministic(), meta);
         this.dateTimeFormatter = dateTimeFormatter;
         this.dateMathParser = dateTimeFormatter.toDateMathParser();
+        this.cacheKey = cache && scriptFactory.isResultDeterministic()
+            ? List.of(script, dateTimeFormatter.pattern(), dateTimeFormatter.locale())
+            : null;
     }
 
     @Override
@@ -153,7 +192,18 @@ public class DateScriptFieldType extends AbstractScriptFieldType<DateFieldScript
 
     @Override
     public DateScriptFieldData.Builder fielddataBuilder(String fullyQualifiedIndexName, Supplier<SearchLookup> lookup) {
-        return new DateScriptFieldData.Builder(name(), leafFactory(lookup.get()));
+        SearchLookup searchLookup = lookup.get();
+        if (cacheKey == null || searchLookup.hasRuntimeMappings()) {
+            // Runtime fields in the request can shadow the fields the script reads so we can't share its values
+            return new DateScriptFieldData.Builder(name(), leafFactory(searchLookup));
+        }
+        AtomicBoolean readsScriptFields = new AtomicBoolean();
+        return new DateScriptFieldData.Builder(
+            name(),
+            leafFactory(trackScriptFields(searchLookup, readsScriptFields)),
+            cacheKey,
+            readsScriptFields::get
+        );
     }
 
     @Override
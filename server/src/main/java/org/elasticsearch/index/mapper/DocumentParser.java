@@ -458,29 +458,55 @@ public final class DocumentParser {
     private static void innerParseObject(DocumentParserContext context, ObjectMapper mapper, XContentParser parser,
                                          String currentFieldName, XContentParser.Token token) throws IOException {
         assert token == XContentParser.Token.FIELD_NAME || token == XContentParser.Token.END_OBJECT;
-        String[] paths = null;
+        ParsePlans.Follower plan = context.mappingLookup().followParsePlans(mapper);
+        assert plan == null || context.path().pathAsText("").equals(context.path().length() == 0 ? "" : mapper.fullPath() + ".")
+            : "parse plans for [" + mapper.fullPath() + "] used at [" + context.path().pathAsText("") + "]";
+        ParsePlans.ResolvedField field = null;
         while (token != XContentParser.Token.END_OBJECT) {
             if (token == XContentParser.Token.FIELD_NAME) {
                 currentFieldName = parser.currentName();
-                paths = splitAndValidatePath(currentFieldName);
-                if (containsDisabledObjectMapper(mapper, paths)) {
+                field = plan == null ? null : plan.next(currentFieldName);
+                if (field == null) {
+                    field = resolveField(context, mapper, currentFieldName);
+                    if (plan != null) {
+                        plan.add(field);
+                    }
+                }
+                if (field.disabled) {
                     parser.nextToken();
                     parser.skipChildren();
                 }
             } else if (token == XContentParser.Token.START_OBJECT) {
-                parseObject(context, mapper, currentFieldName, paths);
+                parseObject(context, mapper, currentFieldName, field);
             } else if (token == XContentParser.Token.START_ARRAY) {
-                parseArray(context, mapper, currentFieldName, paths);
+                parseArray(context, mapper, currentFieldName, field);
             } else if (token == XContentParser.Token.VALUE_NULL) {
-                parseNullValue(context, mapper, currentFieldName, paths);
+                parseNullValue(context, mapper, currentFieldName, field);
             } else if (token == null) {
                 throw new MapperParsingException("object mapping for [" + mapper.name() + "] tried to parse field [" + currentFieldName
                     + "] as object, but got EOF, has a concrete value been provided to it?");
             } else if (token.isValue()) {
-                parseValue(context, mapper, currentFieldName, token, paths);
+                parseValue(context, mapper, currentFieldName, token, field);
             }
             token = parser.nextToken();
         }
+        if (plan != null) {
+            plan.finish();
+        }
+    }
+
+    /**
+     * Resolve a field name against an object. The result only depends on the
+     * mapping so {@link ParsePlans} can reuse it for the following documents.
+     */
+    private static ParsePlans.ResolvedField resolveField(DocumentParserContext context, ObjectMapper mapper, String fieldName) {
+        String[] paths = splitAndValidatePath(fieldName);
+        if (containsDisabledObjectMapper(mapper, paths)) {
+            return new ParsePlans.ResolvedField(fieldName, paths, true, null, null);
+        }
+        Mapper fieldMapper = getMapper(context, mapper, fieldName, paths);
+        Mapper leafMapper = fieldMapper != null ? fieldMapper : getShadowingMapper(context, fieldName);
+        return new ParsePlans.ResolvedField(fieldName, paths, false, fieldMapper, leafMapper);
     }
 
     private static void nested(DocumentParserContext context, NestedObjectMapper nested) {
@@ -558,9 +584,10 @@ public final class DocumentParser {
     }
 
     private static void parseObject(final DocumentParserContext context, ObjectMapper mapper, String currentFieldName,
-                                    String[] paths) throws IOException {
+                                    ParsePlans.ResolvedField field) throws IOException {
         assert currentFieldName != null;
-        Mapper objectMapper = getMapper(context, mapper, currentFieldName, paths);
+        Mapper objectMapper = field.mapper;
+        String[] paths = field.paths;
         if (objectMapper != null) {
             context.path().add(currentFieldName);
             parseObjectOrField(context, objectMapper);
@@ -596,10 +623,11 @@ public final class DocumentParser {
     }
 
     private static void parseArray(DocumentParserContext context, ObjectMapper parentMapper, String lastFieldName,
-                                   String[] paths) throws IOException {
+                                   ParsePlans.ResolvedField field) throws IOException {
         String arrayFieldName = lastFieldName;
+        String[] paths = field.paths;
 
-        Mapper mapper = getLeafMapper(context, parentMapper, lastFieldName, paths);
+        Mapper mapper = field.leafMapper;
         if (mapper != null) {
             // There is a concrete mapper for this field already. Need to check if the mapper
             // expects an array, if so we pass the context straight to the mapper and if not
@@ -607,24 +635,25 @@ public final class DocumentParser {
             if (parsesArrayValue(mapper)) {
                 parseObjectOrField(context, mapper);
             } else {
-                parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName);
+                parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName, field);
             }
         } else {
             arrayFieldName = paths[paths.length - 1];
             lastFieldName = arrayFieldName;
             Tuple<Integer, ObjectMapper> parentMapperTuple = getDynamicParentMapper(context, paths, parentMapper);
             parentMapper = parentMapperTuple.v2();
+            field = resolveField(context, parentMapper, lastFieldName);
             ObjectMapper.Dynamic dynamic = dynamicOrDefault(parentMapper, context);
             if (dynamic == ObjectMapper.Dynamic.STRICT) {
                 throw new StrictDynamicMappingException(parentMapper.fullPath(), arrayFieldName);
             } else if (dynamic == ObjectMapper.Dynamic.FALSE) {
                 // TODO: shouldn't this skip, not parse?
-                parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName);
+                parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName, field);
             } else {
                 Mapper objectMapperFromTemplate =
                     dynamic.getDynamicFieldsBuilder().createObjectMapperFromTemplate(context, arrayFieldName);
                 if (objectMapperFromTemplate == null) {
-                    parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName);
+                    parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName, field);
                 } else {
                     if (parsesArrayValue(objectMapperFromTemplate)) {
                         context.addDynamicMapper(objectMapperFromTemplate);
@@ -632,7 +661,7 @@ public final class DocumentParser {
                         parseObjectOrField(context, objectMapperFromTemplate);
                         context.path().remove();
                     } else {
-                        parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName);
+                        parseNonDynamicArray(context, parentMapper, lastFieldName, arrayFieldName, field);
                     }
                 }
 
@@ -648,37 +677,40 @@ public final class DocumentParser {
     }
 
     private static void parseNonDynamicArray(DocumentParserContext context, ObjectMapper mapper,
-                                             final String lastFieldName, String arrayFieldName) throws IOException {
+                                             final String lastFieldName, String arrayFieldName,
+                                             ParsePlans.ResolvedField field) throws IOException {
+        // every element resolves the same way so we resolve the field once for the whole array
+        assert field.disabled == false : "fields in disabled objects are skipped";
         XContentParser parser = context.parser();
         XContentParser.Token token;
-        final String[] paths = splitAndValidatePath(lastFieldName);
         while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
             if (token == XContentParser.Token.START_OBJECT) {
-                parseObject(context, mapper, lastFieldName, paths);
+                parseObject(context, mapper, lastFieldName, field);
             } else if (token == XContentParser.Token.START_ARRAY) {
-                parseArray(context, mapper, lastFieldName, paths);
+                parseArray(context, mapper, lastFieldName, field);
             } else if (token == XContentParser.Token.VALUE_NULL) {
-                parseNullValue(context, mapper, lastFieldName, paths);
+                parseNullValue(context, mapper, lastFieldName, field);
             } else if (token == null) {
                 throw new MapperParsingException("object mapping for [" + mapper.name() + "] with array for [" + arrayFieldName
                     + "] tried to parse as array, but got EOF, is there a mismatch in types for the same field?");
             } else {
                 assert token.isValue();
-                parseValue(context, mapper, lastFieldName, token, paths);
+                parseValue(context, mapper, lastFieldName, token, field);
             }
         }
     }
 
     private static void parseValue(final DocumentParserContext context, ObjectMapper parentMapper,
-                                   String currentFieldName, XContentParser.Token token, String[] paths) throws IOException {
+                                   String currentFieldName, XContentParser.Token token, ParsePlans.ResolvedField field) throws IOException {
         if (currentFieldName == null) {
             throw new MapperParsingException("object mapping [" + parentMapper.name() + "] trying to serialize a value with"
                 + " no field associated with it, current value [" + context.parser().textOrNull() + "]");
         }
-        Mapper mapper = getLeafMapper(context, parentMapper, currentFieldName, paths);
+        Mapper mapper = field.leafMapper;
         if (mapper != null) {
             parseObjectOrField(context, mapper);
         } else {
+            String[] paths = field.paths;
             currentFieldName = paths[paths.length - 1];
             Tuple<Integer, ObjectMapper> parentMapperTuple = getDynamicParentMapper(context, paths, parentMapper);
             parentMapper = parentMapperTuple.v2();
@@ -690,9 +722,9 @@ public final class DocumentParser {
     }
 
     private static void parseNullValue(DocumentParserContext context, ObjectMapper parentMapper, String lastFieldName,
-                                       String[] paths) throws IOException {
+                                       ParsePlans.ResolvedField field) throws IOException {
         // we can only handle null values if we have mappings for them
-        Mapper mapper = getLeafMapper(context, parentMapper, lastFieldName, paths);
+        Mapper mapper = field.leafMapper;
         if (mapper != null) {
             // TODO: passing null to an object seems bogus?
             parseObjectOrField(context, mapper);
@@ -845,7 +877,7 @@ public final class DocumentParser {
     }
 
     // looks up a child mapper, but takes into account field names that expand to objects
-    // returns null if no such child mapper exists - note that unlike getLeafMapper,
+    // returns null if no such child mapper exists - note that unlike getShadowingMapper,
     // we do not check for shadowing runtime fields because they only apply to leaf
     // fields
     private static Mapper getMapper(final DocumentParserContext context,
@@ -875,17 +907,9 @@ public final class DocumentParser {
         return objectMapper.getMapper(leafName);
     }
 
-    // looks up a child mapper, taking into account field names that expand to objects
-    // if no mapper is found, checks to see if a runtime field with the specified
+    // for leaf fields that aren't mapped, checks to see if a runtime field with the specified
     // field name exists and if so returns a no-op mapper to prevent indexing
-    private static Mapper getLeafMapper(final DocumentParserContext context,
-                                        ObjectMapper objectMapper,
-                                        String fieldName,
-                                        String[] subfields) {
-        Mapper mapper = getMapper(context, objectMapper, fieldName, subfields);
-        if (mapper != null) {
-            return mapper;
-        }
+    private static Mapper getShadowingMapper(final DocumentParserContext context, String fieldName) {
         // concrete fields take precedence over runtime fields when parsing documents
         // if a leaf field is not mapped, and is defined as a runtime field, then we
         // don't create a dynamic mapping for it and don't index it.
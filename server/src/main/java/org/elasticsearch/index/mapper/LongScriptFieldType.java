@@ -14,6 +14,7 @@ import com.carrotsearch.hppc.LongSet;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.time.DateMathParser;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.fielddata.LongScriptFieldData;
 import org.elasticsearch.index.mapper.NumberFieldMapper.NumberType;
 import org.elasticsearch.index.query.SearchExecutionContext;
@@ -28,8 +29,12 @@ import org.elasticsearch.search.runtime.LongScriptFieldTermQuery;
 import org.elasticsearch.search.runtime.LongScriptFieldTermsQuery;
 
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -38,13 +43,32 @@ public final class LongScriptFieldType extends AbstractScriptFieldType<LongField
     public static final RuntimeField.Parser PARSER = new RuntimeField.Parser(Builder::new);
 
     private static class Builder extends AbstractScriptFieldType.Builder<LongFieldScript.Factory> {
+        private final FieldMapper.Parameter<Boolean> cache = FieldMapper.Parameter.boolParam(
+            "cache",
+            true,
+            RuntimeField.initializerNotSupported(),
+            false
+        );
+
         Builder(String name) {
             super(name, LongFieldScript.CONTEXT);
         }
 
+        @Override
+        protected List<FieldMapper.Parameter<?>> getParameters() {
+            List<FieldMapper.Parameter<?>> parameters = new ArrayList<>(super.getParameters());
+            parameters.add(cache);
+            return Collections.unmodifiableList(parameters);
+        }
+
+        @Override
+        protected List<FieldMapper.Parameter<?>> getParametersNotSupportedOnSubFields() {
+            return List.of(script, cache);
+        }
+
         @Override
         AbstractScriptFieldType<?> createFieldType(String name, LongFieldScript.Factory factory, Script script, Map<String, String> meta) {
-            return new LongScriptFieldType(name, factory, script, meta);
+            return new LongScriptFieldType(name, factory, script, cache.getValue(), meta);
         }
 
         @Override
@@ -62,14 +86,36 @@ public final class LongScriptFieldType extends AbstractScriptFieldType<LongField
         return new Builder(name).createRuntimeField(LongFieldScript.PARSE_FROM_SOURCE);
     }
 
+    /**
+     * Identifies the values of the script if we cache them for each segment,
+     * {@code null} if we don't.
+     */
+    @Nullable
+    private final Object cacheKey;
+
     public LongScriptFieldType(
         String name,
         LongFieldScript.Factory scriptFactory,
         Script script,
         Map<String, String> meta
+    ) {
+        this(name, scriptFactory, script, false, meta);
+    }
+
+    /**
+     * @param cache should we cache the values of the script for each segment?
+     *              Only scripts that always return the same values are cached.
+     */
+    public LongScriptFieldType(
+        String name,
+        LongFieldScript.Factory scriptFactory,
+        Script script,
+        boolean cache,
+        Map<String, String> meta
     ) {
         super(name, searchLookup -> scriptFactory.newFactory(name, script.getParams(), searchLookup),
             script, scriptFactory.isResultDeterministic(), meta);
+        this.cacheKey = cache && scriptFactory.isResultDeterministic() ? script : null;
     }
 
     @Override
@@ -92,8 +138,19 @@ public final class LongScriptFieldType extends AbstractScriptFieldType<LongField
     }
 
     @Override
-    public LongScriptFieldData.Builder fielddataBuilder(String fullyQualifiedIndexName, Supplier<SearchLookup> searchLookup) {
-        return new LongScriptFieldData.Builder(name(), leafFactory(searchLookup.get()));
+    public LongScriptFieldData.Builder fielddataBuilder(String fullyQualifiedIndexName, Supplier<SearchLookup> lookup) {
+        SearchLookup searchLookup = lookup.get();
+        if (cacheKey == null || searchLookup.hasRuntimeMappings()) {
+            // Runtime fields in the request can shadow the fields the script reads so we can't share its values
+            return new LongScriptFieldData.Builder(name(), leafFactory(searchLookup));
+        }
+        AtomicBoolean readsScriptFields = new AtomicBoolean();
+        return new LongScriptFieldData.Builder(
+            name(),
+            leafFactory(trackScriptFields(searchLookup, readsScriptFields)),
+            cacheKey,
+            readsScriptFields::get
+        );
     }
 
     @Override
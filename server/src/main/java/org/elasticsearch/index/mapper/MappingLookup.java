@@ -11,6 +11,7 @@ package org.elasticsearch.index.mapper;
 import org.apache.lucene.codecs.KnnVectorsFormat;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.elasticsearch.cluster.metadata.DataStream;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
@@ -57,6 +58,7 @@ public final class MappingLookup {
     private final Mapping mapping;
     private final Set<String> shadowedFields;
     private final Set<String> completionFields = new HashSet<>();
+    private final ParsePlans parsePlans = new ParsePlans();
 
     /**
      * Creates a new {@link MappingLookup} instance by parsing the provided mapping and extracting its field definitions.
@@ -213,6 +215,19 @@ public final class MappingLookup {
         return fieldMappers.values();
     }
 
+    /**
+     * Start following the {@link ParsePlans} for an object with {@code mapper}
+     * or return {@code null} if the mapper isn't part of this mapping, like
+     * the mappers that are created dynamically while parsing a document.
+     */
+    @Nullable
+    ParsePlans.Follower followParsePlans(ObjectMapper mapper) {
+        if (mapper != mapping.getRoot() && objectMappers.get(mapper.fullPath()) != mapper) {
+            return null;
+        }
+        return parsePlans.follow(mapper);
+    }
+
     /**
      * @return {@code true} if the given field is shadowed by a runtime field
      */
@@ -0,0 +1,184 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.core.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers how the field names of each object in the mapping resolve to
+ * {@link Mapper}s so documents with a shape we've seen before don't have to
+ * resolve them again. The shape of an object is its field names in the order
+ * they appear in the document. While parsing an object we follow the plan
+ * for one of its shapes, comparing each field name with the one the plan
+ * expects next. If they match we use the plan's {@link ResolvedField} and
+ * skip splitting the name, building its full path, and looking it up in
+ * the mapping. Any field the plans don't expect is resolved from scratch
+ * and the object's shape is learned once it has been parsed.
+ * <p>
+ * Plans belong to a {@link MappingLookup} so a mapping update starts over
+ * without any plans.
+ */
+final class ParsePlans {
+    /**
+     * The most shapes we learn for each object.
+     */
+    static final int MAX_SHAPES = 64;
+    /**
+     * The most fields we learn for each shape.
+     */
+    static final int MAX_FIELDS = 512;
+
+    private final Map<ObjectMapper, ObjectPlans> objects = new ConcurrentHashMap<>();
+
+    /**
+     * Start following the plans for parsing an object with {@code mapper}.
+     */
+    Follower follow(ObjectMapper mapper) {
+        return new Follower(objects.computeIfAbsent(mapper, m -> new ObjectPlans()));
+    }
+
+    /**
+     * How a field name resolves against an object in the mapping.
+     */
+    static final class ResolvedField {
+        final String name;
+        /**
+         * The name split on {@code .}.
+         */
+        final String[] paths;
+        /**
+         * Is one of the objects the name passes through disabled? If so we
+         * skip the field and don't resolve its mappers.
+         */
+        final boolean disabled;
+        /**
+         * The mapper for the field or {@code null} if it isn't mapped.
+         */
+        @Nullable
+        final Mapper mapper;
+        /**
+         * The mapper for the field if it's a leaf, which is {@link #mapper}
+         * unless it isn't mapped but shadowed by a runtime field.
+         */
+        @Nullable
+        final Mapper leafMapper;
+
+        ResolvedField(String name, String[] paths, boolean disabled, @Nullable Mapper mapper, @Nullable Mapper leafMapper) {
+            this.name = name;
+            this.paths = paths;
+            this.disabled = disabled;
+            this.mapper = mapper;
+            this.leafMapper = leafMapper;
+        }
+    }
+
+    private static final class ObjectPlans {
+        private volatile ResolvedField[][] shapes = new ResolvedField[0][];
+
+        synchronized void learn(ResolvedField[] shape) {
+            ResolvedField[][] current = shapes;
+            if (current.length >= MAX_SHAPES) {
+                return;
+            }
+            for (ResolvedField[] known : current) {
+                if (sameNames(known, shape)) {
+                    // Another thread learned it first
+                    return;
+                }
+            }
+            ResolvedField[][] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = shape;
+            shapes = next;
+        }
+
+        private static boolean sameNames(ResolvedField[] lhs, ResolvedField[] rhs) {
+            if (lhs.length != rhs.length) {
+                return false;
+            }
+            for (int i = 0; i < lhs.length; i++) {
+                if (lhs[i].name.equals(rhs[i].name) == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Follows the plans while parsing a single object. Not thread safe.
+     */
+    static final class Follower {
+        private final ObjectPlans plans;
+        private final ResolvedField[][] shapes;
+        private ResolvedField[] shape;
+        private ResolvedField[] seen = new ResolvedField[8];
+        private int count;
+        private boolean learning;
+
+        private Follower(ObjectPlans plans) {
+            this.plans = plans;
+            this.shapes = plans.shapes;
+            this.shape = shapes.length == 0 ? null : shapes[0];
+        }
+
+        /**
+         * The resolution of the next field if a plan expects it or
+         * {@code null} if the caller has to resolve it and {@link #add} it.
+         */
+        @Nullable
+        ResolvedField next(String name) {
+            ResolvedField field = expected(name);
+            if (field != null) {
+                add(field);
+            }
+            return field;
+        }
+
+        @Nullable
+        private ResolvedField expected(String name) {
+            if (shape != null && count < shape.length && shape[count].name.equals(name)) {
+                return shape[count];
+            }
+            // Switch to the first shape that expects this name here
+            for (ResolvedField[] candidate : shapes) {
+                if (count < candidate.length && candidate[count].name.equals(name)) {
+                    shape = candidate;
+                    return candidate[count];
+                }
+            }
+            learning = true;
+            return null;
+        }
+
+        /**
+         * Add a field that the caller resolved.
+         */
+        void add(ResolvedField field) {
+            if (count == seen.length) {
+                seen = ArrayUtil.grow(seen, count + 1);
+            }
+            seen[count++] = field;
+        }
+
+        /**
+         * Called once the object has been parsed successfully to learn its
+         * shape if no plan expected it.
+         */
+        void finish() {
+            if (learning && count <= MAX_FIELDS) {
+                plans.learn(Arrays.copyOf(seen, count));
+            }
+        }
+    }
+}
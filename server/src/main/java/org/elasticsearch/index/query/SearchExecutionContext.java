@@ -459,6 +459,14 @@ public class SearchExecutionContext extends QueryRewriteContext {
         return a == null ? false : a.containsBrokenAnalysis();
     }
 
+    /**
+     * Has anything asked for the {@link #lookup()} yet? Scripts and runtime
+     * fields ask for it when they are built.
+     */
+    public boolean hasLookup() {
+        return lookup != null;
+    }
+
     /**
      * Get the lookup to use during the search.
      */
@@ -466,7 +474,8 @@ public class SearchExecutionContext extends QueryRewriteContext {
         if (this.lookup == null) {
             this.lookup = new SearchLookup(
                 this::getFieldType,
-                (fieldType, searchLookup) -> indexFieldDataService.apply(fieldType, fullyQualifiedIndex.getName(), searchLookup)
+                (fieldType, searchLookup) -> indexFieldDataService.apply(fieldType, fullyQualifiedIndex.getName(), searchLookup),
+                runtimeMappings.isEmpty() == false
             );
         }
         return this.lookup;
@@ -0,0 +1,38 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.ingest;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Backs the default implementation of {@link Processor#isAsync()}.
+ */
+final class AsyncProcessors {
+    /**
+     * Whether each processor class overrides {@link Processor#execute(IngestDocument, BiConsumer)}.
+     * Looking that up with reflection is slow and pipelines ask for every
+     * document so we only do it once per class.
+     */
+    private static final ClassValue<Boolean> OVERRIDES_ASYNC_EXECUTE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("execute", IngestDocument.class, BiConsumer.class).getDeclaringClass() != Processor.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError("processors always have the asynchronous execute method", e);
+            }
+        }
+    };
+
+    private AsyncProcessors() {}
+
+    static boolean overridesAsyncExecute(Class<? extends Processor> type) {
+        return OVERRIDES_ASYNC_EXECUTE.get(type);
+    }
+}
@@ -112,17 +112,54 @@ public class CompoundProcessor implements Processor {
         throw new UnsupportedOperationException("this method should not get executed");
     }
 
+    @Override
+    public boolean isAsync() {
+        // Failures go through the on_failure processors which need the handler
+        return true;
+    }
+
     @Override
     public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
         innerExecute(0, ingestDocument, handler);
     }
 
     void innerExecute(int currentProcessor, IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
-        if (currentProcessor == processorsWithMetrics.size()) {
-            handler.accept(ingestDocument, null);
-            return;
+        // Run synchronous processors in a loop and only fall back to callbacks for asynchronous ones
+        while (currentProcessor < processorsWithMetrics.size()) {
+            Tuple<Processor, IngestMetric> processorWithMetric = processorsWithMetrics.get(currentProcessor);
+            final Processor processor = processorWithMetric.v1();
+            if (processor.isAsync()) {
+                executeAsync(currentProcessor, ingestDocument, handler);
+                return;
+            }
+            final IngestMetric metric = processorWithMetric.v2();
+            final long startTimeInNanos = relativeTimeProvider.getAsLong();
+            metric.preIngest();
+            final IngestDocument result;
+            try {
+                result = processor.execute(ingestDocument);
+            } catch (Exception e) {
+                metric.postIngest(relativeTimeProvider.getAsLong() - startTimeInNanos);
+                metric.ingestFailed();
+                if (ignoreFailure) {
+                    currentProcessor++;
+                    continue;
+                }
+                onFailure(e, processor, ingestDocument, handler);
+                return;
+            }
+            metric.postIngest(relativeTimeProvider.getAsLong() - startTimeInNanos);
+            if (result == null) {
+                handler.accept(null, null);
+                return;
+            }
+            ingestDocument = result;
+            currentProcessor++;
         }
+        handler.accept(ingestDocument, null);
+    }
 
+    private void executeAsync(int currentProcessor, IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
         Tuple<Processor, IngestMetric> processorWithMetric = processorsWithMetrics.get(currentProcessor);
         final Processor processor = processorWithMetric.v1();
         final IngestMetric metric = processorWithMetric.v2();
@@ -137,13 +174,7 @@ public class CompoundProcessor implements Processor {
                 if (ignoreFailure) {
                     innerExecute(currentProcessor + 1, ingestDocument, handler);
                 } else {
-                    IngestProcessorException compoundProcessorException =
-                        newCompoundProcessorException(e, processor, ingestDocument);
-                    if (onFailureProcessors.isEmpty()) {
-                        handler.accept(null, compoundProcessorException);
-                    } else {
-                        executeOnFailureAsync(0, ingestDocument, compoundProcessorException, handler);
-                    }
+                    onFailure(e, processor, ingestDocument, handler);
                 }
             } else {
                 if (result != null) {
@@ -155,6 +186,16 @@ public class CompoundProcessor implements Processor {
         });
     }
 
+    private void onFailure(Exception e, Processor processor, IngestDocument ingestDocument,
+                           BiConsumer<IngestDocument, Exception> handler) {
+        IngestProcessorException compoundProcessorException = newCompoundProcessorException(e, processor, ingestDocument);
+        if (onFailureProcessors.isEmpty()) {
+            handler.accept(null, compoundProcessorException);
+        } else {
+            executeOnFailureAsync(0, ingestDocument, compoundProcessorException, handler);
+        }
+    }
+
     void executeOnFailureAsync(int currentOnFailureProcessor, IngestDocument ingestDocument, ElasticsearchException exception,
                                BiConsumer<IngestDocument, Exception> handler) {
         if (currentOnFailureProcessor == 0) {
@@ -108,7 +108,25 @@ public class ConditionalProcessor extends AbstractProcessor implements WrappingP
 
     @Override
     public IngestDocument execute(IngestDocument ingestDocument) throws Exception {
-        throw new UnsupportedOperationException("this method should not get executed");
+        assert isAsync() == false : "asynchronous processors need the handler";
+        if (evaluate(ingestDocument) == false) {
+            return ingestDocument;
+        }
+        final long startTimeInNanos = relativeTimeProvider.getAsLong();
+        metric.preIngest();
+        try {
+            return processor.execute(ingestDocument);
+        } catch (Exception e) {
+            metric.ingestFailed();
+            throw e;
+        } finally {
+            metric.postIngest(relativeTimeProvider.getAsLong() - startTimeInNanos);
+        }
+    }
+
+    @Override
+    public boolean isAsync() {
+        return processor.isAsync();
     }
 
     boolean evaluate(IngestDocument ingestDocument) {
@@ -28,11 +28,13 @@ import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 
 /**
@@ -98,8 +100,8 @@ public final class IngestDocument {
      * or if the field that is found at the provided path is not of the expected type.
      */
     public <T> T getFieldValue(String path, Class<T> clazz) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (String pathElement : fieldPath.pathElements) {
             context = resolve(pathElement, path, context);
         }
@@ -205,8 +207,8 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty or invalid.
      */
     public boolean hasField(String path, boolean failOutOfRange) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -282,8 +284,8 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty, invalid or if the field doesn't exist.
      */
     public void removeField(String path) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             context = resolve(fieldPath.pathElements[i], path, context);
         }
@@ -509,8 +511,8 @@ public final class IngestDocument {
     }
 
     private void setFieldValue(String path, Object value, boolean append, boolean allowDuplicates) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        FieldPath fieldPath = FieldPath.of(path);
+        Object context = fieldPath.initialContext(this);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -843,21 +845,79 @@ public final class IngestDocument {
         }
     }
 
-    private class FieldPath {
+    private static final class FieldPath {
+        /**
+         * The most paths we cache. Pipelines use a small, fixed set of paths
+         * so we only go over this if paths come from templates or scripts.
+         */
+        private static final int MAX_CACHE_SIZE = 512;
+        private static final Map<String, FieldPath> CACHE = new ConcurrentHashMap<>();
 
         private final String[] pathElements;
-        private final Object initialContext;
-
-        private FieldPath(String path) {
+        private final boolean useIngestContext;
+        /**
+         * Was this path used since an eviction last passed over it? See {@link #evictOne()}.
+         */
+        private volatile boolean recentlyUsed = true;
+
+        /**
+         * Parse a path or get it from the cache. Parsed paths don't depend on
+         * the document so every processor shares them rather than splitting
+         * its paths again for each document.
+         */
+        static FieldPath of(String path) {
             if (Strings.isEmpty(path)) {
                 throw new IllegalArgumentException("path cannot be null nor empty");
             }
+            FieldPath fieldPath = CACHE.get(path);
+            if (fieldPath != null) {
+                // only write if needed so hits on hot paths don't keep invalidating the flag in every core's cache
+                if (fieldPath.recentlyUsed == false) {
+                    fieldPath.recentlyUsed = true;
+                }
+                return fieldPath;
+            }
+            fieldPath = new FieldPath(path);
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                evictOne();
+            }
+            CACHE.put(path, fieldPath);
+            return fieldPath;
+        }
+
+        /**
+         * Evict a path that wasn't used since the last eviction passed over
+         * it, clearing the flag of the paths that were. That's the clock
+         * approximation of LRU: the paths that pipelines use for every
+         * document are used again before an eviction comes back to them so
+         * they stay cached while one-off paths from templates come and go.
+         * Unlike {@link org.elasticsearch.common.cache.Cache} hits don't
+         * take a lock, which matters because every field access of every
+         * document is a hit.
+         */
+        private static void evictOne() {
+            // the first pass might only clear flags, the second one finds a path to evict unless other threads keep using them all
+            for (int pass = 0; pass < 2; pass++) {
+                Iterator<FieldPath> paths = CACHE.values().iterator();
+                while (paths.hasNext()) {
+                    FieldPath candidate = paths.next();
+                    if (candidate.recentlyUsed) {
+                        candidate.recentlyUsed = false;
+                    } else {
+                        paths.remove();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private FieldPath(String path) {
             String newPath;
             if (path.startsWith(INGEST_KEY_PREFIX)) {
-                initialContext = ingestMetadata;
+                useIngestContext = true;
                 newPath = path.substring(INGEST_KEY_PREFIX.length(), path.length());
             } else {
-                initialContext = sourceAndMetadata;
+                useIngestContext = false;
                 if (path.startsWith(SOURCE_PREFIX)) {
                     newPath = path.substring(SOURCE_PREFIX.length(), path.length());
                 } else {
@@ -870,5 +930,8 @@ public final class IngestDocument {
             }
         }
 
+        Object initialContext(IngestDocument document) {
+            return useIngestContext ? document.ingestMetadata : document.sourceAndMetadata;
+        }
     }
 }
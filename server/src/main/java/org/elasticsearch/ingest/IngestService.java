@@ -87,6 +87,15 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
 
     public static final String INGEST_ORIGIN = "ingest";
 
+    /**
+     * Bulk requests with at least twice this many documents are split into
+     * slices of about this size and each slice is run on its own thread of
+     * the executor. Converting the source to a map, running the pipelines and
+     * converting it back again dominates ingest time and is independent for
+     * each document, so big bulks shouldn't be limited to a single core.
+     */
+    static final int BULK_SLICE_SIZE = 128;
+
     private static final Logger logger = LogManager.getLogger(IngestService.class);
     private static final IndexNameExpressionResolver.DateMathExpressionResolver DATE_MATH_EXPRESSION_RESOLVER =
         new IndexNameExpressionResolver.DateMathExpressionResolver();
@@ -599,50 +608,96 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
             protected void doRun() {
                 final Thread originalThread = Thread.currentThread();
                 final AtomicInteger counter = new AtomicInteger(numberOfActionRequests);
-                int i = 0;
-                for (DocWriteRequest<?> actionRequest : actionRequests) {
-                    IndexRequest indexRequest = TransportBulkAction.getIndexWriteRequest(actionRequest);
-                    if (indexRequest == null) {
-                        if (counter.decrementAndGet() == 0){
-                            onCompletion.accept(originalThread, null);
-                        }
-                        assert counter.get() >= 0;
-                        i++;
-                        continue;
+                // Collect the requests up front because the iterable can only be consumed on a single thread
+                final List<DocWriteRequest<?>> requests = new ArrayList<>(numberOfActionRequests);
+                actionRequests.forEach(requests::add);
+                final int slices = numberOfBulkSlices(requests.size(), executorName);
+                final int sliceSize = (requests.size() + slices - 1) / slices;
+                for (int s = 1; s < slices; s++) {
+                    final int from = s * sliceSize;
+                    if (from >= requests.size()) {
+                        break;
                     }
-
-                    final String pipelineId = indexRequest.getPipeline();
-                    indexRequest.setPipeline(NOOP_PIPELINE_NAME);
-                    final String finalPipelineId = indexRequest.getFinalPipeline();
-                    indexRequest.setFinalPipeline(NOOP_PIPELINE_NAME);
-                    boolean hasFinalPipeline = true;
-                    final List<String> pipelines;
-                    if (IngestService.NOOP_PIPELINE_NAME.equals(pipelineId) == false
-                        && IngestService.NOOP_PIPELINE_NAME.equals(finalPipelineId) == false) {
-                        pipelines = List.of(pipelineId, finalPipelineId);
-                    } else if (IngestService.NOOP_PIPELINE_NAME.equals(pipelineId) == false ) {
-                        pipelines = List.of(pipelineId);
-                        hasFinalPipeline = false;
-                    } else if (IngestService.NOOP_PIPELINE_NAME.equals(finalPipelineId) == false) {
-                        pipelines = List.of(finalPipelineId);
-                    } else {
-                        if (counter.decrementAndGet() == 0) {
-                            onCompletion.accept(originalThread, null);
+                    final int to = Math.min(from + sliceSize, requests.size());
+                    threadPool.executor(executorName).execute(new AbstractRunnable() {
+                        @Override
+                        public void onFailure(Exception e) {
+                            onCompletion.accept(null, e);
                         }
-                        assert counter.get() >= 0;
-                        i++;
-                        continue;
-                    }
 
-                    executePipelines(i, pipelines.iterator(), hasFinalPipeline, indexRequest, onDropped, onFailure, counter,
-                                     onCompletion, originalThread);
+                        @Override
+                        public void onRejection(Exception e) {
+                            // The bulk was already admitted so finish it on this thread rather than failing its documents
+                            executeBulkSlice(requests, from, to, onFailure, onCompletion, onDropped, counter, originalThread);
+                        }
 
-                    i++;
+                        @Override
+                        protected void doRun() {
+                            executeBulkSlice(requests, from, to, onFailure, onCompletion, onDropped, counter, originalThread);
+                        }
+                    });
                 }
+                executeBulkSlice(requests, 0, Math.min(sliceSize, requests.size()), onFailure, onCompletion, onDropped, counter,
+                    originalThread);
             }
         });
     }
 
+    /**
+     * The number of slices to run a bulk request with {@code size} documents in.
+     */
+    private int numberOfBulkSlices(int size, String executorName) {
+        ThreadPool.Info info = threadPool.info(executorName);
+        if (info == null) {
+            // Not one of the pools we know the size of
+            return 1;
+        }
+        return Math.max(1, Math.min(info.getMax(), size / BULK_SLICE_SIZE));
+    }
+
+    private void executeBulkSlice(List<DocWriteRequest<?>> requests, int from, int to,
+                                  BiConsumer<Integer, Exception> onFailure,
+                                  BiConsumer<Thread, Exception> onCompletion,
+                                  IntConsumer onDropped,
+                                  AtomicInteger counter,
+                                  Thread originalThread) {
+        for (int i = from; i < to; i++) {
+            IndexRequest indexRequest = TransportBulkAction.getIndexWriteRequest(requests.get(i));
+            if (indexRequest == null) {
+                if (counter.decrementAndGet() == 0){
+                    onCompletion.accept(originalThread, null);
+                }
+                assert counter.get() >= 0;
+                continue;
+            }
+
+            final String pipelineId = indexRequest.getPipeline();
+            indexRequest.setPipeline(NOOP_PIPELINE_NAME);
+            final String finalPipelineId = indexRequest.getFinalPipeline();
+            indexRequest.setFinalPipeline(NOOP_PIPELINE_NAME);
+            boolean hasFinalPipeline = true;
+            final List<String> pipelines;
+            if (IngestService.NOOP_PIPELINE_NAME.equals(pipelineId) == false
+                && IngestService.NOOP_PIPELINE_NAME.equals(finalPipelineId) == false) {
+                pipelines = List.of(pipelineId, finalPipelineId);
+            } else if (IngestService.NOOP_PIPELINE_NAME.equals(pipelineId) == false ) {
+                pipelines = List.of(pipelineId);
+                hasFinalPipeline = false;
+            } else if (IngestService.NOOP_PIPELINE_NAME.equals(finalPipelineId) == false) {
+                pipelines = List.of(finalPipelineId);
+            } else {
+                if (counter.decrementAndGet() == 0) {
+                    onCompletion.accept(originalThread, null);
+                }
+                assert counter.get() >= 0;
+                continue;
+            }
+
+            executePipelines(i, pipelines.iterator(), hasFinalPipeline, indexRequest, onDropped, onFailure, counter,
+                             onCompletion, originalThread);
+        }
+    }
+
     private void executePipelines(
         final int slot,
         final Iterator<String> it,
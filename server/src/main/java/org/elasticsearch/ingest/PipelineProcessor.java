@@ -43,6 +43,11 @@ public class PipelineProcessor extends AbstractProcessor {
         throw new UnsupportedOperationException("this method should not get executed");
     }
 
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
     Pipeline getPipeline(IngestDocument ingestDocument) {
         return ingestService.getPipeline(getPipelineToCallName(ingestDocument));
     }
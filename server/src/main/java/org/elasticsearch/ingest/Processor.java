@@ -33,7 +33,8 @@ public interface Processor {
      * Introspect and potentially modify the incoming data.
      *
      * Expert method: only override this method if a processor implementation needs to make an asynchronous call,
-     * otherwise just overwrite {@link #execute(IngestDocument)}.
+     * otherwise just overwrite {@link #execute(IngestDocument)}. Pipelines notice processors that override it and
+     * call it for them unless they override {@link #isAsync()} to say otherwise.
      */
     default void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
         final IngestDocument result;
@@ -54,6 +55,20 @@ public interface Processor {
      */
     IngestDocument execute(IngestDocument ingestDocument) throws Exception;
 
+    /**
+     * Does this processor need {@link #execute(IngestDocument, BiConsumer)}? If not
+     * then pipelines run it with {@link #execute(IngestDocument)}, which skips
+     * allocating and invoking a callback for every processor and every document.
+     * <p>
+     * By default a processor is asynchronous if it overrides
+     * {@link #execute(IngestDocument, BiConsumer)}. Processors that override that
+     * but can still run synchronously, like ones that wrap other processors,
+     * should override this.
+     */
+    default boolean isAsync() {
+        return AsyncProcessors.overridesAsyncExecute(getClass());
+    }
+
     /**
      * Gets the type of a processor
      */
@@ -119,6 +119,11 @@ public final class TrackingResultProcessor implements Processor {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return actualProcessor.getType();
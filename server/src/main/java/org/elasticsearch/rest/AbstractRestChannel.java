@@ -94,6 +94,16 @@ public abstract class AbstractRestChannel implements RestChannel {
     @Override
     public XContentBuilder newBuilder(@Nullable XContentType requestContentType, @Nullable XContentType responseContentType,
             boolean useFiltering) throws IOException {
+        return newBuilder(requestContentType, responseContentType, useFiltering, Streams.flushOnCloseStream(bytesOutput()));
+    }
+
+    /**
+     * Creates a new {@link XContentBuilder} for a response to be sent using this channel, following the same logic as
+     * {@link #newBuilder(XContentType, XContentType, boolean)}, that writes to the given output stream.
+     */
+    @Override
+    public XContentBuilder newBuilder(@Nullable XContentType requestContentType, @Nullable XContentType responseContentType,
+            boolean useFiltering, OutputStream outputStream) throws IOException {
 
         if (responseContentType == null) {
             if (Strings.hasText(format)) {
@@ -124,14 +134,12 @@ public abstract class AbstractRestChannel implements RestChannel {
             excludes = filters.stream().filter(EXCLUDE_FILTER).map(f -> f.substring(1)).collect(toSet());
         }
 
-        OutputStream unclosableOutputStream = Streams.flushOnCloseStream(bytesOutput());
-
         Map<String, String> parameters = request.getParsedAccept() != null ?
             request.getParsedAccept().getParameters() : Collections.emptyMap();
         ParsedMediaType responseMediaType = ParsedMediaType.parseMediaType(responseContentType, parameters);
 
         XContentBuilder builder =
-            new XContentBuilder(XContentFactory.xContent(responseContentType), unclosableOutputStream,
+            new XContentBuilder(XContentFactory.xContent(responseContentType), outputStream,
                 includes, excludes, responseMediaType, request.getRestApiVersion());
         if (pretty) {
             builder.prettyPrint().lfAtEnd();
@@ -0,0 +1,61 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A response whose body is serialized incrementally by a {@link ChunkedRestResponseBody} while it is sent, rather than being built
+ * into a single buffer up front.
+ */
+public class ChunkedRestResponse extends RestResponse {
+
+    private final RestStatus status;
+    private final ChunkedRestResponseBody body;
+    private BytesReference content;
+
+    public ChunkedRestResponse(RestStatus status, ChunkedRestResponseBody body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    @Override
+    public String contentType() {
+        return body.getResponseContentTypeString();
+    }
+
+    /**
+     * Serializes the whole body into a single buffer. This is only meant for channels that cannot send chunked responses and consumes
+     * the body, so that it must not be used together with {@link #chunkedContent()}.
+     */
+    @Override
+    public BytesReference content() {
+        if (content == null) {
+            try {
+                content = ChunkedRestResponseBody.toBytesReference(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return content;
+    }
+
+    @Override
+    public ChunkedRestResponseBody chunkedContent() {
+        return body;
+    }
+
+    @Override
+    public RestStatus status() {
+        return status;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.xcontent.ToXContent;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * The body of a REST response that is serialized incrementally while it is sent. The HTTP layer asks for the next chunk only once the
+ * channel can accept more writes, so that only a bounded number of pages of the response is held in memory at any time.
+ * <p>
+ * The body is released by the channel once the response has been sent or has failed.
+ */
+public interface ChunkedRestResponseBody extends Releasable {
+
+    /**
+     * @return {@code true} once all chunks of this body have been returned by {@link #encodeChunk}
+     */
+    boolean isDone();
+
+    /**
+     * Serializes the next chunk of this body. The chunk is at least {@code sizeHint} bytes long unless it is the last one, and may be
+     * a little longer since the serialization of a single element is never split. The returned bytes are backed by pages obtained from
+     * the given {@link BigArrays} and must be released by the caller once written.
+     */
+    ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException;
+
+    /**
+     * @return the content type of the response
+     */
+    String getResponseContentTypeString();
+
+    @Override
+    default void close() {}
+
+    /**
+     * Creates a body that serializes the chunks of the given {@link ChunkedToXContent} using a builder obtained from the channel, so
+     * that the response honours the requested format, {@code filter_path}, {@code pretty} and {@code human} parameters.
+     */
+    static ChunkedRestResponseBody fromXContent(ChunkedToXContent chunkedToXContent, ToXContent.Params params,
+                                                RestChannel channel) throws IOException {
+        return new ChunkedRestResponseBody() {
+
+            private OutputStream target;
+
+            private final OutputStream out = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    target.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    target.write(b, off, len);
+                }
+            };
+
+            private final XContentBuilder builder = channel.newBuilder(channel.request().getXContentType(), null, true, out);
+
+            private final Iterator<? extends ToXContent> chunks = chunkedToXContent.toXContentChunked(params);
+
+            private boolean done = false;
+
+            @Override
+            public boolean isDone() {
+                return done;
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException {
+                assert done == false : "body has already been fully encoded";
+                final ReleasableBytesStreamOutput chunkStream = new ReleasableBytesStreamOutput(bigArrays);
+                target = chunkStream;
+                boolean success = false;
+                try {
+                    while (chunks.hasNext()) {
+                        chunks.next().toXContent(builder, params);
+                        builder.flush();
+                        if (chunkStream.size() >= sizeHint) {
+                            break;
+                        }
+                    }
+                    if (chunks.hasNext() == false) {
+                        builder.close();
+                        done = true;
+                    }
+                    final ReleasableBytesReference result = new ReleasableBytesReference(chunkStream.bytes(), chunkStream);
+                    success = true;
+                    return result;
+                } finally {
+                    target = null;
+                    if (success == false) {
+                        chunkStream.close();
+                    }
+                }
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return builder.getResponseContentTypeString();
+            }
+        };
+    }
+
+    /**
+     * Serializes all remaining chunks of the given body into a single buffer, for consumers that cannot send a response incrementally.
+     */
+    static BytesReference toBytesReference(ChunkedRestResponseBody body) throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        final int sizeHint = PageCacheRecycler.PAGE_SIZE_IN_BYTES;
+        while (body.isDone() == false) {
+            try (ReleasableBytesReference chunk = body.encodeChunk(sizeHint, BigArrays.NON_RECYCLING_INSTANCE)) {
+                chunk.writeTo(out);
+            }
+        }
+        return out.bytes();
+    }
+}
@@ -14,6 +14,7 @@ import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentType;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * A channel used to construct bytes / builder based outputs, and send responses.
@@ -29,6 +30,13 @@ public interface RestChannel {
     XContentBuilder newBuilder(@Nullable XContentType xContentType, @Nullable XContentType responseContentType,
             boolean useFiltering) throws IOException;
 
+    /**
+     * Creates a new {@link XContentBuilder} like {@link #newBuilder(XContentType, XContentType, boolean)} that writes to the given output
+     * stream instead of the channel level {@link #bytesOutput()}.
+     */
+    XContentBuilder newBuilder(@Nullable XContentType xContentType, @Nullable XContentType responseContentType,
+            boolean useFiltering, OutputStream outputStream) throws IOException;
+
     BytesStreamOutput bytesOutput();
 
     RestRequest request();
@@ -22,11 +22,14 @@ import org.elasticsearch.core.RestApiVersion;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.path.PathTrie;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentType;
 import org.elasticsearch.core.internal.io.Streams;
 import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.rest.RestHandler.Route;
 import org.elasticsearch.tasks.Task;
@@ -35,12 +38,14 @@ import org.elasticsearch.usage.UsageService;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
@@ -86,9 +91,20 @@ public class RestController implements HttpServerTransport.Dispatcher {
     private final Set<RestHeaderDefinition> headersToCopy;
     private final UsageService usageService;
 
+    /** The most bytes that the body of a compressed request may inflate to. */
+    private final long maxInflatedContentLength;
+
     public RestController(Set<RestHeaderDefinition> headersToCopy, UnaryOperator<RestHandler> handlerWrapper,
                           NodeClient client, CircuitBreakerService circuitBreakerService, UsageService usageService) {
+        this(headersToCopy, handlerWrapper, client, circuitBreakerService, usageService,
+            HttpTransportSettings.SETTING_HTTP_MAX_CONTENT_LENGTH.getDefault(Settings.EMPTY).getBytes());
+    }
+
+    public RestController(Set<RestHeaderDefinition> headersToCopy, UnaryOperator<RestHandler> handlerWrapper,
+                          NodeClient client, CircuitBreakerService circuitBreakerService, UsageService usageService,
+                          long maxInflatedContentLength) {
         this.headersToCopy = headersToCopy;
+        this.maxInflatedContentLength = maxInflatedContentLength;
         this.usageService = usageService;
         if (handlerWrapper == null) {
             handlerWrapper = h -> h; // passthrough if no wrapper set
@@ -275,11 +291,9 @@ public class RestController implements HttpServerTransport.Dispatcher {
                 inFlightRequestsBreaker(circuitBreakerService).addWithoutBreaking(contentLength);
             }
             // iff we could reserve bytes for the request we need to send the response also over this channel
-            responseChannel = new ResourceHandlingHttpChannel(channel, circuitBreakerService, contentLength);
-            // TODO: Count requests double in the circuit breaker if they need copying?
-            if (handler.allowsUnsafeBuffers() == false) {
-                request.ensureSafeBuffers();
-            }
+            final ResourceHandlingHttpChannel resourceHandlingChannel =
+                new ResourceHandlingHttpChannel(channel, circuitBreakerService, contentLength);
+            responseChannel = resourceHandlingChannel;
 
             if (handler.allowSystemIndexAccessByDefault() == false) {
                 // The ELASTIC_PRODUCT_ORIGIN_HTTP_HEADER indicates that the request is coming from an Elastic product and
@@ -296,12 +310,68 @@ public class RestController implements HttpServerTransport.Dispatcher {
                 threadContext.putHeader(SYSTEM_INDEX_ACCESS_CONTROL_HEADER_KEY, Boolean.TRUE.toString());
             }
 
-            handler.handleRequest(request, responseChannel, client);
+            final String contentEncoding = RestRequestDecompressor.contentEncoding(request);
+            if (contentEncoding != null && contentLength > RestRequestDecompressor.INLINE_DECOMPRESSION_LIMIT) {
+                forkHandleRequest(request, resourceHandlingChannel, handler, contentEncoding);
+            } else {
+                handleRequest(request, resourceHandlingChannel, handler, contentEncoding, true);
+            }
         } catch (Exception e) {
             responseChannel.sendResponse(new BytesRestResponse(responseChannel, e));
         }
     }
 
+    /**
+     * Handles the request on the generic thread pool so that inflating a large body doesn't block the network thread. The executor
+     * preserves the thread context.
+     */
+    private void forkHandleRequest(RestRequest request, ResourceHandlingHttpChannel channel, RestHandler handler,
+                                   String contentEncoding) {
+        client.threadPool().generic().execute(new AbstractRunnable() {
+            @Override
+            protected void doRun() throws Exception {
+                handleRequest(request, channel, handler, contentEncoding, false);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                try {
+                    channel.sendResponse(new BytesRestResponse(channel, e));
+                } catch (Exception inner) {
+                    inner.addSuppressed(e);
+                    logger.error(new ParameterizedMessage("failed to send failure response for uri [{}]", request.uri()), inner);
+                }
+            }
+        });
+    }
+
+    private void handleRequest(RestRequest request, ResourceHandlingHttpChannel channel, RestHandler handler,
+                               @Nullable String contentEncoding, boolean onNetworkThread) throws Exception {
+        if (contentEncoding != null) {
+            final boolean canTripCircuitBreaker = handler.canTripCircuitBreaker();
+            final long maxInflatedBytes = onNetworkThread
+                ? Math.min(RestRequestDecompressor.INLINE_INFLATED_LIMIT, maxInflatedContentLength)
+                : maxInflatedContentLength;
+            try {
+                request.decompressContent(contentEncoding, maxInflatedBytes,
+                    inflatedBytes -> channel.reserveBytes(inflatedBytes, canTripCircuitBreaker));
+            } catch (RestRequestDecompressor.InflatedContentTooLargeException e) {
+                if (onNetworkThread && maxInflatedBytes < maxInflatedContentLength) {
+                    // a small body that inflates to a lot, start over off the network thread
+                    channel.releaseReservedBytes();
+                    forkHandleRequest(request, channel, handler, contentEncoding);
+                    return;
+                }
+                throw e;
+            }
+        }
+        // TODO: Count requests double in the circuit breaker if they need copying?
+        if (handler.allowsUnsafeBuffers() == false) {
+            request.ensureSafeBuffers();
+        }
+        handler.handleRequest(request, channel, client);
+    }
+
     private boolean handleNoHandlerFound(String rawPath, RestRequest.Method method, String uri, RestChannel channel) {
         // Get the map of matching handlers for a request, for the full set of HTTP methods.
         final Set<RestRequest.Method> validMethodSet = getValidHandlerMethodSet(rawPath);
@@ -512,6 +582,7 @@ public class RestController implements HttpServerTransport.Dispatcher {
         private final RestChannel delegate;
         private final CircuitBreakerService circuitBreakerService;
         private final int contentLength;
+        private final AtomicLong additionalBytes = new AtomicLong();
         private final AtomicBoolean closed = new AtomicBoolean();
 
         ResourceHandlingHttpChannel(RestChannel delegate, CircuitBreakerService circuitBreakerService, int contentLength) {
@@ -520,6 +591,26 @@ public class RestController implements HttpServerTransport.Dispatcher {
             this.contentLength = contentLength;
         }
 
+        /**
+         * Reserves bytes on top of the content length, for instance for the inflated content of a compressed request. The bytes are
+         * released together with the content length once the response has been sent.
+         */
+        void reserveBytes(long bytes, boolean canTripCircuitBreaker) {
+            if (canTripCircuitBreaker) {
+                inFlightRequestsBreaker(circuitBreakerService).addEstimateBytesAndMaybeBreak(bytes, "<http_request>");
+            } else {
+                inFlightRequestsBreaker(circuitBreakerService).addWithoutBreaking(bytes);
+            }
+            additionalBytes.addAndGet(bytes);
+        }
+
+        /**
+         * Releases the bytes reserved by {@link #reserveBytes}, keeping the content length reserved.
+         */
+        void releaseReservedBytes() {
+            inFlightRequestsBreaker(circuitBreakerService).addWithoutBreaking(-additionalBytes.getAndSet(0));
+        }
+
         @Override
         public XContentBuilder newBuilder() throws IOException {
             return delegate.newBuilder();
@@ -541,6 +632,12 @@ public class RestController implements HttpServerTransport.Dispatcher {
             return delegate.newBuilder(xContentType, responseContentType, useFiltering);
         }
 
+        @Override
+        public XContentBuilder newBuilder(XContentType xContentType, XContentType responseContentType, boolean useFiltering,
+                                          OutputStream outputStream) throws IOException {
+            return delegate.newBuilder(xContentType, responseContentType, useFiltering, outputStream);
+        }
+
         @Override
         public BytesStreamOutput bytesOutput() {
             return delegate.bytesOutput();
@@ -567,7 +664,7 @@ public class RestController implements HttpServerTransport.Dispatcher {
             if (closed.compareAndSet(false, true) == false) {
                 throw new IllegalStateException("Channel is already closed");
             }
-            inFlightRequestsBreaker(circuitBreakerService).addWithoutBreaking(-contentLength);
+            inFlightRequestsBreaker(circuitBreakerService).addWithoutBreaking(-contentLength - additionalBytes.get());
         }
 
     }
@@ -40,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -134,6 +135,13 @@ public class RestRequest implements ToXContent.Params {
         httpRequest = httpRequest.releaseAndCopy();
     }
 
+    /**
+     * Replaces the compressed content of this request with its inflated form, see {@link RestRequestDecompressor}.
+     */
+    void decompressContent(String encoding, long maxInflatedBytes, LongConsumer inflatedBytesConsumer) throws IOException {
+        httpRequest = RestRequestDecompressor.decompress(httpRequest, encoding, maxInflatedBytes, inflatedBytesConsumer);
+    }
+
     /**
      * Creates a new REST request. This method will throw {@link BadParameterException} if the path cannot be
      * decoded
@@ -0,0 +1,212 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.http.HttpRequest;
+import org.elasticsearch.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decompresses request bodies that were sent with a {@code Content-Encoding} of {@code gzip} or {@code deflate}. Decompression happens
+ * after the request has been dispatched to its handler rather than on the network thread that read it, so that large bodies can be
+ * inflated on another thread and that the inflated bytes can be accounted to the in-flight requests circuit breaker as they are
+ * produced, before they are all in memory. The inflated content is limited to {@code http.max_content_length}, just like uncompressed
+ * content is, whether or not the handler can trip the circuit breaker.
+ */
+final class RestRequestDecompressor {
+
+    /**
+     * Compressed bodies up to this size are inflated on the network thread since forking would cost more than inflating them, as long
+     * as they inflate to no more than {@link #INLINE_INFLATED_LIMIT}. Kept to a few kilobytes so the network thread never spends
+     * more than a few microseconds inflating.
+     */
+    static final int INLINE_DECOMPRESSION_LIMIT = Math.toIntExact(ByteSizeUnit.KB.toBytes(4));
+
+    /**
+     * The most bytes a body may inflate to on the network thread, one chunk. Bodies that inflate to more are inflated again on
+     * another thread.
+     */
+    static final int INLINE_INFLATED_LIMIT = Math.toIntExact(ByteSizeUnit.KB.toBytes(16));
+
+    private static final int CHUNK_SIZE = Math.toIntExact(ByteSizeUnit.KB.toBytes(16));
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private RestRequestDecompressor() {}
+
+    /**
+     * @return the content encoding of the request if it is one that is decompressed by this class, {@code null} otherwise
+     */
+    @Nullable
+    static String contentEncoding(RestRequest request) {
+        if (request.hasContent() == false) {
+            return null;
+        }
+        final String encoding = request.header(CONTENT_ENCODING);
+        if (encoding == null) {
+            return null;
+        }
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return "gzip";
+            case "deflate":
+            case "x-deflate":
+                return "deflate";
+            default:
+                // unknown encodings, including identity, are passed on to the handler untouched as before
+                return null;
+        }
+    }
+
+    /**
+     * Inflates the content of the given request. The number of inflated bytes is passed to {@code inflatedBytesConsumer} after every
+     * chunk, before the next one is inflated, so that it can abort decompression by throwing an exception. Decompression stops with a
+     * {@link InflatedContentTooLargeException} as soon as the content inflates to more than {@code maxInflatedBytes}. The compressed
+     * content is released once it has been inflated and is left untouched if decompression fails.
+     */
+    static HttpRequest decompress(HttpRequest httpRequest, String encoding, long maxInflatedBytes, LongConsumer inflatedBytesConsumer)
+        throws IOException {
+        final long limit = Math.min(maxInflatedBytes, Integer.MAX_VALUE);
+        final BytesReference compressed = httpRequest.content();
+        final BytesStreamOutput inflated = new BytesStreamOutput();
+        try (InputStream in = inflatingStream(compressed, encoding)) {
+            final byte[] buffer = new byte[CHUNK_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (inflated.size() + (long) read > limit) {
+                    throw new InflatedContentTooLargeException(limit);
+                }
+                inflatedBytesConsumer.accept(read);
+                inflated.write(buffer, 0, read);
+            }
+        }
+        httpRequest.release();
+        return new DecompressedHttpRequest(httpRequest, inflated.bytes());
+    }
+
+    private static InputStream inflatingStream(BytesReference compressed, String encoding) throws IOException {
+        if ("gzip".equals(encoding)) {
+            return new GZIPInputStream(compressed.streamInput(), CHUNK_SIZE);
+        }
+        // deflate should be zlib-wrapped, but some clients send a raw deflate stream instead
+        final boolean zlibWrapped = compressed.length() >= 2
+            && (compressed.get(0) & 0x0f) == 8
+            && ((compressed.get(0) & 0xff) << 8 | (compressed.get(1) & 0xff)) % 31 == 0;
+        return new InflaterInputStream(compressed.streamInput(), new Inflater(zlibWrapped == false), CHUNK_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Thrown when a request body inflates to more than it may, which is reported to the client as {@code 413 Request Entity Too Large}.
+     */
+    static final class InflatedContentTooLargeException extends ElasticsearchStatusException {
+        InflatedContentTooLargeException(long limit) {
+            super("decompressed request body is larger than [{}] bytes", RestStatus.REQUEST_ENTITY_TOO_LARGE, limit);
+        }
+    }
+
+    /**
+     * A request whose compressed content has been replaced with the inflated content. The inflated content is on heap, so it does not
+     * need to be released or copied. The headers are those of the original request.
+     */
+    private static final class DecompressedHttpRequest implements HttpRequest {
+
+        private final HttpRequest compressed;
+        private final BytesReference content;
+
+        DecompressedHttpRequest(HttpRequest compressed, BytesReference content) {
+            this.compressed = compressed;
+            this.content = content;
+        }
+
+        @Override
+        public RestRequest.Method method() {
+            return compressed.method();
+        }
+
+        @Override
+        public String uri() {
+            return compressed.uri();
+        }
+
+        @Override
+        public BytesReference content() {
+            return content;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return compressed.getHeaders();
+        }
+
+        @Override
+        public List<String> strictCookies() {
+            return compressed.strictCookies();
+        }
+
+        @Override
+        public HttpVersion protocolVersion() {
+            return compressed.protocolVersion();
+        }
+
+        @Override
+        public HttpRequest removeHeader(String header) {
+            return new DecompressedHttpRequest(compressed.removeHeader(header), content);
+        }
+
+        @Override
+        public HttpResponse createResponse(RestStatus status, BytesReference content) {
+            return compressed.createResponse(status, content);
+        }
+
+        @Override
+        public HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content) {
+            return compressed.createResponse(status, content);
+        }
+
+        @Override
+        public Exception getInboundException() {
+            return compressed.getInboundException();
+        }
+
+        @Override
+        public void release() {
+            compressed.release();
+        }
+
+        @Override
+        public HttpRequest releaseAndCopy() {
+            release();
+            return this;
+        }
+    }
+}
@@ -10,6 +10,7 @@ package org.elasticsearch.rest;
 
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 
 import java.util.ArrayList;
@@ -34,6 +35,15 @@ public abstract class RestResponse {
      */
     public abstract BytesReference content();
 
+    /**
+     * The response content if it is serialized incrementally while being sent, or {@code null} if the whole content is available from
+     * {@link #content()}. Channels that support chunked responses send this body instead of {@link #content()} and release it once done.
+     */
+    @Nullable
+    public ChunkedRestResponseBody chunkedContent() {
+        return null;
+    }
+
     /**
      * The rest status code.
      */
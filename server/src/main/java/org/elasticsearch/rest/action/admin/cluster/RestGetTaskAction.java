@@ -15,9 +15,11 @@ import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.action.RestToXContentListener;
 import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskInfo;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 import static org.elasticsearch.rest.RestRequest.Method.GET;
 
@@ -45,4 +47,9 @@ public class RestGetTaskAction extends BaseRestHandler {
         getTaskRequest.setTimeout(timeout);
         return channel -> client.admin().cluster().getTask(getTaskRequest, new RestToXContentListener<>(channel));
     }
+
+    @Override
+    protected Set<String> responseParams() {
+        return Set.of(TaskInfo.INCLUDE_RESOURCE_USAGE_PARAM);
+    }
 }
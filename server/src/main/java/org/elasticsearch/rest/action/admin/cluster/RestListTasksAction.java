@@ -25,9 +25,11 @@ import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.action.RestBuilderListener;
 import org.elasticsearch.rest.action.RestToXContentListener;
 import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskInfo;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Supplier;
 
 import static org.elasticsearch.rest.RestRequest.Method.GET;
@@ -111,6 +113,11 @@ public class RestListTasksAction extends BaseRestHandler {
         }
     }
 
+    @Override
+    protected Set<String> responseParams() {
+        return Set.of(TaskInfo.INCLUDE_RESOURCE_USAGE_PARAM);
+    }
+
     @Override
     public boolean canTripCircuitBreaker() {
         return false;
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 /**
  * Script cache and compilation rate limiter.
@@ -74,6 +75,37 @@ public class ScriptCache {
         String idOrCode,
         ScriptType type,
         Map<String, String> options
+    ) {
+        return compile(context, scriptEngine, id, idOrCode, type, options, context.compilationRateLimited);
+    }
+
+    /**
+     * Compile a script we expect to need soon, like a stored script, if it isn't already
+     * cached. This doesn't count against the compilation rate limit because users didn't
+     * ask for it. We don't warm full caches because that'd evict scripts that were actually used.
+     */
+    void warm(
+        ScriptContext<?> context,
+        ScriptEngine scriptEngine,
+        String id,
+        String idOrCode,
+        ScriptType type,
+        Map<String, String> options
+    ) {
+        if (cacheSize >= 0 && cache.count() >= cacheSize) {
+            return;
+        }
+        compile(context, scriptEngine, id, idOrCode, type, options, false);
+    }
+
+    private <FactoryType> FactoryType compile(
+        ScriptContext<FactoryType> context,
+        ScriptEngine scriptEngine,
+        String id,
+        String idOrCode,
+        ScriptType type,
+        Map<String, String> options,
+        boolean rateLimited
     ) {
         String lang = scriptEngine.getType();
         CacheKey cacheKey = new CacheKey(lang, idOrCode, context.name, options);
@@ -89,7 +121,7 @@ public class ScriptCache {
                     logger.trace("context [{}]: compiling script, type: [{}], lang: [{}], options: [{}]", context.name, type,
                         lang, options);
                 }
-                if (context.compilationRateLimited) {
+                if (rateLimited) {
                     // Check whether too many compilations have happened
                     checkCompilationLimit();
                 }
@@ -112,6 +144,25 @@ public class ScriptCache {
         }
     }
 
+    /**
+     * Copy the compiled scripts for the contexts that {@code contexts} accepts from the cache that this one replaces.
+     * Changing the cache settings replaces the caches and without this every script would be compiled again, which
+     * counts against the new compilation rate limit. Copied scripts don't count as compilations and we stop copying
+     * once this cache is full rather than evicting them.
+     */
+    void copyFrom(ScriptCache previous, Predicate<String> contexts) {
+        previous.cache.forEach((key, compiledScript) -> {
+            if (contexts.test(key.context) && (cacheSize < 0 || cache.count() < cacheSize)) {
+                try {
+                    // Scripts compiled since this cache replaced the previous one win
+                    cache.computeIfAbsent(key, k -> compiledScript);
+                } catch (ExecutionException e) {
+                    throw new AssertionError("copying can't fail", e);
+                }
+            }
+        });
+    }
+
     /** Hack to rethrow unknown Exceptions from compile: */
     @SuppressWarnings("unchecked")
     static <T extends Throwable> void rethrow(Throwable t) throws T {
@@ -10,6 +10,7 @@ package org.elasticsearch.script;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ResourceNotFoundException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.cluster.storedscripts.DeleteStoredScriptRequest;
@@ -31,6 +32,7 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.gateway.GatewayService;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -45,6 +47,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -128,6 +132,12 @@ public class ScriptService implements Closeable, ClusterStateApplier, ScriptComp
 
     private int maxSizeInBytes;
 
+    /**
+     * Warms the caches once the node has recovered the cluster state. {@code null} means don't warm them.
+     */
+    private volatile Executor cacheWarmingExecutor;
+    private final AtomicBoolean cacheWarmed = new AtomicBoolean();
+
     // package private for tests
     final AtomicReference<CacheHolder> cacheHolder = new AtomicReference<>();
 
@@ -559,6 +569,93 @@ public class ScriptService implements Closeable, ClusterStateApplier, ScriptComp
     @Override
     public void applyClusterState(ClusterChangedEvent event) {
         clusterState = event.state();
+        Executor executor = cacheWarmingExecutor;
+        if (executor != null
+            && event.state().blocks().hasGlobalBlock(GatewayService.STATE_NOT_RECOVERED_BLOCK) == false
+            && cacheWarmed.compareAndSet(false, true)) {
+            ClusterState state = event.state();
+            executor.execute(() -> warmCache(state));
+        }
+    }
+
+    /**
+     * Warm the script caches on {@code executor} with the stored scripts in
+     * the first recovered cluster state. Without this a restarted node
+     * compiles them on demand just when it's at its busiest, and in contexts
+     * with a compilation rate limit those compilations count against it.
+     */
+    public void setCacheWarmingExecutor(Executor executor) {
+        this.cacheWarmingExecutor = executor;
+    }
+
+    /**
+     * Compile the stored scripts in {@code state} that we know the context of.
+     * These don't count against the compilation rate limit.
+     * <p>
+     * Stored scripts don't record the context they are used in. So we only
+     * warm the ones whose language supports a single rate limited context
+     * that allows stored scripts, like search templates.
+     */
+    void warmCache(ClusterState state) {
+        long start = System.nanoTime();
+        int warmed = 0;
+        ScriptMetadata scriptMetadata = state.metadata().custom(ScriptMetadata.TYPE);
+        if (scriptMetadata != null) {
+            for (Map.Entry<String, StoredScriptSource> e : scriptMetadata.getStoredScripts().entrySet()) {
+                StoredScriptSource source = e.getValue();
+                ScriptContext<?> context = storedScriptContext(source.getLang());
+                if (context != null
+                    && warm(context, source.getLang(), e.getKey(), source.getSource(), ScriptType.STORED, source.getOptions())) {
+                    warmed++;
+                }
+            }
+        }
+        logger.debug("warmed script caches with [{}] scripts in [{}]", warmed, TimeValue.timeValueNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * The only rate limited context that stored scripts in {@code lang} can be used in or {@code null} if there isn't exactly one.
+     * Contexts without a rate limit don't count: the one of them that allows stored scripts, ingest templates, only compiles inline
+     * templates.
+     */
+    private ScriptContext<?> storedScriptContext(String lang) {
+        ScriptEngine engine = engines.get(lang);
+        if (engine == null) {
+            return null;
+        }
+        ScriptContext<?> found = null;
+        for (ScriptContext<?> context : engine.getSupportedContexts()) {
+            if (context.allowStoredScript && context.compilationRateLimited && contexts.containsKey(context.name)) {
+                if (found != null) {
+                    return null;
+                }
+                found = context;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Compile a script into its context's cache if the node allows it.
+     *
+     * @return {@code true} if the script compiled
+     */
+    private boolean warm(ScriptContext<?> context, String lang, String id, String idOrCode, ScriptType type, Map<String, String> options) {
+        ScriptEngine engine = engines.get(lang);
+        if (engine == null
+            || contexts.containsKey(context.name) == false
+            || isContextEnabled(context) == false
+            || isTypeEnabled(type) == false) {
+            return false;
+        }
+        ScriptCache cache = cacheHolder.get().get(context.name);
+        try {
+            cache.warm(context, engine, id, idOrCode, type, options);
+            return true;
+        } catch (Exception e) {
+            logger.debug(new ParameterizedMessage("failed to warm the script cache with [{}]", id), e);
+            return false;
+        }
     }
 
     void setCacheHolder(Settings settings) {
@@ -578,19 +675,25 @@ public class ScriptService implements Closeable, ClusterStateApplier, ScriptComp
         if (useContext) {
             if (current.general != null) {
                 // Flipping to context specific
-                cacheHolder.set(contextCacheHolder(settings));
+                replaceCacheHolder(current, contextCacheHolder(settings));
             }
         } else if (current.general == null) {
             // Flipping to general
-            cacheHolder.set(generalCacheHolder(settings));
+            replaceCacheHolder(current, generalCacheHolder(settings));
         } else if (current.general.rate.equals(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.get(settings)) == false ||
                    current.general.cacheExpire.equals(SCRIPT_GENERAL_CACHE_EXPIRE_SETTING.get(settings)) == false ||
                    current.general.cacheSize != SCRIPT_GENERAL_CACHE_SIZE_SETTING.get(settings)) {
             // General compilation rate, cache expiration or cache size changed
-            cacheHolder.set(generalCacheHolder(settings));
+            replaceCacheHolder(current, generalCacheHolder(settings));
         }
     }
 
+    private void replaceCacheHolder(CacheHolder current, CacheHolder replacement) {
+        cacheHolder.set(replacement);
+        // Copy after the swap so we keep scripts that were compiled into the old caches while we copied
+        replacement.copyFrom(current);
+    }
+
     CacheHolder generalCacheHolder(Settings settings) {
         return new CacheHolder(SCRIPT_GENERAL_CACHE_SIZE_SETTING.get(settings), SCRIPT_GENERAL_CACHE_EXPIRE_SETTING.get(settings),
             SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.get(settings), SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey());
@@ -685,6 +788,26 @@ public class ScriptService implements Closeable, ClusterStateApplier, ScriptComp
             return new ScriptCacheStats(context);
         }
 
+        /**
+         * Copy the compiled scripts from the holder that this one replaces.
+         */
+        void copyFrom(CacheHolder previous) {
+            if (general != null) {
+                if (previous.general != null) {
+                    general.copyFrom(previous.general, context -> true);
+                } else {
+                    previous.contextCache.values().forEach(ref -> general.copyFrom(ref.get(), context -> true));
+                }
+                return;
+            }
+            for (Map.Entry<String, AtomicReference<ScriptCache>> entry : contextCache.entrySet()) {
+                ScriptCache previousCache = previous.get(entry.getKey());
+                if (previousCache != null) {
+                    entry.getValue().get().copyFrom(previousCache, entry.getKey()::equals);
+                }
+            }
+        }
+
         /**
          * Update a single context cache if we're in the context cache mode otherwise no-op.
          */
@@ -697,6 +820,8 @@ public class ScriptService implements Closeable, ClusterStateApplier, ScriptComp
             ScriptCache oldCache = ref.get();
             assert oldCache != null : "expected script cache to be non-null for context [" + name + "]";
             ref.set(cache);
+            // Copy after the swap so we keep scripts that were compiled into the old cache while we copied
+            cache.copyFrom(oldCache, name::equals);
             logger.debug("Replaced context [" + name + "] with new settings");
         }
     }
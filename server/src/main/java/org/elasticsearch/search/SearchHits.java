@@ -11,11 +11,13 @@ package org.elasticsearch.search;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
+import org.elasticsearch.common.collect.Iterators;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.ToXContentFragment;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentParser;
@@ -175,6 +177,24 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        headerToXContent(builder, params);
+        for (SearchHit hit : hits) {
+            hit.toXContent(builder, params);
+        }
+        return footerToXContent(builder);
+    }
+
+    /**
+     * Returns the same xcontent as {@link #toXContent} in chunks, one for each hit.
+     */
+    public Iterator<ToXContent> toXContentChunked(ToXContent.Params params) {
+        return Iterators.concat(
+            Iterators.<ToXContent>single(this::headerToXContent),
+            Arrays.<ToXContent>asList(hits).iterator(),
+            Iterators.<ToXContent>single((builder, p) -> footerToXContent(builder)));
+    }
+
+    private XContentBuilder headerToXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.HITS);
         boolean totalHitAsInt = params.paramAsBoolean(RestSearchAction.TOTAL_HITS_AS_INT_PARAM, false);
         if (totalHitAsInt) {
@@ -192,13 +212,12 @@ public final class SearchHits implements Writeable, ToXContentFragment, Iterable
             builder.field(Fields.MAX_SCORE, maxScore);
         }
         builder.field(Fields.HITS);
-        builder.startArray();
-        for (SearchHit hit : hits) {
-            hit.toXContent(builder, params);
-        }
+        return builder.startArray();
+    }
+
+    private static XContentBuilder footerToXContent(XContentBuilder builder) throws IOException {
         builder.endArray();
-        builder.endObject();
-        return builder;
+        return builder.endObject();
     }
 
     public static SearchHits fromXContent(XContentParser parser) throws IOException {
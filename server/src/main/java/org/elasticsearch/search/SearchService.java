@@ -180,6 +180,19 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         Property.NodeScope
     );
 
+    /**
+     * Should independent top level aggregations collect concurrently on the
+     * {@link Names#SEARCH search} thread pool? Each collects the same docs
+     * so this doesn't save any CPU, but it can return sooner on nodes that
+     * have idle search threads.
+     */
+    public static final Setting<Boolean> CONCURRENT_SIBLING_AGGS_COLLECTION = Setting.boolSetting(
+        "search.aggs.concurrent_sibling_collection",
+        false,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
     public static final Setting<ByteSizeValue> MAX_ASYNC_SEARCH_RESPONSE_SIZE_SETTING = Setting.byteSizeSetting(
         "search.max_async_search_response_size",
         new ByteSizeValue(10, ByteSizeUnit.MB),
@@ -224,6 +237,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private volatile boolean enableRewriteAggsToFilterByFilter;
 
+    private volatile boolean concurrentSiblingAggsCollection;
+
     private final Cancellable keepAliveReaper;
 
     private final AtomicLong idGenerator = new AtomicLong();
@@ -276,6 +291,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         enableRewriteAggsToFilterByFilter = ENABLE_REWRITE_AGGS_TO_FILTER_BY_FILTER.get(settings);
         clusterService.getClusterSettings()
             .addSettingsUpdateConsumer(ENABLE_REWRITE_AGGS_TO_FILTER_BY_FILTER, this::setEnableRewriteAggsToFilterByFilter);
+
+        concurrentSiblingAggsCollection = CONCURRENT_SIBLING_AGGS_COLLECTION.get(settings);
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(CONCURRENT_SIBLING_AGGS_COLLECTION, this::setConcurrentSiblingAggsCollection);
     }
 
     private void validateKeepAlives(TimeValue defaultKeepAlive, TimeValue maxKeepAlive) {
@@ -316,6 +335,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.enableRewriteAggsToFilterByFilter = enableRewriteAggsToFilterByFilter;
     }
 
+    private void setConcurrentSiblingAggsCollection(boolean concurrentSiblingAggsCollection) {
+        this.concurrentSiblingAggsCollection = concurrentSiblingAggsCollection;
+    }
+
     @Override
     public void afterIndexRemoved(Index index, IndexSettings indexSettings, IndexRemovalReason reason) {
         // once an index is removed due to deletion or closing, we can just clean up all the pending search context information
@@ -1103,7 +1126,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 context::getRelativeTimeInMillis,
                 context::isCancelled,
                 context::buildFilteredQuery,
-                enableRewriteAggsToFilterByFilter
+                enableRewriteAggsToFilterByFilter,
+                context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+                    && context.minimumScore() == null
+                    && NO_TIMEOUT.equals(context.timeout()),
+                () -> context.queryResult().searchTimedOut() || Boolean.TRUE.equals(context.queryResult().terminatedEarly()),
+                context.readerContext().singleSession() ? null : context.readerContext().aggregationState(),
+                concurrentSiblingAggsCollection ? threadPool.executor(Names.SEARCH) : null
             );
             context.addReleasable(aggContext);
             try {
@@ -77,7 +77,7 @@ public abstract class AdaptingAggregator extends Aggregator {
     }
 
     @Override
-    public final LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
         return delegate.getLeafCollector(ctx);
     }
 
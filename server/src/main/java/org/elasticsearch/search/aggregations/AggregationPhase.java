@@ -9,6 +9,7 @@ package org.elasticsearch.search.aggregations;
 
 import org.apache.lucene.search.Collector;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.query.CollectorResult;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
@@ -32,7 +33,12 @@ public class AggregationPhase {
         BucketCollector bucketCollector;
         try {
             context.aggregations().aggregators(context.aggregations().factories().createTopLevelAggregators());
-            bucketCollector = MultiBucketCollector.wrap(true, List.of(context.aggregations().aggregators()));
+            AggregationContext aggContext = context.aggregations().factories().context();
+            bucketCollector = ConcurrentBucketCollector.wrap(
+                aggContext == null ? null : aggContext.siblingCollectionExecutor(),
+                List.of(context.aggregations().aggregators())
+            );
+            context.aggregations().collector(bucketCollector);
             bucketCollector.preCollection();
         } catch (IOException e) {
             throw new AggregationInitializationException("Could not initialize aggregators", e);
@@ -61,9 +67,20 @@ public class AggregationPhase {
             // Rollup can end up here with a null context but not null factories.....
             context.aggregations().factories().context().multiBucketConsumer().reset();
         }
+        BucketCollector bucketCollector = context.aggregations().collector();
+        if (bucketCollector != null) {
+            try {
+                // finish collecting all aggregators at once, the collector might still be holding on to some docs
+                bucketCollector.postCollection();
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to finish collecting aggregations", e);
+            }
+        }
         for (Aggregator aggregator : context.aggregations().aggregators()) {
             try {
-                aggregator.postCollection();
+                if (bucketCollector == null) {
+                    aggregator.postCollection();
+                }
                 aggregations.add(aggregator.buildTopLevel());
             } catch (IOException e) {
                 throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
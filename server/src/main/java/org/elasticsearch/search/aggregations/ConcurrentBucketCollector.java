@@ -0,0 +1,325 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link BucketCollector} that runs several independent collectors, like
+ * the top level aggregations of a request, at the same time. The searching
+ * thread buffers blocks of matching docs and every collector collects each
+ * block on the {@link Executor} or on the searching thread itself. It waits
+ * for the block to finish before it moves on so each collector still sees
+ * every segment in order and every doc in order within it. Each collector
+ * only ever runs on one thread at a time.
+ * <p>
+ * This spends the same CPU as {@link MultiBucketCollector} plus a little for
+ * the hand off. It only helps if there are idle threads in the executor.
+ * If there aren't any then the searching thread does all of the work and
+ * at most one fewer helpers than there are collectors wait in the executor's
+ * queue.
+ */
+public final class ConcurrentBucketCollector extends BucketCollector {
+    /**
+     * The number of docs to buffer before handing them to the collectors.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Wrap {@code collectors} so they collect concurrently on {@code executor}.
+     * Falls back to {@link MultiBucketCollector#wrap} if there is no executor,
+     * if fewer than two collectors collect anything, or if any of them needs
+     * scores because the searching thread's scorer can't be shared.
+     */
+    public static BucketCollector wrap(@Nullable Executor executor, List<? extends BucketCollector> collectors) {
+        List<BucketCollector> real = new ArrayList<>(collectors.size());
+        for (BucketCollector collector : collectors) {
+            if (collector != NO_OP_COLLECTOR) {
+                if (collector.scoreMode().needsScores()) {
+                    return MultiBucketCollector.wrap(true, collectors);
+                }
+                real.add(collector);
+            }
+        }
+        if (executor == null || real.size() < 2) {
+            return MultiBucketCollector.wrap(true, collectors);
+        }
+        return new ConcurrentBucketCollector(executor, real.toArray(new BucketCollector[0]));
+    }
+
+    private final Executor executor;
+    private final BucketCollector[] collectors;
+    /**
+     * Helpers that we've handed to the {@link #executor} but that haven't
+     * started running yet.
+     */
+    private final AtomicInteger queuedHelpers = new AtomicInteger();
+    /**
+     * The {@link Round} that helpers should work on or {@code null} if
+     * there isn't one.
+     */
+    private final AtomicReference<Round> currentRound = new AtomicReference<>();
+    /**
+     * The collector for the current segment. It may still hold docs that the
+     * collectors haven't seen.
+     */
+    private BlockLeafBucketCollector current;
+
+    private ConcurrentBucketCollector(Executor executor, BucketCollector[] collectors) {
+        this.executor = executor;
+        this.collectors = collectors;
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return ScoreMode.COMPLETE_NO_SCORES;
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        for (BucketCollector collector : collectors) {
+            collector.preCollection();
+        }
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        finishCurrent();
+        for (BucketCollector collector : collectors) {
+            collector.postCollection();
+        }
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        finishCurrent();
+        // Some aggregations do all of their work for the segment when they build the leaf collector so build them concurrently too
+        LeafBucketCollector[] leafCollectors = new LeafBucketCollector[collectors.length];
+        forEach(collectors.length, i -> {
+            try {
+                LeafBucketCollector leafCollector = collectors[i].getLeafCollector(ctx);
+                if (false == leafCollector.isNoop()) {
+                    leafCollectors[i] = leafCollector;
+                }
+            } catch (CollectionTerminatedException e) {
+                throw new IllegalStateException(
+                    "getLeafCollector should return a noop collector instead of throw "
+                        + CollectionTerminatedException.class.getSimpleName(),
+                    e
+                );
+            }
+        });
+        LeafBucketCollector[] live = Arrays.stream(leafCollectors).filter(c -> c != null).toArray(LeafBucketCollector[]::new);
+        switch (live.length) {
+            case 0:
+                throw new CollectionTerminatedException();
+            case 1:
+                return live[0];
+            default:
+                current = new BlockLeafBucketCollector(live);
+                return current;
+        }
+    }
+
+    /**
+     * Hand the docs buffered for the last segment to the collectors.
+     */
+    private void finishCurrent() throws IOException {
+        if (current == null) {
+            return;
+        }
+        try {
+            current.flush();
+        } catch (CollectionTerminatedException e) {
+            // All collectors are done with the segment which is fine because we were about to finish it anyway
+        }
+        current = null;
+    }
+
+    private class BlockLeafBucketCollector extends LeafBucketCollector {
+        private final LeafBucketCollector[] collectors;
+        private final int[] docs = new int[BLOCK_SIZE];
+        private int numCollectors;
+        private int count;
+
+        BlockLeafBucketCollector(LeafBucketCollector[] collectors) {
+            this.collectors = collectors;
+            this.numCollectors = collectors.length;
+        }
+
+        @Override
+        public void collect(int doc, long owningBucketOrd) throws IOException {
+            assert owningBucketOrd == 0;
+            docs[count++] = doc;
+            if (count == BLOCK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            boolean[] terminated = new boolean[numCollectors];
+            forEach(numCollectors, i -> {
+                try {
+                    collectors[i].collect(docs, count, 0);
+                } catch (CollectionTerminatedException e) {
+                    terminated[i] = true;
+                }
+            });
+            count = 0;
+            int live = 0;
+            for (int i = 0; i < numCollectors; i++) {
+                if (false == terminated[i]) {
+                    collectors[live++] = collectors[i];
+                }
+            }
+            Arrays.fill(collectors, live, numCollectors, null);
+            numCollectors = live;
+            if (numCollectors == 0) {
+                throw new CollectionTerminatedException();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run(int i) throws IOException;
+    }
+
+    /**
+     * Run {@code task} for every index in {@code [0, count)} and wait for all of
+     * them to finish. The searching thread runs tasks too so it never waits on
+     * tasks that are still queued in a busy executor.
+     * <p>
+     * Helpers aren't tied to a round. Each one works on whatever round is
+     * running when it gets a thread. So we only submit enough of them to top
+     * up the ones that are still queued. That way a busy executor never holds
+     * more than {@code count - 1} of our helpers no matter how many blocks
+     * and segments we collect.
+     */
+    private void forEach(int count, Task task) throws IOException {
+        if (count == 1) {
+            task.run(0);
+            return;
+        }
+        Round round = new Round(count, task);
+        currentRound.set(round);
+        int queued;
+        while ((queued = queuedHelpers.get()) < count - 1) {
+            if (false == queuedHelpers.compareAndSet(queued, queued + 1)) {
+                continue;
+            }
+            try {
+                executor.execute(this::help);
+            } catch (RejectedExecutionException e) {
+                // The executor is busy so the searching thread picks up the slack
+                queuedHelpers.decrementAndGet();
+                break;
+            }
+        }
+        round.work();
+        round.await();
+        currentRound.compareAndSet(round, null);
+        round.rethrow();
+    }
+
+    /**
+     * Runs on the executor to help with the current round if there is one.
+     */
+    private void help() {
+        queuedHelpers.decrementAndGet();
+        Round round = currentRound.get();
+        if (round != null) {
+            round.work();
+        }
+    }
+
+    /**
+     * One call to {@link #forEach}.
+     */
+    private static class Round {
+        private final int count;
+        private final Task task;
+        private final AtomicInteger next = new AtomicInteger();
+        private final CountDownLatch done;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Round(int count, Task task) {
+            this.count = count;
+            this.task = task;
+            this.done = new CountDownLatch(count);
+        }
+
+        /**
+         * Claim and run tasks until there aren't any left.
+         */
+        void work() {
+            int i;
+            while ((i = next.getAndIncrement()) < count) {
+                try {
+                    task.run(i);
+                } catch (Exception | AssertionError e) {
+                    failure.accumulateAndGet(e, (first, other) -> {
+                        if (first == null) {
+                            return other;
+                        }
+                        first.addSuppressed(other);
+                        return first;
+                    });
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        void await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            }
+        }
+
+        void rethrow() throws IOException {
+            Throwable t = failure.get();
+            if (t == null) {
+                return;
+            }
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            throw (Error) t;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "concurrent" + Arrays.toString(collectors);
+    }
+}
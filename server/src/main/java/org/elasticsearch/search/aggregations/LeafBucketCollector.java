@@ -73,6 +73,22 @@ public abstract class LeafBucketCollector implements LeafCollector {
      */
     public abstract void collect(int doc, long owningBucketOrd) throws IOException;
 
+    /**
+     * Collect the first {@code count} docs of {@code docs}, which are in
+     * increasing order, in the bucket owned by {@code owningBucketOrd}.
+     * <p>
+     * The default implementation calls {@link #collect(int, long)} for
+     * every doc. Collectors that can decode the values of many docs at
+     * once and then reduce them in a tight loop, like the
+     * {@link org.elasticsearch.search.aggregations.metrics.SumAggregator sum}
+     * aggregator's, override it.
+     */
+    public void collect(int[] docs, int count, long owningBucketOrd) throws IOException {
+        for (int i = 0; i < count; i++) {
+            collect(docs[i], owningBucketOrd);
+        }
+    }
+
     /**
      * Does this collector collect anything? If this returns true we can safely
      * just never call {@link #collect}.
@@ -14,6 +14,7 @@ public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
     private Aggregator[] aggregators;
+    private BucketCollector collector;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -38,4 +39,18 @@ public class SearchContextAggregations {
     public void aggregators(Aggregator[] aggregators) {
         this.aggregators = aggregators;
     }
+
+    /**
+     * The collector that feeds the {@link #aggregators()} during the search.
+     */
+    public BucketCollector collector() {
+        return collector;
+    }
+
+    /**
+     * Registers the collector that feeds the {@link #aggregators()} during the search.
+     */
+    public void collector(BucketCollector collector) {
+        this.collector = collector;
+    }
 }
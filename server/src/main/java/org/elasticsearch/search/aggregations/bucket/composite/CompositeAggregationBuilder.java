@@ -8,6 +8,7 @@
 
 package org.elasticsearch.search.aggregations.bucket.composite;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
@@ -38,6 +39,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
     public static final ParseField AFTER_FIELD_NAME = new ParseField("after");
     public static final ParseField SIZE_FIELD_NAME = new ParseField("size");
     public static final ParseField SOURCES_FIELD_NAME = new ParseField("sources");
+    public static final ParseField PREFETCH_PAGES_FIELD_NAME = new ParseField("prefetch_pages");
 
     public static final ConstructingObjectParser<CompositeAggregationBuilder, String> PARSER = new ConstructingObjectParser<>(
         NAME,
@@ -52,6 +54,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         PARSER.declareObjectArray(constructorArg(), (p, c) -> CompositeValuesSourceParserHelper.fromXContent(p), SOURCES_FIELD_NAME);
         PARSER.declareInt(CompositeAggregationBuilder::size, SIZE_FIELD_NAME);
         PARSER.declareObject(CompositeAggregationBuilder::aggregateAfter, (p, context) -> p.map(), AFTER_FIELD_NAME);
+        PARSER.declareInt(CompositeAggregationBuilder::prefetchPages, PREFETCH_PAGES_FIELD_NAME);
     }
 
     public static void registerAggregators(ValuesSourceRegistry.Builder builder) {
@@ -65,6 +68,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
     private List<CompositeValuesSourceBuilder<?>> sources;
     private Map<String, Object> after;
     private int size = 10;
+    private int prefetchPages = 0;
 
     public CompositeAggregationBuilder(String name, List<CompositeValuesSourceBuilder<?>> sources) {
         super(name);
@@ -81,6 +85,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         this.sources = new ArrayList<>(clone.sources);
         this.after = clone.after;
         this.size = clone.size;
+        this.prefetchPages = clone.prefetchPages;
     }
 
     @Override
@@ -100,6 +105,9 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         if (in.readBoolean()) {
             this.after = in.readMap();
         }
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            this.prefetchPages = in.readVInt();
+        }
     }
 
     @Override
@@ -113,6 +121,9 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         if (after != null) {
             out.writeMap(after);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVInt(prefetchPages);
+        }
     }
 
     @Override
@@ -151,6 +162,31 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         return size;
     }
 
+    /**
+     * The number of pages after this one to collect while collecting this
+     * page. When the search runs against a point in time the buckets on
+     * those pages are kept with the reader so the requests for them can
+     * skip collection entirely. Defaults to {@code 0} which collects every
+     * page from scratch.
+     */
+    public CompositeAggregationBuilder prefetchPages(int prefetchPages) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException(
+                "[" + PREFETCH_PAGES_FIELD_NAME.getPreferredName() + "] must be greater than or equal to 0. Found [" + prefetchPages
+                    + "] in [" + name + "]"
+            );
+        }
+        this.prefetchPages = prefetchPages;
+        return this;
+    }
+
+    /**
+     * @return the number of pages to collect after this one. Defaults to {@code 0}.
+     */
+    public int prefetchPages() {
+        return prefetchPages;
+    }
+
     @Override
     public BucketCardinality bucketCardinality() {
         /*
@@ -251,13 +287,27 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         } else {
             afterKey = null;
         }
-        return new CompositeAggregationFactory(name, context, parent, subfactoriesBuilder, metadata, size, configs, afterKey);
+        return new CompositeAggregationFactory(
+            name,
+            context,
+            parent,
+            subfactoriesBuilder,
+            metadata,
+            size,
+            prefetchPages,
+            sources,
+            configs,
+            afterKey
+        );
     }
 
     @Override
     protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject();
         builder.field(SIZE_FIELD_NAME.getPreferredName(), size);
+        if (prefetchPages != 0) {
+            builder.field(PREFETCH_PAGES_FIELD_NAME.getPreferredName(), prefetchPages);
+        }
         builder.startArray(SOURCES_FIELD_NAME.getPreferredName());
         for (CompositeValuesSourceBuilder<?> source : sources) {
             CompositeValuesSourceParserHelper.toXContent(source, builder, params);
@@ -272,7 +322,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), sources, size, after);
+        return Objects.hash(super.hashCode(), sources, size, prefetchPages, after);
     }
 
     @Override
@@ -281,6 +331,9 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         if (obj == null || getClass() != obj.getClass()) return false;
         if (super.equals(obj) == false) return false;
         CompositeAggregationBuilder other = (CompositeAggregationBuilder) obj;
-        return size == other.size && Objects.equals(sources, other.sources) && Objects.equals(after, other.after);
+        return size == other.size
+            && prefetchPages == other.prefetchPages
+            && Objects.equals(sources, other.sources)
+            && Objects.equals(after, other.after);
     }
 }
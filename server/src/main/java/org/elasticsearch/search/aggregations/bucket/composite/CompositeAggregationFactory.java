@@ -15,10 +15,13 @@ import org.elasticsearch.search.aggregations.CardinalityUpperBound;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 class CompositeAggregationFactory extends AggregatorFactory {
     private final int size;
+    private final int prefetchPages;
+    private final List<CompositeValuesSourceBuilder<?>> sourceBuilders;
     private final CompositeValuesSourceConfig[] sources;
     private final CompositeKey afterKey;
 
@@ -29,11 +32,15 @@ class CompositeAggregationFactory extends AggregatorFactory {
         AggregatorFactories.Builder subFactoriesBuilder,
         Map<String, Object> metadata,
         int size,
+        int prefetchPages,
+        List<CompositeValuesSourceBuilder<?>> sourceBuilders,
         CompositeValuesSourceConfig[] sources,
         CompositeKey afterKey
     ) throws IOException {
         super(name, context, parent, subFactoriesBuilder, metadata);
         this.size = size;
+        this.prefetchPages = prefetchPages;
+        this.sourceBuilders = sourceBuilders;
         this.sources = sources;
         this.afterKey = afterKey;
     }
@@ -41,6 +48,17 @@ class CompositeAggregationFactory extends AggregatorFactory {
     @Override
     protected Aggregator createInternal(Aggregator parent, CardinalityUpperBound cardinality, Map<String, Object> metadata)
         throws IOException {
-        return new CompositeAggregator(name, factories, context, parent, metadata, size, sources, afterKey);
+        return new CompositeAggregator(
+            name,
+            factories,
+            context,
+            parent,
+            metadata,
+            size,
+            prefetchPages,
+            sourceBuilders,
+            sources,
+            afterKey
+        );
     }
 }
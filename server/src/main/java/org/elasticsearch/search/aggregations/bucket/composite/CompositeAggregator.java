@@ -33,6 +33,9 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.RoaringDocIdSet;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Rounding;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.index.IndexSortConfig;
 import org.elasticsearch.lucene.queries.SearchAfterSortedDocQuery;
@@ -59,6 +62,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.function.LongUnaryOperator;
 import java.util.stream.Collectors;
 
@@ -71,6 +76,22 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
     private final MissingOrder[] missingOrders;
     private final List<DocValueFormat> formats;
     private final CompositeKey rawAfterKey;
+    private final List<CompositeValuesSourceBuilder<?>> sourceBuilders;
+    /**
+     * Where to keep the buckets collected beyond this page for the next
+     * requests or {@code null} if we can't keep them.
+     */
+    private final Map<String, Object> cursorState;
+    /**
+     * The breaker that the buckets we keep in {@link #cursorState} are
+     * accounted to.
+     */
+    private final CircuitBreaker cursorBreaker;
+    /**
+     * Did the search stop before it collected every matching doc? The
+     * buckets we'd keep would be incomplete then.
+     */
+    private final BooleanSupplier searchStoppedEarly;
 
     private final CompositeValuesSourceConfig[] sourceConfigs;
     private final SingleDimensionValuesSource<?>[] sources;
@@ -84,6 +105,14 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
 
     private boolean earlyTerminated;
 
+    private boolean cursorChecked;
+    private CompositeCursor cursor;
+    /**
+     * The page of buckets that we take from the {@link #cursor} instead of
+     * collecting them or {@code null} if we collect them.
+     */
+    private List<InternalComposite.InternalBucket> pageFromCursor;
+
     CompositeAggregator(
         String name,
         AggregatorFactories factories,
@@ -91,11 +120,14 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
         Aggregator parent,
         Map<String, Object> metadata,
         int size,
+        int prefetchPages,
+        List<CompositeValuesSourceBuilder<?>> sourceBuilders,
         CompositeValuesSourceConfig[] sourceConfigs,
         CompositeKey rawAfterKey
     ) throws IOException {
         super(name, factories, context, parent, CardinalityUpperBound.MANY, metadata);
         this.size = size;
+        this.sourceBuilders = sourceBuilders;
         this.sourceNames = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::name).collect(Collectors.toList());
         this.reverseMuls = Arrays.stream(sourceConfigs).mapToInt(CompositeValuesSourceConfig::reverseMul).toArray();
         this.missingOrders = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::missingOrder).toArray(MissingOrder[]::new);
@@ -117,12 +149,17 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
             );
         }
         this.sourceConfigs = sourceConfigs;
+        this.cursorState = canKeepCursor(context, parent, factories, prefetchPages, sourceConfigs) ? context.readerState() : null;
+        this.cursorBreaker = cursorState == null ? null : context.readerStateBreaker();
+        this.searchStoppedEarly = context::searchStoppedEarly;
+        // collect the pages we prefetch in the same queue, they are exactly the next smallest keys
+        final int queueSize = cursorState == null ? size : (int) Math.min(size * (prefetchPages + 1L), bucketLimit);
         List<DateHistogramValuesSource> dateHistogramValuesSources = new ArrayList<>();
         for (int i = 0; i < sourceConfigs.length; i++) {
             this.sources[i] = sourceConfigs[i].createValuesSource(
                 context.bigArrays(),
                 context.searcher().getIndexReader(),
-                size,
+                queueSize,
                 this::addRequestCircuitBreakerBytes
             );
             if (this.sources[i] instanceof DateHistogramValuesSource) {
@@ -130,7 +167,7 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
             }
         }
         this.innerSizedBucketAggregators = dateHistogramValuesSources.toArray(new DateHistogramValuesSource[0]);
-        this.queue = new CompositeValuesCollectorQueue(context.bigArrays(), sources, size);
+        this.queue = new CompositeValuesCollectorQueue(context.bigArrays(), sources, queueSize);
         if (rawAfterKey != null) {
             try {
                 this.queue.setAfterKey(rawAfterKey);
@@ -144,6 +181,103 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
         this.rawAfterKey = rawAfterKey;
     }
 
+    /**
+     * Can we keep the buckets after this page in the state of the reader?
+     * We only do it for top level aggregations without sub-aggregations
+     * because we only keep the keys and the counts. And we only do it for
+     * fields with doc values because the values of scripts might change from
+     * one request to the next.
+     */
+    private static boolean canKeepCursor(
+        AggregationContext context,
+        Aggregator parent,
+        AggregatorFactories factories,
+        int prefetchPages,
+        CompositeValuesSourceConfig[] sourceConfigs
+    ) {
+        if (prefetchPages == 0 || context.readerState() == null || parent != null || factories.countAggregators() > 0) {
+            return false;
+        }
+        for (CompositeValuesSourceConfig config : sourceConfigs) {
+            if (config.fieldType() == null || config.fieldType().hasDocValues() == false || config.hasScript()) {
+                return false;
+            }
+        }
+        for (LeafReaderContext leaf : context.searcher().getIndexReader().leaves()) {
+            // readers that hide documents, like document level security, don't have a cache key
+            if (leaf.reader().getReaderCacheHelper() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String cursorKey() {
+        return "composite_cursor[" + name + "]";
+    }
+
+    /**
+     * Everything that the buckets depend on. Requests can only share buckets
+     * if their signatures are equal.
+     */
+    private List<Object> cursorSignature() {
+        List<Object> signature = new ArrayList<>();
+        signature.add(topLevelQuery());
+        signature.add(sourceBuilders);
+        for (CompositeValuesSourceConfig config : sourceConfigs) {
+            // field types don't implement equals so field types built for a single request, like runtime_mappings, never match
+            signature.add(config.fieldType());
+        }
+        for (LeafReaderContext leaf : searcher().getIndexReader().leaves()) {
+            signature.add(leaf.reader().getReaderCacheHelper().getKey());
+            for (CompositeValuesSourceConfig config : sourceConfigs) {
+                // field level security hides fields without changing the cache key
+                signature.add(leaf.reader().getFieldInfos().fieldInfo(config.fieldType().name()) != null);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * The after key parsed into the same representation as the keys of the buckets.
+     */
+    private InternalComposite.InternalBucket afterBucket() {
+        if (rawAfterKey == null) {
+            return null;
+        }
+        Comparable<?>[] values = new Comparable<?>[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            values[i] = sources[i].getAfter();
+        }
+        return new InternalComposite.InternalBucket(
+            sourceNames,
+            formats,
+            new CompositeKey(values),
+            reverseMuls,
+            missingOrders,
+            0,
+            InternalAggregations.EMPTY
+        );
+    }
+
+    /**
+     * Take this page from the cursor that a previous request left behind if it holds the whole page.
+     */
+    private void checkCursor() {
+        if (cursorChecked) {
+            return;
+        }
+        cursorChecked = true;
+        if (cursorState == null) {
+            return;
+        }
+        Object state = cursorState.get(cursorKey());
+        if (state instanceof CompositeCursor && ((CompositeCursor) state).matches(cursorSignature())) {
+            cursor = (CompositeCursor) state;
+            pageFromCursor = cursor.page(afterBucket(), size);
+        }
+    }
+
     @Override
     protected void doClose() {
         try {
@@ -168,13 +302,19 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         // Composite aggregator must be at the top of the aggregation tree
         assert owningBucketOrds.length == 1 && owningBucketOrds[0] == 0L;
+        checkCursor();
+        if (pageFromCursor != null) {
+            keepCursor(cursor.advance(afterBucket()));
+            return new InternalAggregation[] { buildResult(pageFromCursor, cursor.earlyTerminated()) };
+        }
         if (deferredCollectors != NO_OP_COLLECTOR) {
             // Replay all documents that contain at least one top bucket (collected during the first pass).
             runDeferredCollections();
         }
 
-        int num = Math.min(size, queue.size());
-        final InternalComposite.InternalBucket[] buckets = new InternalComposite.InternalBucket[num];
+        // if the queue isn't full we've seen every bucket after the after key
+        final boolean complete = queue.isFull() == false;
+        final InternalComposite.InternalBucket[] buckets = new InternalComposite.InternalBucket[queue.size()];
         long[] bucketOrdsToCollect = new long[queue.size()];
         for (int i = 0; i < queue.size(); i++) {
             bucketOrdsToCollect[i] = i;
@@ -195,20 +335,70 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
                 aggs
             );
         }
-        CompositeKey lastBucket = num > 0 ? buckets[num - 1].getRawKey() : null;
-        return new InternalAggregation[] {
-            new InternalComposite(
-                name,
-                size,
-                sourceNames,
-                formats,
-                Arrays.asList(buckets),
-                lastBucket,
-                reverseMuls,
-                missingOrders,
-                earlyTerminated,
-                metadata()
-            ) };
+        List<InternalComposite.InternalBucket> allBuckets = Arrays.asList(buckets);
+        if (cursorState != null) {
+            keepCursor(newCursor(allBuckets, complete));
+        }
+        return new InternalAggregation[] { buildResult(allBuckets.subList(0, Math.min(size, buckets.length)), earlyTerminated) };
+    }
+
+    /**
+     * Build a cursor over the buckets we collected, accounting them to the
+     * circuit breaker for as long as the reader keeps them. Returns
+     * {@code null} if they don't fit in the breaker. The cursor only saves
+     * work for the next request so we don't fail this one over it.
+     */
+    private CompositeCursor newCursor(List<InternalComposite.InternalBucket> buckets, boolean complete) {
+        final long bytes = CompositeCursor.ramBytesUsed(buckets);
+        try {
+            cursorBreaker.addEstimateBytesAndMaybeBreak(bytes, "<composite_cursor>");
+        } catch (CircuitBreakingException e) {
+            return null;
+        }
+        return new CompositeCursor(
+            cursorSignature(),
+            afterBucket(),
+            buckets,
+            complete,
+            earlyTerminated,
+            () -> cursorBreaker.addWithoutBreaking(-bytes)
+        );
+    }
+
+    /**
+     * Keep {@code cursor} for the next request, releasing the one that it
+     * replaces. Does nothing if {@code cursor} is {@code null} and releases
+     * it without keeping it if the search timed out or terminated early
+     * because then it might be missing buckets.
+     */
+    private void keepCursor(@Nullable CompositeCursor cursor) {
+        if (cursor == null) {
+            return;
+        }
+        if (searchStoppedEarly.getAsBoolean()) {
+            cursor.close();
+            return;
+        }
+        Object previous = cursorState.put(cursorKey(), cursor);
+        if (previous instanceof CompositeCursor) {
+            ((CompositeCursor) previous).close();
+        }
+    }
+
+    private InternalComposite buildResult(List<InternalComposite.InternalBucket> buckets, boolean earlyTerminated) {
+        CompositeKey lastBucket = buckets.isEmpty() ? null : buckets.get(buckets.size() - 1).getRawKey();
+        return new InternalComposite(
+            name,
+            size,
+            sourceNames,
+            formats,
+            buckets,
+            lastBucket,
+            reverseMuls,
+            missingOrders,
+            earlyTerminated,
+            metadata()
+        );
     }
 
     @Override
@@ -227,6 +417,12 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
         );
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("cursor", cursorState == null ? "disabled" : pageFromCursor == null ? "collected" : "reused");
+    }
+
     private void finishLeaf() {
         if (currentLeaf != null) {
             DocIdSet docIdSet = docIdSetBuilder.build();
@@ -438,6 +634,11 @@ public final class CompositeAggregator extends BucketsAggregator implements Size
     protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
         finishLeaf();
 
+        checkCursor();
+        if (pageFromCursor != null) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+
         boolean fillDocIdSet = deferredCollectors != NO_OP_COLLECTOR;
 
         Sort indexSortPrefix = buildIndexSortPrefix(ctx);
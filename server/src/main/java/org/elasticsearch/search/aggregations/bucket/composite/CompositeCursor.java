@@ -0,0 +1,194 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.RefCounted;
+import org.elasticsearch.core.Releasable;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Buckets of a {@code composite} aggregation that a shard collected beyond
+ * the page that it returned. These are kept in the state of a point in time
+ * reader so the requests for the following pages can skip collection. The
+ * queue only ever holds the smallest keys after the {@code after} key it was
+ * collected with and their counts are exact so any run of the buckets is
+ * exactly what collecting again would return.
+ * <p>
+ * The buckets are accounted to the request circuit breaker for as long as a
+ * cursor holds on to them. Closing a cursor releases its hold, which happens
+ * when another cursor replaces it and when the reader context is closed.
+ */
+final class CompositeCursor implements Releasable {
+    private static final long BUCKET_BYTES = RamUsageEstimator.shallowSizeOfInstance(InternalComposite.InternalBucket.class)
+        + RamUsageEstimator.shallowSizeOfInstance(CompositeKey.class) + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+    /**
+     * Everything that went into collecting the buckets: the query, the sources,
+     * the field types and the segments. Requests that don't match this exactly
+     * have to collect on their own.
+     */
+    private final List<Object> signature;
+    /**
+     * The bucket that all {@link #buckets} are after or {@code null} if they
+     * start at the first bucket.
+     */
+    @Nullable
+    private final InternalComposite.InternalBucket after;
+    /**
+     * Buckets in the order that the aggregation returns them.
+     */
+    private final List<InternalComposite.InternalBucket> buckets;
+    /**
+     * Are {@link #buckets} all of the buckets after {@link #after}?
+     */
+    private final boolean complete;
+    private final boolean earlyTerminated;
+    /**
+     * Gives the bytes of the buckets back to the circuit breaker once no
+     * cursor holds on to them anymore. {@link #advance} shares the buckets
+     * with the cursors it creates so it shares this too.
+     */
+    private final RefCounted reservation;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Build a cursor over buckets that are already accounted to the circuit
+     * breaker. {@code release} gives them back once no cursor holds on to
+     * them anymore.
+     */
+    CompositeCursor(
+        List<Object> signature,
+        @Nullable InternalComposite.InternalBucket after,
+        List<InternalComposite.InternalBucket> buckets,
+        boolean complete,
+        boolean earlyTerminated,
+        Runnable release
+    ) {
+        this(signature, after, buckets, complete, earlyTerminated, AbstractRefCounted.of(release));
+    }
+
+    private CompositeCursor(
+        List<Object> signature,
+        @Nullable InternalComposite.InternalBucket after,
+        List<InternalComposite.InternalBucket> buckets,
+        boolean complete,
+        boolean earlyTerminated,
+        RefCounted reservation
+    ) {
+        this.signature = signature;
+        this.after = after;
+        this.buckets = buckets;
+        this.complete = complete;
+        this.earlyTerminated = earlyTerminated;
+        this.reservation = reservation;
+    }
+
+    /**
+     * Estimate the bytes that a cursor over {@code buckets} holds on to.
+     */
+    static long ramBytesUsed(List<InternalComposite.InternalBucket> buckets) {
+        long bytes = RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+        for (InternalComposite.InternalBucket bucket : buckets) {
+            Comparable<?>[] values = bucket.getRawKey().values();
+            bytes += BUCKET_BYTES + RamUsageEstimator.shallowSizeOf(values);
+            for (Comparable<?> value : values) {
+                if (value instanceof BytesRef) {
+                    BytesRef ref = (BytesRef) value;
+                    bytes += RamUsageEstimator.shallowSizeOf(ref) + RamUsageEstimator.sizeOf(ref.bytes);
+                } else if (value != null) {
+                    bytes += RamUsageEstimator.sizeOfObject(value);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Was this cursor collected for the request with {@code signature}?
+     */
+    boolean matches(List<Object> signature) {
+        return this.signature.equals(signature);
+    }
+
+    /**
+     * Index of the first bucket after {@code after} or {@code -1} if this
+     * cursor doesn't start early enough to contain it.
+     */
+    private int indexAfter(@Nullable InternalComposite.InternalBucket after) {
+        if (after == null) {
+            return this.after == null ? 0 : -1;
+        }
+        if (this.after != null && this.after.compareKey(after) > 0) {
+            return -1;
+        }
+        int i = 0;
+        while (i < buckets.size() && buckets.get(i).compareKey(after) <= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * The {@code size} buckets after {@code after} or {@code null} if this
+     * cursor doesn't hold all of them.
+     */
+    @Nullable
+    List<InternalComposite.InternalBucket> page(@Nullable InternalComposite.InternalBucket after, int size) {
+        int start = indexAfter(after);
+        if (start < 0) {
+            return null;
+        }
+        int end = start + size;
+        if (end > buckets.size()) {
+            if (complete == false) {
+                return null;
+            }
+            end = buckets.size();
+        }
+        return buckets.subList(start, end);
+    }
+
+    /**
+     * A cursor that drops the buckets up to {@code after}. The buckets after
+     * it stay because the next request starts after the last bucket of the
+     * reduced page which can sort before the last bucket this shard returned.
+     * Returns {@code null} if a concurrent request already released the
+     * buckets.
+     */
+    @Nullable
+    CompositeCursor advance(@Nullable InternalComposite.InternalBucket after) {
+        int start = indexAfter(after);
+        assert start >= 0;
+        if (reservation.tryIncRef() == false) {
+            return null;
+        }
+        return new CompositeCursor(signature, after, buckets.subList(start, buckets.size()), complete, earlyTerminated, reservation);
+    }
+
+    boolean earlyTerminated() {
+        return earlyTerminated;
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            reservation.decRef();
+        }
+    }
+}
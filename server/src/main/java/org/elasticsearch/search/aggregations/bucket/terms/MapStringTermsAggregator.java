@@ -7,7 +7,10 @@
  */
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
@@ -40,6 +43,7 @@ import java.util.function.Function;
 import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 
+import static org.apache.lucene.index.SortedSetDocValues.NO_MORE_ORDS;
 import static org.elasticsearch.search.aggregations.InternalOrder.isKeyOrder;
 
 /**
@@ -49,8 +53,8 @@ import static org.elasticsearch.search.aggregations.InternalOrder.isKeyOrder;
 public class MapStringTermsAggregator extends AbstractStringTermsAggregator {
     private final CollectorSource collectorSource;
     private final ResultStrategy<?, ?> resultStrategy;
-    private final BytesKeyedBucketOrds bucketOrds;
-    private final IncludeExclude.StringFilter includeExclude;
+    protected final BytesKeyedBucketOrds bucketOrds;
+    protected final IncludeExclude.StringFilter includeExclude;
 
     public MapStringTermsAggregator(
         String name,
@@ -128,6 +132,169 @@ public class MapStringTermsAggregator extends AbstractStringTermsAggregator {
         Releasables.close(collectorSource, resultStrategy, bucketOrds);
     }
 
+    /**
+     * Collects a field with ordinals by counting the docs of each segment
+     * ordinal and only adding the terms of the segment to the {@link #bucketOrds}
+     * once we're done with the segment. That way we hash each distinct term
+     * once per segment rather than once per doc, and only the terms that
+     * matching docs have. Unlike the
+     * {@link GlobalOrdinalsStringTermsAggregator} this never builds global
+     * ordinals which take time proportional to the number of distinct terms
+     * on the shard to build and have to be built again after every refresh.
+     */
+    static class SegmentOrdinals extends MapStringTermsAggregator {
+        private final ValuesSource.Bytes.WithOrdinals valuesSource;
+        private LongArray segmentDocCounts;
+        /**
+         * The ordinals of the current segment with a non-zero count in
+         * {@link #segmentDocCounts} so merging the segment doesn't have to
+         * scan all of its ordinals.
+         */
+        private LongArray collectedOrds;
+        private long collectedOrdsSize = 0;
+        private SortedSetDocValues segmentOrds;
+        private int segmentsWithSingleValuedOrds = 0;
+        private int segmentsWithMultiValuedOrds = 0;
+        private int segmentsWithoutValues = 0;
+        private long segmentTermsMerged = 0;
+
+        SegmentOrdinals(
+            String name,
+            AggregatorFactories factories,
+            ValuesSourceConfig valuesSourceConfig,
+            BucketOrder order,
+            BucketCountThresholds bucketCountThresholds,
+            IncludeExclude.StringFilter includeExclude,
+            AggregationContext context,
+            Aggregator parent,
+            SubAggCollectionMode collectionMode,
+            boolean showTermDocCountError,
+            Map<String, Object> metadata
+        ) throws IOException {
+            super(
+                name,
+                factories,
+                new ValuesSourceCollectorSource(valuesSourceConfig) {
+                    @Override
+                    public String describe() {
+                        return "segment ordinals merged by term";
+                    }
+                },
+                a -> a.new StandardTermsResults(valuesSourceConfig.getValuesSource()),
+                order,
+                valuesSourceConfig.format(),
+                bucketCountThresholds,
+                includeExclude,
+                context,
+                parent,
+                collectionMode,
+                showTermDocCountError,
+                CardinalityUpperBound.ONE,
+                metadata
+            );
+            assert factories == null || factories.countAggregators() == 0;
+            this.valuesSource = (ValuesSource.Bytes.WithOrdinals) valuesSourceConfig.getValuesSource();
+            this.segmentDocCounts = context.bigArrays().newLongArray(1, true);
+            this.collectedOrds = context.bigArrays().newLongArray(1, false);
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+            mergeSegmentCounts();
+            final SortedSetDocValues segmentOrds = valuesSource.ordinalsValues(ctx);
+            if (segmentOrds.getValueCount() == 0) {
+                segmentsWithoutValues++;
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+            this.segmentOrds = segmentOrds;
+            segmentDocCounts = bigArrays().grow(segmentDocCounts, segmentOrds.getValueCount());
+            assert sub.isNoop();
+            final SortedDocValues singleValues = DocValues.unwrapSingleton(segmentOrds);
+            if (singleValues != null) {
+                segmentsWithSingleValuedOrds++;
+                return new LeafBucketCollectorBase(sub, segmentOrds) {
+                    @Override
+                    public void collect(int doc, long owningBucketOrd) throws IOException {
+                        assert owningBucketOrd == 0;
+                        if (false == singleValues.advanceExact(doc)) {
+                            return;
+                        }
+                        collectOrd(singleValues.ordValue(), docCountProvider.getDocCount(doc));
+                    }
+                };
+            }
+            segmentsWithMultiValuedOrds++;
+            return new LeafBucketCollectorBase(sub, segmentOrds) {
+                @Override
+                public void collect(int doc, long owningBucketOrd) throws IOException {
+                    assert owningBucketOrd == 0;
+                    if (false == segmentOrds.advanceExact(doc)) {
+                        return;
+                    }
+                    int docCount = docCountProvider.getDocCount(doc);
+                    for (long ord = segmentOrds.nextOrd(); ord != NO_MORE_ORDS; ord = segmentOrds.nextOrd()) {
+                        collectOrd(ord, docCount);
+                    }
+                }
+            };
+        }
+
+        private void collectOrd(long ord, int docCount) {
+            if (segmentDocCounts.increment(ord, docCount) == docCount && docCount > 0) {
+                // first doc with this ordinal in the segment
+                collectedOrds = bigArrays().grow(collectedOrds, collectedOrdsSize + 1);
+                collectedOrds.set(collectedOrdsSize++, ord);
+            }
+        }
+
+        @Override
+        protected void doPostCollection() throws IOException {
+            mergeSegmentCounts();
+        }
+
+        /**
+         * Add the terms collected from the last segment to the buckets. This
+         * is the only place we look up terms and hash them.
+         */
+        private void mergeSegmentCounts() throws IOException {
+            if (segmentOrds == null) {
+                return;
+            }
+            for (long i = 0; i < collectedOrdsSize; i++) {
+                final long ord = collectedOrds.get(i);
+                // Reset the slot because segmentDocCounts is reused by the next segment
+                long docCount = segmentDocCounts.set(ord, 0);
+                BytesRef term = segmentOrds.lookupOrd(ord);
+                if (includeExclude != null && false == includeExclude.accept(term)) {
+                    continue;
+                }
+                long bucketOrd = bucketOrds.add(0, term);
+                if (bucketOrd < 0) { // already seen
+                    bucketOrd = -1 - bucketOrd;
+                }
+                incrementBucketDocCount(bucketOrd, docCount);
+                segmentTermsMerged++;
+            }
+            collectedOrdsSize = 0;
+            segmentOrds = null;
+        }
+
+        @Override
+        public void collectDebugInfo(BiConsumer<String, Object> add) {
+            super.collectDebugInfo(add);
+            add.accept("segments_with_single_valued_ords", segmentsWithSingleValuedOrds);
+            add.accept("segments_with_multi_valued_ords", segmentsWithMultiValuedOrds);
+            add.accept("segments_without_values", segmentsWithoutValues);
+            add.accept("segment_terms_merged", segmentTermsMerged);
+        }
+
+        @Override
+        public void doClose() {
+            super.doClose();
+            Releasables.close(segmentDocCounts, collectedOrds);
+        }
+    }
+
     /**
      * Abstraction on top of building collectors to fetch values so {@code terms},
      * {@code significant_terms}, and {@code significant_text} can share a bunch of
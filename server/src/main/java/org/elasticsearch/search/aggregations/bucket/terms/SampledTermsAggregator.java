@@ -0,0 +1,199 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.core.CheckedFunction;
+import org.elasticsearch.search.aggregations.AdaptingAggregator;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects a {@code terms} or {@code significant_terms} aggregation from a
+ * random sample of the documents that match the query and then scales the
+ * counts up to estimate what collecting every document would have counted.
+ * <p>
+ * Each matching document is sampled with probability {@link #rate}. Rather
+ * than draw a random number for every document we draw the number of
+ * documents to skip before the next sample from the geometric distribution so
+ * the documents that we skip cost a decrement instead of a doc values lookup
+ * and a hash. Sub-aggregations only see the sampled documents and their
+ * results aren't scaled.
+ */
+class SampledTermsAggregator extends AdaptingAggregator {
+    /**
+     * The error we report for each estimated count in standard deviations
+     * of the estimate. The real count is within three standard deviations of
+     * the estimate more than 99% of the time.
+     */
+    static final double ERROR_STANDARD_DEVIATIONS = 3;
+
+    /**
+     * The rate to sample at so we collect about {@code sampleSize} of the
+     * {@code matchingDocs} documents that match the query.
+     */
+    static double rate(int sampleSize, long matchingDocs) {
+        if (matchingDocs <= sampleSize) {
+            return 1;
+        }
+        return (double) sampleSize / matchingDocs;
+    }
+
+    /**
+     * Estimate how many documents match the top level query without
+     * visiting them. Counting them would cost about as much as collecting
+     * them, which is what sampling is trying to save. The cost of a
+     * segment's scorer is an upper bound of its matches for most queries so
+     * we tend to sample a few fewer documents than asked for.
+     */
+    static long estimateMatchingDocs(AggregationContext context) throws IOException {
+        IndexSearcher searcher = context.searcher();
+        Weight weight = searcher.createWeight(searcher.rewrite(context.query()), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        long matchingDocs = 0;
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            ScorerSupplier scorerSupplier = weight.scorerSupplier(leaf);
+            if (scorerSupplier != null) {
+                matchingDocs += Math.min(scorerSupplier.cost(), leaf.reader().maxDoc());
+            }
+        }
+        return matchingDocs;
+    }
+
+    private final double rate;
+    private final double logSkipRate;
+    private final SplittableRandom random;
+
+    SampledTermsAggregator(
+        Aggregator parent,
+        AggregatorFactories subAggregators,
+        double rate,
+        long seed,
+        CheckedFunction<AggregatorFactories, ? extends Aggregator, IOException> delegate
+    ) throws IOException {
+        super(parent, subAggregators, delegate);
+        /*
+         * Filter by filter counts every term without collecting any
+         * documents so it is exact and there is nothing to sample.
+         */
+        this.rate = delegate() instanceof StringTermsAggregatorFromFilters ? 1 : rate;
+        this.logSkipRate = Math.log1p(-this.rate);
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        LeafBucketCollector in = super.getLeafCollector(ctx);
+        if (rate >= 1 || in.isNoop()) {
+            return in;
+        }
+        return new LeafBucketCollectorBase(in, null) {
+            private long skip = nextSkip();
+
+            @Override
+            public void collect(int doc, long owningBucketOrd) throws IOException {
+                if (skip > 0) {
+                    skip--;
+                    return;
+                }
+                skip = nextSkip();
+                super.collect(doc, owningBucketOrd);
+            }
+        };
+    }
+
+    /**
+     * The number of documents to skip before the next sample.
+     */
+    private long nextSkip() {
+        // 1 - nextDouble() is in (0, 1] so we never take the log of 0
+        return (long) Math.floor(Math.log(1 - random.nextDouble()) / logSkipRate);
+    }
+
+    /**
+     * Estimate the count of all documents from the count of sampled documents.
+     */
+    long scale(long sampled) {
+        return Math.round(sampled / rate);
+    }
+
+    /**
+     * The error of the count estimated by {@link #scale}. Each document is
+     * sampled independently so the sampled count is binomial and its
+     * variance is {@code sampled * (1 - rate)}.
+     */
+    long error(long sampled) {
+        return (long) Math.ceil(ERROR_STANDARD_DEVIATIONS * Math.sqrt(sampled * (1 - rate)) / rate);
+    }
+
+    @Override
+    protected InternalAggregation adapt(InternalAggregation delegateResult) {
+        if (rate >= 1) {
+            return delegateResult;
+        }
+        if (delegateResult instanceof InternalMappedTerms) {
+            return scaleTerms((InternalMappedTerms<?, ?>) delegateResult);
+        }
+        if (delegateResult instanceof InternalMappedSignificantTerms) {
+            return scaleSignificantTerms((InternalMappedSignificantTerms<?, ?>) delegateResult);
+        }
+        return delegateResult;
+    }
+
+    private <A extends InternalTerms<A, B>, B extends InternalTerms.Bucket<B>> InternalAggregation scaleTerms(
+        InternalMappedTerms<A, B> terms
+    ) {
+        List<B> buckets = new ArrayList<>(terms.getBuckets().size());
+        for (B bucket : terms.getBuckets()) {
+            long sampled = bucket.getDocCount();
+            buckets.add(terms.createBucket(scale(sampled), bucket.aggregations, error(sampled), bucket));
+        }
+        InternalMappedTerms<?, ?> scaled = (InternalMappedTerms<?, ?>) terms.create(
+            terms.getName(),
+            buckets,
+            terms.reduceOrder,
+            0,
+            scale(terms.otherDocCount)
+        );
+        // The shard doesn't know its error yet, the first reduce calculates it
+        scaled.docCountError = terms.docCountError;
+        return scaled;
+    }
+
+    private <A extends InternalMappedSignificantTerms<A, B>, B extends InternalSignificantTerms.Bucket<B>> InternalAggregation
+        scaleSignificantTerms(InternalMappedSignificantTerms<A, B> terms) {
+        long subsetSize = scale(terms.subsetSize);
+        List<B> buckets = new ArrayList<>(terms.getBuckets().size());
+        for (B bucket : terms.getBuckets()) {
+            buckets.add(
+                terms.createBucket(scale(bucket.subsetDf), subsetSize, bucket.supersetDf, terms.supersetSize, bucket.aggregations, bucket)
+            );
+        }
+        return terms.create(subsetSize, terms.supersetSize, buckets);
+    }
+
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("sample_rate", rate);
+    }
+}
@@ -70,6 +70,8 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
 
         PARSER.declareString(SignificantTermsAggregationBuilder::executionHint, TermsAggregationBuilder.EXECUTION_HINT_FIELD_NAME);
 
+        PARSER.declareInt(SignificantTermsAggregationBuilder::sampleSize, TermsAggregationBuilder.SAMPLE_SIZE_FIELD_NAME);
+
         PARSER.declareObject(
             SignificantTermsAggregationBuilder::backgroundFilter,
             (p, context) -> parseInnerQueryBuilder(p),
@@ -104,6 +106,7 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
     private QueryBuilder filterBuilder = null;
     private TermsAggregator.BucketCountThresholds bucketCountThresholds = new BucketCountThresholds(DEFAULT_BUCKET_COUNT_THRESHOLDS);
     private SignificanceHeuristic significanceHeuristic = DEFAULT_SIGNIFICANCE_HEURISTIC;
+    private int sampleSize = 0;
 
     public SignificantTermsAggregationBuilder(String name) {
         super(name);
@@ -119,6 +122,9 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
         filterBuilder = in.readOptionalNamedWriteable(QueryBuilder.class);
         includeExclude = in.readOptionalWriteable(IncludeExclude::new);
         significanceHeuristic = in.readNamedWriteable(SignificanceHeuristic.class);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            sampleSize = in.readVInt();
+        }
     }
 
     protected SignificantTermsAggregationBuilder(
@@ -132,6 +138,7 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
         this.filterBuilder = clone.filterBuilder;
         this.includeExclude = clone.includeExclude;
         this.significanceHeuristic = clone.significanceHeuristic;
+        this.sampleSize = clone.sampleSize;
     }
 
     @Override
@@ -163,6 +170,9 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
         out.writeOptionalNamedWriteable(filterBuilder);
         out.writeOptionalWriteable(includeExclude);
         out.writeNamedWriteable(significanceHeuristic);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVInt(sampleSize);
+        }
     }
 
     @Override
@@ -294,6 +304,35 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
         return significanceHeuristic;
     }
 
+    /**
+     * Collect about {@code sampleSize} randomly sampled documents on each
+     * shard instead of all matching documents and estimate the foreground
+     * counts from them. {@code 0}, the default, collects every document.
+     */
+    public SignificantTermsAggregationBuilder sampleSize(int sampleSize) {
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException(
+                "["
+                    + TermsAggregationBuilder.SAMPLE_SIZE_FIELD_NAME.getPreferredName()
+                    + "] must be greater than or equal to 0. Found ["
+                    + sampleSize
+                    + "] in ["
+                    + name
+                    + "]"
+            );
+        }
+        this.sampleSize = sampleSize;
+        return this;
+    }
+
+    /**
+     * The number of documents to sample on each shard or {@code 0} if we
+     * collect every document.
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
     @Override
     public BucketCardinality bucketCardinality() {
         return BucketCardinality.MANY;
@@ -317,6 +356,7 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
             filterBuilder,
             bucketCountThresholds,
             executionHeuristic,
+            sampleSize,
             context,
             parent,
             subFactoriesBuilder,
@@ -338,12 +378,23 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
             includeExclude.toXContent(builder, params);
         }
         significanceHeuristic.toXContent(builder, params);
+        if (sampleSize != 0) {
+            builder.field(TermsAggregationBuilder.SAMPLE_SIZE_FIELD_NAME.getPreferredName(), sampleSize);
+        }
         return builder;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), bucketCountThresholds, executionHint, filterBuilder, includeExclude, significanceHeuristic);
+        return Objects.hash(
+            super.hashCode(),
+            bucketCountThresholds,
+            executionHint,
+            filterBuilder,
+            includeExclude,
+            significanceHeuristic,
+            sampleSize
+        );
     }
 
     @Override
@@ -356,7 +407,8 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
             && Objects.equals(executionHint, other.executionHint)
             && Objects.equals(filterBuilder, other.filterBuilder)
             && Objects.equals(includeExclude, other.includeExclude)
-            && Objects.equals(significanceHeuristic, other.significanceHeuristic);
+            && Objects.equals(significanceHeuristic, other.significanceHeuristic)
+            && sampleSize == other.sampleSize;
     }
 
     @Override
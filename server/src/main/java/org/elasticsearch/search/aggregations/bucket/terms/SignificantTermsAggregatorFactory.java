@@ -184,6 +184,7 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
     private final QueryBuilder backgroundFilter;
     private final TermsAggregator.BucketCountThresholds bucketCountThresholds;
     private final SignificanceHeuristic significanceHeuristic;
+    private final int sampleSize;
 
     SignificantTermsAggregatorFactory(
         String name,
@@ -193,6 +194,7 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
         QueryBuilder backgroundFilter,
         TermsAggregator.BucketCountThresholds bucketCountThresholds,
         SignificanceHeuristic significanceHeuristic,
+        int sampleSize,
         AggregationContext context,
         AggregatorFactory parent,
         AggregatorFactories.Builder subFactoriesBuilder,
@@ -217,6 +219,7 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
         this.backgroundFilter = backgroundFilter;
         this.bucketCountThresholds = bucketCountThresholds;
         this.significanceHeuristic = significanceHeuristic;
+        this.sampleSize = sampleSize;
     }
 
     @Override
@@ -257,6 +260,33 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
 
         SignificanceLookup lookup = new SignificanceLookup(context, config.fieldContext().fieldType(), config.format(), backgroundFilter);
 
+        // Below the top level the docs that reach the aggregator aren't the ones that match the query so we don't know the rate
+        if (sampleSize > 0 && parent == null) {
+            double rate = SampledTermsAggregator.rate(sampleSize, SampledTermsAggregator.estimateMatchingDocs(context));
+            if (rate < 1) {
+                return new SampledTermsAggregator(
+                    parent,
+                    factories,
+                    rate,
+                    name.hashCode(),
+                    subAggs -> aggregatorSupplier.build(
+                        name,
+                        subAggs,
+                        config,
+                        config.format(),
+                        bucketCountThresholds,
+                        includeExclude,
+                        executionHint,
+                        context,
+                        parent,
+                        significanceHeuristic,
+                        lookup,
+                        cardinality,
+                        metadata
+                    )
+                );
+            }
+        }
         return aggregatorSupplier.build(
             name,
             factories,
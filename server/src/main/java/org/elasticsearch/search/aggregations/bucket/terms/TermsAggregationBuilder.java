@@ -47,6 +47,7 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
     public static final ParseField MIN_DOC_COUNT_FIELD_NAME = new ParseField("min_doc_count");
     public static final ParseField SHARD_MIN_DOC_COUNT_FIELD_NAME = new ParseField("shard_min_doc_count");
     public static final ParseField REQUIRED_SIZE_FIELD_NAME = new ParseField("size");
+    public static final ParseField SAMPLE_SIZE_FIELD_NAME = new ParseField("sample_size");
 
     static final TermsAggregator.BucketCountThresholds DEFAULT_BUCKET_COUNT_THRESHOLDS = new TermsAggregator.BucketCountThresholds(
         1,
@@ -71,6 +72,8 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
 
         PARSER.declareInt(TermsAggregationBuilder::size, REQUIRED_SIZE_FIELD_NAME);
 
+        PARSER.declareInt(TermsAggregationBuilder::sampleSize, SAMPLE_SIZE_FIELD_NAME);
+
         PARSER.declareString(TermsAggregationBuilder::executionHint, EXECUTION_HINT_FIELD_NAME);
 
         PARSER.declareField(
@@ -113,6 +116,7 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
         DEFAULT_BUCKET_COUNT_THRESHOLDS
     );
     private boolean showTermDocCountError = false;
+    private int sampleSize = 0;
 
     public TermsAggregationBuilder(String name) {
         super(name);
@@ -130,6 +134,7 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
         this.collectMode = clone.collectMode;
         this.bucketCountThresholds = new BucketCountThresholds(clone.bucketCountThresholds);
         this.showTermDocCountError = clone.showTermDocCountError;
+        this.sampleSize = clone.sampleSize;
     }
 
     @Override
@@ -153,6 +158,9 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
         includeExclude = in.readOptionalWriteable(IncludeExclude::new);
         order = InternalOrder.Streams.readOrder(in);
         showTermDocCountError = in.readBoolean();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            sampleSize = in.readVInt();
+        }
     }
 
     @Override
@@ -168,6 +176,9 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
         out.writeOptionalWriteable(includeExclude);
         order.writeTo(out);
         out.writeBoolean(showTermDocCountError);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVInt(sampleSize);
+        }
     }
 
     /**
@@ -349,6 +360,35 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
         return this;
     }
 
+    /**
+     * Collect about {@code sampleSize} randomly sampled documents on each
+     * shard instead of all matching documents and estimate the counts of
+     * the terms from them. {@code 0}, the default, collects every document.
+     */
+    public TermsAggregationBuilder sampleSize(int sampleSize) {
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException(
+                "["
+                    + SAMPLE_SIZE_FIELD_NAME.getPreferredName()
+                    + "] must be greater than or equal to 0. Found ["
+                    + sampleSize
+                    + "] in ["
+                    + name
+                    + "]"
+            );
+        }
+        this.sampleSize = sampleSize;
+        return this;
+    }
+
+    /**
+     * The number of documents to sample on each shard or {@code 0} if we
+     * collect every document.
+     */
+    public int sampleSize() {
+        return sampleSize;
+    }
+
     @Override
     public BucketCardinality bucketCardinality() {
         return BucketCardinality.MANY;
@@ -370,7 +410,9 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
             executionHint,
             collectMode,
             bucketCountThresholds,
-            showTermDocCountError,
+            // Sampled counts always report their error
+            showTermDocCountError || sampleSize > 0,
+            sampleSize,
             context,
             parent,
             subFactoriesBuilder,
@@ -394,6 +436,9 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
         if (includeExclude != null) {
             includeExclude.toXContent(builder, params);
         }
+        if (sampleSize != 0) {
+            builder.field(SAMPLE_SIZE_FIELD_NAME.getPreferredName(), sampleSize);
+        }
         return builder;
     }
 
@@ -406,7 +451,8 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
             executionHint,
             includeExclude,
             order,
-            showTermDocCountError
+            showTermDocCountError,
+            sampleSize
         );
     }
 
@@ -421,7 +467,8 @@ public class TermsAggregationBuilder extends ValuesSourceAggregationBuilder<Term
             && Objects.equals(executionHint, other.executionHint)
             && Objects.equals(includeExclude, other.includeExclude)
             && Objects.equals(order, other.order)
-            && Objects.equals(showTermDocCountError, other.showTermDocCountError);
+            && Objects.equals(showTermDocCountError, other.showTermDocCountError)
+            && sampleSize == other.sampleSize;
     }
 
     @Override
@@ -10,8 +10,10 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.IndexSearcher;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -42,7 +44,7 @@ import java.util.function.Function;
 import java.util.function.LongPredicate;
 
 public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
-    static Boolean REMAP_GLOBAL_ORDS, COLLECT_SEGMENT_ORDS;
+    static Boolean REMAP_GLOBAL_ORDS, COLLECT_SEGMENT_ORDS, MERGE_SEGMENT_ORDS_BY_TERM;
 
     static void registerAggregators(ValuesSourceRegistry.Builder builder) {
         builder.register(
@@ -76,6 +78,22 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
      */
     static final long MAX_ORDS_TO_TRY_FILTERS = 1000;
 
+    /**
+     * The minimum number of distinct terms, summed over all segments, a
+     * field must have for us to skip building global ordinals and instead
+     * merge the counts of each segment's ordinals by term. Below that
+     * building global ordinals is cheap enough that it doesn't hold up the
+     * first search after a refresh.
+     */
+    static final long MIN_SEGMENT_ORDS_TO_MERGE_BY_TERM = 100_000;
+
+    /**
+     * The longest refresh interval for which we'll skip building global
+     * ordinals. If the index refreshes less often than this then the global
+     * ordinals are reused by enough searches to pay for themselves.
+     */
+    static final TimeValue MAX_REFRESH_INTERVAL_TO_MERGE_BY_TERM = TimeValue.timeValueSeconds(30);
+
     /**
      * This supplier is used for all the field types that should be aggregated as bytes/strings,
      * including those that need global ordinals
@@ -107,10 +125,14 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
                 if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false) {
                     execution = ExecutionMode.MAP;
                 }
+                boolean mergeSegmentOrdsByTerm = false;
                 if (execution == null) {
                     execution = ExecutionMode.GLOBAL_ORDINALS;
+                    mergeSegmentOrdsByTerm = mergeSegmentOrdsByTerm(factories, valuesSourceConfig, context, cardinality);
                 }
-                final long maxOrd = execution == ExecutionMode.GLOBAL_ORDINALS ? getMaxOrd(valuesSource, context.searcher()) : -1;
+                final long maxOrd = execution == ExecutionMode.GLOBAL_ORDINALS && mergeSegmentOrdsByTerm == false
+                    ? getMaxOrd(valuesSource, context.searcher())
+                    : -1;
                 if (subAggCollectMode == null) {
                     subAggCollectMode = pickSubAggColectMode(factories, bucketCountThresholds.getShardSize(), maxOrd);
                 }
@@ -126,6 +148,22 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
                     );
                 }
 
+                if (mergeSegmentOrdsByTerm) {
+                    return new MapStringTermsAggregator.SegmentOrdinals(
+                        name,
+                        factories,
+                        valuesSourceConfig,
+                        order,
+                        bucketCountThresholds,
+                        includeExclude == null ? null : includeExclude.convertToStringFilter(valuesSourceConfig.format()),
+                        context,
+                        parent,
+                        subAggCollectMode,
+                        showTermDocCountError,
+                        metadata
+                    );
+                }
+
                 // TODO: [Zach] we might want refactor and remove ExecutionMode#create(), moving that logic outside the enum
                 return execution.create(
                     name,
@@ -223,6 +261,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
     private final SubAggCollectionMode collectMode;
     private final TermsAggregator.BucketCountThresholds bucketCountThresholds;
     private final boolean showTermDocCountError;
+    private final int sampleSize;
 
     TermsAggregatorFactory(
         String name,
@@ -233,6 +272,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
         SubAggCollectionMode collectMode,
         TermsAggregator.BucketCountThresholds bucketCountThresholds,
         boolean showTermDocCountError,
+        int sampleSize,
         AggregationContext context,
         AggregatorFactory parent,
         AggregatorFactories.Builder subFactoriesBuilder,
@@ -247,6 +287,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
         this.collectMode = collectMode;
         this.bucketCountThresholds = bucketCountThresholds;
         this.showTermDocCountError = showTermDocCountError;
+        this.sampleSize = sampleSize;
     }
 
     @Override
@@ -293,6 +334,33 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
         }
         bucketCountThresholds.ensureValidity();
 
+        // Below the top level the docs that reach the aggregator aren't the ones that match the query so we don't know the rate
+        if (sampleSize > 0 && parent == null) {
+            double rate = SampledTermsAggregator.rate(sampleSize, SampledTermsAggregator.estimateMatchingDocs(context));
+            if (rate < 1) {
+                return new SampledTermsAggregator(
+                    parent,
+                    factories,
+                    rate,
+                    name.hashCode(),
+                    subAggs -> aggregatorSupplier.build(
+                        name,
+                        subAggs,
+                        config,
+                        order,
+                        bucketCountThresholds,
+                        includeExclude,
+                        executionHint,
+                        context,
+                        parent,
+                        collectMode,
+                        showTermDocCountError,
+                        cardinality,
+                        metadata
+                    )
+                );
+            }
+        }
         return aggregatorSupplier.build(
             name,
             factories,
@@ -336,6 +404,59 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory {
         return SubAggCollectionMode.DEPTH_FIRST;
     }
 
+    /**
+     * Should we collect a field with ordinals by counting each segment's
+     * ordinals and merging the counts by term instead of building global
+     * ordinals? That skips building global ordinals which, for high
+     * cardinality fields on indices that refresh often, can take longer
+     * than the search itself and has to be done again after each refresh.
+     * In exchange we look up and hash every distinct term of every segment
+     * so it isn't worth it if the global ordinals are built eagerly on
+     * refresh or reused by many searches between refreshes.
+     */
+    static boolean mergeSegmentOrdsByTerm(
+        AggregatorFactories factories,
+        ValuesSourceConfig valuesSourceConfig,
+        AggregationContext context,
+        CardinalityUpperBound cardinality
+    ) throws IOException {
+        if (factories != AggregatorFactories.EMPTY
+            || cardinality != CardinalityUpperBound.ONE
+            || valuesSourceConfig.getValuesSource() instanceof ValuesSource.Bytes.WithOrdinals == false) {
+            /*
+             * Sub-aggregations need a bucket for each doc as it is collected
+             * and we only know the bucket of a term once we merge the segment.
+             */
+            return false;
+        }
+        if (MERGE_SEGMENT_ORDS_BY_TERM != null) {
+            // we use the static MERGE_SEGMENT_ORDS_BY_TERM to allow tests to force specific optimizations
+            return MERGE_SEGMENT_ORDS_BY_TERM.booleanValue();
+        }
+        if (valuesSourceConfig.fieldType() == null || valuesSourceConfig.fieldType().eagerGlobalOrdinals()) {
+            return false;
+        }
+        TimeValue refreshInterval = context.getIndexSettings().getRefreshInterval();
+        if (refreshInterval.millis() < 0 || refreshInterval.compareTo(MAX_REFRESH_INTERVAL_TO_MERGE_BY_TERM) > 0) {
+            return false;
+        }
+        List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        if (leaves.size() < 2) {
+            // The global ordinals of a single segment are its ordinals so they are free
+            return false;
+        }
+        ValuesSource.Bytes.WithOrdinals valuesSource = (ValuesSource.Bytes.WithOrdinals) valuesSourceConfig.getValuesSource();
+        // Terms in more than one segment are counted more than once but that's the work we'd do merging them
+        long segmentOrds = 0;
+        for (LeafReaderContext ctx : leaves) {
+            segmentOrds += valuesSource.ordinalsValues(ctx).getValueCount();
+            if (segmentOrds >= MIN_SEGMENT_ORDS_TO_MERGE_BY_TERM) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get the maximum global ordinal value for the provided {@link ValuesSource} or -1
      * if the values source is not an instance of {@link ValuesSource.Bytes.WithOrdinals}.
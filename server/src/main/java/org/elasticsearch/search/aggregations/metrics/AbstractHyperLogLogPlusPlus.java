@@ -8,12 +8,14 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.core.Releasable;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -30,6 +32,13 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
     public static final boolean LINEAR_COUNTING = false;
     public static final boolean HYPERLOGLOG = true;
 
+    /**
+     * Number of bits registers are packed on when serialized. Run lengths are never greater than
+     * {@code 65 - precision} so they always fit.
+     */
+    private static final int RUN_LEN_BITS = 6;
+    private static final int RUN_LEN_MASK = (1 << RUN_LEN_BITS) - 1;
+
     public AbstractHyperLogLogPlusPlus(int precision) {
         super(precision);
     }
@@ -97,15 +106,86 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
         if (getAlgorithm(bucket) == LINEAR_COUNTING) {
             out.writeBoolean(LINEAR_COUNTING);
             AbstractLinearCounting.HashesIterator hashes = getLinearCounting(bucket);
-            out.writeVLong(hashes.size());
-            while (hashes.next()) {
-                out.writeInt(hashes.value());
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                writeSortedHashes(hashes, out);
+            } else {
+                out.writeVLong(hashes.size());
+                while (hashes.next()) {
+                    out.writeInt(hashes.value());
+                }
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
-            while (iterator.next()) {
-                out.writeByte(iterator.value());
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                writeCompressedRunLens(bucket, out);
+            } else {
+                AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
+                while (iterator.next()) {
+                    out.writeByte(iterator.value());
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the hashes sorted as unsigned ints so we only need to write the delta with the previous hash,
+     * which usually takes fewer than the 4 bytes of the hash.
+     */
+    private static void writeSortedHashes(AbstractLinearCounting.HashesIterator hashes, StreamOutput out) throws IOException {
+        final long[] sorted = new long[hashes.size()];
+        int i = 0;
+        while (hashes.next()) {
+            sorted[i++] = Integer.toUnsignedLong(hashes.value());
+        }
+        assert i == sorted.length;
+        Arrays.sort(sorted);
+        out.writeVInt(sorted.length);
+        long previous = 0;
+        for (long hash : sorted) {
+            out.writeVLong(hash - previous);
+            previous = hash;
+        }
+    }
+
+    /**
+     * Write the registers either as a list of the non-zero registers, which is smaller when a bucket
+     * was recently promoted from linear counting, or packed on {@link #RUN_LEN_BITS} bits each.
+     */
+    private void writeCompressedRunLens(long bucket, StreamOutput out) throws IOException {
+        final int m = 1 << precision();
+        int nonZero = 0;
+        AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
+        while (iterator.next()) {
+            if (iterator.value() != 0) {
+                nonZero++;
+            }
+        }
+        // a non-zero register takes about 2 bytes in the sparse format and a register 3/4 of a byte when packed
+        final boolean sparse = nonZero < m * 3 / 8;
+        out.writeBoolean(sparse);
+        iterator = getHyperLogLog(bucket);
+        if (sparse) {
+            out.writeVInt(nonZero);
+            int previous = 0;
+            for (int register = 0; iterator.next(); register++) {
+                if (iterator.value() != 0) {
+                    out.writeVInt(register - previous);
+                    out.writeByte(iterator.value());
+                    previous = register;
+                }
+            }
+        } else {
+            // m is a power of two that is at least 16, pack 4 registers in 3 bytes
+            for (int register = 0; register < m; register += 4) {
+                int packed = 0;
+                for (int j = 0; j < 4; j++) {
+                    iterator.next();
+                    assert iterator.value() >= 0 && iterator.value() <= RUN_LEN_MASK;
+                    packed |= iterator.value() << (j * RUN_LEN_BITS);
+                }
+                out.writeByte((byte) packed);
+                out.writeByte((byte) (packed >>> 8));
+                out.writeByte((byte) (packed >>> 16));
             }
         }
     }
@@ -113,20 +193,47 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
     public static AbstractHyperLogLogPlusPlus readFrom(StreamInput in, BigArrays bigArrays) throws IOException {
         final int precision = in.readVInt();
         final boolean algorithm = in.readBoolean();
+        final boolean compressed = in.getVersion().onOrAfter(Version.V_8_0_0);
         if (algorithm == LINEAR_COUNTING) {
             // we use a sparse structure for linear counting
-            final long size = in.readVLong();
+            final long size = compressed ? in.readVInt() : in.readVLong();
             HyperLogLogPlusPlusSparse counts = new HyperLogLogPlusPlusSparse(precision, bigArrays, 1);
             counts.ensureCapacity(0, size);
+            long hash = 0;
             for (long i = 0; i < size; ++i) {
-                counts.addEncoded(0, in.readInt());
+                if (compressed) {
+                    hash += in.readVLong();
+                    counts.addEncoded(0, (int) hash);
+                } else {
+                    counts.addEncoded(0, in.readInt());
+                }
             }
             return counts;
         } else {
             HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
             final int registers = 1 << precision;
-            for (int i = 0; i < registers; ++i) {
-                counts.addRunLen(0, i, in.readByte());
+            if (compressed == false) {
+                for (int i = 0; i < registers; ++i) {
+                    counts.addRunLen(0, i, in.readByte());
+                }
+            } else if (in.readBoolean()) {
+                // registers that aren't sent are 0, promote explicitly in case all of them are
+                counts.upgradeToHll(0);
+                final int nonZero = in.readVInt();
+                int register = 0;
+                for (int i = 0; i < nonZero; ++i) {
+                    register += in.readVInt();
+                    counts.addRunLen(0, register, in.readByte());
+                }
+            } else {
+                for (int register = 0; register < registers; register += 4) {
+                    int packed = Byte.toUnsignedInt(in.readByte());
+                    packed |= Byte.toUnsignedInt(in.readByte()) << 8;
+                    packed |= Byte.toUnsignedInt(in.readByte()) << 16;
+                    for (int j = 0; j < 4; j++) {
+                        counts.addRunLen(0, register + j, (packed >>> (j * RUN_LEN_BITS)) & RUN_LEN_MASK);
+                    }
+                }
             }
             return counts;
         }
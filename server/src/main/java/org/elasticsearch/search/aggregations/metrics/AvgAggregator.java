@@ -29,6 +29,8 @@ import java.util.Map;
 class AvgAggregator extends NumericMetricsAggregator.SingleValue {
 
     final ValuesSource.Numeric valuesSource;
+    final boolean collectInBlocks;
+    final DoubleValuesBlock block = new DoubleValuesBlock();
 
     LongArray counts;
     DoubleArray sums;
@@ -46,6 +48,7 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
         // TODO Stop expecting nulls here
         this.valuesSource = valuesSourceConfig.hasValues() ? (ValuesSource.Numeric) valuesSourceConfig.getValuesSource() : null;
         this.format = valuesSourceConfig.format();
+        this.collectInBlocks = valuesSource != null && canCollectLiveDocsInBlocks(valuesSource);
         if (valuesSource != null) {
             final BigArrays bigArrays = context.bigArrays();
             counts = bigArrays.newLongArray(1, true);
@@ -67,7 +70,7 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
 
-        return new LeafBucketCollectorBase(sub, values) {
+        final LeafBucketCollector collector = new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 counts = bigArrays().grow(counts, bucket + 1);
@@ -93,7 +96,26 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                     compensations.set(bucket, kahanSummation.delta());
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                counts = bigArrays().grow(counts, bucket + 1);
+                sums = bigArrays().grow(sums, bucket + 1);
+                compensations = bigArrays().grow(compensations, bucket + 1);
+
+                block.load(values, docs, count);
+                counts.increment(bucket, block.size());
+                kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+                block.sum(kahanSummation);
+                sums.set(bucket, kahanSummation.value());
+                compensations.set(bucket, kahanSummation.delta());
+            }
         };
+        if (collectInBlocks) {
+            collectLiveDocsInBlocks(ctx, collector);
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return collector;
     }
 
     @Override
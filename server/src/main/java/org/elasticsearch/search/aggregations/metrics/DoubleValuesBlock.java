@@ -0,0 +1,105 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+
+import java.io.IOException;
+
+/**
+ * Decodes the values of a block of docs into a primitive array so metrics
+ * can be reduced over them in tight loops rather than one doc at a time.
+ * Loops like {@link #min} and {@link #max} don't carry anything but the
+ * result from one iteration to the next so the JIT can unroll and
+ * vectorize them.
+ */
+final class DoubleValuesBlock {
+    private double[] values = new double[MetricsAggregator.BLOCK_SIZE];
+    private int size;
+
+    /**
+     * Load the values of the first {@code count} docs of {@code docs},
+     * replacing any values that were loaded before.
+     */
+    void load(SortedNumericDoubleValues source, int[] docs, int count) throws IOException {
+        double[] values = this.values;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (source.advanceExact(docs[i])) {
+                final int valueCount = source.docValueCount();
+                if (size + valueCount > values.length) {
+                    values = this.values = ArrayUtil.grow(values, size + valueCount);
+                }
+                for (int v = 0; v < valueCount; v++) {
+                    values[size++] = source.nextValue();
+                }
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * Load the single value of each of the first {@code count} docs of
+     * {@code docs}, replacing any values that were loaded before.
+     */
+    void load(NumericDoubleValues source, int[] docs, int count) throws IOException {
+        if (count > this.values.length) {
+            this.values = new double[ArrayUtil.oversize(count, Double.BYTES)];
+        }
+        final double[] values = this.values;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (source.advanceExact(docs[i])) {
+                values[size++] = source.doubleValue();
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * The number of values that were loaded.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add all loaded values to {@code sum}, in the order they were loaded.
+     */
+    void sum(CompensatedSum sum) {
+        final double[] values = this.values;
+        for (int i = 0; i < size; i++) {
+            sum.add(values[i]);
+        }
+    }
+
+    /**
+     * The minimum of {@code min} and all loaded values.
+     */
+    double min(double min) {
+        final double[] values = this.values;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * The maximum of {@code max} and all loaded values.
+     */
+    double max(double max) {
+        final double[] values = this.values;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+}
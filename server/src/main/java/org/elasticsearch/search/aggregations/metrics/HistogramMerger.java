@@ -0,0 +1,185 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.HistogramValue;
+
+import java.io.IOException;
+
+/**
+ * Buffers pre-aggregated histograms and merges them into a percentiles
+ * sketch in bulk. Each histogram's values are sorted so we buffer them as
+ * sorted runs and stream them out with a k-way merge, adding up the counts
+ * of equal values along the way. Histograms produced by the same source
+ * tend to share their values so a sketch sees each distinct value once per
+ * {@link #merge} rather than once per document.
+ */
+public final class HistogramMerger {
+    /**
+     * The number of buffered values at which callers should {@link #merge}.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Receives the merged values in ascending order.
+     */
+    @FunctionalInterface
+    public interface ValueConsumer {
+        void accept(double value, long count);
+    }
+
+    private double[] values = new double[16];
+    private long[] counts = new long[16];
+    private int size;
+    /**
+     * The index into {@link #values} that each run starts at. There is one
+     * more entry than there are runs so the last entry is where the next
+     * run starts.
+     */
+    private int[] runStarts = new int[] { 0, 0 };
+    private int runs;
+
+    /**
+     * Buffer all values of {@code histogram}.
+     */
+    public void add(HistogramValue histogram) throws IOException {
+        double previous = Double.NEGATIVE_INFINITY;
+        while (histogram.next()) {
+            double value = histogram.value();
+            if (value < previous) {
+                // The mapper only accepts sorted values but a run that isn't sorted would silently break the merge
+                endRun();
+            }
+            previous = value;
+            if (size == values.length) {
+                values = ArrayUtil.grow(values, size + 1);
+                counts = ArrayUtil.grow(counts, values.length);
+            }
+            values[size] = value;
+            counts[size] = histogram.count();
+            size++;
+        }
+        endRun();
+    }
+
+    private void endRun() {
+        if (runStarts[runs] == size) {
+            return;
+        }
+        runs++;
+        if (runs + 1 >= runStarts.length) {
+            runStarts = ArrayUtil.grow(runStarts, runs + 2);
+        }
+        runStarts[runs] = size;
+    }
+
+    /**
+     * The number of buffered values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Send every buffered value to {@code consumer} in ascending order,
+     * adding up the counts of equal values, and clear the buffer.
+     */
+    public void merge(ValueConsumer consumer) {
+        switch (runs) {
+            case 0:
+                break;
+            case 1:
+                mergeRun(consumer);
+                break;
+            default:
+                mergeRuns(consumer);
+        }
+        size = 0;
+        runs = 0;
+        runStarts[0] = 0;
+    }
+
+    /**
+     * Merge the only run, which just adds up the counts of equal values.
+     */
+    private void mergeRun(ValueConsumer consumer) {
+        double value = values[0];
+        long count = counts[0];
+        for (int i = 1; i < size; i++) {
+            if (values[i] == value) {
+                count += counts[i];
+            } else {
+                consumer.accept(value, count);
+                value = values[i];
+                count = counts[i];
+            }
+        }
+        consumer.accept(value, count);
+    }
+
+    /**
+     * Merge all runs with a binary min heap of the runs ordered by their
+     * next value.
+     */
+    private void mergeRuns(ValueConsumer consumer) {
+        int[] next = new int[runs];
+        int[] heap = new int[runs];
+        for (int r = 0; r < runs; r++) {
+            next[r] = runStarts[r];
+            heap[r] = r;
+        }
+        int heapSize = runs;
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, next, i);
+        }
+
+        double value = values[next[heap[0]]];
+        long count = 0;
+        while (heapSize > 0) {
+            int run = heap[0];
+            int i = next[run];
+            if (values[i] == value) {
+                count += counts[i];
+            } else {
+                consumer.accept(value, count);
+                value = values[i];
+                count = counts[i];
+            }
+            next[run] = i + 1;
+            if (next[run] == runStarts[run + 1]) {
+                heap[0] = heap[--heapSize];
+            }
+            if (heapSize > 0) {
+                siftDown(heap, heapSize, next, 0);
+            }
+        }
+        consumer.accept(value, count);
+    }
+
+    private void siftDown(int[] heap, int heapSize, int[] next, int i) {
+        int run = heap[i];
+        double value = values[next[run]];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && values[next[heap[child + 1]]] < values[next[heap[child]]]) {
+                child++;
+            }
+            if (values[next[heap[child]]] >= value) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = run;
+    }
+}
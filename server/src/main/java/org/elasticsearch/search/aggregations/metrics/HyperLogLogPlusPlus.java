@@ -8,19 +8,15 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
-import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.BitArray;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-
 /**
  * Hyperloglog++ counter, implemented based on pseudo code from
  * http://static.googleusercontent.com/media/research.google.com/fr//pubs/archive/40671.pdf and its appendix
@@ -35,7 +31,9 @@ import java.nio.ByteOrder;
  * data structure are processed using the linear counting until a threshold defined by the precision is reached where the data is replayed
  * to the HyperLogLog algorithm and then this is used.
  *
- * It supports storing several HyperLogLogPlusPlus structures which are identified by a bucket number.
+ * It supports storing several HyperLogLogPlusPlus structures which are identified by a bucket number. Each bucket starts with a small
+ * hash table that grows with the number of distinct values it holds and the registers of the HyperLogLog algorithm are only allocated
+ * when the bucket is promoted to it, so that many buckets with few distinct values don't each pay for the full registers.
  */
 public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
@@ -59,7 +57,8 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
     }
 
     /**
-     * Return the expected per-bucket memory usage for the given precision.
+     * Return the expected per-bucket memory usage for the given precision once the bucket
+     * has been promoted to the HyperLogLog algorithm.
      */
     public static long memoryUsage(int precision) {
         return 1L << precision;
@@ -73,7 +72,7 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         boolean success = false;
         try {
             hll = new HyperLogLog(bigArrays, initialBucketCount, precision);
-            lc = new LinearCounting(bigArrays, initialBucketCount, precision, hll);
+            lc = new LinearCounting(bigArrays, initialBucketCount, precision);
             algorithm = new BitArray(1, bigArrays);
             success = true;
         } finally {
@@ -88,7 +87,7 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
     @Override
     public long maxOrd() {
-        return hll.maxOrd();
+        return Math.max(lc.maxOrd(), hll.maxOrd());
     }
 
     @Override
@@ -117,7 +116,6 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
     @Override
     public void collect(long bucket, long hash) {
-        hll.ensureCapacity(bucket + 1);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             final int newSize = lc.collect(bucket, hash);
             if (newSize > lc.threshold) {
@@ -137,37 +135,23 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         if (algorithm.get(bucketOrd) == LINEAR_COUNTING) {
             upgradeToHll(bucketOrd);
         }
-        hll.addRunLen(0, register, runLen);
+        hll.addRunLen(bucketOrd, register, runLen);
     }
 
     void upgradeToHll(long bucketOrd) {
-        hll.ensureCapacity(bucketOrd + 1);
+        hll.allocate(bucketOrd);
         final AbstractLinearCounting.HashesIterator hashes = lc.values(bucketOrd);
-        // We need to copy values into an arrays as we will override
-        // the values on the buffer
-        final IntArray values = lc.bigArrays.newIntArray(hashes.size());
-        try {
-            int i = 0;
-            while (hashes.next()) {
-                values.set(i++, hashes.value());
-            }
-            assert i == hashes.size();
-            hll.reset(bucketOrd);
-            for (long j = 0; j < values.size(); ++j) {
-                final int encoded = values.get(j);
-                hll.collectEncoded(bucketOrd, encoded);
-            }
-            algorithm.set(bucketOrd);
-        } finally {
-            Releasables.close(values);
+        while (hashes.next()) {
+            hll.collectEncoded(bucketOrd, hashes.value());
         }
+        lc.clear(bucketOrd);
+        algorithm.set(bucketOrd);
     }
 
     public void merge(long thisBucket, AbstractHyperLogLogPlusPlus other, long otherBucket) {
         if (precision() != other.precision()) {
             throw new IllegalArgumentException();
         }
-        hll.ensureCapacity(thisBucket + 1);
         if (other.getAlgorithm(otherBucket) == LINEAR_COUNTING) {
             merge(thisBucket, other.getLinearCounting(otherBucket));
         } else {
@@ -202,63 +186,79 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
     private static class HyperLogLog extends AbstractHyperLogLog implements Releasable {
         private final BigArrays bigArrays;
         private final HyperLogLogIterator iterator;
-        // array for holding the runlens.
+        // One plus the index of the registers of each bucket in runLens, 0 if the bucket doesn't have registers.
+        private IntArray slots;
+        // Number of buckets that have registers.
+        private int numSlots;
+        // array for holding the runlens, allocated on the first promotion of a bucket.
         private ByteArray runLens;
 
         HyperLogLog(BigArrays bigArrays, long initialBucketCount, int precision) {
             super(precision);
-            this.runLens = bigArrays.newByteArray(initialBucketCount << precision);
+            this.slots = bigArrays.newIntArray(initialBucketCount);
             this.bigArrays = bigArrays;
-            this.iterator = new HyperLogLogIterator(this, precision, m);
+            this.iterator = new HyperLogLogIterator(this, m);
         }
 
         public long maxOrd() {
-            return runLens.size() >>> precision();
+            return slots.size();
+        }
+
+        /**
+         * Allocate the registers of a bucket if it doesn't have any yet and reset them to <code>0</code>.
+         */
+        void allocate(long bucketOrd) {
+            slots = bigArrays.grow(slots, bucketOrd + 1);
+            int slot = slots.get(bucketOrd);
+            if (slot == 0) {
+                final long size = ((long) numSlots + 1) << p;
+                runLens = runLens == null ? bigArrays.newByteArray(size) : bigArrays.grow(runLens, size);
+                slot = ++numSlots;
+                slots.set(bucketOrd, slot);
+            }
+            final long start = start(slot);
+            runLens.fill(start, start + m, (byte) 0);
+        }
+
+        private long start(int slot) {
+            assert slot > 0 : "bucket was not promoted to hll";
+            return ((long) slot - 1) << p;
         }
 
         @Override
         protected void addRunLen(long bucketOrd, int register, int encoded) {
-            final long bucketIndex = (bucketOrd << p) + register;
+            final long bucketIndex = start(slots.get(bucketOrd)) + register;
             runLens.set(bucketIndex, (byte) Math.max(encoded, runLens.get(bucketIndex)));
         }
 
         @Override
         protected RunLenIterator getRunLens(long bucketOrd) {
-            iterator.reset(bucketOrd);
+            iterator.reset(start(slots.get(bucketOrd)));
             return iterator;
         }
 
-        protected void reset(long bucketOrd) {
-            runLens.fill(bucketOrd << p, (bucketOrd << p) + m, (byte) 0);
-        }
-
-        protected void ensureCapacity(long numBuckets) {
-            runLens = bigArrays.grow(runLens, numBuckets << p);
-        }
-
         @Override
         public void close() {
-            Releasables.close(runLens);
+            Releasables.close(slots, runLens);
         }
     }
 
     private static class HyperLogLogIterator implements AbstractHyperLogLog.RunLenIterator {
 
         private final HyperLogLog hll;
-        private final int m, p;
+        private final int m;
         int pos;
         long start;
         private byte value;
 
-        HyperLogLogIterator(HyperLogLog hll, int p, int m) {
+        HyperLogLogIterator(HyperLogLog hll, int m) {
             this.hll = hll;
             this.m = m;
-            this.p = p;
         }
 
-        void reset(long bucket) {
+        void reset(long start) {
             pos = 0;
-            start = bucket << p;
+            this.start = start;
         }
 
         @Override
@@ -279,47 +279,106 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
     private static class LinearCounting extends AbstractLinearCounting implements Releasable {
 
+        // Capacity of the hash table of a bucket when it gets its first value.
+        private static final int INITIAL_CAPACITY = 16;
+
         protected final int threshold;
-        private final int mask;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
+        private final int maxCapacity;
         private final BigArrays bigArrays;
         private final LinearCountingIterator iterator;
-        // We are actually using HyperLogLog's runLens array but interpreting it as a hash set for linear counting.
-        private final HyperLogLog hll;
+        // Open addressing hash table of each bucket, grown as the bucket gets more values.
+        private ObjectArray<IntArray> tables;
         // Number of elements stored.
         private IntArray sizes;
 
-        LinearCounting(BigArrays bigArrays, long initialBucketCount, int p, HyperLogLog hll) {
+        LinearCounting(BigArrays bigArrays, long initialBucketCount, int p) {
             super(p);
             this.bigArrays = bigArrays;
-            this.hll = hll;
-            final int capacity = (1 << p) / 4; // because ints take 4 bytes
-            threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
-            sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
-            iterator = new LinearCountingIterator(this, capacity);
+            // the hash table of a bucket never takes more space than the registers it gets promoted to
+            maxCapacity = (1 << p) / 4; // because ints take 4 bytes
+            threshold = (int) (maxCapacity * MAX_LOAD_FACTOR);
+            ObjectArray<IntArray> tables = null;
+            IntArray sizes = null;
+            boolean success = false;
+            try {
+                tables = bigArrays.newObjectArray(initialBucketCount);
+                sizes = bigArrays.newIntArray(initialBucketCount);
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.close(tables, sizes);
+                }
+            }
+            this.tables = tables;
+            this.sizes = sizes;
+            iterator = new LinearCountingIterator();
+        }
+
+        public long maxOrd() {
+            return sizes.size();
         }
 
         @Override
         protected int addEncoded(long bucketOrd, int encoded) {
-            sizes = bigArrays.grow(sizes, bucketOrd + 1);
             assert encoded != 0;
-            for (int i = (encoded & mask);; i = (i + 1) & mask) {
-                final int v = get(bucketOrd, i);
-                if (v == 0) {
-                    // means unused, take it!
-                    set(bucketOrd, i, encoded);
-                    return sizes.increment(bucketOrd, 1);
-                } else if (v == encoded) {
-                    // k is already in the set
-                    return -1;
+            tables = bigArrays.grow(tables, bucketOrd + 1);
+            sizes = bigArrays.grow(sizes, bucketOrd + 1);
+            IntArray table = tables.get(bucketOrd);
+            if (table == null) {
+                table = bigArrays.newIntArray(Math.min(INITIAL_CAPACITY, maxCapacity));
+                tables.set(bucketOrd, table);
+            }
+            long slot = find(table, encoded);
+            if (table.get(slot) == encoded) {
+                // k is already in the set
+                return -1;
+            }
+            final int size = sizes.get(bucketOrd);
+            if (size + 1 > table.size() * MAX_LOAD_FACTOR && table.size() < maxCapacity) {
+                table = rehash(table, table.size() << 1);
+                tables.set(bucketOrd, table);
+                slot = find(table, encoded);
+            }
+            table.set(slot, encoded);
+            return sizes.increment(bucketOrd, 1);
+        }
+
+        /**
+         * Find the slot of the table that holds <code>encoded</code> or the empty slot where it should go.
+         */
+        private static long find(IntArray table, int encoded) {
+            final long mask = table.size() - 1;
+            for (long i = encoded & mask;; i = (i + 1) & mask) {
+                final int v = table.get(i);
+                if (v == 0 || v == encoded) {
+                    return i;
                 }
             }
         }
 
+        private IntArray rehash(IntArray table, long capacity) {
+            final IntArray newTable = bigArrays.newIntArray(capacity);
+            for (long i = 0; i < table.size(); ++i) {
+                final int v = table.get(i);
+                if (v != 0) {
+                    newTable.set(find(newTable, v), v);
+                }
+            }
+            table.close();
+            return newTable;
+        }
+
+        /**
+         * Release the hash table of a bucket that was promoted to the HyperLogLog algorithm.
+         */
+        void clear(long bucketOrd) {
+            if (bucketOrd < tables.size()) {
+                Releasables.close(tables.get(bucketOrd));
+                tables.set(bucketOrd, null);
+                sizes.set(bucketOrd, 0);
+            }
+        }
+
         @Override
         protected int size(long bucketOrd) {
             if (bucketOrd >= sizes.size()) {
@@ -332,32 +391,18 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
         @Override
         protected HashesIterator values(long bucketOrd) {
-            iterator.reset(bucketOrd, size(bucketOrd));
+            iterator.reset(bucketOrd < tables.size() ? tables.get(bucketOrd) : null, size(bucketOrd));
             return iterator;
         }
 
-        private long index(long bucketOrd, int index) {
-            return (bucketOrd << p) + (index << 2);
-        }
-
-        private int get(long bucketOrd, int index) {
-            hll.runLens.get(index(bucketOrd, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
-        }
-
-        private void set(long bucketOrd, int index, int value) {
-            writeSpare.putInt(0, value);
-            hll.runLens.set(index(bucketOrd, index), writeSpare.array(), 0, 4);
-        }
-
         private int recomputedSize(long bucketOrd) {
-            if (bucketOrd >= hll.maxOrd()) {
+            final IntArray table = tables.get(bucketOrd);
+            if (table == null) {
                 return 0;
             }
             int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucketOrd, i);
-                if (v != 0) {
+            for (long i = 0; i < table.size(); ++i) {
+                if (table.get(i) != 0) {
                     ++size;
                 }
             }
@@ -366,27 +411,24 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
         @Override
         public void close() {
-            Releasables.close(sizes);
+            for (long i = 0; i < tables.size(); i++) {
+                Releasables.close(tables.get(i));
+            }
+            Releasables.close(tables, sizes);
         }
     }
 
     private static class LinearCountingIterator implements AbstractLinearCounting.HashesIterator {
 
-        private final LinearCounting lc;
-        private final int capacity;
-        private int pos, size;
-        private long bucketOrd;
+        private IntArray table;
+        private long pos;
+        private int size;
         private int value;
 
-        LinearCountingIterator(LinearCounting lc, int capacity) {
-            this.lc = lc;
-            this.capacity = capacity;
-        }
-
-        void reset(long bucketOrd, int size) {
-            this.bucketOrd = bucketOrd;
+        void reset(IntArray table, int size) {
+            this.table = table;
             this.size = size;
-            this.pos = size == 0 ? capacity : 0;
+            this.pos = 0;
         }
 
         @Override
@@ -396,14 +438,15 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
         @Override
         public boolean next() {
-            if (pos < capacity) {
-                for (; pos < capacity; ++pos) {
-                    final int k = lc.get(bucketOrd, pos);
-                    if (k != 0) {
-                        ++pos;
-                        value = k;
-                        return true;
-                    }
+            if (table == null) {
+                return false;
+            }
+            for (; pos < table.size(); ++pos) {
+                final int k = table.get(pos);
+                if (k != 0) {
+                    ++pos;
+                    value = k;
+                    return true;
                 }
             }
             return false;
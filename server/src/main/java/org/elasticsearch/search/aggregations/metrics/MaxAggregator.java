@@ -38,6 +38,8 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
 
     final String pointField;
     final Function<byte[], Number> pointConverter;
+    final boolean collectInBlocks;
+    final DoubleValuesBlock block = new DoubleValuesBlock();
 
     DoubleArray maxes;
 
@@ -46,6 +48,7 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
         super(name, context, parent, metadata);
         // TODO stop expecting nulls here
         this.valuesSource = config.hasValues() ? (ValuesSource.Numeric) config.getValuesSource() : null;
+        this.collectInBlocks = valuesSource != null && canCollectLiveDocsInBlocks(valuesSource);
         if (valuesSource != null) {
             maxes = context.bigArrays().newDoubleArray(1, false);
             maxes.fill(0, maxes.size(), Double.NEGATIVE_INFINITY);
@@ -86,7 +89,7 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
         final NumericDoubleValues values = MultiValueMode.MAX.select(allValues);
-        return new LeafBucketCollectorBase(sub, allValues) {
+        final LeafBucketCollector collector = new LeafBucketCollectorBase(sub, allValues) {
 
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -103,7 +106,22 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (bucket >= maxes.size()) {
+                    long from = maxes.size();
+                    maxes = bigArrays().grow(maxes, bucket + 1);
+                    maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
+                }
+                block.load(values, docs, count);
+                maxes.set(bucket, block.max(maxes.get(bucket)));
+            }
         };
+        if (collectInBlocks) {
+            collectLiveDocsInBlocks(ctx, collector);
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return collector;
     }
 
     @Override
@@ -8,17 +8,32 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Bits;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorBase;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.CardinalityUpperBound;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.util.Map;
 
 public abstract class MetricsAggregator extends AggregatorBase {
+    /**
+     * The maximum number of docs that {@link #collectLiveDocsInBlocks} passes to
+     * {@link LeafBucketCollector#collect(int[], int, long)} at once.
+     */
+    protected static final int BLOCK_SIZE = 1024;
+
+    private final AggregationContext context;
+
     protected MetricsAggregator(String name, AggregationContext context, Aggregator parent, Map<String, Object> metadata)
         throws IOException {
         super(name, AggregatorFactories.EMPTY, context, parent, CardinalityUpperBound.NONE, metadata);
@@ -26,6 +41,7 @@ public abstract class MetricsAggregator extends AggregatorBase {
          * MetricsAggregators may not have sub aggregators so it is safe for
          * us to pass NONE for the super ctor's subAggregatorCardinality.
          */
+        this.context = context;
     }
 
     /**
@@ -42,4 +58,51 @@ public abstract class MetricsAggregator extends AggregatorBase {
         }
         return results;
     }
+
+    /**
+     * Can this aggregator collect the live docs of every segment on its own,
+     * in blocks, instead of being called back for every doc that matches the
+     * top level query? That is the case when it is at the top of the
+     * aggregation tree and the top level query matches all docs because then
+     * the docs that match are exactly the live docs. Not if the search might
+     * not collect all of them though, see
+     * {@link AggregationContext#collectsAllMatchingDocs()}. Full index rollups like
+     * a top level {@code sum} over all docs spend most of their time in the
+     * per-doc callbacks, so skipping them is a big win.
+     */
+    protected final boolean canCollectLiveDocsInBlocks(ValuesSource valuesSource) {
+        if (parent != null || valuesSource.needsScores() || context.collectsAllMatchingDocs() == false) {
+            return false;
+        }
+        Query query = topLevelQuery();
+        return query == null || query.getClass() == MatchAllDocsQuery.class;
+    }
+
+    /**
+     * Passes all live docs of the segment to {@code collector} in blocks of
+     * up to {@link #BLOCK_SIZE} docs, all in bucket {@code 0}. Only valid if
+     * {@link #canCollectLiveDocsInBlocks} returned {@code true}.
+     */
+    protected final void collectLiveDocsInBlocks(LeafReaderContext ctx, LeafBucketCollector collector) throws IOException {
+        final int maxDoc = ctx.reader().maxDoc();
+        final Bits liveDocs = ctx.reader().getLiveDocs();
+        final int[] docs = new int[Math.min(BLOCK_SIZE, maxDoc)];
+        int count = 0;
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (liveDocs != null && liveDocs.get(doc) == false) {
+                continue;
+            }
+            docs[count++] = doc;
+            if (count == docs.length) {
+                collector.collect(docs, count, 0);
+                count = 0;
+                if (context.isCancelled()) {
+                    throw new TaskCancelledException("cancelled");
+                }
+            }
+        }
+        if (count > 0) {
+            collector.collect(docs, count, 0);
+        }
+    }
 }
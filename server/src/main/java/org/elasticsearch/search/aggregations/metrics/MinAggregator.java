@@ -39,6 +39,8 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
 
     final String pointField;
     final Function<byte[], Number> pointConverter;
+    final boolean collectInBlocks;
+    final DoubleValuesBlock block = new DoubleValuesBlock();
 
     DoubleArray mins;
 
@@ -47,6 +49,7 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
         super(name, context, parent, metadata);
         // TODO: Stop using nulls here
         this.valuesSource = config.hasValues() ? (ValuesSource.Numeric) config.getValuesSource() : null;
+        this.collectInBlocks = valuesSource != null && canCollectLiveDocsInBlocks(valuesSource);
         if (valuesSource != null) {
             mins = context.bigArrays().newDoubleArray(1, false);
             mins.fill(0, mins.size(), Double.POSITIVE_INFINITY);
@@ -86,7 +89,7 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
         final NumericDoubleValues values = MultiValueMode.MIN.select(allValues);
-        return new LeafBucketCollectorBase(sub, allValues) {
+        final LeafBucketCollector collector = new LeafBucketCollectorBase(sub, allValues) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 if (bucket >= mins.size()) {
@@ -102,7 +105,22 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (bucket >= mins.size()) {
+                    long from = mins.size();
+                    mins = bigArrays().grow(mins, bucket + 1);
+                    mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
+                }
+                block.load(values, docs, count);
+                mins.set(bucket, block.min(mins.get(bucket)));
+            }
         };
+        if (collectInBlocks) {
+            collectLiveDocsInBlocks(ctx, collector);
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return collector;
     }
 
     @Override
@@ -30,6 +30,8 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
 
     final ValuesSource.Numeric valuesSource;
     final DocValueFormat format;
+    final boolean collectInBlocks;
+    final DoubleValuesBlock block = new DoubleValuesBlock();
 
     LongArray counts;
     DoubleArray sums;
@@ -47,6 +49,7 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
         super(name, context, parent, metadata);
         // TODO: stop using nulls here
         this.valuesSource = valuesSourceConfig.hasValues() ? (ValuesSource.Numeric) valuesSourceConfig.getValuesSource() : null;
+        this.collectInBlocks = valuesSource != null && canCollectLiveDocsInBlocks(valuesSource);
         if (valuesSource != null) {
             counts = bigArrays().newLongArray(1, true);
             sums = bigArrays().newDoubleArray(1, true);
@@ -72,20 +75,10 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
 
-        return new LeafBucketCollectorBase(sub, values) {
+        final LeafBucketCollector collector = new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                if (bucket >= counts.size()) {
-                    final long from = counts.size();
-                    final long overSize = BigArrays.overSize(bucket + 1);
-                    counts = bigArrays().resize(counts, overSize);
-                    sums = bigArrays().resize(sums, overSize);
-                    compensations = bigArrays().resize(compensations, overSize);
-                    mins = bigArrays().resize(mins, overSize);
-                    maxes = bigArrays().resize(maxes, overSize);
-                    mins.fill(from, overSize, Double.POSITIVE_INFINITY);
-                    maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
-                }
+                maybeGrow(bucket);
 
                 if (values.advanceExact(doc)) {
                     final int valuesCount = values.docValueCount();
@@ -110,7 +103,40 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     maxes.set(bucket, max);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                maybeGrow(bucket);
+
+                block.load(values, docs, count);
+                counts.increment(bucket, block.size());
+                kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+                block.sum(kahanSummation);
+                sums.set(bucket, kahanSummation.value());
+                compensations.set(bucket, kahanSummation.delta());
+                mins.set(bucket, block.min(mins.get(bucket)));
+                maxes.set(bucket, block.max(maxes.get(bucket)));
+            }
         };
+        if (collectInBlocks) {
+            collectLiveDocsInBlocks(ctx, collector);
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return collector;
+    }
+
+    private void maybeGrow(long bucket) {
+        if (bucket >= counts.size()) {
+            final long from = counts.size();
+            final long overSize = BigArrays.overSize(bucket + 1);
+            counts = bigArrays().resize(counts, overSize);
+            sums = bigArrays().resize(sums, overSize);
+            compensations = bigArrays().resize(compensations, overSize);
+            mins = bigArrays().resize(mins, overSize);
+            maxes = bigArrays().resize(maxes, overSize);
+            mins.fill(from, overSize, Double.POSITIVE_INFINITY);
+            maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
+        }
     }
 
     @Override
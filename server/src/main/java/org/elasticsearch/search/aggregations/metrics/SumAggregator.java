@@ -29,6 +29,9 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat format;
 
+    private final boolean collectInBlocks;
+    private final DoubleValuesBlock block = new DoubleValuesBlock();
+
     private DoubleArray sums;
     private DoubleArray compensations;
 
@@ -43,6 +46,7 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
         // TODO: stop expecting nulls here
         this.valuesSource = valuesSourceConfig.hasValues() ? (ValuesSource.Numeric) valuesSourceConfig.getValuesSource() : null;
         this.format = valuesSourceConfig.format();
+        this.collectInBlocks = valuesSource != null && canCollectLiveDocsInBlocks(valuesSource);
         if (valuesSource != null) {
             sums = bigArrays().newDoubleArray(1, true);
             compensations = bigArrays().newDoubleArray(1, true);
@@ -61,7 +65,7 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
-        return new LeafBucketCollectorBase(sub, values) {
+        final LeafBucketCollector collector = new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 sums = bigArrays().grow(sums, bucket + 1);
@@ -84,7 +88,24 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
                     sums.set(bucket, kahanSummation.value());
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                sums = bigArrays().grow(sums, bucket + 1);
+                compensations = bigArrays().grow(compensations, bucket + 1);
+
+                block.load(values, docs, count);
+                kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+                block.sum(kahanSummation);
+                compensations.set(bucket, kahanSummation.delta());
+                sums.set(bucket, kahanSummation.value());
+            }
         };
+        if (collectInBlocks) {
+            collectLiveDocsInBlocks(ctx, collector);
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return collector;
     }
 
     @Override
@@ -45,8 +45,10 @@ import org.elasticsearch.search.sort.SortBuilder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
@@ -282,6 +284,48 @@ public abstract class AggregationContext implements Releasable {
      */
     public abstract boolean enableRewriteToFilterByFilter();
 
+    /**
+     * Do all docs that match the top level query reach the aggregations?
+     * They don't if the search stops early because of {@code terminate_after}
+     * or a {@code timeout}, or if {@code min_score} filters hits. Aggregations
+     * may only read the matching docs on their own, bypassing the collector,
+     * if this is {@code true}.
+     */
+    public abstract boolean collectsAllMatchingDocs();
+
+    /**
+     * Did the search stop before collecting every matching doc because it
+     * timed out or reached {@code terminate_after}? Only meaningful once
+     * collection is done, when the aggregations are built.
+     */
+    public abstract boolean searchStoppedEarly();
+
+    /**
+     * State shared by all requests that search the same point in time
+     * reader. Aggregations can keep things here that make the next request
+     * against the reader cheaper, like the buckets that follow the page
+     * returned by a {@code composite} aggregation. {@code null} if the
+     * reader is only used by this request.
+     */
+    @Nullable
+    public abstract Map<String, Object> readerState();
+
+    /**
+     * The circuit breaker to account for what aggregations keep in
+     * {@link #readerState()}. That outlives the request so it can't be
+     * accounted to {@link #breaker()} which may give its bytes back when the
+     * request is done.
+     */
+    public abstract CircuitBreaker readerStateBreaker();
+
+    /**
+     * Executor on which independent top level aggregations can collect at
+     * the same time or {@code null} if they must all collect on the
+     * searching thread.
+     */
+    @Nullable
+    public abstract Executor siblingCollectionExecutor();
+
     /**
      * Implementation of {@linkplain AggregationContext} for production usage
      * that wraps our ubiquitous {@link SearchExecutionContext} and anything else
@@ -303,6 +347,11 @@ public abstract class AggregationContext implements Releasable {
         private final Supplier<Boolean> isCancelled;
         private final Function<Query, Query> filterQuery;
         private final boolean enableRewriteToFilterByFilter;
+        private final boolean collectsAllMatchingDocs;
+        private final Supplier<Boolean> searchStoppedEarly;
+        private final Map<String, Object> readerState;
+        private final CircuitBreaker readerStateBreaker;
+        private final Executor siblingCollectionExecutor;
         private final AnalysisRegistry analysisRegistry;
 
         private final List<Aggregator> releaseMe = new ArrayList<>();
@@ -321,7 +370,11 @@ public abstract class AggregationContext implements Releasable {
             LongSupplier relativeTimeInMillis,
             Supplier<Boolean> isCancelled,
             Function<Query, Query> filterQuery,
-            boolean enableRewriteToFilterByFilter
+            boolean enableRewriteToFilterByFilter,
+            boolean collectsAllMatchingDocs,
+            Supplier<Boolean> searchStoppedEarly,
+            @Nullable Map<String, Object> readerState,
+            @Nullable Executor siblingCollectionExecutor
         ) {
             this.analysisRegistry = analysisRegistry;
             this.context = context;
@@ -340,7 +393,8 @@ public abstract class AggregationContext implements Releasable {
                     bigArrays.breakerService(),
                     CircuitBreaker.REQUEST,
                     bytesToPreallocate,
-                    "aggregations"
+                    "aggregations",
+                    siblingCollectionExecutor != null
                 );
                 this.bigArrays = bigArrays.withBreakerService(preallocatedBreakerService).withCircuitBreaking();
             }
@@ -354,6 +408,11 @@ public abstract class AggregationContext implements Releasable {
             this.isCancelled = isCancelled;
             this.filterQuery = filterQuery;
             this.enableRewriteToFilterByFilter = enableRewriteToFilterByFilter;
+            this.collectsAllMatchingDocs = collectsAllMatchingDocs;
+            this.searchStoppedEarly = searchStoppedEarly;
+            this.readerState = readerState;
+            this.readerStateBreaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+            this.siblingCollectionExecutor = siblingCollectionExecutor;
         }
 
         @Override
@@ -531,6 +590,38 @@ public abstract class AggregationContext implements Releasable {
             return enableRewriteToFilterByFilter;
         }
 
+        @Override
+        public boolean collectsAllMatchingDocs() {
+            return collectsAllMatchingDocs;
+        }
+
+        @Override
+        public boolean searchStoppedEarly() {
+            return searchStoppedEarly.get();
+        }
+
+        @Override
+        public Map<String, Object> readerState() {
+            return readerState;
+        }
+
+        @Override
+        public CircuitBreaker readerStateBreaker() {
+            return readerStateBreaker;
+        }
+
+        @Override
+        public Executor siblingCollectionExecutor() {
+            if (profiler != null || context.hasLookup()) {
+                /*
+                 * The profiler's timers and the shared SearchLookup that
+                 * scripts and runtime fields read from aren't thread safe.
+                 */
+                return null;
+            }
+            return siblingCollectionExecutor;
+        }
+
         @Override
         public void close() {
             /*
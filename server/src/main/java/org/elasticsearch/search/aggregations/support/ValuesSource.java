@@ -298,7 +298,7 @@ public abstract class ValuesSource {
                         // segments and global ordinals are the same
                         return LongUnaryOperator.identity();
                     }
-                    final org.apache.lucene.util.LongValues segmentToGlobalOrd = map.getGlobalOrds(context.ord);
+                    final org.apache.lucene.util.LongValues segmentToGlobalOrd = map.getGlobalOrds(global.ordinalMapSegment(context.ord));
                     return segmentToGlobalOrd::get;
                 }
             }
@@ -10,6 +10,7 @@ package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BulkScorer;
@@ -100,6 +101,15 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.cancellable.remove(action);
     }
 
+    /**
+     * Is {@code reader} one of the readers we wrap around segments to make
+     * searches cancellable? They see the same documents and fields as the
+     * segment.
+     */
+    public static boolean isExitable(LeafReader reader) {
+        return reader instanceof ExitableDirectoryReader.ExitableLeafReader;
+    }
+
     @Override
     public void close() {
         // clear the list of cancellables when closing the owning search context, since the ExitableDirectoryReader might be cached (for
@@ -8,6 +8,7 @@
 
 package org.elasticsearch.search.internal;
 
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
@@ -26,6 +27,7 @@ import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * Holds a reference to a point in time {@link Engine.Searcher} that will be used to construct {@link SearchContext}.
@@ -53,6 +55,8 @@ public class ReaderContext implements Releasable {
 
     private Map<String, Object> context;
 
+    private final Map<String, Object> aggregationState = ConcurrentCollections.newConcurrentMap();
+
     public ReaderContext(ShardSearchContextId id,
                          IndexService indexService,
                          IndexShard indexShard,
@@ -85,7 +89,13 @@ public class ReaderContext implements Releasable {
     }
 
     void doClose() {
-        Releasables.close(Releasables.wrap(onCloses), searcherSupplier);
+        Releasables.close(Releasables.wrap(onCloses), this::releaseAggregationState, searcherSupplier);
+    }
+
+    private void releaseAggregationState() {
+        Releasables.close(
+            aggregationState.values().stream().filter(v -> v instanceof Releasable).map(v -> (Releasable) v).collect(Collectors.toList())
+        );
     }
 
     public void addOnClose(Releasable releasable) {
@@ -187,6 +197,16 @@ public class ReaderContext implements Releasable {
         context.put(key, value);
     }
 
+    /**
+     * State that aggregations keep between the requests that search this reader.
+     * Unlike {@link #getFromContext} this is safe to use from concurrent requests
+     * against the same point in time. Values that are {@link Releasable} are
+     * released when this context is closed.
+     */
+    public Map<String, Object> aggregationState() {
+        return aggregationState;
+    }
+
     public long getStartTimeInNano() {
         return startTimeInNano;
     }
@@ -17,6 +17,7 @@ import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -42,6 +43,10 @@ public class SearchLookup {
     private final SourceLookup sourceLookup;
     private final Function<String, MappedFieldType> fieldTypeLookup;
     private final BiFunction<MappedFieldType, Supplier<SearchLookup>, IndexFieldData<?>> fieldDataLookup;
+    /**
+     * Does the search request define runtime fields that {@link #fieldTypeLookup} resolves on top of the index mapping?
+     */
+    private final boolean hasRuntimeMappings;
 
     /**
      * Create the top level field lookup for a search request. Provides a way to look up fields from  doc_values,
@@ -49,10 +54,21 @@ public class SearchLookup {
      */
     public SearchLookup(Function<String, MappedFieldType> fieldTypeLookup,
                         BiFunction<MappedFieldType, Supplier<SearchLookup>, IndexFieldData<?>> fieldDataLookup) {
+        this(fieldTypeLookup, fieldDataLookup, false);
+    }
+
+    /**
+     * Create the top level field lookup for a search request.
+     * @param hasRuntimeMappings does {@code fieldTypeLookup} resolve runtime fields defined in the search request
+     */
+    public SearchLookup(Function<String, MappedFieldType> fieldTypeLookup,
+                        BiFunction<MappedFieldType, Supplier<SearchLookup>, IndexFieldData<?>> fieldDataLookup,
+                        boolean hasRuntimeMappings) {
         this.fieldTypeLookup = fieldTypeLookup;
         this.fieldChain = Collections.emptySet();
         this.sourceLookup = new SourceLookup();
         this.fieldDataLookup = fieldDataLookup;
+        this.hasRuntimeMappings = hasRuntimeMappings;
     }
 
     /**
@@ -67,6 +83,19 @@ public class SearchLookup {
         this.sourceLookup = searchLookup.sourceLookup;
         this.fieldTypeLookup = searchLookup.fieldTypeLookup;
         this.fieldDataLookup = searchLookup.fieldDataLookup;
+        this.hasRuntimeMappings = searchLookup.hasRuntimeMappings;
+    }
+
+    /**
+     * Create a new {@link SearchLookup} that looks fields up through {@code fieldTypeLookup} but otherwise
+     * works the same as the one provided as argument.
+     */
+    private SearchLookup(SearchLookup searchLookup, Function<String, MappedFieldType> fieldTypeLookup) {
+        this.fieldChain = searchLookup.fieldChain;
+        this.sourceLookup = searchLookup.sourceLookup;
+        this.fieldTypeLookup = fieldTypeLookup;
+        this.fieldDataLookup = searchLookup.fieldDataLookup;
+        this.hasRuntimeMappings = searchLookup.hasRuntimeMappings;
     }
 
     /**
@@ -90,6 +119,21 @@ public class SearchLookup {
         return new SearchLookup(this, newFieldChain);
     }
 
+    /**
+     * Creates a copy of the current {@link SearchLookup} that looks fields up in the same way but also passes every field type it
+     * resolves to {@code listener}, including the ones resolved while loading the fielddata of those fields.
+     */
+    public final SearchLookup listenToFieldTypes(Consumer<MappedFieldType> listener) {
+        Objects.requireNonNull(listener, "listener cannot be null");
+        return new SearchLookup(this, name -> {
+            MappedFieldType fieldType = fieldTypeLookup.apply(name);
+            if (fieldType != null) {
+                listener.accept(fieldType);
+            }
+            return fieldType;
+        });
+    }
+
     public LeafSearchLookup getLeafSearchLookup(LeafReaderContext context) {
         return new LeafSearchLookup(context,
                 new LeafDocLookup(fieldTypeLookup, this::getForField, context),
@@ -105,6 +149,14 @@ public class SearchLookup {
         return fieldDataLookup.apply(fieldType, () -> forkAndTrackFieldReferences(fieldType.name()));
     }
 
+    /**
+     * Does the search request define runtime fields that can add to or shadow the fields in the index mapping?
+     * Values computed through such a lookup only hold for the request.
+     */
+    public boolean hasRuntimeMappings() {
+        return hasRuntimeMappings;
+    }
+
     public SourceLookup source() {
         return sourceLookup;
     }
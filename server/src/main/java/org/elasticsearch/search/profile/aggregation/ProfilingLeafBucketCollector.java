@@ -34,6 +34,16 @@ public class ProfilingLeafBucketCollector extends LeafBucketCollector {
         }
     }
 
+    @Override
+    public void collect(int[] docs, int count, long bucket) throws IOException {
+        collectTimer.start();
+        try {
+            delegate.collect(docs, count, bucket);
+        } finally {
+            collectTimer.stop();
+        }
+    }
+
     @Override
     public void setScorer(Scorable scorer) throws IOException {
         delegate.setScorer(scorer);
@@ -17,6 +17,7 @@ import org.elasticsearch.xcontent.ToXContentObject;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Current task information
@@ -63,6 +64,12 @@ public class Task {
      */
     private final long startTimeNanos;
 
+    /**
+     * CPU time and heap allocations accounted to this task by {@link TaskResourceTracker}.
+     */
+    private final AtomicLong cpuTimeNanos = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
     public Task(long id, String type, String action, String description, TaskId parentTask, Map<String, String> headers) {
         this(id, type, action, description, parentTask, System.currentTimeMillis(), System.nanoTime(), headers);
     }
@@ -114,7 +121,8 @@ public class Task {
                 this instanceof CancellableTask,
                 this instanceof CancellableTask && ((CancellableTask)this).isCancelled(),
                 parentTask,
-                headers);
+                headers,
+                getResourceUsage());
     }
 
     /**
@@ -159,6 +167,21 @@ public class Task {
         return startTimeNanos;
     }
 
+    /**
+     * Accounts CPU time and allocated heap bytes spent on behalf of this task.
+     */
+    public void addResourceUsage(long cpuTimeNanos, long allocatedBytes) {
+        this.cpuTimeNanos.addAndGet(cpuTimeNanos);
+        this.allocatedBytes.addAndGet(allocatedBytes);
+    }
+
+    /**
+     * Returns the CPU time and heap allocations accounted to this task so far, including those of its completed local child tasks.
+     */
+    public TaskResourceUsage getResourceUsage() {
+        return new TaskResourceUsage(cpuTimeNanos.get(), allocatedBytes.get());
+    }
+
     /**
      * Returns id of the parent task or NO_PARENT_ID if the task doesn't have any parent tasks
      */
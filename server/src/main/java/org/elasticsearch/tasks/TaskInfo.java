@@ -8,6 +8,7 @@
 
 package org.elasticsearch.tasks;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.xcontent.ParseField;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -43,6 +44,11 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
 
     static final String INCLUDE_CANCELLED_PARAM = "include_cancelled";
 
+    /**
+     * Add {@code resource_usage} to the response. Off by default so existing responses don't change.
+     */
+    public static final String INCLUDE_RESOURCE_USAGE_PARAM = "include_resource_usage";
+
     private final TaskId taskId;
 
     private final String type;
@@ -65,6 +71,8 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
 
     private final Map<String, String> headers;
 
+    private final TaskResourceUsage resourceUsage;
+
     public TaskInfo(
             TaskId taskId,
             String type,
@@ -77,6 +85,23 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
             boolean cancelled,
             TaskId parentTaskId,
             Map<String, String> headers) {
+        this(taskId, type, action, description, status, startTime, runningTimeNanos, cancellable, cancelled, parentTaskId, headers,
+            TaskResourceUsage.EMPTY);
+    }
+
+    public TaskInfo(
+            TaskId taskId,
+            String type,
+            String action,
+            String description,
+            Task.Status status,
+            long startTime,
+            long runningTimeNanos,
+            boolean cancellable,
+            boolean cancelled,
+            TaskId parentTaskId,
+            Map<String, String> headers,
+            TaskResourceUsage resourceUsage) {
         assert cancellable || cancelled == false : "uncancellable task cannot be cancelled";
         this.taskId = taskId;
         this.type = type;
@@ -89,6 +114,7 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         this.cancelled = cancelled;
         this.parentTaskId = parentTaskId;
         this.headers = headers;
+        this.resourceUsage = Objects.requireNonNull(resourceUsage);
     }
 
     /**
@@ -107,6 +133,11 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         assert cancellable || cancelled == false : "uncancellable task cannot be cancelled";
         parentTaskId = TaskId.readFromStream(in);
         headers = in.readMap(StreamInput::readString, StreamInput::readString);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            resourceUsage = new TaskResourceUsage(in);
+        } else {
+            resourceUsage = TaskResourceUsage.EMPTY;
+        }
     }
 
     @Override
@@ -122,6 +153,9 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         out.writeBoolean(cancelled);
         parentTaskId.writeTo(out);
         out.writeMap(headers, StreamOutput::writeString, StreamOutput::writeString);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            resourceUsage.writeTo(out);
+        }
     }
 
     public TaskId getTaskId() {
@@ -194,6 +228,13 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         return headers;
     }
 
+    /**
+     * Returns the CPU time and heap allocations accounted to the task
+     */
+    public TaskResourceUsage getResourceUsage() {
+        return resourceUsage;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.field("node", taskId.getNodeId());
@@ -226,6 +267,12 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
             builder.field(attribute.getKey(), attribute.getValue());
         }
         builder.endObject();
+        if (params.paramAsBoolean(INCLUDE_RESOURCE_USAGE_PARAM, false) && resourceUsage.equals(TaskResourceUsage.EMPTY) == false) {
+            // like cancelled this is not recorded in the tasks index, whose mapping is strict
+            builder.startObject("resource_usage");
+            resourceUsage.toXContent(builder, params);
+            builder.endObject();
+        }
         return builder;
     }
 
@@ -251,6 +298,10 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
                     // This might happen if we are reading an old version of task info
                     headers = Collections.emptyMap();
                 }
+                TaskResourceUsage resourceUsage = (TaskResourceUsage) a[i++];
+                if (resourceUsage == null) {
+                    resourceUsage = TaskResourceUsage.EMPTY;
+                }
                 RawTaskStatus status = statusBytes == null ? null : new RawTaskStatus(statusBytes);
                 TaskId parentTaskId = parentTaskIdString == null ? TaskId.EMPTY_TASK_ID : new TaskId(parentTaskIdString);
                 return new TaskInfo(
@@ -264,7 +315,8 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
                         cancellable,
                         cancelled,
                         parentTaskId,
-                        headers);
+                        headers,
+                        resourceUsage);
             });
     static {
         // Note for the future: this has to be backwards and forwards compatible with all changes to the task storage format
@@ -281,6 +333,7 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
         PARSER.declareBoolean(optionalConstructorArg(), new ParseField("cancelled"));
         PARSER.declareString(optionalConstructorArg(), new ParseField("parent_task_id"));
         PARSER.declareObject(optionalConstructorArg(), (p, c) -> p.mapStrings(), new ParseField("headers"));
+        PARSER.declareObject(optionalConstructorArg(), (p, c) -> TaskResourceUsage.fromXContent(p), new ParseField("resource_usage"));
     }
 
     @Override
@@ -305,7 +358,8 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
                 && Objects.equals(cancellable, other.cancellable)
                 && Objects.equals(cancelled, other.cancelled)
                 && Objects.equals(status, other.status)
-                && Objects.equals(headers, other.headers);
+                && Objects.equals(headers, other.headers)
+                && Objects.equals(resourceUsage, other.resourceUsage);
     }
 
     @Override
@@ -321,6 +375,7 @@ public final class TaskInfo implements Writeable, ToXContentFragment {
                 cancellable,
                 cancelled,
                 status,
-                headers);
+                headers,
+                resourceUsage);
     }
 }
@@ -93,11 +93,13 @@ public class TaskManager implements ClusterStateApplier {
     private final ByteSizeValue maxHeaderSize;
     private final Map<TcpChannel, ChannelPendingTaskTracker> channelPendingTaskTrackers = ConcurrentCollections.newConcurrentMap();
     private final SetOnce<TaskCancellationService> cancellationService = new SetOnce<>();
+    private final boolean resourceTrackingEnabled;
 
     public TaskManager(Settings settings, ThreadPool threadPool, Set<String> taskHeaders) {
         this.threadPool = threadPool;
         this.taskHeaders = new ArrayList<>(taskHeaders);
         this.maxHeaderSize = SETTING_HTTP_MAX_HEADER_SIZE.get(settings);
+        this.resourceTrackingEnabled = TaskResourceTracker.TASK_RESOURCE_TRACKING_ENABLED.get(settings);
     }
 
     public void setTaskResultsService(TaskResultsService taskResultsService) {
@@ -160,25 +162,27 @@ public class TaskManager implements ClusterStateApplier {
             throw e;
         }
         // NOTE: ActionListener cannot infer Response, see https://bugs.openjdk.java.net/browse/JDK-8203195
-        action.execute(task, request, new ActionListener<Response>() {
-            @Override
-            public void onResponse(Response response) {
-                try {
-                    Releasables.close(unregisterChildNode, () -> unregister(task));
-                } finally {
-                    onResponse.accept(task, response);
+        try (Releasable ignored = startTrackingResourceUsage(task)) {
+            action.execute(task, request, new ActionListener<Response>() {
+                @Override
+                public void onResponse(Response response) {
+                    try {
+                        Releasables.close(unregisterChildNode, () -> unregister(task));
+                    } finally {
+                        onResponse.accept(task, response);
+                    }
                 }
-            }
 
-            @Override
-            public void onFailure(Exception e) {
-                try {
-                    Releasables.close(unregisterChildNode, () -> unregister(task));
-                } finally {
-                    onFailure.accept(task, e);
+                @Override
+                public void onFailure(Exception e) {
+                    try {
+                        Releasables.close(unregisterChildNode, () -> unregister(task));
+                    } finally {
+                        onFailure.accept(task, e);
+                    }
                 }
-            }
-        });
+            });
+        }
         return task;
     }
 
@@ -229,6 +233,7 @@ public class TaskManager implements ClusterStateApplier {
             if (holder != null) {
                 holder.finish();
                 assert holder.task == task;
+                addResourceUsageToParent(task);
                 return holder.getTask();
             } else {
                 return null;
@@ -236,10 +241,56 @@ public class TaskManager implements ClusterStateApplier {
         } else {
             final Task removedTask = tasks.remove(task.getId());
             assert removedTask == null || removedTask == task;
+            if (removedTask != null) {
+                addResourceUsageToParent(removedTask);
+            }
             return removedTask;
         }
     }
 
+    /**
+     * Marks the current thread context as working on behalf of the given task, so that the CPU time and heap allocations of this
+     * thread and of every runnable forked from this context are accounted to the task. The returned {@link Releasable} restores
+     * the previous context and must be closed on the calling thread.
+     */
+    public Releasable startTrackingResourceUsage(Task task) {
+        if (resourceTrackingEnabled == false) {
+            return () -> {};
+        }
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        final ThreadContext.StoredContext storedContext =
+            threadContext.newStoredContext(true, List.of(TaskResourceTracker.TASK_TRANSIENT_NAME));
+        threadContext.putTransient(TaskResourceTracker.TASK_TRANSIENT_NAME, task);
+        final Releasable tracker = TaskResourceTracker.track(task);
+        return () -> {
+            try {
+                tracker.close();
+            } finally {
+                storedContext.restore();
+            }
+        };
+    }
+
+    /**
+     * Rolls the resource usage of a completed task up into its parent, if the parent runs on this node. Usage of tasks whose parent
+     * runs on another node stays with the child task.
+     */
+    private void addResourceUsageToParent(Task task) {
+        final TaskId parentTaskId = task.getParentTaskId();
+        if (parentTaskId.isSet() == false) {
+            return;
+        }
+        final DiscoveryNode localNode = lastDiscoveryNodes.getLocalNode();
+        if (localNode == null || localNode.getId().equals(parentTaskId.getNodeId()) == false) {
+            return;
+        }
+        final Task parentTask = getTask(parentTaskId.getId());
+        if (parentTask != null) {
+            final TaskResourceUsage usage = task.getResourceUsage();
+            parentTask.addResourceUsage(usage.getCpuTimeNanos(), usage.getAllocatedBytes());
+        }
+    }
+
     /**
      * Register a connection on which a child task will execute on the target connection. The returned {@link Releasable} must be called
      * to unregister the child connection once the child task is completed or failed.
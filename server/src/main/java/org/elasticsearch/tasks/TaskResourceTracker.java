@@ -0,0 +1,146 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.core.Releasable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the CPU time and heap allocations of the current thread while it runs on behalf of a {@link Task}.
+ * <p>
+ * The task is carried in the {@link org.elasticsearch.common.util.concurrent.ThreadContext} under {@link #TASK_TRANSIENT_NAME}, see
+ * {@link TaskManager#startTrackingResourceUsage(Task)}, so every runnable forked from that context is measured and its usage is
+ * charged to the task once it completes. Measurements nest: a tracker started while another one is active on the same thread
+ * charges the outer task for the time up to that point and resumes it on close, so no usage is accounted twice.
+ */
+public final class TaskResourceTracker implements Releasable {
+
+    public static final Setting<Boolean> TASK_RESOURCE_TRACKING_ENABLED = Setting.boolSetting(
+        "task.resource_tracking.enabled",
+        false,
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * The transient thread context header holding the {@link Task} that the current thread works on behalf of.
+     */
+    public static final String TASK_TRANSIENT_NAME = "_task_resource_tracking";
+
+    private static final Releasable NOOP = () -> {};
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME_SUPPORTED = isCpuTimeSupported();
+
+    /**
+     * The HotSpot flavour of the thread MX bean, which can report allocations, or {@code null} if the JVM doesn't
+     * support measuring them. Looked up once because this is read at the start and end of every runnable.
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN = allocationMXBean();
+
+    private static final ThreadLocal<TaskResourceTracker> CURRENT = new ThreadLocal<>();
+
+    private final Task task;
+    private final TaskResourceTracker outer;
+    private final long threadId;
+    private long startCpuTimeNanos;
+    private long startAllocatedBytes;
+
+    private TaskResourceTracker(Task task, TaskResourceTracker outer) {
+        this.task = task;
+        this.outer = outer;
+        this.threadId = Thread.currentThread().getId();
+        reset();
+    }
+
+    /**
+     * Starts measuring the current thread on behalf of the given task. Returns a no-op if {@code task} is {@code null}.
+     * The returned {@link Releasable} must be closed on the same thread.
+     */
+    public static Releasable track(Task task) {
+        if (task == null) {
+            return NOOP;
+        }
+        final TaskResourceTracker outer = CURRENT.get();
+        if (outer != null) {
+            if (outer.task == task) {
+                return NOOP;
+            }
+            outer.charge();
+        }
+        final TaskResourceTracker tracker = new TaskResourceTracker(task, outer);
+        CURRENT.set(tracker);
+        return tracker;
+    }
+
+    /**
+     * Charges the usage of the current thread so far to the task it is being measured for, if any. Useful before reading
+     * {@link Task#getResourceUsage()} from within a running task, e.g. when logging slow operations.
+     */
+    public static void chargeCurrentThread() {
+        final TaskResourceTracker current = CURRENT.get();
+        if (current != null) {
+            current.charge();
+        }
+    }
+
+    @Override
+    public void close() {
+        assert CURRENT.get() == this : "tracker closed out of order or on another thread";
+        charge();
+        CURRENT.set(outer);
+        if (outer != null) {
+            outer.reset();
+        }
+    }
+
+    private void charge() {
+        final long cpuTimeNanos = currentCpuTimeNanos();
+        final long allocatedBytes = currentAllocatedBytes();
+        task.addResourceUsage(Math.max(0L, cpuTimeNanos - startCpuTimeNanos), Math.max(0L, allocatedBytes - startAllocatedBytes));
+        startCpuTimeNanos = cpuTimeNanos;
+        startAllocatedBytes = allocatedBytes;
+    }
+
+    private void reset() {
+        startCpuTimeNanos = currentCpuTimeNanos();
+        startAllocatedBytes = currentAllocatedBytes();
+    }
+
+    private static long currentCpuTimeNanos() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0L;
+    }
+
+    private long currentAllocatedBytes() {
+        return ALLOCATION_MX_BEAN == null ? 0L : ALLOCATION_MX_BEAN.getThreadAllocatedBytes(threadId);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean == false) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        try {
+            return bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() ? bean : null;
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static boolean isCpuTimeSupported() {
+        try {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.xcontent.ConstructingObjectParser;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.xcontent.ConstructingObjectParser.constructorArg;
+
+/**
+ * Snapshot of the CPU time and heap allocations that threads have spent on behalf of a task, as measured by
+ * {@link TaskResourceTracker}. Includes the usage of completed child tasks that ran on the same node.
+ */
+public final class TaskResourceUsage implements Writeable, ToXContentFragment {
+
+    public static final TaskResourceUsage EMPTY = new TaskResourceUsage(0L, 0L);
+
+    static final ParseField CPU_TIME_IN_NANOS = new ParseField("cpu_time_in_nanos");
+    static final ParseField ALLOCATED_BYTES = new ParseField("allocated_bytes");
+
+    private final long cpuTimeNanos;
+    private final long allocatedBytes;
+
+    public TaskResourceUsage(long cpuTimeNanos, long allocatedBytes) {
+        this.cpuTimeNanos = cpuTimeNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public TaskResourceUsage(StreamInput in) throws IOException {
+        this.cpuTimeNanos = in.readVLong();
+        this.allocatedBytes = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(cpuTimeNanos);
+        out.writeVLong(allocatedBytes);
+    }
+
+    /**
+     * Returns the CPU time in nanoseconds spent on behalf of the task
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    /**
+     * Returns the number of heap bytes allocated on behalf of the task
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        if (builder.humanReadable()) {
+            builder.field("cpu_time", new TimeValue(cpuTimeNanos, TimeUnit.NANOSECONDS).toString());
+        }
+        builder.field(CPU_TIME_IN_NANOS.getPreferredName(), cpuTimeNanos);
+        builder.humanReadableField(ALLOCATED_BYTES.getPreferredName(), "allocated", new ByteSizeValue(allocatedBytes));
+        return builder;
+    }
+
+    public static final ConstructingObjectParser<TaskResourceUsage, Void> PARSER = new ConstructingObjectParser<>(
+        "task_resource_usage", true, a -> new TaskResourceUsage((Long) a[0], (Long) a[1]));
+    static {
+        PARSER.declareLong(constructorArg(), CPU_TIME_IN_NANOS);
+        PARSER.declareLong(constructorArg(), ALLOCATED_BYTES);
+    }
+
+    public static TaskResourceUsage fromXContent(XContentParser parser) {
+        return PARSER.apply(parser, null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskResourceUsage that = (TaskResourceUsage) o;
+        return cpuTimeNanos == that.cpuTimeNanos && allocatedBytes == that.allocatedBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cpuTimeNanos, allocatedBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskResourceUsage{cpuTimeNanos=" + cpuTimeNanos + ", allocatedBytes=" + allocatedBytes + '}';
+    }
+}
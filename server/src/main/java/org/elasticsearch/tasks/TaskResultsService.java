@@ -39,6 +39,7 @@ import static org.elasticsearch.action.admin.cluster.node.tasks.get.GetTaskActio
 import static org.elasticsearch.core.TimeValue.timeValueMillis;
 import static org.elasticsearch.xcontent.XContentFactory.jsonBuilder;
 import static org.elasticsearch.tasks.TaskInfo.INCLUDE_CANCELLED_PARAM;
+import static org.elasticsearch.tasks.TaskInfo.INCLUDE_RESOURCE_USAGE_PARAM;
 
 /**
  * Service that can store task results.
@@ -82,7 +83,8 @@ public class TaskResultsService {
     public void storeResult(TaskResult taskResult, ActionListener<Void> listener) {
         IndexRequestBuilder index = client.prepareIndex(TASK_INDEX).setId(taskResult.getTask().getTaskId().toString());
         try (XContentBuilder builder = XContentFactory.contentBuilder(Requests.INDEX_CONTENT_TYPE)) {
-            taskResult.toXContent(builder, new ToXContent.MapParams(Map.of(INCLUDE_CANCELLED_PARAM, "false")));
+            taskResult.toXContent(builder,
+                new ToXContent.MapParams(Map.of(INCLUDE_CANCELLED_PARAM, "false", INCLUDE_RESOURCE_USAGE_PARAM, "false")));
             index.setSource(builder);
         } catch (IOException e) {
             throw new ElasticsearchException("Couldn't convert task result to XContent for [{}]", e, taskResult.getTask());
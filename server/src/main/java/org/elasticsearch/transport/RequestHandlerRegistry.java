@@ -58,7 +58,9 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
                 unregisterTask = Releasables.wrap(unregisterTask, stopTracking);
             }
             final TaskTransportChannel taskTransportChannel = new TaskTransportChannel(channel, unregisterTask);
-            handler.messageReceived(request, taskTransportChannel, task);
+            try (Releasable ignored = taskManager.startTrackingResourceUsage(task)) {
+                handler.messageReceived(request, taskTransportChannel, task);
+            }
             unregisterTask = null;
         } finally {
             Releasables.close(unregisterTask);
@@ -320,6 +320,11 @@ public class SimulateExecutionServiceTests extends ESTestCase {
         }
         Processor processor1 = new AbstractProcessor(null, null) {
 
+            @Override
+            public boolean isAsync() {
+                return true;
+            }
+
             @Override
             public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
                 threadPool.executor(ThreadPool.Names.GENERIC).execute(() -> {
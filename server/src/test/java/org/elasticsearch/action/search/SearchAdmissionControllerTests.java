@@ -0,0 +1,140 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class SearchAdmissionControllerTests extends ESTestCase {
+
+    public void testQueryCost() {
+        assertThat(SearchCostEstimator.queryCost(QueryBuilders.termQuery("field", "value")), equalTo(1L));
+        assertThat(SearchCostEstimator.queryCost(QueryBuilders.wildcardQuery("field", "val*")),
+            equalTo(SearchCostEstimator.EXPENSIVE_QUERY_COST));
+        assertThat(SearchCostEstimator.queryCost(QueryBuilders.boolQuery()
+                .must(QueryBuilders.termQuery("field", "value"))
+                .filter(QueryBuilders.rangeQuery("date").gte("now-1d"))
+                .should(QueryBuilders.constantScoreQuery(QueryBuilders.regexpQuery("field", "v.*")))),
+            equalTo(2 + SearchCostEstimator.EXPENSIVE_QUERY_COST));
+    }
+
+    public void testAggregationCostGrowsWithNesting() {
+        SearchRequest flat = new SearchRequest().source(new SearchSourceBuilder().size(0)
+            .aggregation(AggregationBuilders.terms("terms").field("field"))
+            .aggregation(AggregationBuilders.avg("avg").field("value")));
+        SearchRequest nested = new SearchRequest().source(new SearchSourceBuilder().size(0)
+            .aggregation(AggregationBuilders.terms("terms").field("field")
+                .subAggregation(AggregationBuilders.terms("sub_terms").field("other")
+                    .subAggregation(AggregationBuilders.avg("avg").field("value")))));
+        // one unit for the request, one per aggregation
+        assertThat(SearchCostEstimator.estimate(flat, 1), equalTo(3L));
+        // the avg runs for every bucket of both terms aggregations
+        assertThat(SearchCostEstimator.estimate(nested, 1),
+            equalTo(2 + SearchCostEstimator.MULTI_BUCKET_FAN_OUT + SearchCostEstimator.MULTI_BUCKET_FAN_OUT
+                * SearchCostEstimator.MULTI_BUCKET_FAN_OUT));
+        assertThat(SearchCostEstimator.estimate(nested, 10), equalTo(10 * SearchCostEstimator.estimate(nested, 1)));
+    }
+
+    public void testDisabledAdmitsEverything() {
+        SearchAdmissionController controller = newController(Settings.builder()
+            .put(SearchAdmissionController.HEAVY_MAX_IN_FLIGHT_COST.getKey(), 1)
+            .build(), new AtomicLong());
+        for (int i = 0; i < 10; i++) {
+            controller.admit(new SearchRequest(), 100);
+        }
+        assertThat(controller.stats().getHeavy().getTotalAdmitted(), equalTo(0L));
+    }
+
+    public void testShedsHeavyRequestsOverBudget() {
+        SearchAdmissionController controller = newController(Settings.builder()
+            .put(SearchAdmissionController.ADMISSION_CONTROL_ENABLED.getKey(), true)
+            .put(SearchAdmissionController.HEAVY_REQUEST_THRESHOLD.getKey(), 50)
+            .put(SearchAdmissionController.HEAVY_MAX_IN_FLIGHT_COST.getKey(), 150)
+            .build(), new AtomicLong());
+
+        // a request is always admitted if nothing else is in flight, even if it is larger than the budget
+        Releasable first = controller.admit(new SearchRequest(), 1000);
+        assertThat(controller.stats().getHeavy().getCurrentRequests(), equalTo(1L));
+        assertThat(controller.stats().getHeavy().getCurrentCost(), equalTo(1000L));
+
+        EsRejectedExecutionException e =
+            expectThrows(EsRejectedExecutionException.class, () -> controller.admit(new SearchRequest(), 100));
+        assertThat(e.getMessage(), containsString("rejected execution of heavy search request"));
+
+        // interactive requests have their own budget
+        Releasable interactive = controller.admit(new SearchRequest(), 40);
+        assertThat(controller.stats().getInteractive().getCurrentRequests(), equalTo(1L));
+        interactive.close();
+
+        first.close();
+        first.close();
+        SearchAdmissionControlStats.PriorityStats heavy = controller.stats().getHeavy();
+        assertThat(heavy.getCurrentRequests(), equalTo(0L));
+        assertThat(heavy.getCurrentCost(), equalTo(0L));
+        assertThat(heavy.getTotalAdmitted(), equalTo(1L));
+        assertThat(heavy.getTotalRejected(), equalTo(1L));
+
+        Releasable third = controller.admit(new SearchRequest(), 100);
+        Releasable fourth = controller.admit(new SearchRequest(), 50);
+        expectThrows(EsRejectedExecutionException.class, () -> controller.admit(new SearchRequest(), 50));
+        third.close();
+        fourth.close();
+    }
+
+    public void testRecentLatencyIncreasesCost() {
+        AtomicLong nanoTime = new AtomicLong();
+        SearchAdmissionController controller = newController(Settings.builder()
+            .put(SearchAdmissionController.ADMISSION_CONTROL_ENABLED.getKey(), true)
+            .build(), nanoTime);
+        SearchRequest request = new SearchRequest("logs-*");
+        long initialCost = controller.estimateCost(request, 5, "logs-*");
+        Releasable releasable = controller.admit(request, 5);
+        nanoTime.addAndGet(10 * SearchAdmissionController.LATENCY_UNIT_MILLIS * 1_000_000L);
+        releasable.close();
+        assertThat(controller.estimateCost(request, 5, "logs-*"), greaterThan(initialCost));
+        assertThat(controller.estimateCost(request, 5, "metrics-*"), equalTo(initialCost));
+    }
+
+    public void testTracksRecentExpressionsWhenFull() {
+        AtomicLong nanoTime = new AtomicLong();
+        SearchAdmissionController controller = newController(Settings.builder()
+            .put(SearchAdmissionController.ADMISSION_CONTROL_ENABLED.getKey(), true)
+            .build(), nanoTime);
+        for (int i = 0; i < SearchAdmissionController.MAX_TRACKED_EXPRESSIONS + 10; i++) {
+            controller.admit(new SearchRequest("logs-" + i), 1).close();
+        }
+        assertThat(controller.trackedExpressions(), equalTo(SearchAdmissionController.MAX_TRACKED_EXPRESSIONS));
+
+        // An expression we haven't seen before still gets tracked
+        SearchRequest request = new SearchRequest("metrics-*");
+        long initialCost = controller.estimateCost(request, 5, "metrics-*");
+        Releasable releasable = controller.admit(request, 5);
+        nanoTime.addAndGet(10 * SearchAdmissionController.LATENCY_UNIT_MILLIS * 1_000_000L);
+        releasable.close();
+        assertThat(controller.estimateCost(request, 5, "metrics-*"), greaterThan(initialCost));
+        assertThat(controller.trackedExpressions(), equalTo(SearchAdmissionController.MAX_TRACKED_EXPRESSIONS));
+    }
+
+    private static SearchAdmissionController newController(Settings settings, AtomicLong nanoTime) {
+        ClusterSettings clusterSettings = new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        return new SearchAdmissionController(settings, clusterSettings, nanoTime::get);
+    }
+}
@@ -15,6 +15,7 @@ import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
 
 import java.util.List;
+import java.util.concurrent.CyclicBarrier;
 
 import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING;
 import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING;
@@ -119,6 +120,45 @@ public class PreallocatedCircuitBreakerServiceTests extends ESTestCase {
         }
     }
 
+    public void testConcurrentUse() throws Exception {
+        try (HierarchyCircuitBreakerService real = real()) {
+            try (
+                PreallocatedCircuitBreakerService preallocated = new PreallocatedCircuitBreakerService(
+                    real,
+                    CircuitBreaker.REQUEST,
+                    1024,
+                    "test",
+                    true
+                )
+            ) {
+                CircuitBreaker b = preallocated.getBreaker(CircuitBreaker.REQUEST);
+                int iterations = between(100, 1000);
+                CyclicBarrier barrier = new CyclicBarrier(between(2, 5));
+                Thread[] threads = new Thread[barrier.getParties()];
+                for (int t = 0; t < threads.length; t++) {
+                    threads[t] = new Thread(() -> {
+                        try {
+                            barrier.await();
+                        } catch (Exception e) {
+                            throw new AssertionError(e);
+                        }
+                        for (int i = 0; i < iterations; i++) {
+                            b.addEstimateBytesAndMaybeBreak(10, "test");
+                        }
+                        for (int i = 0; i < iterations; i++) {
+                            b.addWithoutBreaking(-10);
+                        }
+                    });
+                    threads[t].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+            assertThat(real.getBreaker(CircuitBreaker.REQUEST).getUsed(), equalTo(0L));
+        }
+    }
+
     private HierarchyCircuitBreakerService real() {
         return new HierarchyCircuitBreakerService(
             Settings.builder()
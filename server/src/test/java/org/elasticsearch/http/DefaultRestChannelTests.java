@@ -24,6 +24,8 @@ import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.json.JsonXContent;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -43,6 +45,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
@@ -161,6 +164,55 @@ public class DefaultRestChannelTests extends ESTestCase {
         assertEquals(resp.contentType(), headers.get(DefaultRestChannel.CONTENT_TYPE).get(0));
     }
 
+    @SuppressWarnings("unchecked")
+    public void testChunkedResponse() {
+        final TestHttpRequest httpRequest = new TestHttpRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/");
+        final RestRequest request = RestRequest.request(xContentRegistry(), httpRequest, httpChannel);
+        final HttpHandlingSettings handlingSettings = HttpHandlingSettings.fromSettings(Settings.EMPTY);
+        final DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, handlingSettings,
+            threadPool.getThreadContext(), CorsHandler.fromSettings(Settings.EMPTY), null);
+
+        final String[] chunks = new String[] { "{\"field\":", "\"value\"}" };
+        final AtomicBoolean closed = new AtomicBoolean();
+        channel.sendResponse(new ChunkedRestResponse(RestStatus.OK, new ChunkedRestResponseBody() {
+            private int chunk = 0;
+
+            @Override
+            public boolean isDone() {
+                return chunk == chunks.length;
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) {
+                return ReleasableBytesReference.wrap(new BytesArray(chunks[chunk++]));
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return "application/json";
+            }
+
+            @Override
+            public void close() {
+                assertTrue(closed.compareAndSet(false, true));
+            }
+        }));
+
+        Class<ActionListener<Void>> listenerClass = (Class<ActionListener<Void>>) (Class) ActionListener.class;
+        ArgumentCaptor<ActionListener<Void>> listenerCaptor = ArgumentCaptor.forClass(listenerClass);
+        ArgumentCaptor<TestHttpResponse> responseCaptor = ArgumentCaptor.forClass(TestHttpResponse.class);
+        verify(httpChannel).sendResponse(responseCaptor.capture(), listenerCaptor.capture());
+        // the test transport cannot send chunked responses, so the body is serialized into a single buffer up front
+        TestHttpResponse httpResponse = responseCaptor.getValue();
+        assertEquals("{\"field\":\"value\"}", httpResponse.content().utf8ToString());
+        assertEquals("17", httpResponse.headers().get(DefaultRestChannel.CONTENT_LENGTH).get(0));
+        assertEquals("application/json", httpResponse.headers().get(DefaultRestChannel.CONTENT_TYPE).get(0));
+
+        assertFalse(closed.get());
+        listenerCaptor.getValue().onResponse(null);
+        assertTrue(closed.get());
+    }
+
     public void testCookiesSet() {
         Settings settings = Settings.builder().put(HttpTransportSettings.SETTING_HTTP_RESET_COOKIES.getKey(), true).build();
         final TestHttpRequest httpRequest = new TestHttpRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/");
@@ -20,6 +20,7 @@ import org.elasticsearch.common.logging.ESLogMessage;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.logging.MockAppender;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.shard.ShardId;
@@ -27,6 +28,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskResourceTracker;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 import org.elasticsearch.test.TestSearchContext;
 import org.hamcrest.Matchers;
@@ -34,12 +36,17 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasToString;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
@@ -233,6 +240,42 @@ public class SearchSlowLogTests extends ESSingleNodeTestCase {
         assertThat(p.get("elasticsearch.slowlog.source"), equalTo("{\\\"query\\\":{\\\"match_all\\\":{\\\"boost\\\":1.0}}}"));
     }
 
+    public void testSlowLogHasResourceUsage() throws IOException {
+        IndexService index = createIndex("foo");
+        SearchContext searchContext = searchContextWithSourceAndTask(index);
+        searchContext.getTask().addResourceUsage(1234, 5678);
+        ESLogMessage p = SearchSlowLog.SearchSlowLogMessage.of(searchContext, 10);
+
+        assertThat(p.get("elasticsearch.slowlog.cpu_time_nanos"), equalTo("1234"));
+        assertThat(p.get("elasticsearch.slowlog.allocated_bytes"), equalTo("5678"));
+    }
+
+    public void testSlowLogChargesCurrentThread() throws IOException {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue("thread cpu time is not supported", threadMXBean.isCurrentThreadCpuTimeSupported()
+            && threadMXBean.isThreadCpuTimeEnabled());
+        assumeTrue("thread allocations are not supported", threadMXBean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled());
+        IndexService index = createIndex("foo");
+        SearchContext searchContext = searchContextWithSourceAndTask(index);
+        ESLogMessage p;
+        try (Releasable ignored = TaskResourceTracker.track(searchContext.getTask())) {
+            long start = threadMXBean.getCurrentThreadCpuTime();
+            List<byte[]> garbage = new ArrayList<>();
+            while (threadMXBean.getCurrentThreadCpuTime() - start < 1_000_000L) {
+                garbage.add(new byte[1024]);
+                if (garbage.size() > 100) {
+                    garbage.clear();
+                }
+            }
+            // the slow log is written while the task is still running
+            p = SearchSlowLog.SearchSlowLogMessage.of(searchContext, 10);
+        }
+
+        assertThat(Long.parseLong(p.get("elasticsearch.slowlog.cpu_time_nanos")), greaterThan(0L));
+        assertThat(Long.parseLong(p.get("elasticsearch.slowlog.allocated_bytes")), greaterThanOrEqualTo(1024L));
+    }
+
 
     public void testSlowLogsWithStats() throws IOException {
         IndexService index = createIndex("foo");
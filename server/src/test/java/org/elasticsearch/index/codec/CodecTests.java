@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.util.Collections;
 
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 @SuppressCodecs("*") // we test against default codec so never get a random one here!
 public class CodecTests extends ESTestCase {
@@ -54,6 +55,15 @@ public class CodecTests extends ESTestCase {
         assertStoredFieldsCompressionEquals(Lucene90Codec.Mode.BEST_COMPRESSION, codec);
     }
 
+    public void testDictionaryFingerprintIsOptIn() throws Exception {
+        PerFieldMapperCodec codec = (PerFieldMapperCodec) createCodecService().codec("default");
+        assertThat(codec.getDocValuesFormatForField("foo"), not(instanceOf(DictionaryFingerprintDocValuesFormat.class)));
+
+        Settings enabled = Settings.builder().put(IndexSettings.INDEX_DICTIONARY_FINGERPRINT_SETTING.getKey(), true).build();
+        codec = (PerFieldMapperCodec) createCodecService(enabled).codec("default");
+        assertThat(codec.getDocValuesFormatForField("foo"), instanceOf(DictionaryFingerprintDocValuesFormat.class));
+    }
+
     // write some docs with it, inspect .si to see this was the used compression
     private void assertStoredFieldsCompressionEquals(Lucene90Codec.Mode expected, Codec actual) throws Exception {
         Directory dir = newDirectory();
@@ -73,10 +83,17 @@ public class CodecTests extends ESTestCase {
     }
 
     private CodecService createCodecService() throws IOException {
+        return createCodecService(Settings.EMPTY);
+    }
+
+    private CodecService createCodecService(Settings indexSettings) throws IOException {
         Settings nodeSettings = Settings.builder()
                 .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
                 .build();
-        IndexSettings settings = IndexSettingsModule.newIndexSettings("_na", nodeSettings);
+        IndexSettings settings = IndexSettingsModule.newIndexSettings(
+            "_na",
+            Settings.builder().put(nodeSettings).put(indexSettings).build()
+        );
         SimilarityService similarityService = new SimilarityService(settings, null, Collections.emptyMap());
         IndexAnalyzers indexAnalyzers = createTestAnalysis(settings, nodeSettings).indexAnalyzers;
         MapperRegistry mapperRegistry = new MapperRegistry(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
@@ -0,0 +1,195 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.lucene90.Lucene90Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.BaseDocValuesFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.plain.AbstractLeafOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.plain.SortedSetOrdinalsIndexFieldData;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Runs Lucene's doc values format test suite against the fingerprinting
+ * format, fingerprinting every field, and then checks the fingerprints.
+ */
+public class DictionaryFingerprintDocValuesFormatTests extends BaseDocValuesFormatTestCase {
+    private final Codec codec = TestUtil.alwaysDocValuesFormat(new DictionaryFingerprintDocValuesFormat(field -> true));
+
+    @Override
+    protected Codec getCodec() {
+        return codec;
+    }
+
+    public void testFingerprints() throws IOException {
+        try (Directory dir = newDirectory()) {
+            writeSegments(dir, List.of("a", "b", "c"), List.of("c", "b", "a"), List.of("a", "d"));
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertThat(reader.leaves().size(), equalTo(3));
+                String first = fingerprint(reader.leaves().get(0), "keyword");
+                assertThat(first, notNullValue());
+                assertThat(fingerprint(reader.leaves().get(1), "keyword"), equalTo(first));
+                assertThat(fingerprint(reader.leaves().get(2), "keyword"), not(equalTo(first)));
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    assertThat(fingerprint(leaf, "other"), nullValue());
+                }
+            }
+        }
+    }
+
+    public void testTooManyTerms() throws IOException {
+        try (Directory dir = newDirectory()) {
+            String[] terms = new String[DictionaryFingerprintDocValuesFormat.MAX_TERMS + 1];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = Integer.toString(i);
+            }
+            writeSegments(dir, List.of(terms));
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertThat(fingerprint(reader.leaves().get(0), "keyword"), nullValue());
+            }
+        }
+    }
+
+    public void testMergeRecomputesFingerprint() throws IOException {
+        String expected;
+        try (Directory dir = newDirectory()) {
+            writeSegments(dir, List.of("a", "b", "c", "d"));
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                expected = fingerprint(reader.leaves().get(0), "keyword");
+            }
+        }
+        try (Directory dir = newDirectory()) {
+            writeSegments(dir, List.of("a", "b"), List.of("c", "b"), List.of("d"));
+            try (IndexWriter writer = new IndexWriter(dir, config().setMergePolicy(new TieredMergePolicy()))) {
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertThat(reader.leaves().size(), equalTo(1));
+                assertThat(fingerprint(reader.leaves().get(0), "keyword"), equalTo(expected));
+                assertThat(fingerprint(reader.leaves().get(0), "other"), nullValue());
+            }
+        }
+    }
+
+    public void testMergePastMaxTermsDropsFingerprint() throws IOException {
+        try (Directory dir = newDirectory()) {
+            int half = DictionaryFingerprintDocValuesFormat.MAX_TERMS / 2 + 1;
+            List<String> first = new ArrayList<>();
+            List<String> second = new ArrayList<>();
+            for (int i = 0; i < half; i++) {
+                first.add("a" + i);
+                second.add("b" + i);
+            }
+            writeSegments(dir, first, second);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    assertThat(fingerprint(leaf, "keyword"), notNullValue());
+                }
+            }
+            try (IndexWriter writer = new IndexWriter(dir, config().setMergePolicy(new TieredMergePolicy()))) {
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertThat(reader.leaves().size(), equalTo(1));
+                assertThat(fingerprint(reader.leaves().get(0), "keyword"), nullValue());
+            }
+        }
+    }
+
+    public void testGlobalOrdinalsShareDictionaries() throws Exception {
+        try (Directory dir = newDirectory()) {
+            writeSegments(dir, List.of("a", "b", "c"), List.of("a", "d"), List.of("b", "c", "a"), List.of("d", "a"));
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                IndexOrdinalsFieldData fieldData = new SortedSetOrdinalsIndexFieldData(
+                    new IndexFieldDataCache.None(),
+                    "keyword",
+                    CoreValuesSourceType.KEYWORD,
+                    new NoneCircuitBreakerService(),
+                    AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
+                );
+                IndexOrdinalsFieldData global = fieldData.loadGlobal(reader);
+                assertThat(global.getOrdinalMap().getValueCount(), equalTo(4L));
+                assertThat(global.ordinalMapSegment(0), equalTo(0));
+                assertThat(global.ordinalMapSegment(1), equalTo(1));
+                assertThat(global.ordinalMapSegment(2), equalTo(0));
+                assertThat(global.ordinalMapSegment(3), equalTo(1));
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    SortedSetDocValues segment = fieldData.load(leaf).getOrdinalsValues();
+                    SortedSetDocValues globalValues = global.load(leaf).getOrdinalsValues();
+                    for (long ord = 0; ord < segment.getValueCount(); ord++) {
+                        long globalOrd = global.getOrdinalMap().getGlobalOrds(global.ordinalMapSegment(leaf.ord)).get(ord);
+                        assertThat(globalValues.lookupOrd(globalOrd), equalTo(segment.lookupOrd(ord)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write one segment for each list of terms with a document per term.
+     */
+    @SafeVarargs
+    private void writeSegments(Directory dir, List<String>... segments) throws IOException {
+        try (IndexWriter writer = new IndexWriter(dir, config())) {
+            for (List<String> terms : segments) {
+                for (String term : terms) {
+                    Document doc = new Document();
+                    doc.add(new SortedSetDocValuesField("keyword", new BytesRef(term)));
+                    doc.add(new SortedSetDocValuesField("other", new BytesRef(term)));
+                    writer.addDocument(doc);
+                }
+                writer.commit();
+            }
+        }
+    }
+
+    /**
+     * Not randomized because we need exactly one segment per list of terms.
+     * Only fingerprints the {@code keyword} field.
+     */
+    private static IndexWriterConfig config() {
+        DocValuesFormat format = new DictionaryFingerprintDocValuesFormat("keyword"::equals);
+        return new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE).setCodec(new Lucene90Codec() {
+            @Override
+            public DocValuesFormat getDocValuesFormatForField(String field) {
+                return format;
+            }
+        });
+    }
+
+    private static String fingerprint(LeafReaderContext leaf, String field) {
+        return DictionaryFingerprintDocValuesFormat.fingerprint(leaf.reader().getFieldInfos().fieldInfo(field));
+    }
+}
@@ -176,6 +176,20 @@ public class CompositeRuntimeFieldTests extends MapperServiceTestCase {
         assertThat(e.getMessage(), containsString("Cannot use [script] parameter on sub-field [long] of composite field [obj]"));
     }
 
+    public void testCacheOnSubFieldThrowsError() {
+        Exception e = expectThrows(MapperParsingException.class, () -> createMapperService(runtimeMapping(b -> {
+            b.startObject("obj");
+            b.field("type", "composite");
+            b.field("script", "dummy");
+            b.startObject("fields");
+            b.startObject("long").field("type", "long").field("cache", true).endObject();
+            b.endObject();
+            b.endObject();
+        })));
+
+        assertThat(e.getMessage(), containsString("Cannot use [cache] parameter on sub-field [long] of composite field [obj]"));
+    }
+
     public void testObjectWithoutScript() {
         Exception e = expectThrows(MapperParsingException.class, () -> createMapperService(runtimeMapping(b -> {
             b.startObject("obj");
@@ -34,17 +34,24 @@ import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.geo.ShapeRelation;
 import org.elasticsearch.common.lucene.search.function.ScriptScoreQuery;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.index.fielddata.DateScriptFieldData;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.script.DateFieldScript;
 import org.elasticsearch.script.DocReader;
 import org.elasticsearch.script.ScoreScript;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.test.FieldMaskingReader;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -61,6 +68,8 @@ import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class DateScriptFieldTypeTests extends AbstractNonTextScriptFieldTypeTestCase {
 
@@ -180,6 +189,76 @@ public class DateScriptFieldTypeTests extends AbstractNonTextScriptFieldTypeTest
         }
     }
 
+    public void testCachedDocValues() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"timestamp\": [1595432181354]}"))));
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"timestamp\": [1595432181356, 1595432181351]}"))));
+            try (
+                DirectoryReader reader = iw.getReader();
+                IndicesFieldDataCache indicesCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {})
+            ) {
+                IndexFieldDataCache cache = indicesCache.buildIndexFieldDataCache(
+                    new IndexFieldDataCache.Listener() {},
+                    new Index("test", "_na_"),
+                    "test"
+                );
+                DateScriptFieldData ifd = buildCached("add_days", Map.of("days", 1), DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER)
+                    .fielddataBuilder("test", mockContext()::lookup)
+                    .build(cache, new NoneCircuitBreakerService());
+                List<Long> expected = List.of(1595518581354L, 1595518581351L, 1595518581356L);
+                assertThat(values(ifd, reader), equalTo(expected));
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(ifd.load(context), sameInstance(ifd.load(context)));
+                }
+
+                // The format parses the dates that scripts emit as strings so it is part of the cache key
+                DateScriptFieldData otherFormat = buildCached("add_days", Map.of("days", 1), DateFormatter.forPattern("epoch_millis"))
+                    .fielddataBuilder("test", mockContext()::lookup)
+                    .build(cache, new NoneCircuitBreakerService());
+                assertThat(values(otherFormat, reader), equalTo(expected));
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(otherFormat.load(context), not(sameInstance(ifd.load(context))));
+                }
+
+                // Readers wrapped by field level security don't share the cache
+                DirectoryReader fls = new FieldMaskingReader("other", reader);
+                for (LeafReaderContext context : fls.leaves()) {
+                    assertThat(ifd.load(context), not(sameInstance(ifd.load(context))));
+                }
+                assertThat(values(ifd, fls), equalTo(expected));
+
+                // Runtime fields in the request could shadow the fields the script reads so they don't share the cache either
+                SearchLookup withRuntimeMappings = new SearchLookup(
+                    field -> null,
+                    (mft, lookupSupplier) -> mft.fielddataBuilder("test", lookupSupplier).build(null, null),
+                    true
+                );
+                DateScriptFieldData requestScoped = buildCached("add_days", Map.of("days", 1), DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER)
+                    .fielddataBuilder("test", () -> withRuntimeMappings)
+                    .build(cache, new NoneCircuitBreakerService());
+                assertThat(values(requestScoped, reader), equalTo(expected));
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(requestScoped.load(context), not(sameInstance(requestScoped.load(context))));
+                }
+            }
+        }
+    }
+
+    private static List<Long> values(DateScriptFieldData ifd, DirectoryReader reader) throws IOException {
+        List<Long> results = new ArrayList<>();
+        for (LeafReaderContext context : reader.leaves()) {
+            SortedNumericDocValues dv = ifd.load(context).getLongValues();
+            for (int doc = 0; doc < context.reader().maxDoc(); doc++) {
+                if (dv.advanceExact(doc)) {
+                    for (int i = 0; i < dv.docValueCount(); i++) {
+                        results.add(dv.nextValue());
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
     @Override
     public void testSort() throws IOException {
         try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
@@ -498,6 +577,27 @@ public class DateScriptFieldTypeTests extends AbstractNonTextScriptFieldTypeTest
         }
     }
 
+    private static DateScriptFieldType buildCached(String code, Map<String, Object> params, DateFormatter dateTimeFormatter) {
+        Script script = new Script(ScriptType.INLINE, "test", code, params);
+        DateFieldScript.Factory factory = factory(script);
+        return new DateScriptFieldType("test", new DateFieldScript.Factory() {
+            @Override
+            public DateFieldScript.LeafFactory newFactory(
+                String fieldName,
+                Map<String, Object> params,
+                SearchLookup searchLookup,
+                DateFormatter formatter
+            ) {
+                return factory.newFactory(fieldName, params, searchLookup, formatter);
+            }
+
+            @Override
+            public boolean isResultDeterministic() {
+                return true;
+            }
+        }, dateTimeFormatter, script, true, emptyMap());
+    }
+
     private static DateScriptFieldType build(Script script, DateFormatter dateTimeFormatter) {
         return new DateScriptFieldType("test", factory(script), dateTimeFormatter, script, emptyMap());
     }
@@ -1960,6 +1960,60 @@ public class DocumentParserTests extends MapperServiceTestCase {
         assertNotNull(doc.dynamicMappingsUpdate());
     }
 
+    public void testParsePlansFollowEachShape() throws Exception {
+        DocumentMapper mapper = createDocumentMapper(topMapping(b -> {
+            b.startObject("runtime");
+            {
+                b.startObject("obj.shadowed").field("type", "keyword").endObject();
+            }
+            b.endObject();
+            b.startObject("properties");
+            {
+                b.startObject("obj");
+                {
+                    b.startObject("properties");
+                    {
+                        b.startObject("foo").field("type", "keyword").endObject();
+                        b.startObject("bar").field("type", "long").endObject();
+                        b.startObject("off").field("type", "object").field("enabled", false).endObject();
+                    }
+                    b.endObject();
+                }
+                b.endObject();
+            }
+            b.endObject();
+        }));
+
+        // Parse each shape a few times so later documents follow the plans learned from earlier ones
+        for (int i = 0; i < 3; i++) {
+            ParsedDocument doc = mapper.parse(source(b -> {
+                b.startObject("obj").field("foo", "a").field("bar", 1).field("shadowed", "s").endObject();
+                b.field("obj.off.ignored", "x");
+            }));
+            assertEquals("a", doc.rootDoc().getField("obj.foo").binaryValue().utf8ToString());
+            assertEquals(1L, doc.rootDoc().getField("obj.bar").numericValue());
+            assertNull(doc.rootDoc().getField("obj.shadowed"));
+            assertNull(doc.rootDoc().getField("obj.off.ignored"));
+            assertNull(doc.dynamicMappingsUpdate());
+
+            doc = mapper.parse(source(b -> {
+                b.startObject("obj").field("bar", 2).array("foo", "b", "c").endObject();
+            }));
+            assertEquals(2L, doc.rootDoc().getField("obj.bar").numericValue());
+            assertEquals(4, doc.rootDoc().getFields("obj.foo").length);   // indexed and doc values for each value
+            assertNull(doc.dynamicMappingsUpdate());
+
+            // A field the plans have never seen falls back to dynamic mapping
+            doc = mapper.parse(source(b -> {
+                b.startObject("obj").field("foo", "d").field("bar", 3).field("new", "e").endObject();
+            }));
+            assertEquals("d", doc.rootDoc().getField("obj.foo").binaryValue().utf8ToString());
+            assertNotNull(doc.rootDoc().getField("obj.new"));
+            assertNotNull(doc.dynamicMappingsUpdate());
+            assertNotNull(doc.dynamicMappingsUpdate().getRoot().getMapper("obj"));
+        }
+    }
+
     /**
      * Mapper plugin providing a mock metadata field mapper implementation that supports setting its value
      */
@@ -8,11 +8,19 @@
 
 package org.elasticsearch.index.mapper;
 
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterDirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
@@ -25,19 +33,29 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.geo.ShapeRelation;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.lucene.search.function.ScriptScoreQuery;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.index.fielddata.LongScriptFieldData;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.script.DocReader;
 import org.elasticsearch.script.LongFieldScript;
 import org.elasticsearch.script.ScoreScript;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.test.FieldMaskingReader;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -47,6 +65,8 @@ import java.util.Map;
 import static java.util.Collections.emptyMap;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class LongScriptFieldTypeTests extends AbstractNonTextScriptFieldTypeTestCase {
 
@@ -107,6 +127,219 @@ public class LongScriptFieldTypeTests extends AbstractNonTextScriptFieldTypeTest
         }
     }
 
+    public void testCachedDocValues() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [1]}"))));
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [2, 1]}"))));
+            try (
+                DirectoryReader reader = iw.getReader();
+                IndicesFieldDataCache indicesCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {})
+            ) {
+                IndexFieldDataCache cache = fieldDataCache(indicesCache);
+                LongScriptFieldData ifd = buildCached("add_param", Map.of("param", 1), true).fielddataBuilder("test", mockContext()::lookup)
+                    .build(cache, new NoneCircuitBreakerService());
+                assertThat(values(ifd, reader), equalTo(List.of(2L, 2L, 3L)));
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(ifd.load(context), sameInstance(ifd.load(context)));
+                }
+
+                // The field has been updated so the cached values are stale
+                LongScriptFieldData updated = buildCached("add_param", Map.of("param", 2), true).fielddataBuilder(
+                    "test",
+                    mockContext()::lookup
+                ).build(cache, new NoneCircuitBreakerService());
+                assertThat(values(updated, reader), equalTo(List.of(3L, 3L, 4L)));
+
+                // Scripts that might return different values aren't cached
+                LongScriptFieldData notDeterministic = buildCached("add_param", Map.of("param", 1), false).fielddataBuilder(
+                    "test",
+                    mockContext()::lookup
+                ).build(cache, new NoneCircuitBreakerService());
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(notDeterministic.load(context), not(sameInstance(notDeterministic.load(context))));
+                }
+            }
+        }
+    }
+
+    public void testCachedDocValuesOfOlderReader() throws IOException {
+        IndexWriterConfig config = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory, config)) {
+            iw.addDocument(List.of(new StringField("id", "1", Field.Store.NO), new StoredField("_source", new BytesRef("{\"foo\": [1]}"))));
+            iw.addDocument(
+                List.of(new StringField("id", "2", Field.Store.NO), new StoredField("_source", new BytesRef("{\"foo\": [2, 1]}")))
+            );
+            try (DirectoryReader older = iw.getReader()) {
+                iw.deleteDocuments(new Term("id", "1"));
+                try (
+                    DirectoryReader newer = iw.getReader();
+                    IndicesFieldDataCache indicesCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {})
+                ) {
+                    LongScriptFieldData ifd = buildCached("add_param", Map.of("param", 1), true).fielddataBuilder(
+                        "test",
+                        mockContext()::lookup
+                    ).build(fieldDataCache(indicesCache), new NoneCircuitBreakerService());
+                    // The newer reader fills the cache but the older one shares it and can still see the deleted document
+                    assertThat(values(ifd, newer), equalTo(List.of(2L, 3L)));
+                    assertThat(values(ifd, older), equalTo(List.of(2L, 2L, 3L)));
+                    for (int i = 0; i < newer.leaves().size(); i++) {
+                        assertThat(ifd.load(older.leaves().get(i)), sameInstance(ifd.load(newer.leaves().get(i))));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testCachedDocValuesSkipSecurityFilteredReaders() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [1]}"))));
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [2, 1]}"))));
+            try (
+                DirectoryReader reader = iw.getReader();
+                IndicesFieldDataCache indicesCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {})
+            ) {
+                LongScriptFieldData ifd = buildCached("add_param", Map.of("param", 1), true).fielddataBuilder("test", mockContext()::lookup)
+                    .build(fieldDataCache(indicesCache), new NoneCircuitBreakerService());
+
+                // Like field level security hiding the field the script reads
+                DirectoryReader fls = new FieldMaskingReader(SourceFieldMapper.NAME, reader);
+                assertThat(values(ifd, fls), equalTo(List.of()));
+                // Like document level security hiding every document
+                DirectoryReader dls = new HideAllDocsReader(reader);
+                assertThat(values(ifd, dls), equalTo(List.of()));
+                for (LeafReaderContext context : fls.leaves()) {
+                    assertThat(ifd.load(context), not(sameInstance(ifd.load(context))));
+                }
+                for (LeafReaderContext context : dls.leaves()) {
+                    assertThat(ifd.load(context), not(sameInstance(ifd.load(context))));
+                }
+
+                // Neither of them filled the cache for everyone else
+                assertThat(values(ifd, reader), equalTo(List.of(2L, 2L, 3L)));
+
+                // Readers that just label the segment with its shard share the cache
+                DirectoryReader labelled = ElasticsearchDirectoryReader.wrap(reader, new ShardId("test", "_na_", 0));
+                for (int i = 0; i < reader.leaves().size(); i++) {
+                    assertThat(ifd.load(labelled.leaves().get(i)), sameInstance(ifd.load(reader.leaves().get(i))));
+                }
+            }
+        }
+    }
+
+    public void testCachedDocValuesSkippedWithRuntimeMappings() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [1]}"))));
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [2, 1]}"))));
+            try (
+                DirectoryReader reader = iw.getReader();
+                IndicesFieldDataCache indicesCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {})
+            ) {
+                // Runtime fields in the request could shadow the fields the script reads
+                SearchLookup lookup = new SearchLookup(
+                    field -> null,
+                    (mft, lookupSupplier) -> mft.fielddataBuilder("test", lookupSupplier).build(null, null),
+                    true
+                );
+                LongScriptFieldData ifd = buildCached("add_param", Map.of("param", 1), true).fielddataBuilder("test", () -> lookup)
+                    .build(fieldDataCache(indicesCache), new NoneCircuitBreakerService());
+                assertThat(values(ifd, reader), equalTo(List.of(2L, 2L, 3L)));
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(ifd.load(context), not(sameInstance(ifd.load(context))));
+                }
+            }
+        }
+    }
+
+    public void testCachedDocValuesSkippedForScriptDependencies() throws IOException {
+        try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [1]}"))));
+            iw.addDocument(List.of(new StoredField("_source", new BytesRef("{\"foo\": [2, 1]}"))));
+            try (
+                DirectoryReader reader = iw.getReader();
+                IndicesFieldDataCache indicesCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {})
+            ) {
+                // The script of the dependency can change without changing the script that reads it
+                Script readFoo = new Script(ScriptType.INLINE, "test", "read_foo", Map.of());
+                LongScriptFieldType dependency = new LongScriptFieldType("dep", factory(readFoo), readFoo, emptyMap());
+                SearchLookup lookup = new SearchLookup(
+                    field -> field.equals("dep") ? dependency : null,
+                    (mft, lookupSupplier) -> mft.fielddataBuilder("test", lookupSupplier).build(null, null)
+                );
+                LongScriptFieldData ifd = buildCached("add_dep", Map.of(), true).fielddataBuilder("test", () -> lookup)
+                    .build(fieldDataCache(indicesCache), new NoneCircuitBreakerService());
+                assertThat(values(ifd, reader), equalTo(List.of(2L, 2L, 3L)));
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertThat(ifd.load(context), not(sameInstance(ifd.load(context))));
+                }
+            }
+        }
+    }
+
+    private static IndexFieldDataCache fieldDataCache(IndicesFieldDataCache indicesCache) {
+        return indicesCache.buildIndexFieldDataCache(new IndexFieldDataCache.Listener() {}, new Index("test", "_na_"), "test");
+    }
+
+    private static List<Long> values(LongScriptFieldData ifd, DirectoryReader reader) throws IOException {
+        List<Long> results = new ArrayList<>();
+        for (LeafReaderContext context : reader.leaves()) {
+            SortedNumericDocValues dv = ifd.load(context).getLongValues();
+            Bits liveDocs = context.reader().getLiveDocs();
+            for (int doc = 0; doc < context.reader().maxDoc(); doc++) {
+                if ((liveDocs == null || liveDocs.get(doc)) && dv.advanceExact(doc)) {
+                    for (int i = 0; i < dv.docValueCount(); i++) {
+                        results.add(dv.nextValue());
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Hides every document like document level security would while sharing
+     * the cache keys of the segments.
+     */
+    private static class HideAllDocsReader extends FilterDirectoryReader {
+        HideAllDocsReader(DirectoryReader in) throws IOException {
+            super(in, new SubReaderWrapper() {
+                @Override
+                public LeafReader wrap(LeafReader reader) {
+                    return new FilterLeafReader(reader) {
+                        @Override
+                        public Bits getLiveDocs() {
+                            return new Bits.MatchNoBits(maxDoc());
+                        }
+
+                        @Override
+                        public int numDocs() {
+                            return 0;
+                        }
+
+                        @Override
+                        public CacheHelper getCoreCacheHelper() {
+                            return in.getCoreCacheHelper();
+                        }
+
+                        @Override
+                        public CacheHelper getReaderCacheHelper() {
+                            return in.getReaderCacheHelper();
+                        }
+                    };
+                }
+            });
+        }
+
+        @Override
+        protected DirectoryReader doWrapDirectoryReader(DirectoryReader in) throws IOException {
+            return new HideAllDocsReader(in);
+        }
+
+        @Override
+        public CacheHelper getReaderCacheHelper() {
+            return in.getReaderCacheHelper();
+        }
+    }
+
     @Override
     public void testSort() throws IOException {
         try (Directory directory = newDirectory(); RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
@@ -287,11 +520,20 @@ public class LongScriptFieldTypeTests extends AbstractNonTextScriptFieldTypeTest
                 return (fieldName, params, lookup) -> (ctx) -> new LongFieldScript(fieldName, params, lookup, ctx) {
                     @Override
                     public void execute() {
-                        for (Object foo : (List<?>) lookup.source().get("foo")) {
+                        for (Object foo : (List<?>) lookup.source().getOrDefault("foo", List.of())) {
                             emit(((Number) foo).longValue() + ((Number) getParams().get("param")).longValue());
                         }
                     }
                 };
+            case "add_dep":
+                return (fieldName, params, lookup) -> (ctx) -> new LongFieldScript(fieldName, params, lookup, ctx) {
+                    @Override
+                    public void execute() {
+                        for (Object dep : getDoc().get("dep")) {
+                            emit(((Number) dep).longValue() + 1);
+                        }
+                    }
+                };
             case "millis_ago":
                 // Painless actually call System.currentTimeMillis. We could mock the time but this works fine too.
                 long now = System.currentTimeMillis();
@@ -314,6 +556,22 @@ public class LongScriptFieldTypeTests extends AbstractNonTextScriptFieldTypeTest
         }
     }
 
+    private static LongScriptFieldType buildCached(String code, Map<String, Object> params, boolean deterministic) {
+        Script script = new Script(ScriptType.INLINE, "test", code, params);
+        LongFieldScript.Factory factory = factory(script);
+        return new LongScriptFieldType("test", new LongFieldScript.Factory() {
+            @Override
+            public LongFieldScript.LeafFactory newFactory(String fieldName, Map<String, Object> params, SearchLookup searchLookup) {
+                return factory.newFactory(fieldName, params, searchLookup);
+            }
+
+            @Override
+            public boolean isResultDeterministic() {
+                return deterministic;
+            }
+        }, script, true, emptyMap());
+    }
+
     private static LongScriptFieldType build(Script script) {
         return new LongScriptFieldType("test", factory(script), script, emptyMap());
     }
@@ -12,6 +12,7 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -290,6 +291,11 @@ public class CompoundProcessorTests extends ESTestCase {
         Pipeline pipeline2 = new Pipeline("2", null, null, null,
             new CompoundProcessor(new TestProcessor(new RuntimeException("failure!"))));
         Pipeline pipeline1 = new Pipeline("1", null, null, null, new CompoundProcessor(false,List.of(new AbstractProcessor(null, null) {
+            @Override
+            public boolean isAsync() {
+                return true;
+            }
+
             @Override
             public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
                 ingestDocument.executePipeline(pipeline2, handler);
@@ -335,6 +341,11 @@ public class CompoundProcessorTests extends ESTestCase {
                  throw new UnsupportedOperationException();
             }
 
+            @Override
+            public boolean isAsync() {
+                return true;
+            }
+
             @Override
             public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
                 ingestDocument.executePipeline(pipeline2, handler);
@@ -354,6 +365,109 @@ public class CompoundProcessorTests extends ESTestCase {
         assertThat(ingestProcessorException.getHeader("pipeline_origin"), equalTo(List.of("2", "1")));
     }
 
+    public void testSyncAndAsyncProcessors() throws Exception {
+        Processor sync = new AbstractProcessor(null, null) {
+            @Override
+            public IngestDocument execute(IngestDocument ingestDocument) {
+                ingestDocument.appendFieldValue("order", "sync");
+                return ingestDocument;
+            }
+
+            @Override
+            public boolean isAsync() {
+                return false;
+            }
+
+            @Override
+            public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
+                throw new AssertionError("synchronous processors should be run without a handler");
+            }
+
+            @Override
+            public String getType() {
+                return "sync";
+            }
+        };
+        Processor async = new AbstractProcessor(null, null) {
+            @Override
+            public IngestDocument execute(IngestDocument ingestDocument) {
+                throw new AssertionError("asynchronous processors should be run with a handler");
+            }
+
+            @Override
+            public boolean isAsync() {
+                return true;
+            }
+
+            @Override
+            public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
+                ingestDocument.appendFieldValue("order", "async");
+                handler.accept(ingestDocument, null);
+            }
+
+            @Override
+            public String getType() {
+                return "async";
+            }
+        };
+        LongSupplier relativeTimeProvider = mock(LongSupplier.class);
+        when(relativeTimeProvider.getAsLong()).thenReturn(0L);
+        CompoundProcessor compoundProcessor = new CompoundProcessor(relativeTimeProvider, sync, async, sync, sync);
+        IngestDocument[] holder = new IngestDocument[1];
+        compoundProcessor.execute(ingestDocument, (result, e) -> {
+            assertThat(e, nullValue());
+            holder[0] = result;
+        });
+        assertThat(holder[0], sameInstance(ingestDocument));
+        assertThat(ingestDocument.getFieldValue("order", List.class), equalTo(List.of("sync", "async", "sync", "sync")));
+        for (int i = 0; i < 4; i++) {
+            assertStats(i, compoundProcessor, 0, 1, 0, 0);
+        }
+    }
+
+    public void testAsyncProcessorThatDoesNotOverrideIsAsync() throws Exception {
+        // Shaped like a processor from a plugin written before Processor#isAsync existed
+        List<BiConsumer<IngestDocument, Exception>> pending = new ArrayList<>();
+        Processor async = new AbstractProcessor(null, null) {
+            @Override
+            public IngestDocument execute(IngestDocument ingestDocument) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
+                pending.add((result, e) -> {
+                    ingestDocument.setFieldValue("async", true);
+                    handler.accept(ingestDocument, null);
+                });
+            }
+
+            @Override
+            public String getType() {
+                return "async";
+            }
+        };
+        assertTrue(async.isAsync());
+        assertFalse(new TestProcessor(doc -> {}).isAsync());
+
+        LongSupplier relativeTimeProvider = mock(LongSupplier.class);
+        when(relativeTimeProvider.getAsLong()).thenReturn(0L);
+        TestProcessor after = new TestProcessor(doc -> assertTrue(doc.getFieldValue("async", Boolean.class)));
+        CompoundProcessor compoundProcessor = new CompoundProcessor(relativeTimeProvider, async, after);
+        IngestDocument[] holder = new IngestDocument[1];
+        compoundProcessor.execute(ingestDocument, (result, e) -> {
+            assertThat(e, nullValue());
+            holder[0] = result;
+        });
+        assertThat(holder[0], nullValue());
+        assertThat(after.getInvokedCounter(), equalTo(0));
+        assertThat(pending.size(), equalTo(1));
+
+        pending.get(0).accept(null, null);
+        assertThat(holder[0], sameInstance(ingestDocument));
+        assertThat(after.getInvokedCounter(), equalTo(1));
+    }
+
     private void assertStats(CompoundProcessor compoundProcessor, long count,  long failed, long time) {
         assertStats(0, compoundProcessor, 0L, count, failed, time);
     }
@@ -37,6 +37,7 @@ import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -129,6 +130,26 @@ public class ConditionalProcessorTests extends ESTestCase {
         processor.execute(finalIngestDocument, (result, e) -> {holder[0] = e;});
         assertThat(holder[0], instanceOf(RuntimeException.class));
         assertStats(processor, 2, 1, 2);
+
+        //the inner processor is synchronous so pipelines run the condition without a handler
+        assertThat(processor.isAsync(), is(false));
+        ingestDocument = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        ingestDocument.setFieldValue(conditionalField, falseValue);
+        assertThat(processor.execute(ingestDocument), sameInstance(ingestDocument));
+        assertThat(ingestDocument.getSourceAndMetadata(), not(hasKey("foo")));
+        assertStats(processor, 2, 1, 2);
+
+        ingestDocument = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        ingestDocument.setFieldValue(conditionalField, trueValue);
+        assertThat(processor.execute(ingestDocument), sameInstance(ingestDocument));
+        assertThat(ingestDocument.getSourceAndMetadata().get("foo"), is("bar"));
+        assertStats(processor, 3, 1, 2);
+
+        IngestDocument failingDocument = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        failingDocument.setFieldValue(conditionalField, trueValue);
+        failingDocument.setFieldValue("error", true);
+        expectThrows(RuntimeException.class, () -> processor.execute(failingDocument));
+        assertStats(processor, 4, 2, 2);
     }
 
     @SuppressWarnings("unchecked")
@@ -97,6 +97,18 @@ public class IngestDocumentTests extends ESTestCase {
             equalTo(BOGUS_TIMESTAMP));
     }
 
+    public void testManyDistinctPaths() {
+        // more paths than the parsed paths cache holds so some of them get evicted while the hot ones are used in between
+        for (int i = 0; i < 2000; i++) {
+            ingestDocument.setFieldValue("many.f" + i, i);
+            assertThat(ingestDocument.getFieldValue("foo", String.class), equalTo("bar"));
+            assertThat(ingestDocument.getFieldValue("_source.int", Integer.class), equalTo(123));
+        }
+        for (int i = 0; i < 2000; i++) {
+            assertThat(ingestDocument.getFieldValue("many.f" + i, Integer.class), equalTo(i));
+        }
+    }
+
     public void testGetSourceObject() {
         try {
             ingestDocument.getFieldValue("_source", Object.class);
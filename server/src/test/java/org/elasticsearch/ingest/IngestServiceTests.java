@@ -93,6 +93,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -1066,6 +1067,7 @@ public class IngestServiceTests extends ESTestCase {
 
     public void testExecuteSuccessWithOnFailure() throws Exception {
         final Processor processor = mock(Processor.class);
+        when(processor.isAsync()).thenReturn(true);
         when(processor.getType()).thenReturn("mock_processor_type");
         when(processor.getTag()).thenReturn("mock_processor_tag");
         doAnswer(args -> {
@@ -1076,6 +1078,7 @@ public class IngestServiceTests extends ESTestCase {
         }).when(processor).execute(eqIndexTypeId(emptyMap()), any());
 
         final Processor onFailureProcessor = mock(Processor.class);
+        when(onFailureProcessor.isAsync()).thenReturn(true);
         doAnswer(args -> {
             IngestDocument ingestDocument = (IngestDocument) args.getArguments()[0];
             @SuppressWarnings("unchecked")
@@ -1108,8 +1111,11 @@ public class IngestServiceTests extends ESTestCase {
 
     public void testExecuteFailureWithNestedOnFailure() throws Exception {
         final Processor processor = mock(Processor.class);
+        when(processor.isAsync()).thenReturn(true);
         final Processor onFailureProcessor = mock(Processor.class);
+        when(onFailureProcessor.isAsync()).thenReturn(true);
         final Processor onFailureOnFailureProcessor = mock(Processor.class);
+        when(onFailureOnFailureProcessor.isAsync()).thenReturn(true);
         final List<Processor> processors = Collections.singletonList(onFailureProcessor);
         final List<Processor> onFailureProcessors = Collections.singletonList(onFailureOnFailureProcessor);
         final CompoundProcessor compoundProcessor = new CompoundProcessor(
@@ -1216,6 +1222,7 @@ public class IngestServiceTests extends ESTestCase {
         }
 
         final Processor processor = mock(Processor.class);
+        when(processor.isAsync()).thenReturn(true);
         when(processor.getType()).thenReturn("mock");
         when(processor.getTag()).thenReturn("mockTag");
         doAnswer(args -> {
@@ -1251,9 +1258,63 @@ public class IngestServiceTests extends ESTestCase {
         }
     }
 
+    public void testBulkRequestExecutionInSlices() throws Exception {
+        Map<String, Processor.Factory> map = new HashMap<>(2);
+        map.put("mock", (factories, tag, description, config) -> new FakeProcessor("mock", tag, description,
+            ingestDocument -> ingestDocument.setFieldValue("processed", true)));
+        ThreadPool threadPool = mock(ThreadPool.class);
+        when(threadPool.generic()).thenReturn(EsExecutors.DIRECT_EXECUTOR_SERVICE);
+        when(threadPool.executor(anyString())).thenReturn(EsExecutors.DIRECT_EXECUTOR_SERVICE);
+        when(threadPool.info(Names.WRITE)).thenReturn(new ThreadPool.Info(Names.WRITE, ThreadPool.ThreadPoolType.FIXED, 4));
+        IngestService ingestService = new IngestService(mock(ClusterService.class), threadPool, null, null,
+            null, Collections.singletonList(new IngestPlugin() {
+            @Override
+            public Map<String, Processor.Factory> getProcessors(final Processor.Parameters parameters) {
+                return map;
+            }
+        }), mock(Client.class));
+        PutPipelineRequest putRequest = new PutPipelineRequest("_id",
+            new BytesArray("{\"processors\": [{\"mock\": {}}]}"), XContentType.JSON);
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build();
+        ClusterState previousClusterState = clusterState;
+        clusterState = IngestService.innerPut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        int numRequest = between(IngestService.BULK_SLICE_SIZE * 4, IngestService.BULK_SLICE_SIZE * 6);
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < numRequest; i++) {
+            if (rarely()) {
+                bulkRequest.add(new DeleteRequest("_index", Integer.toString(i)));
+            } else {
+                bulkRequest.add(new IndexRequest("_index").id(Integer.toString(i)).source(Map.of()).setPipeline("_id")
+                    .setFinalPipeline("_none"));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        BiConsumer<Integer, Exception> requestItemErrorHandler = mock(BiConsumer.class);
+        @SuppressWarnings("unchecked")
+        final BiConsumer<Thread, Exception> completionHandler = mock(BiConsumer.class);
+        ingestService.executeBulkRequest(numRequest, bulkRequest.requests(), requestItemErrorHandler, completionHandler, indexReq -> {},
+            Names.WRITE);
+
+        verify(requestItemErrorHandler, never()).accept(any(), any());
+        verify(completionHandler, times(1)).accept(Thread.currentThread(), null);
+        // Once to start the bulk and once for each slice but the first
+        verify(threadPool, times(4)).executor(Names.WRITE);
+        for (DocWriteRequest<?> docWriteRequest : bulkRequest.requests()) {
+            IndexRequest indexRequest = TransportBulkAction.getIndexWriteRequest(docWriteRequest);
+            if (indexRequest != null) {
+                assertThat(indexRequest.sourceAsMap(), hasKey("processed"));
+            }
+        }
+    }
+
     public void testStats() throws Exception {
         final Processor processor = mock(Processor.class);
+        when(processor.isAsync()).thenReturn(true);
         final Processor processorFailure = mock(Processor.class);
+        when(processorFailure.isAsync()).thenReturn(true);
         when(processor.getType()).thenReturn("mock");
         when(processor.getTag()).thenReturn("mockTag");
         when(processorFailure.getType()).thenReturn("failure-mock");
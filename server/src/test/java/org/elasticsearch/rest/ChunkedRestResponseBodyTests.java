@@ -0,0 +1,79 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.collect.Iterators;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
+import org.elasticsearch.xcontent.ToXContent;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.json.JsonXContent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+
+public class ChunkedRestResponseBodyTests extends ESTestCase {
+
+    public void testEncodesChunksOfRequestedSize() throws Exception {
+        final List<ToXContent> elements = new ArrayList<>();
+        final int numberOfElements = randomIntBetween(1, 100);
+        for (int i = 0; i < numberOfElements; i++) {
+            final String field = "field_" + i;
+            final String value = randomAlphaOfLengthBetween(1, 1024);
+            elements.add((builder, params) -> builder.field(field, value));
+        }
+        final ChunkedToXContent chunkedToXContent = params -> Iterators.concat(
+            Iterators.<ToXContent>single((builder, p) -> builder.startObject()),
+            elements.iterator(),
+            Iterators.<ToXContent>single((builder, p) -> builder.endObject()));
+
+        final XContentBuilder expected = JsonXContent.contentBuilder().startObject();
+        for (ToXContent element : elements) {
+            element.toXContent(expected, ToXContent.EMPTY_PARAMS);
+        }
+        expected.endObject();
+
+        final FakeRestChannel channel = new FakeRestChannel(new FakeRestRequest(), randomBoolean(), 1);
+        final ChunkedRestResponseBody body = ChunkedRestResponseBody.fromXContent(chunkedToXContent, ToXContent.EMPTY_PARAMS, channel);
+        final int sizeHint = randomIntBetween(1, 4096);
+        final BytesStreamOutput out = new BytesStreamOutput();
+        while (body.isDone() == false) {
+            try (ReleasableBytesReference chunk = body.encodeChunk(sizeHint, BigArrays.NON_RECYCLING_INSTANCE)) {
+                if (body.isDone() == false) {
+                    assertThat(chunk.length(), greaterThanOrEqualTo(sizeHint));
+                }
+                chunk.writeTo(out);
+            }
+        }
+        assertThat(out.bytes().utf8ToString(), equalTo(Strings.toString(expected)));
+    }
+
+    public void testChunkedResponseContentFallsBackToSingleBuffer() throws Exception {
+        final ChunkedToXContent chunkedToXContent = params -> Iterators.concat(
+            Iterators.<ToXContent>single((builder, p) -> builder.startObject().field("first", 1)),
+            Iterators.<ToXContent>single((builder, p) -> builder.field("second", 2).endObject()));
+        final FakeRestChannel channel = new FakeRestChannel(new FakeRestRequest(), randomBoolean(), 1);
+        final ChunkedRestResponse response = new ChunkedRestResponse(RestStatus.OK,
+            ChunkedRestResponseBody.fromXContent(chunkedToXContent, ToXContent.EMPTY_PARAMS, channel));
+        final BytesReference content = response.content();
+        assertThat(content.utf8ToString(), equalTo("{\"first\":1,\"second\":2}"));
+        assertThat(response.contentType(), startsWith("application/json"));
+    }
+}
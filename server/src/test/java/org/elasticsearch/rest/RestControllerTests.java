@@ -14,10 +14,12 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.xcontent.NamedXContentRegistry;
@@ -30,17 +32,21 @@ import org.elasticsearch.http.HttpRequest;
 import org.elasticsearch.http.HttpResponse;
 import org.elasticsearch.http.HttpServerTransport;
 import org.elasticsearch.http.HttpStats;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.rest.RestHandler.Route;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.client.NoOpNodeClient;
 import org.elasticsearch.test.rest.FakeRestRequest;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.usage.UsageService;
 import org.junit.After;
 import org.junit.Before;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -53,13 +59,17 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.elasticsearch.rest.RestRequest.Method.GET;
 import static org.elasticsearch.rest.RestRequest.Method.OPTIONS;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
@@ -349,6 +359,103 @@ public class RestControllerTests extends ESTestCase {
         assertEquals(0, inFlightRequestsBreaker.getUsed());
     }
 
+    public void testDispatchInflatesCompressedContent() throws IOException {
+        final String content = "{\"field\":\"" + randomAlphaOfLength(between(1, 1024)) + "\"}";
+        final CircuitBreakerService breakerService = newCircuitBreakerService(new ByteSizeValue(1, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        final RestController restController = new RestController(Collections.emptySet(), null, client, breakerService, usageService);
+        final AtomicReference<String> inflated = new AtomicReference<>();
+        restController.registerHandler(new Route(GET, "/"), (request, channel, client) -> {
+            inflated.set(request.content().utf8ToString());
+            // both the compressed and the inflated bytes are reserved while the request is handled
+            assertThat(breaker.getUsed(), greaterThan((long) content.length()));
+            channel.sendResponse(new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+        });
+        final String encoding = randomFrom("gzip", "deflate");
+        final RestRequest request = compressedRestRequest(content, encoding);
+        final AssertingChannel channel = new AssertingChannel(request, true, RestStatus.OK);
+
+        restController.dispatchRequest(request, channel, client.threadPool().getThreadContext());
+
+        assertTrue(channel.getSendResponseCalled());
+        assertThat(inflated.get(), equalTo(content));
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testDispatchLimitsInflatedBytes() throws IOException {
+        // compresses very well, so that only the inflated content exceeds the limit
+        final String content = "{\"field\":\"" + "a".repeat(Math.toIntExact(ByteSizeUnit.KB.toBytes(16))) + "\"}";
+        final CircuitBreakerService breakerService = newCircuitBreakerService(new ByteSizeValue(4, ByteSizeUnit.KB));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        final RestController restController = new RestController(Collections.emptySet(), null, client, breakerService, usageService);
+        final AtomicBoolean handlerCalled = new AtomicBoolean();
+        restController.registerHandler(new Route(GET, "/"), (request, channel, client) -> handlerCalled.set(true));
+        final RestRequest request = compressedRestRequest(content, randomFrom("gzip", "deflate"));
+        final AssertingChannel channel = new AssertingChannel(request, true, RestStatus.TOO_MANY_REQUESTS);
+
+        restController.dispatchRequest(request, channel, client.threadPool().getThreadContext());
+
+        assertTrue(channel.getSendResponseCalled());
+        assertFalse(handlerCalled.get());
+        assertEquals(1, breaker.getTrippedCount());
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testDispatchRejectsContentThatInflatesPastMaxContentLength() throws IOException {
+        final String content = "{\"field\":\"" + "a".repeat(Math.toIntExact(ByteSizeUnit.KB.toBytes(16))) + "\"}";
+        final CircuitBreakerService breakerService = newCircuitBreakerService(new ByteSizeValue(1, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        final RestController restController = new RestController(Collections.emptySet(), null, client, breakerService, usageService,
+            ByteSizeUnit.KB.toBytes(8));
+        final AtomicBoolean handlerCalled = new AtomicBoolean();
+        final boolean canTripCircuitBreaker = randomBoolean();
+        restController.registerHandler(new Route(GET, "/"), new RestHandler() {
+            @Override
+            public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) {
+                handlerCalled.set(true);
+            }
+
+            @Override
+            public boolean canTripCircuitBreaker() {
+                return canTripCircuitBreaker;
+            }
+        });
+        final RestRequest request = compressedRestRequest(content, randomFrom("gzip", "deflate"));
+        final AssertingChannel channel = new AssertingChannel(request, true, RestStatus.REQUEST_ENTITY_TOO_LARGE);
+
+        restController.dispatchRequest(request, channel, client.threadPool().getThreadContext());
+
+        assertTrue(channel.getSendResponseCalled());
+        assertFalse(handlerCalled.get());
+        assertEquals(0, breaker.getTrippedCount());
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testDispatchInflatesOffNetworkThreadPastInlineLimit() throws Exception {
+        // small enough to be inflated inline but inflates to more than the network thread is allowed to inflate
+        final String content = "{\"field\":\"" + "a".repeat(2 * RestRequestDecompressor.INLINE_INFLATED_LIMIT) + "\"}";
+        final CircuitBreakerService breakerService = newCircuitBreakerService(new ByteSizeValue(16, ByteSizeUnit.MB));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        final RestController restController = new RestController(Collections.emptySet(), null, client, breakerService, usageService);
+        final AtomicReference<String> handlerThread = new AtomicReference<>();
+        final AtomicReference<String> inflated = new AtomicReference<>();
+        restController.registerHandler(new Route(GET, "/"), (request, channel, client) -> {
+            handlerThread.set(Thread.currentThread().getName());
+            inflated.set(request.content().utf8ToString());
+            channel.sendResponse(new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+        });
+        final RestRequest request = compressedRestRequest(content, randomFrom("gzip", "deflate"));
+        assertThat(request.contentLength(), lessThanOrEqualTo(RestRequestDecompressor.INLINE_DECOMPRESSION_LIMIT));
+        final AssertingChannel channel = new AssertingChannel(request, true, RestStatus.OK);
+
+        restController.dispatchRequest(request, channel, client.threadPool().getThreadContext());
+
+        assertBusy(() -> assertTrue(channel.getSendResponseCalled()));
+        assertThat(handlerThread.get(), containsString("[" + ThreadPool.Names.GENERIC + "]"));
+        assertThat(inflated.get(), equalTo(content));
+        assertEquals(0, breaker.getUsed());
+    }
+
     public void testDispatchRequiresContentTypeForRequestsWithContent() {
         String content = randomAlphaOfLength((int) Math.round(BREAKER_LIMIT.getBytes() / inFlightRequestsBreaker.getOverhead()));
         RestRequest request = testRestRequest("/", content, null);
@@ -827,6 +934,30 @@ public class RestControllerTests extends ESTestCase {
         }
     }
 
+    private static RestRequest compressedRestRequest(String content, String encoding) throws IOException {
+        final BytesStreamOutput compressed = new BytesStreamOutput();
+        try (OutputStream out = "gzip".equals(encoding) ? new GZIPOutputStream(compressed) : new DeflaterOutputStream(compressed)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("Content-Encoding", Collections.singletonList(encoding));
+        return new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
+            .withPath("/")
+            .withHeaders(headers)
+            .withContent(compressed.bytes(), XContentType.JSON)
+            .build();
+    }
+
+    private static CircuitBreakerService newCircuitBreakerService(ByteSizeValue inFlightRequestsLimit) {
+        return new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), inFlightRequestsLimit)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
     private static RestRequest testRestRequest(String path, String content, XContentType xContentType) {
         FakeRestRequest.Builder builder = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY);
         builder.withPath(path);
@@ -10,8 +10,10 @@ package org.elasticsearch.script;
 import org.apache.logging.log4j.Level;
 import org.elasticsearch.ResourceNotFoundException;
 import org.elasticsearch.action.admin.cluster.storedscripts.GetStoredScriptRequest;
+import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlocks;
 import org.elasticsearch.cluster.metadata.Metadata;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.bytes.BytesArray;
@@ -23,10 +25,12 @@ import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.xcontent.XContentFactory;
 import org.elasticsearch.xcontent.XContentType;
 import org.elasticsearch.env.Environment;
+import org.elasticsearch.gateway.GatewayService;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -45,6 +49,8 @@ import static org.elasticsearch.script.ScriptService.SCRIPT_MAX_COMPILATIONS_RAT
 import static org.elasticsearch.script.ScriptService.USE_CONTEXT_RATE_KEY_DEPRECATION_MESSAGE;
 import static org.elasticsearch.script.ScriptService.USE_CONTEXT_RATE_KEY;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.sameInstance;
@@ -704,6 +710,136 @@ public class ScriptServiceTests extends ESTestCase {
         assertSettingDeprecationsAndWarnings(new Setting<?>[]{compilationRateA, compilationRateB, compilationRateC});
     }
 
+    public void testCacheHolderChangeSettingsKeepsCompiledScripts() throws IOException {
+        buildScriptService(Settings.builder().put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), "77/5m").build());
+        Script script = new Script(ScriptType.INLINE, "test", "1+1", Collections.emptyMap());
+        ScriptContext<?> context = randomFrom(rateLimitedContexts.values());
+        ScriptContext<?> other = randomValueOtherThan(context, () -> randomFrom(rateLimitedContexts.values()));
+        Object compiled = scriptService.compile(script, context);
+        assertEquals(1L, scriptService.stats().getCompilations());
+
+        // Changing the general rate replaces the general cache
+        scriptService.setCacheHolder(Settings.builder().put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), "78/5m").build());
+        assertSame(compiled, scriptService.compile(script, context));
+        assertEquals(0L, scriptService.stats().getCompilations());
+
+        // Flipping to context caches copies each script to its context's cache
+        scriptService.setCacheHolder(
+            Settings.builder().put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), USE_CONTEXT_RATE_KEY).build()
+        );
+        assertSame(compiled, scriptService.compile(script, context));
+        assertEquals(0L, scriptService.stats().getCompilations());
+        assertEquals(0, scriptService.cacheHolder.get().get(other.name).stats().getCompilations());
+
+        // Replacing a single context cache
+        scriptService.cacheHolder.get().set(context.name, scriptService.contextCache(Settings.EMPTY, context));
+        assertSame(compiled, scriptService.compile(script, context));
+        Object otherCompiled = scriptService.compile(script, other);
+        assertEquals(1L, scriptService.stats().getCompilations());
+
+        // Flipping back to the general cache
+        scriptService.setCacheHolder(Settings.builder().put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), "77/5m").build());
+        assertSame(compiled, scriptService.compile(script, context));
+        assertSame(otherCompiled, scriptService.compile(script, other));
+        assertEquals(0L, scriptService.stats().getCompilations());
+    }
+
+    public void testCacheHolderShrinkKeepsCompiledScriptsThatFit() throws IOException {
+        buildScriptService(Settings.builder().put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), "77/5m").build());
+        ScriptContext<?> context = randomFrom(contexts.values());
+        scriptService.compile(new Script(ScriptType.INLINE, "test", "1+1", Collections.emptyMap()), context);
+        scriptService.compile(new Script(ScriptType.INLINE, "test", "2+2", Collections.emptyMap()), context);
+        assertEquals(2L, scriptService.stats().getCompilations());
+
+        scriptService.setCacheHolder(Settings.builder()
+            .put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), "77/5m")
+            .put(SCRIPT_GENERAL_CACHE_SIZE_SETTING.getKey(), 1)
+            .build());
+        assertEquals(0L, scriptService.stats().getCacheEvictions());
+        scriptService.compile(new Script(ScriptType.INLINE, "test", "1+1", Collections.emptyMap()), context);
+        scriptService.compile(new Script(ScriptType.INLINE, "test", "2+2", Collections.emptyMap()), context);
+        assertEquals(1L, scriptService.stats().getCompilations());
+    }
+
+    public void testReplacingContextCacheKeepsScriptsCompiledIntoIt() throws IOException {
+        buildScriptService(Settings.builder().put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), USE_CONTEXT_RATE_KEY).build());
+        Script script = new Script(ScriptType.INLINE, "test", "1+1", Collections.emptyMap());
+        ScriptContext<?> context = randomFrom(rateLimitedContexts.values());
+        Object old = scriptService.compile(script, context);
+
+        // Simulates a search that compiled into the replacement between the swap and the copy
+        ScriptCache replacement = scriptService.contextCache(Settings.EMPTY, context);
+        Object compiled = replacement.compile(context, scriptEngine, "1+1", "1+1", ScriptType.INLINE, Collections.emptyMap());
+        assertNotSame(old, compiled);
+        scriptService.cacheHolder.get().set(context.name, replacement);
+        assertSame(compiled, scriptService.compile(script, context));
+        assertWarnings(true, new DeprecationWarning(Level.WARN, USE_CONTEXT_RATE_KEY_DEPRECATION_MESSAGE));
+    }
+
+    public void testWarmCache() throws IOException {
+        addTemplateEngine();
+        buildScriptService(Settings.builder().put(SCRIPT_GENERAL_MAX_COMPILATIONS_RATE_SETTING.getKey(), "1/5m").build());
+        scriptService.warmCache(warmableState());
+        assertEquals(1L, scriptService.stats().getCompilations());
+
+        // Warmed scripts are cached
+        scriptService.compile(new Script(ScriptType.INLINE, "template", "1+1", Collections.emptyMap()), TemplateScript.CONTEXT);
+        assertEquals(1L, scriptService.stats().getCompilations());
+
+        // And didn't count against the compilation rate limit
+        ScriptContext<?> context = randomFrom(rateLimitedContexts.values());
+        scriptService.compile(new Script(ScriptType.INLINE, "test", "3+3", Collections.emptyMap()), context);
+        expectThrows(
+            CircuitBreakingException.class,
+            () -> scriptService.compile(new Script(ScriptType.INLINE, "test", "4+4", Collections.emptyMap()), context)
+        );
+    }
+
+    public void testWarmCacheOnceRecovered() throws IOException {
+        addTemplateEngine();
+        buildScriptService(Settings.EMPTY);
+        List<Runnable> tasks = new ArrayList<>();
+        scriptService.setCacheWarmingExecutor(tasks::add);
+        ClusterState notRecovered = ClusterState.builder(warmableState())
+            .blocks(ClusterBlocks.builder().addGlobalBlock(GatewayService.STATE_NOT_RECOVERED_BLOCK))
+            .build();
+        scriptService.applyClusterState(new ClusterChangedEvent("test", notRecovered, ClusterState.EMPTY_STATE));
+        assertThat(tasks, empty());
+
+        ClusterState recovered = warmableState();
+        scriptService.applyClusterState(new ClusterChangedEvent("test", recovered, notRecovered));
+        assertThat(tasks, hasSize(1));
+        scriptService.applyClusterState(new ClusterChangedEvent("test", recovered, recovered));
+        assertThat(tasks, hasSize(1));
+
+        tasks.get(0).run();
+        assertEquals(1L, scriptService.stats().getCompilations());
+    }
+
+    /**
+     * A template engine that, like mustache, supports stored scripts in search templates and compiles ingest templates.
+     */
+    private void addTemplateEngine() {
+        engines.put("template", new MockScriptEngine("template", Map.of("1+1", p -> null), Collections.emptyMap()) {
+            @Override
+            public Set<ScriptContext<?>> getSupportedContexts() {
+                return Set.of(TemplateScript.CONTEXT, TemplateScript.INGEST_CONTEXT);
+            }
+        });
+    }
+
+    /**
+     * A cluster state with a stored template.
+     */
+    private ClusterState warmableState() {
+        return ClusterState.builder(new ClusterName("_name"))
+            .metadata(Metadata.builder()
+                .putCustom(ScriptMetadata.TYPE,
+                    new ScriptMetadata.Builder(null).storeScript("tmpl",
+                        new StoredScriptSource("template", "1+1", Collections.emptyMap())).build()))
+            .build();
+    }
+
     public void testFallbackToContextDefaults() throws IOException {
         String contextRateStr = randomIntBetween(10, 1024) + "/" +  randomIntBetween(10, 200) + "m";
         ScriptCache.CompilationRate contextRate = new ScriptCache.CompilationRate(contextRateStr);
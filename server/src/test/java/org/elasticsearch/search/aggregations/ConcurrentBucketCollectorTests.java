@@ -0,0 +1,195 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+
+public class ConcurrentBucketCollectorTests extends ESTestCase {
+    /**
+     * Counts docs, checks that they arrive in order, and stops collecting
+     * after {@code terminateAfter} of them.
+     */
+    private static class CountingBucketCollector extends BucketCollector {
+        private final int terminateAfter;
+        private final ScoreMode scoreMode;
+        private int count;
+        private boolean postCollected;
+
+        CountingBucketCollector(int terminateAfter, ScoreMode scoreMode) {
+            this.terminateAfter = terminateAfter;
+            this.scoreMode = scoreMode;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext context) {
+            if (count >= terminateAfter) {
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+            return new LeafBucketCollector() {
+                private int lastDoc = -1;
+
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assertThat(bucket, equalTo(0L));
+                    assertTrue("docs must arrive in order", doc > lastDoc);
+                    lastDoc = doc;
+                    if (count >= terminateAfter) {
+                        throw new CollectionTerminatedException();
+                    }
+                    count++;
+                }
+            };
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return scoreMode;
+        }
+
+        @Override
+        public void preCollection() {}
+
+        @Override
+        public void postCollection() {
+            postCollected = true;
+        }
+    }
+
+    public void testCollect() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(between(1, 4));
+        try (Directory dir = newDirectory()) {
+            RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+            int numDocs = randomIntBetween(100, ConcurrentBucketCollector.BLOCK_SIZE * 3);
+            Document doc = new Document();
+            for (int i = 0; i < numDocs; ++i) {
+                w.addDocument(doc);
+                if (rarely()) {
+                    w.commit();
+                }
+            }
+            try (IndexReader reader = w.getReader()) {
+                w.close();
+                IndexSearcher searcher = new IndexSearcher(reader);
+                List<CountingBucketCollector> collectors = new ArrayList<>();
+                int numCollectors = randomIntBetween(2, 5);
+                for (int i = 0; i < numCollectors; ++i) {
+                    int terminateAfter = randomBoolean() ? Integer.MAX_VALUE : randomIntBetween(0, numDocs + 10);
+                    collectors.add(new CountingBucketCollector(terminateAfter, ScoreMode.COMPLETE_NO_SCORES));
+                }
+                BucketCollector wrapped = ConcurrentBucketCollector.wrap(executor, collectors);
+                assertThat(wrapped, instanceOf(ConcurrentBucketCollector.class));
+                wrapped.preCollection();
+                searcher.search(new MatchAllDocsQuery(), wrapped);
+                wrapped.postCollection();
+                for (CountingBucketCollector collector : collectors) {
+                    assertThat(collector.count, equalTo(Math.min(numDocs, collector.terminateAfter)));
+                    assertTrue(collector.postCollected);
+                }
+            }
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testRejected() throws IOException {
+        try (Directory dir = newDirectory()) {
+            RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+            int numDocs = randomIntBetween(1, ConcurrentBucketCollector.BLOCK_SIZE * 2);
+            for (int i = 0; i < numDocs; ++i) {
+                w.addDocument(new Document());
+            }
+            try (IndexReader reader = w.getReader()) {
+                w.close();
+                List<CountingBucketCollector> collectors = List.of(
+                    new CountingBucketCollector(Integer.MAX_VALUE, ScoreMode.COMPLETE_NO_SCORES),
+                    new CountingBucketCollector(Integer.MAX_VALUE, ScoreMode.COMPLETE_NO_SCORES)
+                );
+                BucketCollector wrapped = ConcurrentBucketCollector.wrap(r -> { throw new RejectedExecutionException(); }, collectors);
+                wrapped.preCollection();
+                new IndexSearcher(reader).search(new MatchAllDocsQuery(), wrapped);
+                wrapped.postCollection();
+                for (CountingBucketCollector collector : collectors) {
+                    assertThat(collector.count, equalTo(numDocs));
+                }
+            }
+        }
+    }
+
+    public void testBusyExecutorHoldsFewHelpers() throws IOException {
+        try (Directory dir = newDirectory()) {
+            RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+            int numDocs = randomIntBetween(ConcurrentBucketCollector.BLOCK_SIZE, ConcurrentBucketCollector.BLOCK_SIZE * 5);
+            for (int i = 0; i < numDocs; ++i) {
+                w.addDocument(new Document());
+                if (rarely()) {
+                    w.commit();
+                }
+            }
+            try (IndexReader reader = w.getReader()) {
+                w.close();
+                List<CountingBucketCollector> collectors = new ArrayList<>();
+                int numCollectors = randomIntBetween(2, 5);
+                for (int i = 0; i < numCollectors; ++i) {
+                    collectors.add(new CountingBucketCollector(Integer.MAX_VALUE, ScoreMode.COMPLETE_NO_SCORES));
+                }
+                // An executor so busy that it never gets around to running anything
+                List<Runnable> queued = new ArrayList<>();
+                BucketCollector wrapped = ConcurrentBucketCollector.wrap(queued::add, collectors);
+                wrapped.preCollection();
+                new IndexSearcher(reader).search(new MatchAllDocsQuery(), wrapped);
+                wrapped.postCollection();
+                assertThat(queued.size(), lessThanOrEqualTo(numCollectors - 1));
+                for (CountingBucketCollector collector : collectors) {
+                    assertThat(collector.count, equalTo(numDocs));
+                }
+                // Helpers that run after collection has finished have nothing to do
+                queued.forEach(Runnable::run);
+                for (CountingBucketCollector collector : collectors) {
+                    assertThat(collector.count, equalTo(numDocs));
+                }
+            }
+        }
+    }
+
+    public void testFallsBackToMultiBucketCollector() {
+        CountingBucketCollector noScores = new CountingBucketCollector(Integer.MAX_VALUE, ScoreMode.COMPLETE_NO_SCORES);
+        CountingBucketCollector scores = new CountingBucketCollector(Integer.MAX_VALUE, ScoreMode.COMPLETE);
+        ExecutorService executor = EsExecutors.DIRECT_EXECUTOR_SERVICE;
+
+        assertThat(ConcurrentBucketCollector.wrap(null, List.of(noScores, noScores)), not(instanceOf(ConcurrentBucketCollector.class)));
+        assertThat(ConcurrentBucketCollector.wrap(executor, List.of(noScores, scores)), not(instanceOf(ConcurrentBucketCollector.class)));
+        assertThat(
+            ConcurrentBucketCollector.wrap(executor, List.of(noScores, BucketCollector.NO_OP_COLLECTOR)),
+            not(instanceOf(ConcurrentBucketCollector.class))
+        );
+        assertThat(ConcurrentBucketCollector.wrap(executor, List.of(noScores, noScores)), instanceOf(ConcurrentBucketCollector.class));
+    }
+}
@@ -102,6 +102,9 @@ public class SignificantTermsTests extends BaseAggregationTestCase<SignificantTe
         if (randomBoolean()) {
             factory.backgroundFilter(QueryBuilders.termsQuery("foo", "bar"));
         }
+        if (randomBoolean()) {
+            factory.sampleSize(randomIntBetween(0, 100000));
+        }
         return factory;
     }
 
@@ -142,6 +142,9 @@ public class TermsTests extends BaseAggregationTestCase<TermsAggregationBuilder>
         if (randomBoolean()) {
             factory.showTermDocCountError(randomBoolean());
         }
+        if (randomBoolean()) {
+            factory.sampleSize(randomIntBetween(0, 100000));
+        }
         return factory;
     }
 
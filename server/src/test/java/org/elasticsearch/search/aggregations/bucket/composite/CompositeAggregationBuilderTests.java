@@ -115,6 +115,10 @@ public class CompositeAggregationBuilderTests extends BaseAggregationTestCase<Co
                     throw new AssertionError("wrong branch");
             }
         }
-        return new CompositeAggregationBuilder(randomAlphaOfLength(10), sources);
+        CompositeAggregationBuilder builder = new CompositeAggregationBuilder(randomAlphaOfLength(10), sources);
+        if (randomBoolean()) {
+            builder.prefetchPages(randomIntBetween(0, 10));
+        }
+        return builder;
     }
 }
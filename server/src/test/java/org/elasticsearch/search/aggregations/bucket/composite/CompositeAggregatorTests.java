@@ -39,7 +39,9 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.common.time.DateFormatters;
@@ -56,6 +58,8 @@ import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.index.mapper.ObjectMapper;
 import org.elasticsearch.index.mapper.SeqNoFieldMapper;
 import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
 import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
@@ -84,6 +88,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -98,10 +103,14 @@ import static org.elasticsearch.search.aggregations.bucket.nested.NestedAggregat
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
 
 public class CompositeAggregatorTests extends AggregatorTestCase {
     private static MappedFieldType[] FIELD_TYPES;
     private List<ObjectMapper> objectMappers;
+    private Map<String, Object> readerState;
+    private boolean searchStoppedEarly;
+    private CircuitBreakerService breakerService;
 
     @Override
     @Before
@@ -126,6 +135,9 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         super.tearDown();
         FIELD_TYPES = null;
         objectMappers = null;
+        readerState = null;
+        searchStoppedEarly = false;
+        breakerService = null;
     }
 
     @Override
@@ -133,6 +145,21 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         return objectMappers;
     }
 
+    @Override
+    protected Map<String, Object> readerState() {
+        return readerState;
+    }
+
+    @Override
+    protected boolean searchStoppedEarly() {
+        return searchStoppedEarly;
+    }
+
+    @Override
+    protected CircuitBreakerService searchAndReduceBreakerService() {
+        return breakerService == null ? super.searchAndReduceBreakerService() : breakerService;
+    }
+
     @Override
     protected IndexReader wrapDirectoryReader(DirectoryReader reader) throws IOException {
         if (false == objectMappers().isEmpty()) {
@@ -734,6 +761,179 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testPrefetchedPagesAreAccountedToTheBreaker() throws Exception {
+        readerState = new HashMap<>();
+        breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)
+        );
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                for (int i = 0; i < 100; i++) {
+                    document.clear();
+                    addToDocument(document, createDocument("keyword", String.format(Locale.ROOT, "k%02d", i)));
+                    indexWriter.addDocument(document);
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                IndexSettings indexSettings = createIndexSettings(null);
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder(
+                    "name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword"))
+                ).size(7).prefetchPages(3);
+                InternalComposite result = searchAndReduce(
+                    indexSettings,
+                    indexSearcher,
+                    new MatchAllDocsQuery(),
+                    builder,
+                    DEFAULT_MAX_BUCKETS,
+                    false,
+                    FIELD_TYPES
+                );
+                CompositeCursor collected = (CompositeCursor) readerState.get("composite_cursor[name]");
+                assertEquals(28, collected.size());
+
+                // the next page comes from the cursor, the cursor it leaves behind holds on to the same buckets
+                builder.aggregateAfter(result.afterKey());
+                searchAndReduce(indexSettings, indexSearcher, new MatchAllDocsQuery(), builder, DEFAULT_MAX_BUCKETS, false, FIELD_TYPES);
+                CompositeCursor advanced = (CompositeCursor) readerState.get("composite_cursor[name]");
+                assertEquals(21, advanced.size());
+                long used = breaker.getUsed();
+                collected.close();
+                assertEquals(used, breaker.getUsed());
+                advanced.close();
+                assertThat(breaker.getUsed(), lessThan(used));
+                used = breaker.getUsed();
+                advanced.close();
+                assertEquals(used, breaker.getUsed());
+            }
+        }
+    }
+
+    public void testNoCursorIfSearchStoppedEarly() throws Exception {
+        readerState = new HashMap<>();
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                for (int i = 0; i < 20; i++) {
+                    document.clear();
+                    addToDocument(document, createDocument("keyword", String.format(Locale.ROOT, "k%02d", i)));
+                    indexWriter.addDocument(document);
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                IndexSettings indexSettings = createIndexSettings(null);
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder(
+                    "name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword"))
+                ).size(5).prefetchPages(2);
+
+                // the buckets may be missing docs that the search never collected
+                searchStoppedEarly = true;
+                InternalComposite result = searchAndReduce(
+                    indexSettings,
+                    indexSearcher,
+                    new MatchAllDocsQuery(),
+                    builder,
+                    DEFAULT_MAX_BUCKETS,
+                    false,
+                    FIELD_TYPES
+                );
+                assertEquals(5, result.getBuckets().size());
+                assertNull(readerState.get("composite_cursor[name]"));
+
+                searchStoppedEarly = false;
+                searchAndReduce(indexSettings, indexSearcher, new MatchAllDocsQuery(), builder, DEFAULT_MAX_BUCKETS, false, FIELD_TYPES);
+                CompositeCursor cursor = (CompositeCursor) readerState.get("composite_cursor[name]");
+                assertEquals(15, cursor.size());
+                cursor.close();
+            }
+        }
+    }
+
+    public void testPrefetchPages() throws Exception {
+        readerState = new HashMap<>();
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig(random(), new MockAnalyzer(random()));
+            config.setMergePolicy(NoMergePolicy.INSTANCE);
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, config)) {
+                Document document = new Document();
+                for (int i = 0; i < 100; i++) {
+                    for (int d = 0; d <= i % 3; d++) {
+                        document.clear();
+                        addToDocument(document, createDocument("keyword", String.format(Locale.ROOT, "k%02d", i)));
+                        indexWriter.addDocument(document);
+                    }
+                    if (i % 30 == 0) {
+                        indexWriter.commit();
+                    }
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                IndexSettings indexSettings = createIndexSettings(null);
+                Map<String, Object> after = null;
+                int page = 0;
+                while (true) {
+                    CompositeAggregationBuilder builder = new CompositeAggregationBuilder(
+                        "name",
+                        Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword"))
+                    ).size(7).prefetchPages(3).aggregateAfter(after);
+                    InternalComposite result = searchAndReduce(
+                        indexSettings,
+                        indexSearcher,
+                        new MatchAllDocsQuery(),
+                        builder,
+                        DEFAULT_MAX_BUCKETS,
+                        false,
+                        FIELD_TYPES
+                    );
+                    if (result.getBuckets().isEmpty()) {
+                        break;
+                    }
+                    for (int b = 0; b < result.getBuckets().size(); b++) {
+                        int i = page * 7 + b;
+                        InternalComposite.InternalBucket bucket = result.getBuckets().get(b);
+                        assertEquals(String.format(Locale.ROOT, "{keyword=k%02d}", i), bucket.getKeyAsString());
+                        assertEquals(i % 3 + 1, bucket.getDocCount());
+                    }
+                    CompositeCursor cursor = (CompositeCursor) readerState.get("composite_cursor[name]");
+                    // every fourth page collects the next four pages, the others are taken from the cursor
+                    assertEquals(Math.min(28, 100 - (page / 4) * 28) - (page % 4) * 7, cursor.size());
+                    after = result.afterKey();
+                    page++;
+                }
+                assertEquals(15, page);
+
+                // a request with another query doesn't reuse the cursor
+                CompositeAggregationBuilder builder = new CompositeAggregationBuilder(
+                    "name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword"))
+                ).size(7).prefetchPages(3).aggregateAfter(Collections.singletonMap("keyword", "k06"));
+                readerState.clear();
+                searchAndReduce(indexSettings, indexSearcher, new MatchAllDocsQuery(), builder, DEFAULT_MAX_BUCKETS, false, FIELD_TYPES);
+                assertEquals(28, ((CompositeCursor) readerState.get("composite_cursor[name]")).size());
+                builder.aggregateAfter(Collections.singletonMap("keyword", "k13"));
+                InternalComposite result = searchAndReduce(
+                    indexSettings,
+                    indexSearcher,
+                    new DocValuesFieldExistsQuery("keyword"),
+                    builder,
+                    DEFAULT_MAX_BUCKETS,
+                    false,
+                    FIELD_TYPES
+                );
+                assertEquals("{keyword=k14}", result.getBuckets().get(0).getKeyAsString());
+                assertEquals(28, ((CompositeCursor) readerState.get("composite_cursor[name]")).size());
+            }
+        }
+    }
+
     public void testWithKeywordAndMissingBucket() throws Exception {
         final List<Map<String, List<Object>>> dataset = new ArrayList<>();
         dataset.addAll(
@@ -121,6 +121,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -145,6 +146,7 @@ import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class TermsAggregatorTests extends AggregatorTestCase {
 
@@ -279,6 +281,57 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         }, fieldType);
     }
 
+    public void testSampleSize() throws Exception {
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", randomBoolean(), true, Collections.emptyMap());
+        int numDocs = 10000;
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> {
+            for (int i = 0; i < numDocs; i++) {
+                int mod = i % 10;
+                iw.addDocument(doc(fieldType, mod < 6 ? "a" : mod < 9 ? "b" : "c"));
+            }
+        };
+        Map<String, Long> expected = Map.of("a", 6000L, "b", 3000L, "c", 1000L);
+        // global_ordinals could run filter by filter which is exact and doesn't sample
+        TermsAggregationBuilder sampled = new TermsAggregationBuilder("_name").executionHint("map").field("string").sampleSize(1000);
+        testCase(sampled, new MatchAllDocsQuery(), buildIndex, (InternalTerms<?, ?> result) -> {
+            assertThat(result.getBuckets(), hasSize(3));
+            for (InternalTerms.Bucket<?> bucket : result.getBuckets()) {
+                long error = bucket.getDocCountError();
+                assertThat(error, greaterThan(0L));
+                // The reported error is three standard deviations so six is plenty to keep this from failing at random
+                assertThat(Math.abs(bucket.getDocCount() - expected.get(bucket.getKeyAsString())), lessThanOrEqualTo(2 * error));
+            }
+        }, fieldType);
+
+        TermsAggregationBuilder everything = new TermsAggregationBuilder("_name").field("string").sampleSize(numDocs);
+        testCase(everything, new MatchAllDocsQuery(), buildIndex, (InternalTerms<?, ?> result) -> {
+            assertThat(result.getBuckets(), hasSize(3));
+            for (InternalTerms.Bucket<?> bucket : result.getBuckets()) {
+                assertThat(bucket.getDocCount(), equalTo(expected.get(bucket.getKeyAsString())));
+                assertThat(bucket.getDocCountError(), equalTo(0L));
+            }
+        }, fieldType);
+    }
+
+    public void testSampleSizeOnlyAtTopLevel() throws Exception {
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", randomBoolean(), true, Collections.emptyMap());
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex = iw -> {
+            for (int i = 0; i < 5000; i++) {
+                iw.addDocument(doc(fieldType, i % 5 == 0 ? "a" : "b"));
+            }
+        };
+        // the docs that reach the terms aggregation aren't the ones that match the query so it can't pick a rate
+        FilterAggregationBuilder filter = new FilterAggregationBuilder("f", new MatchAllQueryBuilder()).subAggregation(
+            new TermsAggregationBuilder("_name").executionHint("map").field("string").sampleSize(100)
+        );
+        testCase(filter, new MatchAllDocsQuery(), buildIndex, (InternalFilter result) -> {
+            InternalTerms<?, ?> terms = result.getAggregations().get("_name");
+            assertThat(terms.getBuckets(), hasSize(2));
+            assertThat(terms.getBucketByKey("a").getDocCount(), equalTo(1000L));
+            assertThat(terms.getBucketByKey("b").getDocCount(), equalTo(4000L));
+        }, fieldType);
+    }
+
     public void testStringShardMinDocCount() throws IOException {
         MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType("string", true, true, Collections.emptyMap());
         for (TermsAggregatorFactory.ExecutionMode executionMode : TermsAggregatorFactory.ExecutionMode.values()) {
@@ -1603,6 +1656,101 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testMergeSegmentOrdsByTermProfile() throws IOException {
+        int count = between(3000, 4000);
+        TermsAggregatorFactory.MERGE_SEGMENT_ORDS_BY_TERM = true;
+        try {
+            topLevelProfileTestCase(
+                count,
+                0,
+                null,
+                MapStringTermsAggregator.SegmentOrdinals.class,
+                m -> m.entry("collection_strategy", "segment ordinals merged by term")
+                    .entry("segments_without_values", greaterThanOrEqualTo(0))
+                    .entry("segment_terms_merged", greaterThanOrEqualTo((long) count))
+            );
+        } finally {
+            TermsAggregatorFactory.MERGE_SEGMENT_ORDS_BY_TERM = null;
+        }
+    }
+
+    public void testMergeSegmentOrdsByTerm() throws IOException {
+        MappedFieldType ft = new KeywordFieldType("k", randomBoolean(), true, Collections.emptyMap());
+        TermsAggregationBuilder builder = new TermsAggregationBuilder("k").field("k")
+            .size(100)
+            .includeExclude(new IncludeExclude(null, "t0"));
+        Map<String, Long> expected = new HashMap<>();
+        TermsAggregatorFactory.MERGE_SEGMENT_ORDS_BY_TERM = true;
+        try {
+            withNonMergingIndex(iw -> {
+                for (int segment = 0; segment < 3; segment++) {
+                    for (int d = 0; d < 20; d++) {
+                        String first = "t" + d % 7;
+                        String second = "t" + (d + segment) % 11;
+                        iw.addDocument(doc(ft, first, second));
+                        for (String term : new HashSet<>(List.of(first, second))) {
+                            if (term.equals("t0") == false) {
+                                expected.merge(term, 1L, Long::sum);
+                            }
+                        }
+                    }
+                    iw.commit();
+                }
+            },
+                searcher -> debugTestCase(
+                    builder,
+                    new MatchAllDocsQuery(),
+                    searcher,
+                    (StringTerms result, Class<? extends Aggregator> impl, Map<String, Map<String, Object>> debug) -> {
+                        assertThat(impl, equalTo(MapStringTermsAggregator.SegmentOrdinals.class));
+                        Map<String, Long> actual = new HashMap<>();
+                        for (StringTerms.Bucket bucket : result.getBuckets()) {
+                            actual.put(bucket.getKeyAsString(), bucket.getDocCount());
+                        }
+                        assertThat(actual, equalTo(expected));
+                        assertThat((int) debug.get("k").get("segments_with_multi_valued_ords"), greaterThan(0));
+                    },
+                    ft
+                )
+            );
+        } finally {
+            TermsAggregatorFactory.MERGE_SEGMENT_ORDS_BY_TERM = null;
+        }
+    }
+
+    public void testMergeSegmentOrdsByTermOnlyMergesCollectedTerms() throws IOException {
+        MappedFieldType ft = new KeywordFieldType("k", true, true, Collections.emptyMap());
+        TermsAggregationBuilder builder = new TermsAggregationBuilder("k").field("k");
+        TermsAggregatorFactory.MERGE_SEGMENT_ORDS_BY_TERM = true;
+        try {
+            withNonMergingIndex(iw -> {
+                for (int segment = 0; segment < 3; segment++) {
+                    for (int d = 0; d < 100; d++) {
+                        iw.addDocument(doc(ft, "t" + d));
+                    }
+                    iw.commit();
+                }
+            },
+                searcher -> debugTestCase(
+                    builder,
+                    new TermQuery(new Term("k", "t5")),
+                    searcher,
+                    (StringTerms result, Class<? extends Aggregator> impl, Map<String, Map<String, Object>> debug) -> {
+                        assertThat(impl, equalTo(MapStringTermsAggregator.SegmentOrdinals.class));
+                        assertThat(result.getBuckets(), hasSize(1));
+                        assertThat(result.getBuckets().get(0).getKeyAsString(), equalTo("t5"));
+                        assertThat(result.getBuckets().get(0).getDocCount(), equalTo(3L));
+                        // the other terms of the segments never reach the bucket ords
+                        assertThat(debug.get("k").get("segment_terms_merged"), equalTo(3L));
+                    },
+                    ft
+                )
+            );
+        } finally {
+            TermsAggregatorFactory.MERGE_SEGMENT_ORDS_BY_TERM = null;
+        }
+    }
+
     public void testNumberToStringValueScript() throws IOException {
         MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.INTEGER);
 
@@ -219,6 +219,22 @@ public class AvgAggregatorTests extends AggregatorTestCase {
         verifyAvgOfDoubles(largeValues, Double.NEGATIVE_INFINITY, 0d);
     }
 
+    public void testMatchAllMultiValuedWithMissingAndDeletedDocs() throws IOException {
+        final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.INTEGER);
+        final StatsAggregatorTests.MultiValuedDocs docs = new StatsAggregatorTests.MultiValuedDocs(fieldType.name());
+        for (Long missing : Arrays.asList(null, randomLongBetween(-1000, 1000))) {
+            final AvgAggregationBuilder builder = new AvgAggregationBuilder("_name").field(fieldType.name());
+            if (missing != null) {
+                builder.missing(missing);
+            }
+            final StatsAggregatorTests.SimpleStatsAggregator expected = docs.expected(missing);
+            testAggregation(builder, new MatchAllDocsQuery(), docs::index, avg -> {
+                assertEquals(expected.sum / expected.count, avg.getValue(), 1e-10);
+                assertTrue(AggregationInspectionHelper.hasValue(avg));
+            }, fieldType);
+        }
+    }
+
     public void testUnmappedField() throws IOException {
         AvgAggregationBuilder aggregationBuilder = new AvgAggregationBuilder("_name").field("number");
         testAggregation(aggregationBuilder, new DocValuesFieldExistsQuery("number"), iw -> {
@@ -0,0 +1,90 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.index.fielddata.HistogramValue;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class HistogramMergerTests extends ESTestCase {
+    public void testMerge() throws IOException {
+        HistogramMerger merger = new HistogramMerger();
+        // Draw values from a small set so that plenty of them are equal
+        double[] candidates = new double[between(1, 100)];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = randomDoubleBetween(-1000, 1000, true);
+        }
+        for (int round = 0; round < 3; round++) {
+            Map<Double, Long> expected = new TreeMap<>();
+            int histograms = between(0, 200);
+            for (int h = 0; h < histograms; h++) {
+                double[] values = new double[between(0, 20)];
+                int[] counts = new int[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = randomFrom(candidates);
+                    counts[i] = between(0, 1000);
+                }
+                Arrays.sort(values);
+                for (int i = 0; i < values.length; i++) {
+                    expected.merge(values[i], (long) counts[i], Long::sum);
+                }
+                merger.add(histogram(values, counts));
+            }
+            assertMerged(merger, expected);
+        }
+    }
+
+    public void testUnsortedHistogram() throws IOException {
+        HistogramMerger merger = new HistogramMerger();
+        merger.add(histogram(new double[] { 1, 5, 3, 4, 2 }, new int[] { 1, 1, 1, 1, 1 }));
+        merger.add(histogram(new double[] { 2, 3 }, new int[] { 10, 10 }));
+        assertMerged(merger, new TreeMap<>(Map.of(1.0, 1L, 2.0, 11L, 3.0, 11L, 4.0, 1L, 5.0, 1L)));
+    }
+
+    private void assertMerged(HistogramMerger merger, Map<Double, Long> expected) {
+        List<Double> values = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        merger.merge((value, count) -> {
+            values.add(value);
+            counts.add(count);
+        });
+        assertThat(values, equalTo(new ArrayList<>(expected.keySet())));
+        assertThat(counts, equalTo(new ArrayList<>(expected.values())));
+        assertThat(merger.size(), equalTo(0));
+    }
+
+    private static HistogramValue histogram(double[] values, int[] counts) {
+        return new HistogramValue() {
+            private int i = -1;
+
+            @Override
+            public boolean next() {
+                return ++i < values.length;
+            }
+
+            @Override
+            public double value() {
+                return values[i];
+            }
+
+            @Override
+            public int count() {
+                return counts[i];
+            }
+        };
+    }
+}
@@ -11,22 +11,28 @@ package org.elasticsearch.search.aggregations.metrics;
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.search.aggregations.metrics.AbstractCardinalityAlgorithm.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.AbstractCardinalityAlgorithm.MIN_PRECISION;
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -178,9 +184,60 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
     public void testAllocation() {
         int precision = between(MIN_PRECISION, MAX_PRECISION);
         long initialBucketCount = between(0, 100);
+        // registers are only allocated when a bucket is promoted to hll
         MockBigArrays.assertFitsIn(
-            ByteSizeValue.ofBytes((initialBucketCount << precision) + initialBucketCount * 4 + PageCacheRecycler.PAGE_SIZE_IN_BYTES * 2),
+            ByteSizeValue.ofBytes(initialBucketCount * 16 + PageCacheRecycler.PAGE_SIZE_IN_BYTES * 2),
             bigArrays -> new HyperLogLogPlusPlus(precision, bigArrays, initialBucketCount)
         );
     }
+
+    public void testFewValuesPerBucketDontAllocateRegisters() {
+        final int precision = between(12, MAX_PRECISION);
+        final int numBuckets = between(1000, 2000);
+        MockBigArrays.assertFitsIn(ByteSizeValue.ofBytes(numBuckets * 256L + PageCacheRecycler.PAGE_SIZE_IN_BYTES * 4), bigArrays -> {
+            HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 0);
+            try {
+                for (int bucket = 0; bucket < numBuckets; bucket++) {
+                    counts.collect(bucket, BitMixer.mix64(bucket));
+                    counts.collect(bucket, BitMixer.mix64(-bucket - 1));
+                }
+            } catch (CircuitBreakingException e) {
+                counts.close();
+                throw e;
+            }
+            return counts;
+        });
+    }
+
+    public void testWireFormat() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final int numValues = randomBoolean() ? randomIntBetween(0, 100) : randomIntBetween(1, 100000);
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(randomInt()));
+        }
+        if (randomBoolean()) {
+            counts.upgradeToHll(0);
+        }
+        final Version previous = VersionUtils.getPreviousVersion(Version.V_8_0_0);
+        final BytesStreamOutput compressed = new BytesStreamOutput();
+        counts.writeTo(0, compressed);
+        final BytesStreamOutput uncompressed = new BytesStreamOutput();
+        uncompressed.setVersion(previous);
+        counts.writeTo(0, uncompressed);
+        if (counts.getAlgorithm(0) == AbstractHyperLogLogPlusPlus.HYPERLOGLOG) {
+            assertThat(compressed.size(), lessThan(uncompressed.size()));
+        }
+
+        for (BytesStreamOutput out : new BytesStreamOutput[] { compressed, uncompressed }) {
+            StreamInput in = out.bytes().streamInput();
+            in.setVersion(out.getVersion());
+            AbstractHyperLogLogPlusPlus read = AbstractHyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+            assertEquals(counts.getAlgorithm(0), read.getAlgorithm(0));
+            assertEquals(counts.cardinality(0), read.cardinality(0));
+            assertTrue(counts.equals(0, read, 0));
+            read.close();
+        }
+        counts.close();
+    }
 }
@@ -231,6 +231,20 @@ public class MaxAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testMatchAllMultiValuedWithMissingAndDeletedDocs() throws IOException {
+        final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.INTEGER);
+        final StatsAggregatorTests.MultiValuedDocs docs = new StatsAggregatorTests.MultiValuedDocs(fieldType.name());
+        for (Long missing : Arrays.asList(null, randomLongBetween(-1000, 1000))) {
+            final MaxAggregationBuilder builder = new MaxAggregationBuilder("_name").field(fieldType.name());
+            if (missing != null) {
+                builder.missing(missing);
+            }
+            final double expected = docs.expected(missing).max;
+            testCase(builder, new MatchAllDocsQuery(), docs::index, (InternalMax max) -> assertEquals(expected, max.getValue(), 0),
+                fieldType);
+        }
+    }
+
     public void testUnmappedWithMissingField() throws IOException {
         MaxAggregationBuilder aggregationBuilder = new MaxAggregationBuilder("_name").field("number").missing(19L);
 
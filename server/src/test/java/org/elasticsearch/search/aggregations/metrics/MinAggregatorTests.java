@@ -238,6 +238,20 @@ public class MinAggregatorTests extends AggregatorTestCase {
         }, min -> fail("expected an exception"), fieldType));
     }
 
+    public void testMatchAllMultiValuedWithMissingAndDeletedDocs() throws IOException {
+        final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.INTEGER);
+        final StatsAggregatorTests.MultiValuedDocs docs = new StatsAggregatorTests.MultiValuedDocs(fieldType.name());
+        for (Long missing : Arrays.asList(null, randomLongBetween(-1000, 1000))) {
+            final MinAggregationBuilder builder = new MinAggregationBuilder("_name").field(fieldType.name());
+            if (missing != null) {
+                builder.missing(missing);
+            }
+            final double expected = docs.expected(missing).min;
+            testCase(builder, new MatchAllDocsQuery(), docs::index, (InternalMin min) -> assertEquals(expected, min.getValue(), 0),
+                fieldType);
+        }
+    }
+
     public void testUnmappedWithMissingField() throws IOException {
         MinAggregationBuilder aggregationBuilder = new MinAggregationBuilder("min").field("does_not_exist").missing(0L);
 
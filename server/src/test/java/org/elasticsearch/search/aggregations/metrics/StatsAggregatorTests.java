@@ -8,12 +8,15 @@
 package org.elasticsearch.search.aggregations.metrics;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.Directory;
@@ -38,6 +41,8 @@ import org.elasticsearch.search.lookup.LeafDocLookup;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -187,6 +192,25 @@ public class StatsAggregatorTests extends AggregatorTestCase {
         }, ft);
     }
 
+    public void testMatchAllMultiValuedWithMissingAndDeletedDocs() throws IOException {
+        final MappedFieldType ft = new NumberFieldMapper.NumberFieldType("field", NumberType.LONG);
+        final MultiValuedDocs docs = new MultiValuedDocs(ft.name());
+        for (Long missing : Arrays.asList(null, randomLongBetween(-1000, 1000))) {
+            final StatsAggregationBuilder builder = stats("_name").field(ft.name());
+            if (missing != null) {
+                builder.missing(missing);
+            }
+            final SimpleStatsAggregator expected = docs.expected(missing);
+            testCase(builder, docs::index, stats -> {
+                assertEquals(expected.count, stats.getCount());
+                assertEquals(expected.sum, stats.getSum(), 0);
+                assertEquals(expected.min, stats.getMin(), 0);
+                assertEquals(expected.max, stats.getMax(), 0);
+                assertEquals(expected.sum / expected.count, stats.getAvg(), TOLERANCE);
+            }, ft);
+        }
+    }
+
     public void testUnmapped() throws IOException {
         randomLongsTestCase(randomIntBetween(1, 5), stats("_name").field("unmapped_field"), (expected, stats) -> {
             assertEquals(0d, stats.getCount(), 0);
@@ -397,6 +421,60 @@ public class StatsAggregatorTests extends AggregatorTestCase {
         testCase(builder, new MatchAllDocsQuery(), buildIndex, verify, fieldTypes);
     }
 
+    /**
+     * Docs with zero or more values each, some of them deleted, and enough of them to be collected in several blocks when the top
+     * level query matches all docs.
+     */
+    static class MultiValuedDocs {
+        final String field;
+        final List<List<Long>> values;
+        final Set<Integer> deleted = new HashSet<>();
+
+        MultiValuedDocs(String field) {
+            this.field = field;
+            final int numDocs = randomIntBetween(MetricsAggregator.BLOCK_SIZE, MetricsAggregator.BLOCK_SIZE * 3);
+            values = new ArrayList<>(numDocs);
+            for (int i = 0; i < numDocs; i++) {
+                values.add(randomList(0, 3, () -> randomLongBetween(-1000, 1000)));
+                if (randomBoolean()) {
+                    deleted.add(i);
+                }
+            }
+        }
+
+        void index(RandomIndexWriter iw) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                final List<IndexableField> doc = new ArrayList<>();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                for (long value : values.get(i)) {
+                    doc.add(new SortedNumericDocValuesField(field, value));
+                }
+                iw.addDocument(doc);
+            }
+            for (int i : deleted) {
+                iw.deleteDocuments(new Term("id", Integer.toString(i)));
+            }
+        }
+
+        /**
+         * The stats of the values of the live docs, counting {@code missing} once for every live doc without values unless it is
+         * {@code null}.
+         */
+        SimpleStatsAggregator expected(Long missing) {
+            final SimpleStatsAggregator expected = new SimpleStatsAggregator();
+            for (int i = 0; i < values.size(); i++) {
+                if (deleted.contains(i)) {
+                    continue;
+                }
+                if (values.get(i).isEmpty() && missing != null) {
+                    expected.add(missing);
+                }
+                values.get(i).forEach(expected::add);
+            }
+            return expected;
+        }
+    }
+
     static class SimpleStatsAggregator {
         long count = 0;
         double min = Long.MAX_VALUE;
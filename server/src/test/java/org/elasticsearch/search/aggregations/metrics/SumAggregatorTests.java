@@ -134,6 +134,46 @@ public class SumAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testMatchAllSkipsDeletedDocs() throws IOException {
+        // enough docs to collect several blocks when the query matches all docs
+        final int numDocs = randomIntBetween(MetricsAggregator.BLOCK_SIZE, MetricsAggregator.BLOCK_SIZE * 3);
+        long expected = 0;
+        final Set<Integer> deleted = new HashSet<>();
+        for (int i = 0; i < numDocs; i++) {
+            if (randomBoolean()) {
+                deleted.add(i);
+            } else {
+                expected += i;
+            }
+        }
+        final long sum = expected;
+        final CheckedConsumer<RandomIndexWriter, IOException> indexer = iw -> {
+            for (int i = 0; i < numDocs; i++) {
+                iw.addDocument(
+                    Arrays.asList(new StringField("id", Integer.toString(i), Field.Store.NO), new NumericDocValuesField(FIELD_NAME, i))
+                );
+            }
+            for (int i : deleted) {
+                iw.deleteDocuments(new Term("id", Integer.toString(i)));
+            }
+        };
+        testAggregation(new MatchAllDocsQuery(), indexer, result -> assertEquals(sum, result.getValue(), 0d));
+        testAggregation(new DocValuesFieldExistsQuery(FIELD_NAME), indexer, result -> assertEquals(sum, result.getValue(), 0d));
+    }
+
+    public void testMatchAllMultiValuedWithMissing() throws IOException {
+        final StatsAggregatorTests.MultiValuedDocs docs = new StatsAggregatorTests.MultiValuedDocs(FIELD_NAME);
+        for (Long missing : Arrays.asList(null, randomLongBetween(-1000, 1000))) {
+            final SumAggregationBuilder builder = sum("_name").field(FIELD_NAME);
+            if (missing != null) {
+                builder.missing(missing);
+            }
+            final double expected = docs.expected(missing).sum;
+            testAggregation(builder, new MatchAllDocsQuery(), docs::index, result -> assertEquals(expected, result.getValue(), 0d),
+                defaultFieldType());
+        }
+    }
+
     public void testStringField() throws IOException {
         IllegalStateException e = expectThrows(IllegalStateException.class, () -> {
             testAggregation(
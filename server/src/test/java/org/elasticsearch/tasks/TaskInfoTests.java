@@ -9,9 +9,11 @@
 package org.elasticsearch.tasks;
 
 import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentParser;
 import org.elasticsearch.test.AbstractSerializingTestCase;
@@ -22,6 +24,9 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Predicate;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
 public class TaskInfoTests extends AbstractSerializingTestCase<TaskInfo> {
 
     @Override
@@ -50,6 +55,29 @@ public class TaskInfoTests extends AbstractSerializingTestCase<TaskInfo> {
         return true;
     }
 
+    @Override
+    protected ToXContent.Params getToXContentParams() {
+        return new ToXContent.MapParams(Map.of(TaskInfo.INCLUDE_RESOURCE_USAGE_PARAM, "true"));
+    }
+
+    public void testResourceUsageOnlyOnRequest() {
+        TaskInfo info = new TaskInfo(
+                randomTaskId(),
+                randomAlphaOfLength(5),
+                randomAlphaOfLength(5),
+                null,
+                null,
+                randomLong(),
+                randomNonNegativeLong(),
+                false,
+                false,
+                TaskId.EMPTY_TASK_ID,
+                Collections.emptyMap(),
+                new TaskResourceUsage(randomLongBetween(1, Long.MAX_VALUE), randomNonNegativeLong()));
+        assertThat(Strings.toString(info), not(containsString("resource_usage")));
+        assertThat(Strings.toString(info, getToXContentParams()), containsString("resource_usage"));
+    }
+
     @Override
     protected Predicate<String> getRandomFieldsExcludeFilter() {
         //status and headers hold arbitrary content, we can't inject random fields in them
@@ -58,7 +86,7 @@ public class TaskInfoTests extends AbstractSerializingTestCase<TaskInfo> {
 
     @Override
     protected TaskInfo mutateInstance(TaskInfo info) {
-        switch (between(0, 9)) {
+        switch (between(0, 10)) {
             case 0:
                 TaskId taskId = new TaskId(info.getTaskId().getNodeId() + randomAlphaOfLength(5), info.getTaskId().getId());
                 return new TaskInfo(
@@ -210,6 +238,21 @@ public class TaskInfoTests extends AbstractSerializingTestCase<TaskInfo> {
                         info.isCancelled(),
                         info.getParentTaskId(),
                         headers);
+            case 10:
+                TaskResourceUsage resourceUsage = randomValueOtherThan(info.getResourceUsage(), TaskInfoTests::randomResourceUsage);
+                return new TaskInfo(
+                        info.getTaskId(),
+                        info.getType(),
+                        info.getAction(),
+                        info.getDescription(),
+                        info.getStatus(),
+                        info.getStartTime(),
+                        info.getRunningTimeNanos(),
+                        info.isCancellable(),
+                        info.isCancelled(),
+                        info.getParentTaskId(),
+                        info.getHeaders(),
+                        resourceUsage);
             default:
                 throw new IllegalStateException();
         }
@@ -229,6 +272,7 @@ public class TaskInfoTests extends AbstractSerializingTestCase<TaskInfo> {
         Map<String, String> headers = randomBoolean() ?
                 Collections.emptyMap() :
                 Collections.singletonMap(randomAlphaOfLength(5), randomAlphaOfLength(5));
+        TaskResourceUsage resourceUsage = randomBoolean() ? TaskResourceUsage.EMPTY : randomResourceUsage();
         return new TaskInfo(
                 taskId,
                 type,
@@ -240,7 +284,12 @@ public class TaskInfoTests extends AbstractSerializingTestCase<TaskInfo> {
                 cancellable,
                 cancelled,
                 parentTaskId,
-                headers);
+                headers,
+                resourceUsage);
+    }
+
+    private static TaskResourceUsage randomResourceUsage() {
+        return new TaskResourceUsage(randomNonNegativeLong(), randomNonNegativeLong());
     }
 
     private static TaskId randomTaskId() {
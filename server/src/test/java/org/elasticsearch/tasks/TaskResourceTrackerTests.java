@@ -0,0 +1,119 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.tasks;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.test.ESTestCase;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class TaskResourceTrackerTests extends ESTestCase {
+
+    public void testTrackNullTaskIsNoop() {
+        assumeCpuTimeSupported();
+        try (Releasable ignored = TaskResourceTracker.track(null)) {
+            burnCpu();
+        }
+        // nothing to assert on, but charging the current thread must not fail without a tracker
+        TaskResourceTracker.chargeCurrentThread();
+    }
+
+    public void testChargesTaskOnClose() {
+        assumeCpuTimeSupported();
+        final Task task = newTask(1);
+        try (Releasable ignored = TaskResourceTracker.track(task)) {
+            burnCpu();
+            assertThat(task.getResourceUsage().getCpuTimeNanos(), equalTo(0L));
+        }
+        assertThat(task.getResourceUsage().getCpuTimeNanos(), greaterThan(0L));
+    }
+
+    public void testChargeCurrentThread() {
+        assumeCpuTimeSupported();
+        final Task task = newTask(1);
+        try (Releasable ignored = TaskResourceTracker.track(task)) {
+            burnCpu();
+            TaskResourceTracker.chargeCurrentThread();
+            assertThat(task.getResourceUsage().getCpuTimeNanos(), greaterThan(0L));
+        }
+    }
+
+    public void testChargesAllocations() {
+        assumeTrue("thread allocations are not supported", ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).isThreadAllocatedMemoryEnabled());
+        final Task task = newTask(1);
+        final List<byte[]> garbage = new ArrayList<>();
+        try (Releasable ignored = TaskResourceTracker.track(task)) {
+            for (int i = 0; i < 1024; i++) {
+                garbage.add(new byte[1024]);
+            }
+        }
+        assertThat(garbage.size(), equalTo(1024));
+        assertThat(task.getResourceUsage().getAllocatedBytes(), greaterThanOrEqualTo(1024L * 1024L));
+    }
+
+    public void testNestedTrackingDoesNotDoubleCount() {
+        assumeCpuTimeSupported();
+        final Task outer = newTask(1);
+        final Task inner = newTask(2);
+        final long innerCpuTime;
+        try (Releasable ignoredOuter = TaskResourceTracker.track(outer)) {
+            try (Releasable ignoredInner = TaskResourceTracker.track(inner)) {
+                burnCpu();
+            }
+            innerCpuTime = inner.getResourceUsage().getCpuTimeNanos();
+            assertThat(innerCpuTime, greaterThan(0L));
+            // the outer task was paused while the inner one ran
+            assertThat(outer.getResourceUsage().getCpuTimeNanos(), equalTo(0L));
+        }
+        assertThat(inner.getResourceUsage().getCpuTimeNanos(), equalTo(innerCpuTime));
+    }
+
+    public void testTrackingThroughThreadContext() throws Exception {
+        assumeCpuTimeSupported();
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final Task task = newTask(1);
+        final Runnable runnable;
+        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+            threadContext.putTransient(TaskResourceTracker.TASK_TRANSIENT_NAME, task);
+            runnable = threadContext.preserveContext(TaskResourceTrackerTests::burnCpu);
+        }
+        final Thread thread = new Thread(runnable);
+        thread.start();
+        thread.join();
+        assertThat(task.getResourceUsage().getCpuTimeNanos(), greaterThan(0L));
+    }
+
+    private static Task newTask(long id) {
+        return new Task(id, "test", "test", "", TaskId.EMPTY_TASK_ID, Map.of());
+    }
+
+    private static void assumeCpuTimeSupported() {
+        assumeTrue("thread cpu time is not supported", ManagementFactory.getThreadMXBean().isCurrentThreadCpuTimeSupported()
+            && ManagementFactory.getThreadMXBean().isThreadCpuTimeEnabled());
+    }
+
+    private static void burnCpu() {
+        final long start = ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+        long sum = 0;
+        while (ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() - start < 1_000_000L) {
+            sum += Long.hashCode(sum + start);
+        }
+        assertNotEquals(Long.MIN_VALUE, sum);
+    }
+}
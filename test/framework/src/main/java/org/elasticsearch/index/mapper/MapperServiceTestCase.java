@@ -72,6 +72,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
@@ -501,6 +502,31 @@ public abstract class MapperServiceTestCase extends ESTestCase {
                 throw new UnsupportedOperationException();
             }
 
+            @Override
+            public boolean collectsAllMatchingDocs() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public boolean searchStoppedEarly() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Map<String, Object> readerState() {
+                return null;
+            }
+
+            @Override
+            public CircuitBreaker readerStateBreaker() {
+                return breaker;
+            }
+
+            @Override
+            public Executor siblingCollectionExecutor() {
+                return null;
+            }
+
             @Override
             public void close() {
                 throw new UnsupportedOperationException();
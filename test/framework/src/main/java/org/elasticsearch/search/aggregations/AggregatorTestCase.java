@@ -313,7 +313,11 @@ public abstract class AggregatorTestCase extends ESTestCase {
             () -> 0L,
             () -> false,
             q -> q,
-            true
+            true,
+            true,
+            this::searchStoppedEarly,
+            readerState(),
+            null
         );
         releasables.add(context);
         return context;
@@ -335,6 +339,31 @@ public abstract class AggregatorTestCase extends ESTestCase {
         return List.of();
     }
 
+    /**
+     * State shared between the searches of a test like it is shared between
+     * the requests against a point in time reader. By default each search
+     * gets a reader that is used just once.
+     */
+    protected Map<String, Object> readerState() {
+        return null;
+    }
+
+    /**
+     * Should the aggregations see the search as timed out or terminated
+     * early once they are built? By default the search collects all docs.
+     */
+    protected boolean searchStoppedEarly() {
+        return false;
+    }
+
+    /**
+     * The circuit breakers that {@link #searchAndReduce} accounts to. By
+     * default nothing is accounted.
+     */
+    protected CircuitBreakerService searchAndReduceBreakerService() {
+        return new NoneCircuitBreakerService();
+    }
+
     /**
      * Build a {@link SubSearchContext}s to power {@code top_hits}.
      */
@@ -465,7 +494,7 @@ public abstract class AggregatorTestCase extends ESTestCase {
         final PipelineTree pipelines = builder.buildPipelineTree();
         List<InternalAggregation> aggs = new ArrayList<>();
         Query rewritten = searcher.rewrite(query);
-        CircuitBreakerService breakerService = new NoneCircuitBreakerService();
+        CircuitBreakerService breakerService = searchAndReduceBreakerService();
         AggregationContext context = createAggregationContext(
             searcher,
             indexSettings,
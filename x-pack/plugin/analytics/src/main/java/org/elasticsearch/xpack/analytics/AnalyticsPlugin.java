@@ -42,6 +42,8 @@ import org.elasticsearch.xpack.analytics.rate.InternalRate;
 import org.elasticsearch.xpack.analytics.rate.RateAggregationBuilder;
 import org.elasticsearch.xpack.analytics.stringstats.InternalStringStats;
 import org.elasticsearch.xpack.analytics.stringstats.StringStatsAggregationBuilder;
+import org.elasticsearch.xpack.analytics.timeseries.InternalTimeSeriesDownsample;
+import org.elasticsearch.xpack.analytics.timeseries.TimeSeriesDownsampleAggregationBuilder;
 import org.elasticsearch.xpack.analytics.topmetrics.InternalTopMetrics;
 import org.elasticsearch.xpack.analytics.topmetrics.TopMetricsAggregationBuilder;
 import org.elasticsearch.xpack.analytics.topmetrics.TopMetricsAggregatorFactory;
@@ -129,7 +131,13 @@ public class AnalyticsPlugin extends Plugin implements SearchPlugin, ActionPlugi
                 MultiTermsAggregationBuilder.NAME,
                 MultiTermsAggregationBuilder::new,
                 usage.track(AnalyticsStatsAction.Item.MULTI_TERMS, MultiTermsAggregationBuilder.PARSER)
-            ).addResultReader(InternalMultiTerms::new).setAggregatorRegistrar(MultiTermsAggregationBuilder::registerAggregators)
+            ).addResultReader(InternalMultiTerms::new).setAggregatorRegistrar(MultiTermsAggregationBuilder::registerAggregators),
+            new AggregationSpec(
+                TimeSeriesDownsampleAggregationBuilder.NAME,
+                TimeSeriesDownsampleAggregationBuilder::new,
+                usage.track(AnalyticsStatsAction.Item.TIME_SERIES_DOWNSAMPLE, TimeSeriesDownsampleAggregationBuilder.PARSER)
+            ).addResultReader(InternalTimeSeriesDownsample::new)
+                .setAggregatorRegistrar(TimeSeriesDownsampleAggregationBuilder::registerAggregators)
         );
     }
 
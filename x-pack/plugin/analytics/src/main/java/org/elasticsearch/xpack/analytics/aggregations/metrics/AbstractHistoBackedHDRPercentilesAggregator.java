@@ -14,12 +14,12 @@ import org.elasticsearch.common.util.ArrayUtils;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.core.Releasables;
-import org.elasticsearch.index.fielddata.HistogramValue;
 import org.elasticsearch.index.fielddata.HistogramValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.HistogramMerger;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -40,6 +40,12 @@ abstract class AbstractHistoBackedHDRPercentilesAggregator extends NumericMetric
     protected ObjectArray<DoubleHistogram> states;
     protected final int numberOfSignificantValueDigits;
     protected final boolean keyed;
+    /**
+     * Histograms collected for {@link #pendingBucket} that we haven't
+     * merged into its state yet.
+     */
+    private final HistogramMerger pending = new HistogramMerger();
+    private long pendingBucket = -1;
 
     AbstractHistoBackedHDRPercentilesAggregator(
         String name,
@@ -76,11 +82,15 @@ abstract class AbstractHistoBackedHDRPercentilesAggregator extends NumericMetric
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                DoubleHistogram state = getExistingOrNewHistogram(bigArrays(), bucket);
+                getExistingOrNewHistogram(bigArrays(), bucket);
                 if (values.advanceExact(doc)) {
-                    final HistogramValue sketch = values.histogram();
-                    while (sketch.next()) {
-                        state.recordValueWithCount(sketch.value(), sketch.count());
+                    if (bucket != pendingBucket) {
+                        mergePending();
+                        pendingBucket = bucket;
+                    }
+                    pending.add(values.histogram());
+                    if (pending.size() >= HistogramMerger.BUFFER_SIZE) {
+                        mergePending();
                     }
                 }
             }
@@ -105,12 +115,30 @@ abstract class AbstractHistoBackedHDRPercentilesAggregator extends NumericMetric
         return state;
     }
 
+    /**
+     * Merge the buffered histograms into the state of the bucket that
+     * they were collected for.
+     */
+    private void mergePending() {
+        if (pending.size() == 0) {
+            return;
+        }
+        DoubleHistogram state = states.get(pendingBucket);
+        pending.merge((value, count) -> state.recordValueWithCount(value, count));
+    }
+
+    @Override
+    protected void doPostCollection() {
+        mergePending();
+    }
+
     @Override
     public boolean hasMetric(String name) {
         return indexOfKey(keys, Double.parseDouble(name)) >= 0;
     }
 
     protected DoubleHistogram getState(long bucketOrd) {
+        mergePending();
         if (bucketOrd >= states.size()) {
             return null;
         }
@@ -13,12 +13,12 @@ import org.elasticsearch.common.util.ArrayUtils;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.core.Releasables;
-import org.elasticsearch.index.fielddata.HistogramValue;
 import org.elasticsearch.index.fielddata.HistogramValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.HistogramMerger;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.metrics.TDigestState;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
@@ -40,6 +40,12 @@ abstract class AbstractHistoBackedTDigestPercentilesAggregator extends NumericMe
     protected ObjectArray<TDigestState> states;
     protected final double compression;
     protected final boolean keyed;
+    /**
+     * Histograms collected for {@link #pendingBucket} that we haven't
+     * merged into its state yet.
+     */
+    private final HistogramMerger pending = new HistogramMerger();
+    private long pendingBucket = -1;
 
     AbstractHistoBackedTDigestPercentilesAggregator(
         String name,
@@ -76,11 +82,15 @@ abstract class AbstractHistoBackedTDigestPercentilesAggregator extends NumericMe
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                TDigestState state = getExistingOrNewHistogram(bigArrays(), bucket);
+                getExistingOrNewHistogram(bigArrays(), bucket);
                 if (values.advanceExact(doc)) {
-                    final HistogramValue sketch = values.histogram();
-                    while (sketch.next()) {
-                        state.add(sketch.value(), sketch.count());
+                    if (bucket != pendingBucket) {
+                        mergePending();
+                        pendingBucket = bucket;
+                    }
+                    pending.add(values.histogram());
+                    if (pending.size() >= HistogramMerger.BUFFER_SIZE) {
+                        mergePending();
                     }
                 }
             }
@@ -97,12 +107,42 @@ abstract class AbstractHistoBackedTDigestPercentilesAggregator extends NumericMe
         return state;
     }
 
+    /**
+     * Merge the buffered histograms into the state of the bucket that
+     * they were collected for.
+     */
+    private void mergePending() {
+        if (pending.size() == 0) {
+            return;
+        }
+        TDigestState state = states.get(pendingBucket);
+        pending.merge((value, count) -> addTo(state, value, count));
+    }
+
+    /**
+     * Add {@code count} copies of {@code value} to {@code state} which only
+     * takes {@code int} counts. Merged counts can be larger than that.
+     */
+    private static void addTo(TDigestState state, double value, long count) {
+        while (count > Integer.MAX_VALUE) {
+            state.add(value, Integer.MAX_VALUE);
+            count -= Integer.MAX_VALUE;
+        }
+        state.add(value, (int) count);
+    }
+
+    @Override
+    protected void doPostCollection() {
+        mergePending();
+    }
+
     @Override
     public boolean hasMetric(String name) {
         return indexOfKey(keys, Double.parseDouble(name)) >= 0;
     }
 
     protected TDigestState getState(long bucketOrd) {
+        mergePending();
         if (bucketOrd >= states.size()) {
             return null;
         }
@@ -0,0 +1,375 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.analytics.timeseries;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * The result of a {@code time_series_downsample} aggregation: for every time series, ordered by key, the intervals that it has samples
+ * in, ordered by time.
+ */
+public class InternalTimeSeriesDownsample extends InternalAggregation {
+
+    /**
+     * The samples of a single time series within a single interval.
+     */
+    public static class Bucket implements Writeable {
+        final long key;
+        final long docCount;
+        final double sum;
+        final long firstTimestamp;
+        final double firstValue;
+        final long lastTimestamp;
+        final double lastValue;
+        /**
+         * The increase of the metric between the first and the last sample of the interval, assuming that the metric is a counter
+         * that may be reset to zero. The final reduction adds the increase between the last sample of the previous bucket of the series
+         * and the first sample of this one so that no increase is lost at interval boundaries.
+         */
+        final double increase;
+
+        public Bucket(
+            long key,
+            long docCount,
+            double sum,
+            long firstTimestamp,
+            double firstValue,
+            long lastTimestamp,
+            double lastValue,
+            double increase
+        ) {
+            this.key = key;
+            this.docCount = docCount;
+            this.sum = sum;
+            this.firstTimestamp = firstTimestamp;
+            this.firstValue = firstValue;
+            this.lastTimestamp = lastTimestamp;
+            this.lastValue = lastValue;
+            this.increase = increase;
+        }
+
+        Bucket(StreamInput in) throws IOException {
+            key = in.readLong();
+            docCount = in.readVLong();
+            sum = in.readDouble();
+            firstTimestamp = in.readLong();
+            firstValue = in.readDouble();
+            lastTimestamp = in.readLong();
+            lastValue = in.readDouble();
+            increase = in.readDouble();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeLong(key);
+            out.writeVLong(docCount);
+            out.writeDouble(sum);
+            out.writeLong(firstTimestamp);
+            out.writeDouble(firstValue);
+            out.writeLong(lastTimestamp);
+            out.writeDouble(lastValue);
+            out.writeDouble(increase);
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public long getDocCount() {
+            return docCount;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getLast() {
+            return lastValue;
+        }
+
+        public double getIncrease() {
+            return increase;
+        }
+
+        /**
+         * The per-second rate of increase of the metric over the interval.
+         */
+        public double getRate(long intervalMillis) {
+            return increase * 1000 / intervalMillis;
+        }
+
+        XContentBuilder toXContent(XContentBuilder builder, DocValueFormat format, long intervalMillis) throws IOException {
+            builder.startObject();
+            builder.field(CommonFields.KEY.getPreferredName(), key);
+            if (format != DocValueFormat.RAW) {
+                builder.field(CommonFields.KEY_AS_STRING.getPreferredName(), format.format(key).toString());
+            }
+            builder.field(CommonFields.DOC_COUNT.getPreferredName(), docCount);
+            builder.field("sum", sum);
+            builder.field("last", lastValue);
+            builder.field("rate", getRate(intervalMillis));
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Bucket other = (Bucket) obj;
+            return key == other.key
+                && docCount == other.docCount
+                && sum == other.sum
+                && firstTimestamp == other.firstTimestamp
+                && firstValue == other.firstValue
+                && lastTimestamp == other.lastTimestamp
+                && lastValue == other.lastValue
+                && increase == other.increase;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, docCount, sum, firstTimestamp, firstValue, lastTimestamp, lastValue, increase);
+        }
+    }
+
+    /**
+     * The buckets of a single time series.
+     */
+    public static class Series implements Writeable {
+        final BytesRef key;
+        final List<Bucket> buckets;
+
+        public Series(BytesRef key, List<Bucket> buckets) {
+            this.key = key;
+            this.buckets = buckets;
+        }
+
+        Series(StreamInput in) throws IOException {
+            key = in.readBytesRef();
+            buckets = in.readList(Bucket::new);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeBytesRef(key);
+            out.writeList(buckets);
+        }
+
+        public String getKey() {
+            return key.utf8ToString();
+        }
+
+        public List<Bucket> getBuckets() {
+            return buckets;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Series other = (Series) obj;
+            return key.equals(other.key) && buckets.equals(other.buckets);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, buckets);
+        }
+    }
+
+    private final List<Series> series;
+    private final long intervalMillis;
+    private final DocValueFormat format;
+
+    public InternalTimeSeriesDownsample(
+        String name,
+        List<Series> series,
+        long intervalMillis,
+        DocValueFormat format,
+        Map<String, Object> metadata
+    ) {
+        super(name, metadata);
+        this.series = series;
+        this.intervalMillis = intervalMillis;
+        this.format = format;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public InternalTimeSeriesDownsample(StreamInput in) throws IOException {
+        super(in);
+        series = in.readList(Series::new);
+        intervalMillis = in.readVLong();
+        format = in.readNamedWriteable(DocValueFormat.class);
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeList(series);
+        out.writeVLong(intervalMillis);
+        out.writeNamedWriteable(format);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return TimeSeriesDownsampleAggregationBuilder.NAME;
+    }
+
+    public List<Series> getSeries() {
+        return series;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    @Override
+    public InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        // Series are routed to a single shard by their dimensions so merging the buckets of a series is the exception. It is still
+        // needed when a series spans several indices or when the dimension field is not part of the routing path.
+        final TreeMap<BytesRef, TreeMap<Long, List<Bucket>>> partials = new TreeMap<>();
+        for (InternalAggregation aggregation : aggregations) {
+            for (Series s : ((InternalTimeSeriesDownsample) aggregation).series) {
+                final TreeMap<Long, List<Bucket>> buckets = partials.computeIfAbsent(s.key, k -> new TreeMap<>());
+                for (Bucket bucket : s.buckets) {
+                    buckets.computeIfAbsent(bucket.key, k -> new ArrayList<>()).add(bucket);
+                }
+            }
+        }
+        final List<Series> reduced = new ArrayList<>(partials.size());
+        for (Map.Entry<BytesRef, TreeMap<Long, List<Bucket>>> entry : partials.entrySet()) {
+            reduceContext.consumeBucketsAndMaybeBreak(entry.getValue().size());
+            final List<Bucket> buckets = new ArrayList<>(entry.getValue().size());
+            Bucket previous = null;
+            for (List<Bucket> sameKey : entry.getValue().values()) {
+                Bucket bucket = sameKey.size() == 1 ? sameKey.get(0) : merge(sameKey);
+                if (previous != null && reduceContext.isFinalReduce()) {
+                    bucket = carryIncrease(previous, bucket);
+                }
+                buckets.add(bucket);
+                previous = bucket;
+            }
+            reduced.add(new Series(entry.getKey(), buckets));
+        }
+        return new InternalTimeSeriesDownsample(name, reduced, intervalMillis, format, getMetadata());
+    }
+
+    /**
+     * Merges buckets of the same series and interval that were built from disjoint sets of samples. The increases of the buckets are
+     * chained in the order of their first sample, which is exact as long as the samples of the buckets do not interleave.
+     */
+    private static Bucket merge(List<Bucket> buckets) {
+        buckets.sort(Comparator.comparingLong(b -> b.firstTimestamp));
+        Bucket first = buckets.get(0);
+        long docCount = first.docCount;
+        double sum = first.sum;
+        double increase = first.increase;
+        long lastTimestamp = first.lastTimestamp;
+        double lastValue = first.lastValue;
+        for (int i = 1; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            docCount += bucket.docCount;
+            sum += bucket.sum;
+            increase += counterIncrease(lastValue, bucket.firstValue) + bucket.increase;
+            if (bucket.lastTimestamp >= lastTimestamp) {
+                lastTimestamp = bucket.lastTimestamp;
+                lastValue = bucket.lastValue;
+            }
+        }
+        return new Bucket(first.key, docCount, sum, first.firstTimestamp, first.firstValue, lastTimestamp, lastValue, increase);
+    }
+
+    /**
+     * Adds the increase between the last sample of {@code previous} and the first sample of {@code bucket}, the next bucket of the
+     * same series, to the increase of {@code bucket}. This can only be done once all buckets of the series are known, on the final
+     * reduction, since buckets built from other shards might hold samples in between.
+     */
+    private static Bucket carryIncrease(Bucket previous, Bucket bucket) {
+        return new Bucket(
+            bucket.key,
+            bucket.docCount,
+            bucket.sum,
+            bucket.firstTimestamp,
+            bucket.firstValue,
+            bucket.lastTimestamp,
+            bucket.lastValue,
+            bucket.increase + counterIncrease(previous.lastValue, bucket.firstValue)
+        );
+    }
+
+    /**
+     * The increase of a counter between two consecutive samples. A decrease means that the counter was reset in between, in which
+     * case it increased by at least its new value.
+     */
+    static double counterIncrease(double previous, double current) {
+        double delta = current - previous;
+        return delta < 0 ? current : delta;
+    }
+
+    @Override
+    protected boolean mustReduceOnSingleInternalAgg() {
+        // the final reduction carries increases across interval boundaries and counts the buckets
+        return true;
+    }
+
+    @Override
+    public Object getProperty(List<String> path) {
+        if (path.isEmpty()) {
+            return this;
+        }
+        throw new IllegalArgumentException("path not supported for [" + getName() + "]: " + path);
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray("series");
+        for (Series s : series) {
+            builder.startObject();
+            builder.field(CommonFields.KEY.getPreferredName(), s.getKey());
+            builder.startArray(CommonFields.BUCKETS.getPreferredName());
+            for (Bucket bucket : s.buckets) {
+                bucket.toXContent(builder, format, intervalMillis);
+            }
+            builder.endArray();
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), series, intervalMillis, format);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        if (super.equals(obj) == false) return false;
+
+        InternalTimeSeriesDownsample other = (InternalTimeSeriesDownsample) obj;
+        return series.equals(other.series) && intervalMillis == other.intervalMillis && Objects.equals(format, other.format);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.analytics.timeseries;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
+import org.elasticsearch.xcontent.ObjectParser;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Downsamples a metric of a time series index into fixed intervals, computing the sum, the last value and the per-second rate of
+ * increase of the metric for every time series and interval. A time series is identified by the value of its {@code dimension} field.
+ */
+public class TimeSeriesDownsampleAggregationBuilder extends AbstractAggregationBuilder<TimeSeriesDownsampleAggregationBuilder> {
+    public static final String NAME = "time_series_downsample";
+
+    public static final ParseField DIMENSION_FIELD = new ParseField("dimension");
+    public static final ParseField FIELD_FIELD = new ParseField("field");
+    public static final ParseField TIMESTAMP_FIELD = new ParseField("timestamp_field");
+    public static final ParseField FIXED_INTERVAL_FIELD = new ParseField("fixed_interval");
+
+    public static final String DEFAULT_TIMESTAMP_FIELD = "@timestamp";
+
+    public static final ObjectParser<TimeSeriesDownsampleAggregationBuilder, String> PARSER = ObjectParser.fromBuilder(
+        NAME,
+        TimeSeriesDownsampleAggregationBuilder::new
+    );
+    static {
+        PARSER.declareString(TimeSeriesDownsampleAggregationBuilder::dimension, DIMENSION_FIELD);
+        PARSER.declareString(TimeSeriesDownsampleAggregationBuilder::field, FIELD_FIELD);
+        PARSER.declareString(TimeSeriesDownsampleAggregationBuilder::timestampField, TIMESTAMP_FIELD);
+        PARSER.declareString(
+            (b, v) -> b.fixedInterval(TimeValue.parseTimeValue(v, FIXED_INTERVAL_FIELD.getPreferredName())),
+            FIXED_INTERVAL_FIELD
+        );
+    }
+
+    public static void registerAggregators(ValuesSourceRegistry.Builder registry) {
+        registry.registerUsage(NAME);
+    }
+
+    private String dimension;
+    private String field;
+    private String timestampField = DEFAULT_TIMESTAMP_FIELD;
+    private TimeValue fixedInterval;
+
+    public TimeSeriesDownsampleAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public TimeSeriesDownsampleAggregationBuilder(
+        TimeSeriesDownsampleAggregationBuilder clone,
+        AggregatorFactories.Builder factoriesBuilder,
+        Map<String, Object> metadata
+    ) {
+        super(clone, factoriesBuilder, metadata);
+        this.dimension = clone.dimension;
+        this.field = clone.field;
+        this.timestampField = clone.timestampField;
+        this.fixedInterval = clone.fixedInterval;
+    }
+
+    public TimeSeriesDownsampleAggregationBuilder(StreamInput in) throws IOException {
+        super(in);
+        dimension = in.readOptionalString();
+        field = in.readOptionalString();
+        timestampField = in.readString();
+        fixedInterval = in.readOptionalTimeValue();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeOptionalString(dimension);
+        out.writeOptionalString(field);
+        out.writeString(timestampField);
+        out.writeOptionalTimeValue(fixedInterval);
+    }
+
+    /**
+     * Sets the keyword field that identifies a time series.
+     */
+    public TimeSeriesDownsampleAggregationBuilder dimension(String dimension) {
+        this.dimension = Objects.requireNonNull(dimension, "[" + DIMENSION_FIELD.getPreferredName() + "] must not be null");
+        return this;
+    }
+
+    public String dimension() {
+        return dimension;
+    }
+
+    /**
+     * Sets the numeric metric field to downsample.
+     */
+    public TimeSeriesDownsampleAggregationBuilder field(String field) {
+        this.field = Objects.requireNonNull(field, "[" + FIELD_FIELD.getPreferredName() + "] must not be null");
+        return this;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    /**
+     * Sets the date field that holds the timestamp of a sample, defaults to {@value #DEFAULT_TIMESTAMP_FIELD}.
+     */
+    public TimeSeriesDownsampleAggregationBuilder timestampField(String timestampField) {
+        this.timestampField = Objects.requireNonNull(timestampField, "[" + TIMESTAMP_FIELD.getPreferredName() + "] must not be null");
+        return this;
+    }
+
+    public String timestampField() {
+        return timestampField;
+    }
+
+    /**
+     * Sets the length of the intervals that samples are downsampled into.
+     */
+    public TimeSeriesDownsampleAggregationBuilder fixedInterval(TimeValue fixedInterval) {
+        Objects.requireNonNull(fixedInterval, "[" + FIXED_INTERVAL_FIELD.getPreferredName() + "] must not be null");
+        if (fixedInterval.millis() <= 0) {
+            throw new IllegalArgumentException(
+                "[" + FIXED_INTERVAL_FIELD.getPreferredName() + "] must be at least 1ms but was [" + fixedInterval + "] in [" + name + "]"
+            );
+        }
+        this.fixedInterval = fixedInterval;
+        return this;
+    }
+
+    public TimeValue fixedInterval() {
+        return fixedInterval;
+    }
+
+    @Override
+    protected AggregationBuilder shallowCopy(AggregatorFactories.Builder factoriesBuilder, Map<String, Object> metadata) {
+        return new TimeSeriesDownsampleAggregationBuilder(this, factoriesBuilder, metadata);
+    }
+
+    @Override
+    public BucketCardinality bucketCardinality() {
+        return BucketCardinality.NONE;
+    }
+
+    @Override
+    protected AggregatorFactory doBuild(
+        AggregationContext context,
+        AggregatorFactory parent,
+        AggregatorFactories.Builder subFactoriesBuilder
+    ) throws IOException {
+        if (parent != null) {
+            throw new IllegalArgumentException("[" + NAME + "] aggregation [" + name + "] must be a top level aggregation");
+        }
+        if (subFactoriesBuilder.count() > 0) {
+            throw new IllegalArgumentException("[" + NAME + "] aggregation [" + name + "] does not support sub-aggregations");
+        }
+        if (dimension == null || field == null || fixedInterval == null) {
+            throw new IllegalArgumentException(
+                "["
+                    + NAME
+                    + "] aggregation ["
+                    + name
+                    + "] requires ["
+                    + DIMENSION_FIELD.getPreferredName()
+                    + "], ["
+                    + FIELD_FIELD.getPreferredName()
+                    + "] and ["
+                    + FIXED_INTERVAL_FIELD.getPreferredName()
+                    + "]"
+            );
+        }
+        ValuesSourceConfig dimensionConfig = resolve(context, dimension, CoreValuesSourceType.KEYWORD);
+        ValuesSourceConfig timestampConfig = resolve(context, timestampField, CoreValuesSourceType.DATE);
+        ValuesSourceConfig metricConfig = resolve(context, field, CoreValuesSourceType.NUMERIC);
+        return new TimeSeriesDownsampleAggregatorFactory(
+            name,
+            dimensionConfig,
+            timestampConfig,
+            metricConfig,
+            fixedInterval.millis(),
+            context,
+            parent,
+            subFactoriesBuilder,
+            metadata
+        );
+    }
+
+    private static ValuesSourceConfig resolve(AggregationContext context, String fieldName, CoreValuesSourceType defaultType) {
+        return ValuesSourceConfig.resolveUnregistered(context, null, fieldName, null, null, null, null, defaultType);
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        if (dimension != null) {
+            builder.field(DIMENSION_FIELD.getPreferredName(), dimension);
+        }
+        if (field != null) {
+            builder.field(FIELD_FIELD.getPreferredName(), field);
+        }
+        builder.field(TIMESTAMP_FIELD.getPreferredName(), timestampField);
+        if (fixedInterval != null) {
+            builder.field(FIXED_INTERVAL_FIELD.getPreferredName(), fixedInterval.getStringRep());
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), dimension, field, timestampField, fixedInterval);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        if (super.equals(obj) == false) return false;
+
+        TimeSeriesDownsampleAggregationBuilder other = (TimeSeriesDownsampleAggregationBuilder) obj;
+        return Objects.equals(dimension, other.dimension)
+            && Objects.equals(field, other.field)
+            && Objects.equals(timestampField, other.timestampField)
+            && Objects.equals(fixedInterval, other.fixedInterval);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.analytics.timeseries;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.CompensatedSum;
+import org.elasticsearch.search.aggregations.metrics.MetricsAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Downsamples a metric per time series and interval.
+ * <p>
+ * Computing counter increases needs the samples of every series in time order. Rather than keeping a hash table of per-series and
+ * per-interval state, the aggregator records one {@code (series, timestamp, value)} entry per document in primitive arrays, sorts them
+ * by series and timestamp once, unless they were collected in that order already, and then streams over them keeping only the state of
+ * the interval that is being built. Series are identified by the global ordinal of their dimension, so sorting by ordinal also sorts the
+ * series by key.
+ * <p>
+ * Samples are accounted for by {@link #bigArrays()} and so against the request circuit breaker. On top of that a shard can't collect
+ * more than {@link #MAX_SAMPLES} of them since they are sorted by their {@code int} index.
+ */
+class TimeSeriesDownsampleAggregator extends MetricsAggregator {
+
+    static final long MAX_SAMPLES = ArrayUtil.MAX_ARRAY_LENGTH;
+
+    private final ValuesSource.Bytes.WithOrdinals dimension;
+    private final ValuesSource.Numeric timestamp;
+    private final ValuesSource.Numeric metric;
+    private final DocValueFormat timestampFormat;
+    private final long intervalMillis;
+    /**
+     * The interval in the resolution of the timestamp field, which is nanoseconds for {@code date_nanos}.
+     */
+    private final long interval;
+
+    private LongArray ords;
+    private LongArray timestamps;
+    private DoubleArray values;
+    private long size;
+    private boolean sorted = true;
+
+    TimeSeriesDownsampleAggregator(
+        String name,
+        ValuesSource.Bytes.WithOrdinals dimension,
+        ValuesSource.Numeric timestamp,
+        ValuesSource.Numeric metric,
+        DocValueFormat timestampFormat,
+        long intervalMillis,
+        long interval,
+        AggregationContext context,
+        Aggregator parent,
+        Map<String, Object> metadata
+    ) throws IOException {
+        super(name, context, parent, metadata);
+        this.dimension = dimension;
+        this.timestamp = timestamp;
+        this.metric = metric;
+        this.timestampFormat = timestampFormat;
+        this.intervalMillis = intervalMillis;
+        this.interval = interval;
+        if (dimension != null) {
+            ords = bigArrays().newLongArray(1, false);
+            timestamps = bigArrays().newLongArray(1, false);
+            values = bigArrays().newDoubleArray(1, false);
+        }
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return ScoreMode.COMPLETE_NO_SCORES;
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        if (dimension == null) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        final SortedSetDocValues dimensionValues = dimension.globalOrdinalsValues(ctx);
+        final SortedNumericDocValues timestampValues = timestamp.longValues(ctx);
+        final SortedNumericDoubleValues metricValues = metric.doubleValues(ctx);
+        return new LeafBucketCollectorBase(sub, null) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0 : "time series downsampling must be a top level aggregation";
+                if (dimensionValues.advanceExact(doc) == false
+                    || timestampValues.advanceExact(doc) == false
+                    || metricValues.advanceExact(doc) == false) {
+                    return;
+                }
+                // a time series has a single value per dimension and a sample has a single timestamp and value
+                final long ord = dimensionValues.nextOrd();
+                final long ts = timestampValues.nextValue();
+                final double value = metricValues.nextValue();
+                if (sorted && size > 0) {
+                    final long previousOrd = ords.get(size - 1);
+                    sorted = previousOrd < ord || (previousOrd == ord && timestamps.get(size - 1) <= ts);
+                }
+                if (size == MAX_SAMPLES) {
+                    throw new IllegalArgumentException(
+                        "["
+                            + TimeSeriesDownsampleAggregationBuilder.NAME
+                            + "] aggregation ["
+                            + name
+                            + "] can't downsample more than ["
+                            + MAX_SAMPLES
+                            + "] samples per shard, narrow down the query"
+                    );
+                }
+                ords = bigArrays().grow(ords, size + 1);
+                timestamps = bigArrays().grow(timestamps, size + 1);
+                values = bigArrays().grow(values, size + 1);
+                ords.set(size, ord);
+                timestamps.set(size, ts);
+                values.set(size, value);
+                size++;
+            }
+        };
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrd) throws IOException {
+        if (dimension == null || size == 0) {
+            return buildEmptyAggregation();
+        }
+        if (sorted == false) {
+            sort();
+            sorted = true;
+        }
+        // global ordinals can be looked up from any segment
+        final SortedSetDocValues lookup = dimension.globalOrdinalsValues(searcher().getIndexReader().leaves().get(0));
+        final List<InternalTimeSeriesDownsample.Series> series = new ArrayList<>();
+        final CompensatedSum sum = new CompensatedSum(0, 0);
+        long i = 0;
+        while (i < size) {
+            final long ord = ords.get(i);
+            final List<InternalTimeSeriesDownsample.Bucket> buckets = new ArrayList<>();
+            long key = 0;
+            long docCount = 0;
+            long firstTimestamp = 0;
+            double firstValue = 0;
+            long lastTimestamp = 0;
+            double lastValue = 0;
+            double increase = 0;
+            for (; i < size && ords.get(i) == ord; i++) {
+                final long ts = timestamps.get(i);
+                final double value = values.get(i);
+                final long sampleKey = ts - Math.floorMod(ts, interval);
+                if (docCount > 0 && sampleKey == key) {
+                    docCount++;
+                    sum.add(value);
+                    increase += InternalTimeSeriesDownsample.counterIncrease(lastValue, value);
+                } else {
+                    if (docCount > 0) {
+                        buckets.add(
+                            new InternalTimeSeriesDownsample.Bucket(
+                                key,
+                                docCount,
+                                sum.value(),
+                                firstTimestamp,
+                                firstValue,
+                                lastTimestamp,
+                                lastValue,
+                                increase
+                            )
+                        );
+                    }
+                    key = sampleKey;
+                    docCount = 1;
+                    sum.reset(value, 0);
+                    firstTimestamp = ts;
+                    firstValue = value;
+                    // the increase since the previous interval is added on the final reduction, see InternalTimeSeriesDownsample
+                    increase = 0;
+                }
+                lastTimestamp = ts;
+                lastValue = value;
+            }
+            buckets.add(
+                new InternalTimeSeriesDownsample.Bucket(
+                    key,
+                    docCount,
+                    sum.value(),
+                    firstTimestamp,
+                    firstValue,
+                    lastTimestamp,
+                    lastValue,
+                    increase
+                )
+            );
+            series.add(new InternalTimeSeriesDownsample.Series(BytesRef.deepCopyOf(lookup.lookupOrd(ord)), buckets));
+        }
+        return new InternalTimeSeriesDownsample(name, series, intervalMillis, timestampFormat, metadata());
+    }
+
+    /**
+     * Sorts the collected samples by series and timestamp, moving the entries of the three arrays together.
+     */
+    private void sort() {
+        new IntroSorter() {
+            private long pivotOrd;
+            private long pivotTimestamp;
+
+            @Override
+            protected void swap(int i, int j) {
+                final long ord = ords.get(i);
+                ords.set(i, ords.get(j));
+                ords.set(j, ord);
+                final long ts = timestamps.get(i);
+                timestamps.set(i, timestamps.get(j));
+                timestamps.set(j, ts);
+                final double value = values.get(i);
+                values.set(i, values.get(j));
+                values.set(j, value);
+            }
+
+            @Override
+            protected int compare(int i, int j) {
+                final int cmp = Long.compare(ords.get(i), ords.get(j));
+                return cmp != 0 ? cmp : Long.compare(timestamps.get(i), timestamps.get(j));
+            }
+
+            @Override
+            protected void setPivot(int i) {
+                pivotOrd = ords.get(i);
+                pivotTimestamp = timestamps.get(i);
+            }
+
+            @Override
+            protected int comparePivot(int j) {
+                final int cmp = Long.compare(pivotOrd, ords.get(j));
+                return cmp != 0 ? cmp : Long.compare(pivotTimestamp, timestamps.get(j));
+            }
+        }.sort(0, (int) size); // collection stops at MAX_SAMPLES
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalTimeSeriesDownsample(name, List.of(), intervalMillis, timestampFormat, metadata());
+    }
+
+    @Override
+    public void doClose() {
+        Releasables.close(ords, timestamps, values);
+    }
+}
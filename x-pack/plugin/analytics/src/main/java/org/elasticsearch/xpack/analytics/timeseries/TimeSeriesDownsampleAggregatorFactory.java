@@ -0,0 +1,118 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.analytics.timeseries;
+
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.CardinalityUpperBound;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+
+public class TimeSeriesDownsampleAggregatorFactory extends AggregatorFactory {
+
+    private final ValuesSourceConfig dimensionConfig;
+    private final ValuesSourceConfig timestampConfig;
+    private final ValuesSourceConfig metricConfig;
+    private final long intervalMillis;
+
+    public TimeSeriesDownsampleAggregatorFactory(
+        String name,
+        ValuesSourceConfig dimensionConfig,
+        ValuesSourceConfig timestampConfig,
+        ValuesSourceConfig metricConfig,
+        long intervalMillis,
+        AggregationContext context,
+        AggregatorFactory parent,
+        AggregatorFactories.Builder subFactoriesBuilder,
+        Map<String, Object> metadata
+    ) throws IOException {
+        super(name, context, parent, subFactoriesBuilder, metadata);
+        this.dimensionConfig = dimensionConfig;
+        this.timestampConfig = timestampConfig;
+        this.metricConfig = metricConfig;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    protected Aggregator createInternal(Aggregator parent, CardinalityUpperBound cardinality, Map<String, Object> metadata)
+        throws IOException {
+        if (dimensionConfig.hasValues() == false || timestampConfig.hasValues() == false || metricConfig.hasValues() == false) {
+            // one of the fields is unmapped so no document can contribute to a series
+            return new TimeSeriesDownsampleAggregator(
+                name,
+                null,
+                null,
+                null,
+                timestampConfig.format(),
+                intervalMillis,
+                intervalMillis,
+                context,
+                parent,
+                metadata
+            );
+        }
+        if (dimensionConfig.getValuesSource() instanceof ValuesSource.Bytes.WithOrdinals == false) {
+            throw new IllegalArgumentException(
+                "["
+                    + TimeSeriesDownsampleAggregationBuilder.DIMENSION_FIELD.getPreferredName()
+                    + "] of aggregation ["
+                    + name
+                    + "] must be a keyword field but was ["
+                    + dimensionConfig.fieldType().typeName()
+                    + "]"
+            );
+        }
+        if (timestampConfig.getValuesSource() instanceof ValuesSource.Numeric == false) {
+            throw new IllegalArgumentException(
+                "["
+                    + TimeSeriesDownsampleAggregationBuilder.TIMESTAMP_FIELD.getPreferredName()
+                    + "] of aggregation ["
+                    + name
+                    + "] must be a date field but was ["
+                    + timestampConfig.fieldType().typeName()
+                    + "]"
+            );
+        }
+        if (metricConfig.getValuesSource() instanceof ValuesSource.Numeric == false) {
+            throw new IllegalArgumentException(
+                "["
+                    + TimeSeriesDownsampleAggregationBuilder.FIELD_FIELD.getPreferredName()
+                    + "] of aggregation ["
+                    + name
+                    + "] must be a numeric field but was ["
+                    + metricConfig.fieldType().typeName()
+                    + "]"
+            );
+        }
+        // bucket keys are computed on the raw timestamps, which are in nanoseconds for date_nanos fields
+        long interval = intervalMillis;
+        if (timestampConfig.fieldType() instanceof DateFieldMapper.DateFieldType) {
+            interval = ((DateFieldMapper.DateFieldType) timestampConfig.fieldType()).resolution()
+                .convert(Instant.ofEpochMilli(intervalMillis));
+        }
+        return new TimeSeriesDownsampleAggregator(
+            name,
+            (ValuesSource.Bytes.WithOrdinals) dimensionConfig.getValuesSource(),
+            (ValuesSource.Numeric) timestampConfig.getValuesSource(),
+            (ValuesSource.Numeric) metricConfig.getValuesSource(),
+            timestampConfig.format(),
+            intervalMillis,
+            interval,
+            context,
+            parent,
+            metadata
+        );
+    }
+}
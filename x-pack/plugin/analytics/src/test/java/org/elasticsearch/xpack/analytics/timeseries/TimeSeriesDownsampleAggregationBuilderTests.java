@@ -0,0 +1,97 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.analytics.timeseries;
+
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BaseAggregationBuilder;
+import org.elasticsearch.test.AbstractSerializingTestCase;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.XContentParser;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class TimeSeriesDownsampleAggregationBuilderTests extends AbstractSerializingTestCase<TimeSeriesDownsampleAggregationBuilder> {
+    String aggregationName;
+
+    @Before
+    public void setupName() {
+        aggregationName = randomAlphaOfLength(10);
+    }
+
+    @Override
+    protected TimeSeriesDownsampleAggregationBuilder doParseInstance(XContentParser parser) throws IOException {
+        assertSame(XContentParser.Token.START_OBJECT, parser.nextToken());
+        AggregatorFactories.Builder parsed = AggregatorFactories.parseAggregators(parser);
+        assertThat(parsed.getAggregatorFactories(), hasSize(1));
+        assertThat(parsed.getPipelineAggregatorFactories(), hasSize(0));
+        TimeSeriesDownsampleAggregationBuilder agg = (TimeSeriesDownsampleAggregationBuilder) parsed.getAggregatorFactories()
+            .iterator()
+            .next();
+        assertNull(parser.nextToken());
+        assertNotNull(agg);
+        return agg;
+    }
+
+    @Override
+    protected TimeSeriesDownsampleAggregationBuilder createTestInstance() {
+        TimeSeriesDownsampleAggregationBuilder aggregationBuilder = new TimeSeriesDownsampleAggregationBuilder(aggregationName);
+        aggregationBuilder.dimension(randomAlphaOfLength(10));
+        aggregationBuilder.field(randomAlphaOfLength(10));
+        aggregationBuilder.fixedInterval(TimeValue.timeValueMillis(randomLongBetween(1, 1_000_000)));
+        if (randomBoolean()) {
+            aggregationBuilder.timestampField(randomAlphaOfLength(10));
+        }
+        return aggregationBuilder;
+    }
+
+    public void testRejectsEmptyInterval() {
+        TimeSeriesDownsampleAggregationBuilder aggregationBuilder = new TimeSeriesDownsampleAggregationBuilder("downsample");
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> aggregationBuilder.fixedInterval(TimeValue.ZERO)
+        );
+        assertThat(e.getMessage(), equalTo("[fixed_interval] must be at least 1ms but was [0s] in [downsample]"));
+    }
+
+    @Override
+    protected Writeable.Reader<TimeSeriesDownsampleAggregationBuilder> instanceReader() {
+        return TimeSeriesDownsampleAggregationBuilder::new;
+    }
+
+    @Override
+    protected NamedWriteableRegistry getNamedWriteableRegistry() {
+        return new NamedWriteableRegistry(new SearchModule(Settings.EMPTY, Collections.emptyList()).getNamedWriteables());
+    }
+
+    @Override
+    protected NamedXContentRegistry xContentRegistry() {
+        List<NamedXContentRegistry.Entry> namedXContent = new ArrayList<>();
+        namedXContent.add(
+            new NamedXContentRegistry.Entry(
+                BaseAggregationBuilder.class,
+                new ParseField(TimeSeriesDownsampleAggregationBuilder.NAME),
+                (p, n) -> TimeSeriesDownsampleAggregationBuilder.PARSER.apply(p, (String) n)
+            )
+        );
+        namedXContent.addAll(new SearchModule(Settings.EMPTY, Collections.emptyList()).getNamedXContents());
+        return new NamedXContentRegistry(namedXContent);
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.analytics.timeseries;
+
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.plugins.SearchPlugin;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
+import org.elasticsearch.xpack.analytics.AnalyticsPlugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+public class TimeSeriesDownsampleAggregatorTests extends AggregatorTestCase {
+
+    private static final String DIMENSION_FIELD = "host";
+    private static final String TIMESTAMP_FIELD = "@timestamp";
+    private static final String METRIC_FIELD = "requests";
+
+    @Override
+    protected List<SearchPlugin> getSearchPlugins() {
+        return Collections.singletonList(new AnalyticsPlugin());
+    }
+
+    public void testCounter() throws IOException {
+        // the samples of a series are only merged exactly across segments if segments hold disjoint time ranges, so don't merge them
+        withNonMergingIndex(iw -> {
+            iw.addDocument(sample("a", 0, 1));
+            iw.addDocument(sample("a", 5, 3));
+            iw.addDocument(sample("a", 10, 4));
+            iw.addDocument(sample("a", 15, 2)); // counter reset
+            iw.addDocument(sample("a", 19, 5));
+        }, searcher -> {
+            InternalTimeSeriesDownsample downsample = searchAndReduce(
+                searcher,
+                new MatchAllDocsQuery(),
+                downsampleBuilder(),
+                dimensionFieldType(),
+                timestampFieldType(),
+                metricFieldType()
+            );
+            assertThat(downsample.getSeries(), hasSize(1));
+            InternalTimeSeriesDownsample.Series series = downsample.getSeries().get(0);
+            assertThat(series.getKey(), equalTo("a"));
+            assertThat(series.getBuckets(), hasSize(2));
+
+            InternalTimeSeriesDownsample.Bucket bucket = series.getBuckets().get(0);
+            assertThat(bucket.getKey(), equalTo(0L));
+            assertThat(bucket.getDocCount(), equalTo(2L));
+            assertThat(bucket.getSum(), equalTo(4.0));
+            assertThat(bucket.getLast(), equalTo(3.0));
+            assertThat(bucket.getIncrease(), equalTo(2.0));
+            assertThat(bucket.getRate(downsample.getIntervalMillis()), equalTo(200.0));
+
+            bucket = series.getBuckets().get(1);
+            assertThat(bucket.getKey(), equalTo(10L));
+            assertThat(bucket.getDocCount(), equalTo(3L));
+            assertThat(bucket.getSum(), equalTo(11.0));
+            assertThat(bucket.getLast(), equalTo(5.0));
+            // 3 -> 4 across the interval boundary, 4 -> 2 is a reset and 2 -> 5
+            assertThat(bucket.getIncrease(), equalTo(6.0));
+        });
+    }
+
+    public void testIncreaseIsCarriedAcrossEmptyIntervals() throws IOException {
+        testCase(iw -> {
+            iw.addDocument(sample("a", 0, 1));
+            iw.addDocument(sample("a", 5, 3));
+            iw.addDocument(sample("a", 25, 10));
+            iw.addDocument(sample("b", 0, 7));
+            iw.addDocument(sample("b", 12, 2)); // counter reset
+        }, downsample -> {
+            assertThat(downsample.getSeries(), hasSize(2));
+            List<InternalTimeSeriesDownsample.Bucket> buckets = downsample.getSeries().get(0).getBuckets();
+            assertThat(buckets, hasSize(2));
+            assertThat(buckets.get(0).getIncrease(), equalTo(2.0));
+            assertThat(buckets.get(1).getKey(), equalTo(20L));
+            assertThat(buckets.get(1).getIncrease(), equalTo(7.0));
+
+            // the first bucket of a series has nothing to carry over, even if another series precedes it
+            buckets = downsample.getSeries().get(1).getBuckets();
+            assertThat(buckets, hasSize(2));
+            assertThat(buckets.get(0).getIncrease(), equalTo(0.0));
+            assertThat(buckets.get(1).getIncrease(), equalTo(2.0));
+        });
+    }
+
+    public void testTooManyBuckets() throws IOException {
+        withNonMergingIndex(iw -> {
+            for (String host : new String[] { "a", "b", "c" }) {
+                for (long ts = 0; ts < 40; ts += 10) {
+                    iw.addDocument(sample(host, ts, ts));
+                }
+            }
+        }, searcher -> {
+            expectThrows(
+                MultiBucketConsumerService.TooManyBucketsException.class,
+                () -> searchAndReduce(
+                    searcher,
+                    new MatchAllDocsQuery(),
+                    downsampleBuilder(),
+                    11,
+                    dimensionFieldType(),
+                    timestampFieldType(),
+                    metricFieldType()
+                )
+            );
+            InternalTimeSeriesDownsample downsample = searchAndReduce(
+                searcher,
+                new MatchAllDocsQuery(),
+                downsampleBuilder(),
+                12,
+                dimensionFieldType(),
+                timestampFieldType(),
+                metricFieldType()
+            );
+            assertThat(downsample.getSeries(), hasSize(3));
+        });
+    }
+
+    public void testSeriesAreSortedByKeyAndTime() throws IOException {
+        List<List<IndexableField>> docs = new ArrayList<>();
+        for (String host : new String[] { "a", "b", "c" }) {
+            for (long ts = 0; ts < 40; ts += 2) {
+                docs.add(sample(host, ts, ts));
+            }
+        }
+        Collections.shuffle(docs, random());
+        testCase(iw -> iw.addDocuments(docs), downsample -> {
+            assertThat(downsample.getSeries(), hasSize(3));
+            for (int s = 0; s < 3; s++) {
+                InternalTimeSeriesDownsample.Series series = downsample.getSeries().get(s);
+                assertThat(series.getKey(), equalTo(new String[] { "a", "b", "c" }[s]));
+                assertThat(series.getBuckets(), hasSize(4));
+                for (int b = 0; b < 4; b++) {
+                    InternalTimeSeriesDownsample.Bucket bucket = series.getBuckets().get(b);
+                    long key = b * 10L;
+                    assertThat(bucket.getKey(), equalTo(key));
+                    assertThat(bucket.getDocCount(), equalTo(5L));
+                    assertThat(bucket.getSum(), equalTo(5.0 * key + 20));
+                    assertThat(bucket.getLast(), equalTo(key + 8.0));
+                }
+            }
+        });
+    }
+
+    public void testNegativeTimestamps() throws IOException {
+        testCase(iw -> {
+            iw.addDocument(sample("a", -15, 1));
+            iw.addDocument(sample("a", -5, 2));
+        }, downsample -> {
+            List<InternalTimeSeriesDownsample.Bucket> buckets = downsample.getSeries().get(0).getBuckets();
+            assertThat(buckets, hasSize(2));
+            assertThat(buckets.get(0).getKey(), equalTo(-20L));
+            assertThat(buckets.get(1).getKey(), equalTo(-10L));
+        });
+    }
+
+    public void testDateNanos() throws IOException {
+        testCase(
+            downsampleBuilder(),
+            new MatchAllDocsQuery(),
+            iw -> {
+                iw.addDocument(sample("a", 0, 1));
+                iw.addDocument(sample("a", 5_000_000, 3));
+                iw.addDocument(sample("a", 12_000_000, 4));
+            },
+            (InternalTimeSeriesDownsample downsample) -> {
+                List<InternalTimeSeriesDownsample.Bucket> buckets = downsample.getSeries().get(0).getBuckets();
+                assertThat(buckets, hasSize(2));
+                assertThat(buckets.get(0).getKey(), equalTo(0L));
+                assertThat(buckets.get(0).getDocCount(), equalTo(2L));
+                assertThat(buckets.get(0).getRate(downsample.getIntervalMillis()), equalTo(200.0));
+                assertThat(buckets.get(1).getKey(), equalTo(10_000_000L));
+                assertThat(buckets.get(1).getDocCount(), equalTo(1L));
+            },
+            dimensionFieldType(),
+            new DateFieldMapper.DateFieldType(TIMESTAMP_FIELD, DateFieldMapper.Resolution.NANOSECONDS),
+            metricFieldType()
+        );
+    }
+
+    public void testMissingFields() throws IOException {
+        testCase(iw -> {
+            iw.addDocument(List.of(new SortedNumericDocValuesField(TIMESTAMP_FIELD, 0), new SortedNumericDocValuesField(METRIC_FIELD, 1)));
+            iw.addDocument(List.of(new SortedSetDocValuesField(DIMENSION_FIELD, new BytesRef("a"))));
+        }, downsample -> assertThat(downsample.getSeries(), hasSize(0)));
+    }
+
+    public void testUnmappedDimension() throws IOException {
+        TimeSeriesDownsampleAggregationBuilder builder = downsampleBuilder();
+        testCase(
+            builder,
+            new MatchAllDocsQuery(),
+            iw -> iw.addDocument(sample("a", 0, 1)),
+            (InternalTimeSeriesDownsample downsample) -> assertThat(downsample.getSeries(), hasSize(0)),
+            timestampFieldType(),
+            metricFieldType()
+        );
+    }
+
+    public void testDimensionMustBeKeyword() {
+        TimeSeriesDownsampleAggregationBuilder builder = downsampleBuilder();
+        builder.dimension(METRIC_FIELD);
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> testCase(
+                builder,
+                new MatchAllDocsQuery(),
+                iw -> iw.addDocument(sample("a", 0, 1)),
+                downsample -> fail("should have failed"),
+                timestampFieldType(),
+                metricFieldType()
+            )
+        );
+        assertThat(e.getMessage(), equalTo("[dimension] of aggregation [downsample] must be a keyword field but was [long]"));
+    }
+
+    public void testSubAggregationsAreRejected() {
+        TimeSeriesDownsampleAggregationBuilder builder = downsampleBuilder();
+        builder.subAggregation(new MaxAggregationBuilder("max").field(METRIC_FIELD));
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> testCase(
+                builder,
+                new MatchAllDocsQuery(),
+                iw -> iw.addDocument(sample("a", 0, 1)),
+                downsample -> fail("should have failed"),
+                dimensionFieldType(),
+                timestampFieldType(),
+                metricFieldType()
+            )
+        );
+        assertThat(e.getMessage(), equalTo("[time_series_downsample] aggregation [downsample] does not support sub-aggregations"));
+    }
+
+    @Override
+    protected void doAssertReducedMultiBucketConsumer(Aggregation agg, MultiBucketConsumerService.MultiBucketConsumer bucketConsumer) {
+        int buckets = 0;
+        for (InternalTimeSeriesDownsample.Series series : ((InternalTimeSeriesDownsample) agg).getSeries()) {
+            buckets += series.getBuckets().size();
+        }
+        assertThat(bucketConsumer.getCount(), equalTo(buckets));
+    }
+
+    private void testCase(CheckedConsumer<RandomIndexWriter, IOException> buildIndex, Consumer<InternalTimeSeriesDownsample> verify)
+        throws IOException {
+        testCase(
+            downsampleBuilder(),
+            new MatchAllDocsQuery(),
+            buildIndex,
+            verify,
+            dimensionFieldType(),
+            timestampFieldType(),
+            metricFieldType()
+        );
+    }
+
+    private static TimeSeriesDownsampleAggregationBuilder downsampleBuilder() {
+        return new TimeSeriesDownsampleAggregationBuilder("downsample").dimension(DIMENSION_FIELD)
+            .field(METRIC_FIELD)
+            .fixedInterval(TimeValue.timeValueMillis(10));
+    }
+
+    private static List<IndexableField> sample(String host, long timestamp, long value) {
+        return List.of(
+            new SortedSetDocValuesField(DIMENSION_FIELD, new BytesRef(host)),
+            new SortedNumericDocValuesField(TIMESTAMP_FIELD, timestamp),
+            new SortedNumericDocValuesField(METRIC_FIELD, value)
+        );
+    }
+
+    private static MappedFieldType dimensionFieldType() {
+        return new KeywordFieldMapper.KeywordFieldType(DIMENSION_FIELD);
+    }
+
+    private static MappedFieldType timestampFieldType() {
+        return new DateFieldMapper.DateFieldType(TIMESTAMP_FIELD);
+    }
+
+    private static MappedFieldType metricFieldType() {
+        return new NumberFieldMapper.NumberFieldType(METRIC_FIELD, NumberFieldMapper.NumberType.LONG);
+    }
+}
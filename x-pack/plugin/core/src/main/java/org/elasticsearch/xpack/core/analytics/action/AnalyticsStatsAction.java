@@ -48,7 +48,8 @@ public class AnalyticsStatsAction extends ActionType<AnalyticsStatsAction.Respon
         MOVING_PERCENTILES,
         NORMALIZE,
         RATE,
-        MULTI_TERMS;
+        MULTI_TERMS,
+        TIME_SERIES_DOWNSAMPLE;
     }
 
     public static class Request extends BaseNodesRequest<Request> implements ToXContentObject {
@@ -14,6 +14,7 @@ import org.elasticsearch.action.support.master.MasterNodeRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.xcontent.ToXContentFragment;
 import org.elasticsearch.xcontent.ToXContentObject;
 import org.elasticsearch.xcontent.XContentBuilder;
@@ -274,17 +275,44 @@ public class EnrichStatsAction extends ActionType<EnrichStatsAction.Response> {
             private final long hits;
             private final long misses;
             private final long evictions;
+            private final long lookupCount;
+            private final long lookupSizeInBytes;
 
             public CacheStats(String nodeId, long count, long hits, long misses, long evictions) {
+                this(nodeId, count, hits, misses, evictions, 0, 0);
+            }
+
+            public CacheStats(
+                String nodeId,
+                long count,
+                long hits,
+                long misses,
+                long evictions,
+                long lookupCount,
+                long lookupSizeInBytes
+            ) {
                 this.nodeId = nodeId;
                 this.count = count;
                 this.hits = hits;
                 this.misses = misses;
                 this.evictions = evictions;
+                this.lookupCount = lookupCount;
+                this.lookupSizeInBytes = lookupSizeInBytes;
             }
 
             public CacheStats(StreamInput in) throws IOException {
-                this(in.readString(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+                this.nodeId = in.readString();
+                this.count = in.readVLong();
+                this.hits = in.readVLong();
+                this.misses = in.readVLong();
+                this.evictions = in.readVLong();
+                if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+                    this.lookupCount = in.readVLong();
+                    this.lookupSizeInBytes = in.readVLong();
+                } else {
+                    this.lookupCount = 0;
+                    this.lookupSizeInBytes = 0;
+                }
             }
 
             public String getNodeId() {
@@ -307,6 +335,20 @@ public class EnrichStatsAction extends ActionType<EnrichStatsAction.Response> {
                 return evictions;
             }
 
+            /**
+             * The number of enrich indices that are kept in memory.
+             */
+            public long getLookupCount() {
+                return lookupCount;
+            }
+
+            /**
+             * An estimate of the memory used by the enrich indices that are kept in memory.
+             */
+            public long getLookupSizeInBytes() {
+                return lookupSizeInBytes;
+            }
+
             @Override
             public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
                 builder.field("node_id", nodeId);
@@ -314,6 +356,8 @@ public class EnrichStatsAction extends ActionType<EnrichStatsAction.Response> {
                 builder.field("hits", hits);
                 builder.field("misses", misses);
                 builder.field("evictions", evictions);
+                builder.field("lookup_count", lookupCount);
+                builder.humanReadableField("lookup_size_in_bytes", "lookup_size", new ByteSizeValue(lookupSizeInBytes));
                 return builder;
             }
 
@@ -324,6 +368,10 @@ public class EnrichStatsAction extends ActionType<EnrichStatsAction.Response> {
                 out.writeVLong(hits);
                 out.writeVLong(misses);
                 out.writeVLong(evictions);
+                if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                    out.writeVLong(lookupCount);
+                    out.writeVLong(lookupSizeInBytes);
+                }
             }
 
             @Override
@@ -332,12 +380,12 @@ public class EnrichStatsAction extends ActionType<EnrichStatsAction.Response> {
                 if (o == null || getClass() != o.getClass()) return false;
                 CacheStats that = (CacheStats) o;
                 return count == that.count && hits == that.hits && misses == that.misses && evictions == that.evictions &&
-                    nodeId.equals(that.nodeId);
+                    lookupCount == that.lookupCount && lookupSizeInBytes == that.lookupSizeInBytes && nodeId.equals(that.nodeId);
             }
 
             @Override
             public int hashCode() {
-                return Objects.hash(nodeId, count, hits, misses, evictions);
+                return Objects.hash(nodeId, count, hits, misses, evictions, lookupCount, lookupSizeInBytes);
             }
         }
     }
@@ -9,6 +9,7 @@ package org.elasticsearch.xpack.enrich;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.cluster.routing.Preference;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.ingest.AbstractProcessor;
@@ -59,6 +60,16 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
 
     public abstract QueryBuilder getQueryBuilder(Object fieldValue);
 
+    /**
+     * Look up the enrich documents for a value without searching.
+     *
+     * @return the enrich documents or {@code null} if we have to search for them
+     */
+    @Nullable
+    protected List<Map<String, Object>> lookup(Object fieldValue) {
+        return null;
+    }
+
     @Override
     public void execute(IngestDocument ingestDocument, BiConsumer<IngestDocument, Exception> handler) {
         try {
@@ -70,6 +81,13 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
                 return;
             }
 
+            List<Map<String, Object>> enrichDocuments = lookup(value);
+            if (enrichDocuments != null) {
+                enrich(ingestDocument, enrichDocuments);
+                handler.accept(ingestDocument, null);
+                return;
+            }
+
             QueryBuilder queryBuilder = getQueryBuilder(value);
             ConstantScoreQueryBuilder constantScore = new ConstantScoreQueryBuilder(queryBuilder);
             SearchSourceBuilder searchBuilder = new SearchSourceBuilder();
@@ -89,29 +107,12 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
                     return;
                 }
 
-                // If the index is empty, return the unchanged document
-                // If the enrich key does not exist in the index, throw an error
-                // If no documents match the key, return the unchanged document
                 SearchHit[] searchHits = searchResponse.getHits().getHits();
-                if (searchHits.length < 1) {
-                    handler.accept(ingestDocument, null);
-                    return;
-                }
-
-                String targetField = ingestDocument.renderTemplate(this.targetField);
-                if (overrideEnabled || ingestDocument.hasField(targetField) == false) {
-                    if (maxMatches == 1) {
-                        Map<String, Object> firstDocument = searchHits[0].getSourceAsMap();
-                        ingestDocument.setFieldValue(targetField, firstDocument);
-                    } else {
-                        List<Map<String, Object>> enrichDocuments = new ArrayList<>(searchHits.length);
-                        for (SearchHit searchHit : searchHits) {
-                            Map<String, Object> enrichDocument = searchHit.getSourceAsMap();
-                            enrichDocuments.add(enrichDocument);
-                        }
-                        ingestDocument.setFieldValue(targetField, enrichDocuments);
-                    }
+                List<Map<String, Object>> foundDocuments = new ArrayList<>(searchHits.length);
+                for (SearchHit searchHit : searchHits) {
+                    foundDocuments.add(searchHit.getSourceAsMap());
                 }
+                enrich(ingestDocument, foundDocuments);
                 handler.accept(ingestDocument, null);
             });
         } catch (Exception e) {
@@ -119,11 +120,34 @@ public abstract class AbstractEnrichProcessor extends AbstractProcessor {
         }
     }
 
+    private void enrich(IngestDocument ingestDocument, List<Map<String, Object>> enrichDocuments) {
+        // If the index is empty, return the unchanged document
+        // If the enrich key does not exist in the index, throw an error
+        // If no documents match the key, return the unchanged document
+        if (enrichDocuments.isEmpty()) {
+            return;
+        }
+
+        String targetField = ingestDocument.renderTemplate(this.targetField);
+        if (overrideEnabled || ingestDocument.hasField(targetField) == false) {
+            if (maxMatches == 1) {
+                ingestDocument.setFieldValue(targetField, enrichDocuments.get(0));
+            } else {
+                ingestDocument.setFieldValue(targetField, enrichDocuments);
+            }
+        }
+    }
+
     @Override
     public IngestDocument execute(IngestDocument ingestDocument) throws Exception {
         throw new UnsupportedOperationException("this method should not get executed");
     }
 
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
     public String getPolicyName() {
         return policyName;
     }
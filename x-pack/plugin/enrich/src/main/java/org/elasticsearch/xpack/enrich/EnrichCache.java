@@ -76,6 +76,22 @@ public class EnrichCache {
         );
     }
 
+    /**
+     * The stats of this cache and of the enrich indices that {@code lookups} keeps in memory.
+     */
+    public EnrichStatsAction.Response.CacheStats getStats(String localNodeId, EnrichLookups lookups) {
+        Cache.CacheStats cacheStats = cache.stats();
+        return new EnrichStatsAction.Response.CacheStats(
+            localNodeId,
+            cache.count(),
+            cacheStats.getHits(),
+            cacheStats.getMisses(),
+            cacheStats.getEvictions(),
+            lookups.count(),
+            lookups.sizeInBytes()
+        );
+    }
+
     /**
      * resolves the entry from the cache and provides reports the result to the `callBack` This method does not dispatch any logic
      * to another thread. Under contention the searchDispatcher is only called once when the value is not in the cache. The
@@ -0,0 +1,379 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.SetOnce;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.IndexAbstraction;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.cluster.routing.Preference;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.lookup.SourceLookup;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.xpack.core.enrich.EnrichPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the documents of small enrich indices for match policies in memory so
+ * match processors can look them up without searching. There is one instance
+ * of this class on each node, shared by all enrich processors.
+ *
+ * Enrich indices never change once a policy execution has created them, so the
+ * first time a processor looks up a value in a new enrich index we read all of
+ * its documents with a scroll and build a hash from each value of the match
+ * field to the documents that contain it. Until the lookup has been built, and
+ * for enrich indices with more than {@code maxDocuments} documents, processors
+ * search like they always did. Lookups for enrich indices that have been
+ * removed from the cluster state are dropped.
+ *
+ * All of the lookups on a node share a budget of {@code maxBytes}. We estimate
+ * the memory a lookup needs while we load it and stop loading, falling back to
+ * searching, as soon as it wouldn't fit.
+ */
+public class EnrichLookups {
+    private static final Logger logger = LogManager.getLogger(EnrichLookups.class);
+
+    static final int LOAD_BATCH_SIZE = 1000;
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private final SetOnce<Client> client = new SetOnce<>();
+    private final int maxDocuments;
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final ConcurrentMap<String, Lookup> lookups = new ConcurrentHashMap<>();
+    private volatile Metadata metadata;
+
+    /**
+     * @param maxDocuments the most documents an enrich index can have to be kept in memory, {@code 0} disables the lookups
+     * @param maxBytes the most memory all of the enrich indices kept in memory can use
+     */
+    EnrichLookups(int maxDocuments, long maxBytes) {
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+    }
+
+    EnrichLookups(Client client, int maxDocuments, long maxBytes) {
+        this(maxDocuments, maxBytes);
+        setClient(client);
+    }
+
+    /**
+     * Set the client to read enrich indices with.
+     */
+    void setClient(Client client) {
+        this.client.set(client);
+    }
+
+    void setMetadata(Metadata metadata) {
+        this.metadata = metadata;
+        lookups.entrySet().removeIf(e -> {
+            if (metadata.hasIndex(e.getKey())) {
+                return false;
+            }
+            release(e.getValue());
+            return true;
+        });
+    }
+
+    /**
+     * Look up the documents in the current enrich index of a policy whose match field contains one of the values.
+     *
+     * @param value a single value or a list of values, like the value of a term or terms query
+     * @return the source of up to {@code maxMatches} documents in the order a search would return them or {@code null} if the
+     *         documents aren't in memory and the caller has to search
+     */
+    @Nullable
+    List<Map<String, Object>> lookup(String policyName, String matchField, Object value, int maxMatches) {
+        Metadata metadata = this.metadata;
+        if (maxDocuments == 0 || maxBytes == 0 || metadata == null) {
+            return null;
+        }
+        IndexAbstraction alias = metadata.getIndicesLookup().get(EnrichPolicy.getBaseName(policyName));
+        if (alias == null) {
+            return null;
+        }
+        String index = alias.getIndices().get(0).getName();
+        Lookup lookup = lookups.get(index);
+        if (lookup == null) {
+            lookup = new Lookup();
+            if (lookups.putIfAbsent(index, lookup) == null) {
+                load(index, matchField, lookup);
+            }
+            return null;
+        }
+        return lookup.lookup(value, maxMatches);
+    }
+
+    /**
+     * The number of enrich indices that are in memory.
+     */
+    int count() {
+        return (int) lookups.values().stream().filter(Lookup::isLoaded).count();
+    }
+
+    /**
+     * An estimate of the memory used by the enrich indices that are in memory.
+     */
+    long sizeInBytes() {
+        return usedBytes.get();
+    }
+
+    private void release(Lookup lookup) {
+        usedBytes.addAndGet(-lookup.release());
+    }
+
+    private void load(String index, String matchField, Lookup lookup) {
+        SearchSourceBuilder source = new SearchSourceBuilder().size(LOAD_BATCH_SIZE).sort(SortBuilders.fieldSort("_doc"));
+        source.trackTotalHits(true);
+        SearchRequest request = new SearchRequest(index).source(source).scroll(SCROLL_KEEP_ALIVE);
+        request.preference(Preference.LOCAL.type());
+        Client client = this.client.get();
+        client.search(request, new ActionListener<>() {
+            private final LookupBuilder builder = new LookupBuilder(matchField);
+
+            @Override
+            public void onResponse(SearchResponse response) {
+                if (response.getHits().getTotalHits().value > maxDocuments) {
+                    logger.debug("not loading enrich index [{}] into memory because it has more than [{}] documents", index, maxDocuments);
+                    done(response.getScrollId(), null);
+                    return;
+                }
+                SearchHit[] hits = response.getHits().getHits();
+                for (SearchHit hit : hits) {
+                    if (builder.add(hit.getSourceRef()) == false) {
+                        logger.debug("not loading enrich index [{}] into memory because it has values that aren't strings", index);
+                        done(response.getScrollId(), null);
+                        return;
+                    }
+                }
+                if (usedBytes.get() + builder.ramBytesUsed > maxBytes) {
+                    logger.debug("not loading enrich index [{}] into memory because it would take more than [{}]", index, maxBytes);
+                    done(response.getScrollId(), null);
+                    return;
+                }
+                if (hits.length == 0) {
+                    done(response.getScrollId(), builder);
+                    return;
+                }
+                client.searchScroll(new SearchScrollRequest(response.getScrollId()).scroll(SCROLL_KEEP_ALIVE), this);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                logger.warn(new ParameterizedMessage("failed to load enrich index [{}] into memory", index), e);
+                // Try again the next time the index is used
+                lookups.remove(index, lookup);
+            }
+
+            private void done(String scrollId, @Nullable LookupBuilder builder) {
+                if (builder == null) {
+                    lookup.disable();
+                } else if (usedBytes.addAndGet(builder.ramBytesUsed) > maxBytes) {
+                    // Another index was loaded at the same time and took the memory
+                    usedBytes.addAndGet(-builder.ramBytesUsed);
+                    logger.debug("not loading enrich index [{}] into memory because it would take more than [{}]", index, maxBytes);
+                    lookup.disable();
+                } else {
+                    lookup.load(builder);
+                    logger.debug(
+                        "loaded [{}] documents from enrich index [{}] into memory using [{}] bytes",
+                        builder.sources.size(),
+                        index,
+                        builder.ramBytesUsed
+                    );
+                    if (lookups.get(index) != lookup) {
+                        // The index was removed while we loaded it
+                        release(lookup);
+                    }
+                }
+                if (scrollId != null) {
+                    ClearScrollRequest clear = new ClearScrollRequest();
+                    clear.addScrollId(scrollId);
+                    client.clearScroll(clear, ActionListener.wrap(r -> {}, e -> logger.debug("failed to clear scroll", e)));
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the documents of an enrich index in the order that searches return them, which is the order they were indexed in.
+     */
+    static class LookupBuilder {
+        /**
+         * Rough size of a key in the hash, not counting the key itself and the documents
+         * that contain it, which we count separately.
+         */
+        private static final long ENTRY_BYTES = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 4L * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+            + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+
+        private final String matchField;
+        private final List<BytesReference> sources = new ArrayList<>();
+        private final Map<String, List<Integer>> documents = new HashMap<>();
+        /**
+         * An estimate of the memory the {@link Lookup} built from this will use.
+         */
+        private long ramBytesUsed;
+
+        LookupBuilder(String matchField) {
+            this.matchField = matchField;
+        }
+
+        /**
+         * Add the next document.
+         *
+         * @return false if its match field has a value we can't look up like a search would
+         */
+        boolean add(BytesReference source) {
+            int document = sources.size();
+            sources.add(source);
+            ramBytesUsed += source.ramBytesUsed() + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+            Object value = XContentMapValues.extractValue(matchField, SourceLookup.sourceAsMap(source));
+            List<?> values = value instanceof List ? (List<?>) value : Arrays.asList(value);
+            for (Object v : values) {
+                if (v == null) {
+                    continue;
+                }
+                if (v instanceof String == false) {
+                    // Numbers and booleans are indexed as they are written in the source which we don't have after parsing it
+                    return false;
+                }
+                List<Integer> matches = documents.computeIfAbsent((String) v, k -> {
+                    ramBytesUsed += ENTRY_BYTES + RamUsageEstimator.sizeOf(k);
+                    return new ArrayList<>(1);
+                });
+                if (matches.isEmpty() || matches.get(matches.size() - 1) != document) {
+                    matches.add(document);
+                    ramBytesUsed += Integer.BYTES;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The documents of a single enrich index.
+     */
+    static class Lookup {
+        private static final int[] NO_DOCUMENTS = new int[0];
+
+        private volatile boolean loaded;
+        private BytesReference[] sources;
+        private Map<String, int[]> documents;
+        /**
+         * The bytes this lookup counts against the budget until it is {@link #release released}.
+         */
+        private final AtomicLong ramBytesUsed = new AtomicLong();
+
+        void load(LookupBuilder builder) {
+            ramBytesUsed.set(builder.ramBytesUsed);
+            documents = new HashMap<>(builder.documents.size());
+            builder.documents.forEach((key, matches) -> documents.put(key, matches.stream().mapToInt(Integer::intValue).toArray()));
+            sources = builder.sources.toArray(new BytesReference[0]);
+            loaded = true;
+        }
+
+        /**
+         * Never look up anything in this index, we have to search it.
+         */
+        void disable() {
+            documents = null;
+            loaded = true;
+        }
+
+        boolean isLoaded() {
+            return loaded && documents != null;
+        }
+
+        /**
+         * Stop counting this lookup against the budget.
+         *
+         * @return the bytes it counted, {@code 0} if it was already released
+         */
+        long release() {
+            return ramBytesUsed.getAndSet(0);
+        }
+
+        @Nullable
+        List<Map<String, Object>> lookup(Object value, int maxMatches) {
+            if (loaded == false || documents == null) {
+                return null;
+            }
+            int[] matches;
+            if (value instanceof List) {
+                List<?> values = (List<?>) value;
+                if (values.isEmpty()) {
+                    return null;
+                }
+                int[][] perValue = new int[values.size()][];
+                for (int i = 0; i < perValue.length; i++) {
+                    perValue[i] = documentsFor(values.get(i));
+                    if (perValue[i] == null) {
+                        return null;
+                    }
+                }
+                matches = union(perValue);
+            } else {
+                matches = documentsFor(value);
+                if (matches == null) {
+                    return null;
+                }
+            }
+            int count = Math.min(matches.length, maxMatches);
+            List<Map<String, Object>> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(SourceLookup.sourceAsMap(sources[matches[i]]));
+            }
+            return result;
+        }
+
+        /**
+         * The documents that a term query for {@code value} finds or {@code null} if we can't tell without searching.
+         */
+        @Nullable
+        private int[] documentsFor(Object value) {
+            if (value instanceof String == false && value instanceof Number == false && value instanceof Boolean == false) {
+                // Let the search report errors for nulls and objects
+                return null;
+            }
+            // The term query compares the value's string form with the indexed keywords
+            int[] matches = documents.get(value.toString());
+            return matches == null ? NO_DOCUMENTS : matches;
+        }
+
+        /**
+         * The sorted union of sorted lists of documents.
+         */
+        private static int[] union(int[][] lists) {
+            if (lists.length == 1) {
+                return lists[0];
+            }
+            return Arrays.stream(lists).flatMapToInt(Arrays::stream).sorted().distinct().toArray();
+        }
+    }
+}
@@ -9,6 +9,7 @@ package org.elasticsearch.xpack.enrich;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.OriginSettingClient;
 import org.elasticsearch.cluster.NamedDiff;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.metadata.Metadata;
@@ -20,6 +21,7 @@ import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
@@ -71,6 +73,7 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+import static org.elasticsearch.xpack.core.ClientHelper.ENRICH_ORIGIN;
 import static org.elasticsearch.xpack.core.enrich.EnrichPolicy.ENRICH_INDEX_PATTERN;
 
 public class EnrichPlugin extends Plugin implements SystemIndexPlugin, IngestPlugin {
@@ -129,17 +132,45 @@ public class EnrichPlugin extends Plugin implements SystemIndexPlugin, IngestPlu
 
     public static final Setting<Long> CACHE_SIZE = Setting.longSetting("enrich.cache_size", 1000, 0, Setting.Property.NodeScope);
 
+    /**
+     * Enrich indices of match policies with up to this many documents are kept in memory on each node that runs enrich processors.
+     * Disabled by default.
+     */
+    public static final Setting<Integer> LOOKUP_MAX_DOCUMENTS = Setting.intSetting(
+        "enrich.lookup.max_documents",
+        0,
+        0,
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * The most memory that all of the enrich indices kept in memory on a node can use.
+     */
+    public static final Setting<ByteSizeValue> LOOKUP_MAX_MEMORY = Setting.memorySizeSetting(
+        "enrich.lookup.max_memory",
+        "1%",
+        Setting.Property.NodeScope
+    );
+
     private final Settings settings;
     private final EnrichCache enrichCache;
+    private final EnrichLookups enrichLookups;
 
     public EnrichPlugin(final Settings settings) {
         this.settings = settings;
         this.enrichCache = new EnrichCache(CACHE_SIZE.get(settings));
+        this.enrichLookups = new EnrichLookups(LOOKUP_MAX_DOCUMENTS.get(settings), LOOKUP_MAX_MEMORY.get(settings).getBytes());
     }
 
     @Override
     public Map<String, Processor.Factory> getProcessors(Processor.Parameters parameters) {
-        EnrichProcessorFactory factory = new EnrichProcessorFactory(parameters.client, parameters.scriptService, enrichCache);
+        enrichLookups.setClient(new OriginSettingClient(parameters.client, ENRICH_ORIGIN));
+        EnrichProcessorFactory factory = new EnrichProcessorFactory(
+            parameters.client,
+            parameters.scriptService,
+            enrichCache,
+            enrichLookups
+        );
         parameters.ingestService.addIngestClusterStateListener(factory);
         return Map.of(EnrichProcessorFactory.TYPE, factory);
     }
@@ -222,7 +253,8 @@ public class EnrichPlugin extends Plugin implements SystemIndexPlugin, IngestPlu
             new EnrichCoordinatorProxyAction.Coordinator(client, settings),
             enrichPolicyMaintenanceService,
             enrichPolicyExecutor,
-            enrichCache
+            enrichCache,
+            enrichLookups
         );
     }
 
@@ -255,7 +287,9 @@ public class EnrichPlugin extends Plugin implements SystemIndexPlugin, IngestPlu
             COORDINATOR_PROXY_MAX_LOOKUPS_PER_REQUEST,
             COORDINATOR_PROXY_QUEUE_CAPACITY,
             ENRICH_MAX_FORCE_MERGE_ATTEMPTS,
-            CACHE_SIZE
+            CACHE_SIZE,
+            LOOKUP_MAX_DOCUMENTS,
+            LOOKUP_MAX_MEMORY
         );
     }
 
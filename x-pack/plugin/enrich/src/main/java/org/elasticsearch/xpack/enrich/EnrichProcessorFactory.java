@@ -37,13 +37,19 @@ final class EnrichProcessorFactory implements Processor.Factory, Consumer<Cluste
     private final Client client;
     private final ScriptService scriptService;
     private final EnrichCache enrichCache;
+    private final EnrichLookups enrichLookups;
 
     volatile Metadata metadata;
 
     EnrichProcessorFactory(Client client, ScriptService scriptService, EnrichCache enrichCache) {
+        this(client, scriptService, enrichCache, new EnrichLookups(client, 0, 0));
+    }
+
+    EnrichProcessorFactory(Client client, ScriptService scriptService, EnrichCache enrichCache, EnrichLookups enrichLookups) {
         this.client = client;
         this.scriptService = scriptService;
         this.enrichCache = Objects.requireNonNull(enrichCache);
+        this.enrichLookups = Objects.requireNonNull(enrichLookups);
     }
 
     @Override
@@ -80,6 +86,19 @@ final class EnrichProcessorFactory implements Processor.Factory, Consumer<Cluste
         BiConsumer<SearchRequest, BiConsumer<SearchResponse, Exception>> searchRunner = createSearchRunner(client, enrichCache);
         switch (policyType) {
             case EnrichPolicy.MATCH_TYPE:
+                return new MatchProcessor(
+                    tag,
+                    description,
+                    searchRunner,
+                    enrichLookups,
+                    policyName,
+                    field,
+                    targetField,
+                    overrideEnabled,
+                    ignoreMissing,
+                    matchField,
+                    maxMatches
+                );
             case EnrichPolicy.RANGE_TYPE:
                 return new MatchProcessor(
                     tag,
@@ -121,6 +140,7 @@ final class EnrichProcessorFactory implements Processor.Factory, Consumer<Cluste
     public void accept(ClusterState state) {
         metadata = state.getMetadata();
         enrichCache.setMetadata(metadata);
+        enrichLookups.setMetadata(metadata);
     }
 
     private static BiConsumer<SearchRequest, BiConsumer<SearchResponse, Exception>> createSearchRunner(
@@ -8,20 +8,43 @@ package org.elasticsearch.xpack.enrich;
 
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.TermQueryBuilder;
 import org.elasticsearch.index.query.TermsQueryBuilder;
 import org.elasticsearch.script.TemplateScript;
 
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 
 public final class MatchProcessor extends AbstractEnrichProcessor {
 
+    private final EnrichLookups lookups;
+
+    MatchProcessor(
+        String tag,
+        String description,
+        BiConsumer<SearchRequest, BiConsumer<SearchResponse, Exception>> searchRunner,
+        String policyName,
+        TemplateScript.Factory field,
+        TemplateScript.Factory targetField,
+        boolean overrideEnabled,
+        boolean ignoreMissing,
+        String matchField,
+        int maxMatches
+    ) {
+        this(tag, description, searchRunner, null, policyName, field, targetField, overrideEnabled, ignoreMissing, matchField, maxMatches);
+    }
+
+    /**
+     * @param lookups the enrich indices that are in memory or {@code null} if we always have to search
+     */
     MatchProcessor(
         String tag,
         String description,
         BiConsumer<SearchRequest, BiConsumer<SearchResponse, Exception>> searchRunner,
+        @Nullable EnrichLookups lookups,
         String policyName,
         TemplateScript.Factory field,
         TemplateScript.Factory targetField,
@@ -31,6 +54,12 @@ public final class MatchProcessor extends AbstractEnrichProcessor {
         int maxMatches
     ) {
         super(tag, description, searchRunner, policyName, field, targetField, ignoreMissing, overrideEnabled, matchField, maxMatches);
+        this.lookups = lookups;
+    }
+
+    @Override
+    protected List<Map<String, Object>> lookup(Object fieldValue) {
+        return lookups == null ? null : lookups.lookup(getPolicyName(), matchField, fieldValue, maxMatches);
     }
 
     @Override
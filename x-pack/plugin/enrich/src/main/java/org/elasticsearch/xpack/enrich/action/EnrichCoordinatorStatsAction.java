@@ -28,6 +28,7 @@ import org.elasticsearch.transport.TransportService;
 import org.elasticsearch.xpack.core.enrich.action.EnrichStatsAction;
 import org.elasticsearch.xpack.core.enrich.action.EnrichStatsAction.Response.CoordinatorStats;
 import org.elasticsearch.xpack.enrich.EnrichCache;
+import org.elasticsearch.xpack.enrich.EnrichLookups;
 
 import java.io.IOException;
 import java.util.List;
@@ -126,6 +127,7 @@ public class EnrichCoordinatorStatsAction extends ActionType<EnrichCoordinatorSt
     public static class TransportAction extends TransportNodesAction<Request, Response, NodeRequest, NodeResponse> {
 
         private final EnrichCache enrichCache;
+        private final EnrichLookups enrichLookups;
         private final EnrichCoordinatorProxyAction.Coordinator coordinator;
 
         @Inject
@@ -135,6 +137,7 @@ public class EnrichCoordinatorStatsAction extends ActionType<EnrichCoordinatorSt
             TransportService transportService,
             ActionFilters actionFilters,
             EnrichCache enrichCache,
+            EnrichLookups enrichLookups,
             EnrichCoordinatorProxyAction.Coordinator coordinator
         ) {
             super(
@@ -149,6 +152,7 @@ public class EnrichCoordinatorStatsAction extends ActionType<EnrichCoordinatorSt
                 NodeResponse.class
             );
             this.enrichCache = enrichCache;
+            this.enrichLookups = enrichLookups;
             this.coordinator = coordinator;
         }
 
@@ -176,7 +180,7 @@ public class EnrichCoordinatorStatsAction extends ActionType<EnrichCoordinatorSt
         @Override
         protected NodeResponse nodeOperation(NodeRequest request, Task task) {
             DiscoveryNode node = clusterService.localNode();
-            return new NodeResponse(node, enrichCache.getStats(node.getId()), coordinator.getStats(node.getId()));
+            return new NodeResponse(node, enrichCache.getStats(node.getId(), enrichLookups), coordinator.getStats(node.getId()));
         }
     }
 
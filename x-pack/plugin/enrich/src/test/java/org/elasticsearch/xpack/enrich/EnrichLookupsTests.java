@@ -0,0 +1,261 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.enrich;
+
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.cluster.metadata.AliasMetadata;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.profile.SearchProfileResults;
+import org.elasticsearch.search.suggest.Suggest;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.client.NoOpClient;
+import org.elasticsearch.xpack.core.enrich.EnrichPolicy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+
+public class EnrichLookupsTests extends ESTestCase {
+
+    public void testLookup() {
+        EnrichLookups.Lookup lookup = lookup(
+            "{\"domain\": \"elastic.co\", \"rank\": 1}",
+            "{\"domain\": [\"elastic.co\", \"elasticsearch.org\"], \"rank\": 2}",
+            "{\"domain\": \"kibana.org\", \"rank\": 3}",
+            "{\"domain\": \"5\", \"rank\": 4}",
+            "{\"rank\": 5}"
+        );
+        assertThat(lookup.lookup("elastic.co", 1), equalTo(List.of(Map.of("domain", "elastic.co", "rank", 1))));
+        assertThat(ranks(lookup.lookup("elastic.co", 128)), equalTo(List.of(1, 2)));
+        assertThat(ranks(lookup.lookup("elasticsearch.org", 128)), equalTo(List.of(2)));
+        assertThat(lookup.lookup("missing", 128), empty());
+        assertThat(ranks(lookup.lookup(5, 128)), equalTo(List.of(4)));
+
+        // Like a terms query
+        assertThat(ranks(lookup.lookup(List.of("kibana.org", "elastic.co"), 128)), equalTo(List.of(1, 2, 3)));
+        assertThat(ranks(lookup.lookup(List.of("elasticsearch.org", "elastic.co"), 128)), equalTo(List.of(1, 2)));
+        assertThat(ranks(lookup.lookup(List.of("kibana.org", "elastic.co"), 2)), equalTo(List.of(1, 2)));
+
+        // Leave errors to the search
+        assertThat(lookup.lookup(Map.of("domain", "elastic.co"), 1), nullValue());
+        assertThat(lookup.lookup(Collections.singletonList(null), 1), nullValue());
+        assertThat(lookup.lookup(List.of(), 1), nullValue());
+    }
+
+    public void testNonStringValues() {
+        EnrichLookups.LookupBuilder builder = new EnrichLookups.LookupBuilder("domain");
+        assertTrue(builder.add(new BytesArray("{\"domain\": \"elastic.co\"}")));
+        assertFalse(builder.add(new BytesArray("{\"domain\": 1.0}")));
+    }
+
+    public void testLoad() {
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < EnrichLookups.LOAD_BATCH_SIZE + 10; i++) {
+            sources.add("{\"key\": \"" + i + "\", \"value\": " + i + "}");
+        }
+        try (ScrollingClient client = new ScrollingClient(getTestName(), sources)) {
+            EnrichLookups lookups = new EnrichLookups(client, sources.size(), Long.MAX_VALUE);
+            lookups.setMetadata(metadata("policy-1"));
+            assertThat(lookups.count(), equalTo(0));
+
+            // The first lookup loads the index
+            assertThat(lookups.lookup("policy", "key", "7", 1), nullValue());
+            assertThat(lookups.count(), equalTo(1));
+            assertThat(lookups.sizeInBytes(), greaterThan(0L));
+            assertThat(client.searches, equalTo(1));
+            assertThat(client.scrolls, equalTo(2));
+            assertThat(client.clears, equalTo(1));
+            assertThat(lookups.lookup("policy", "key", "7", 1), equalTo(List.of(Map.of("key", "7", "value", 7))));
+            assertThat(lookups.lookup("policy", "key", "1005", 1), equalTo(List.of(Map.of("key", "1005", "value", 1005))));
+            assertThat(client.searches, equalTo(1));
+
+            // A new enrich index replaces the old one
+            lookups.setMetadata(metadata("policy-2"));
+            assertThat(lookups.count(), equalTo(0));
+            assertThat(lookups.sizeInBytes(), equalTo(0L));
+            assertThat(lookups.lookup("policy", "key", "7", 1), nullValue());
+            assertThat(client.searches, equalTo(2));
+            assertThat(lookups.lookup("policy", "key", "7", 1), equalTo(List.of(Map.of("key", "7", "value", 7))));
+        }
+    }
+
+    public void testTooManyDocuments() {
+        List<String> sources = List.of("{\"key\": \"a\"}", "{\"key\": \"b\"}");
+        try (ScrollingClient client = new ScrollingClient(getTestName(), sources)) {
+            EnrichLookups lookups = new EnrichLookups(client, 1, Long.MAX_VALUE);
+            lookups.setMetadata(metadata("policy-1"));
+            assertThat(lookups.lookup("policy", "key", "a", 1), nullValue());
+            assertThat(lookups.lookup("policy", "key", "a", 1), nullValue());
+            assertThat(lookups.count(), equalTo(0));
+            assertThat(client.searches, equalTo(1));
+            assertThat(client.clears, equalTo(1));
+        }
+    }
+
+    public void testDisabled() {
+        try (ScrollingClient client = new ScrollingClient(getTestName(), List.of("{\"key\": \"a\"}"))) {
+            EnrichLookups lookups = new EnrichLookups(client, 0, Long.MAX_VALUE);
+            lookups.setMetadata(metadata("policy-1"));
+            assertThat(lookups.lookup("policy", "key", "a", 1), nullValue());
+            assertThat(lookups.lookup("policy", "key", "a", 1), nullValue());
+            assertThat(client.searches, equalTo(0));
+        }
+    }
+
+    public void testOverMemoryBudget() {
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < EnrichLookups.LOAD_BATCH_SIZE + 10; i++) {
+            sources.add("{\"key\": \"" + i + "\", \"value\": " + i + "}");
+        }
+        long size;
+        try (ScrollingClient client = new ScrollingClient(getTestName(), sources)) {
+            EnrichLookups lookups = new EnrichLookups(client, sources.size(), Long.MAX_VALUE);
+            lookups.setMetadata(metadata("policy-1"));
+            lookups.lookup("policy", "key", "7", 1);
+            size = lookups.sizeInBytes();
+        }
+        try (ScrollingClient client = new ScrollingClient(getTestName(), sources)) {
+            EnrichLookups lookups = new EnrichLookups(client, sources.size(), size - 1);
+            lookups.setMetadata(metadata("policy-1"));
+            assertThat(lookups.lookup("policy", "key", "7", 1), nullValue());
+            assertThat(lookups.lookup("policy", "key", "7", 1), nullValue());
+            assertThat(lookups.count(), equalTo(0));
+            assertThat(lookups.sizeInBytes(), equalTo(0L));
+            // We stop reading as soon as the documents we've read don't fit
+            assertThat(client.scrolls, equalTo(1));
+            assertThat(client.clears, equalTo(1));
+        }
+    }
+
+    public void testNoMemoryBudget() {
+        try (ScrollingClient client = new ScrollingClient(getTestName(), List.of("{\"key\": \"a\"}"))) {
+            EnrichLookups lookups = new EnrichLookups(client, 10, 0);
+            lookups.setMetadata(metadata("policy-1"));
+            assertThat(lookups.lookup("policy", "key", "a", 1), nullValue());
+            assertThat(client.searches, equalTo(0));
+        }
+    }
+
+    private static EnrichLookups.Lookup lookup(String... sources) {
+        EnrichLookups.LookupBuilder builder = new EnrichLookups.LookupBuilder("domain");
+        for (String source : sources) {
+            assertTrue(builder.add(new BytesArray(source)));
+        }
+        EnrichLookups.Lookup lookup = new EnrichLookups.Lookup();
+        lookup.load(builder);
+        return lookup;
+    }
+
+    private static List<Object> ranks(List<Map<String, Object>> documents) {
+        List<Object> ranks = new ArrayList<>();
+        for (Map<String, Object> document : documents) {
+            ranks.add(document.get("rank"));
+        }
+        return ranks;
+    }
+
+    private static Metadata metadata(String policyIndexSuffix) {
+        return Metadata.builder()
+            .put(
+                IndexMetadata.builder(EnrichPolicy.getBaseName("policy") + "-" + policyIndexSuffix)
+                    .settings(settings(Version.CURRENT))
+                    .numberOfShards(1)
+                    .numberOfReplicas(0)
+                    .putAlias(AliasMetadata.builder(EnrichPolicy.getBaseName("policy")).build())
+            )
+            .build();
+    }
+
+    /**
+     * Returns the documents of the enrich index in batches.
+     */
+    private static class ScrollingClient extends NoOpClient {
+        private final List<String> sources;
+        private int next;
+        int searches;
+        int scrolls;
+        int clears;
+
+        ScrollingClient(String testName, List<String> sources) {
+            super(testName);
+            this.sources = sources;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected <Request extends ActionRequest, Response extends ActionResponse> void doExecute(
+            ActionType<Response> action,
+            Request request,
+            ActionListener<Response> listener
+        ) {
+            if (request instanceof SearchRequest) {
+                searches++;
+                next = 0;
+                listener.onResponse((Response) nextBatch(((SearchRequest) request).source().size()));
+            } else if (request instanceof SearchScrollRequest) {
+                scrolls++;
+                listener.onResponse((Response) nextBatch(EnrichLookups.LOAD_BATCH_SIZE));
+            } else if (request instanceof ClearScrollRequest) {
+                clears++;
+                super.doExecute(action, request, listener);
+            } else {
+                super.doExecute(action, request, listener);
+            }
+        }
+
+        private SearchResponse nextBatch(int size) {
+            List<SearchHit> hits = new ArrayList<>();
+            for (; next < sources.size() && hits.size() < size; next++) {
+                hits.add(new SearchHit(next, Integer.toString(next), Map.of(), Map.of()).sourceRef(new BytesArray(sources.get(next))));
+            }
+            return new SearchResponse(
+                new InternalSearchResponse(
+                    new SearchHits(
+                        hits.toArray(new SearchHit[0]),
+                        new TotalHits(sources.size(), TotalHits.Relation.EQUAL_TO),
+                        0.0f
+                    ),
+                    InternalAggregations.EMPTY,
+                    new Suggest(Collections.emptyList()),
+                    new SearchProfileResults(Collections.emptyMap()),
+                    false,
+                    false,
+                    1
+                ),
+                "scroll",
+                1,
+                1,
+                0,
+                0,
+                ShardSearchFailure.EMPTY_ARRAY,
+                SearchResponse.Clusters.EMPTY
+            );
+        }
+    }
+}
@@ -183,6 +183,11 @@ public class InferenceProcessor extends AbstractProcessor {
         throw new UnsupportedOperationException("should never be called");
     }
 
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return TYPE;
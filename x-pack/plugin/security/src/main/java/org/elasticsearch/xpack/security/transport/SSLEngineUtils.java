@@ -44,7 +44,7 @@ public class SSLEngineUtils {
 
     public static SSLEngine getSSLEngine(HttpChannel httpChannel) {
         if (httpChannel instanceof Netty4HttpChannel) {
-            Channel nettyChannel = ((Netty4HttpChannel) httpChannel).getNettyChannel();
+            Channel nettyChannel = ((Netty4HttpChannel) httpChannel).getConnectionChannel().getNettyChannel();
             SslHandler handler = nettyChannel.pipeline().get(SslHandler.class);
             assert handler != null : "Must have SslHandler";
             return handler.engine();
@@ -26,6 +26,7 @@ import org.elasticsearch.xpack.security.transport.SecurityHttpExceptionHandler;
 import org.elasticsearch.xpack.security.transport.filter.IPFilter;
 
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
 
 import static org.elasticsearch.xpack.core.XPackSettings.HTTP_SSL_ENABLED;
 
@@ -84,6 +85,12 @@ public class SecurityNetty4HttpServerTransport extends Netty4HttpServerTransport
             if (sslConfiguration != null) {
                 SSLEngine sslEngine = sslService.createSSLEngine(sslConfiguration, null, -1);
                 sslEngine.setUseClientMode(false);
+                if (isHttp2Enabled()) {
+                    // offer HTTP/2 during the handshake; the protocol detector picks the pipeline from the bytes that follow
+                    final SSLParameters sslParameters = sslEngine.getSSLParameters();
+                    sslParameters.setApplicationProtocols(new String[] { "h2", "http/1.1" });
+                    sslEngine.setSSLParameters(sslParameters);
+                }
                 ch.pipeline().addFirst("ssl", new SslHandler(sslEngine));
             }
             ch.pipeline().addFirst("ip_filter", new IpFilterRemoteAddressFilter(ipFilter, IPFilter.HTTP_PROFILE_NAME));